@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.cache.future;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * A future cache bounded by the total weight of its values. When the insertion of a value makes the total weight exceed the
+ * maximum weight, the least recently used entries are evicted until the cache fits again. A value heavier than the maximum
+ * weight is returned to the caller but it is never cached.
+ * </p>
+ *
+ * <p>
+ * The entries are kept in an access ordered map guarded by a lock, a lookup moves the entry at the end of the map and the
+ * eviction removes the entries from the head of the map, so both take a constant time. The cache maintains hit, miss and
+ * eviction counters.
+ * </p>
+ *
+ * @param <K> the key type parameter
+ * @param <V> the value type parameter
+ * @param <C> the context type parameter
+ */
+public class BoundedFutureMap<K, V, C> extends FutureCache<K, V, C> {
+
+    /**
+     * Computes the weight of a cache entry, the weight is usually the approximative size in bytes of the value.
+     *
+     * @param <K> the key type parameter
+     * @param <V> the value type parameter
+     */
+    public interface Weigher<K, V> {
+
+        /**
+         * Returns the weight of an entry, it must not be negative.
+         *
+         * @param key the key
+         * @param value the value
+         * @return the weight
+         */
+        long getWeight(K key, V value);
+
+    }
+
+    private static class Entry<V> {
+
+        /** . */
+        final V value;
+
+        /** . */
+        final long weight;
+
+        private Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /** The entries from the least to the most recently used, guarded by itself. */
+    final LinkedHashMap<K, Entry<V>> data;
+
+    /** . */
+    private final Weigher<K, V> weigher;
+
+    /** . */
+    private final long maxWeight;
+
+    /** The total weight, guarded by the data lock. */
+    private long weight;
+
+    /** . */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** . */
+    private final AtomicLong misses = new AtomicLong();
+
+    /** . */
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedFutureMap(Loader<K, V, C> loader, Weigher<K, V> weigher, long maxWeight) {
+        super(loader);
+
+        //
+        if (weigher == null) {
+            throw new NullPointerException("No null weigher accepted");
+        }
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Max weight cannot be negative: " + maxWeight);
+        }
+
+        //
+        this.data = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    protected V get(K key) {
+        Entry<V> entry;
+        synchronized (data) {
+            entry = data.get(key);
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.value;
+        } else {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    @Override
+    protected void put(K key, V value) {
+        long entryWeight = weigher.getWeight(key, value);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Entry<V> entry = new Entry<V>(value, entryWeight);
+        synchronized (data) {
+            Entry<V> previous = data.put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entryWeight;
+            if (weight > maxWeight) {
+                evict(entry);
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits, must be called with the data lock held. The inserted
+     * entry is the most recently used one and it is therefore the last one of the iteration.
+     *
+     * @param excluded the entry that must not be evicted
+     */
+    private void evict(Entry<V> excluded) {
+        for (Iterator<Entry<V>> i = data.values().iterator(); weight > maxWeight && i.hasNext();) {
+            Entry<V> eldest = i.next();
+            if (eldest != excluded) {
+                i.remove();
+                weight -= eldest.weight;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        synchronized (data) {
+            Entry<V> removed = data.remove(key);
+            if (removed != null) {
+                weight -= removed.weight;
+            }
+        }
+        invalidate(key);
+    }
+
+    public void clear() {
+        synchronized (data) {
+            data.clear();
+            weight = 0;
+        }
+        invalidateAll();
+    }
+
+    public int getSize() {
+        synchronized (data) {
+            return data.size();
+        }
+    }
+
+    public long getWeight() {
+        synchronized (data) {
+            return weight;
+        }
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+}
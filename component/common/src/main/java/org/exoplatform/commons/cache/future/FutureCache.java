@@ -19,9 +19,13 @@
 
 package org.exoplatform.commons.cache.future;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
@@ -49,6 +53,13 @@ import org.gatein.common.logging.LoggerFactory;
  * is to decouple the cache from the object source.
  * </p>
  *
+ * <p>
+ * A {@link RefreshPolicy} can be provided to expire the values, to reload them before their expiration, to keep on
+ * returning a removed or expired value while it is reloaded and to cache the null values returned by the loader. The
+ * subclasses supporting the policy must override the {@link #remove(Object)} method and notify the removals of their
+ * values with the {@link #invalidate(Object)} and {@link #invalidateAll()} methods.
+ * </p>
+ *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  * @version $Revision$
  * @param <K> the key type parameter
@@ -66,9 +77,24 @@ public abstract class FutureCache<K, V, C> {
     /** . */
     private final Logger log = LoggerFactory.getLogger(FutureCache.class);
 
+    /** . */
+    final RefreshPolicy policy;
+
+    /** The load time of the values when a policy is used. */
+    private final ConcurrentMap<K, Stamp<V>> stamps;
+
+    /** . */
+    private final AtomicInteger loads = new AtomicInteger();
+
     public FutureCache(Loader<K, V, C> loader) {
+        this(loader, null);
+    }
+
+    public FutureCache(Loader<K, V, C> loader, RefreshPolicy policy) {
         this.loader = loader;
         this.futureEntries = new ConcurrentHashMap<K, Retrieval<K, V, C>>();
+        this.policy = policy;
+        this.stamps = policy != null ? new ConcurrentHashMap<K, Stamp<V>>() : null;
     }
 
     /**
@@ -88,6 +114,54 @@ public abstract class FutureCache<K, V, C> {
      */
     protected abstract void put(K key, V value);
 
+    /**
+     * Removes the value associated with a key from the cache. This method is used by the future cache when a value reloaded
+     * with a {@link RefreshPolicy} does not exist anymore, the default implementation does nothing.
+     *
+     * @param key the key
+     */
+    protected void remove(K key) {
+    }
+
+    /**
+     * Notifies the future cache that the value associated with the key was removed, with a {@link RefreshPolicy} the value
+     * is returned during the stale time while it is reloaded.
+     *
+     * @param key the key
+     */
+    protected final void invalidate(K key) {
+        if (stamps != null) {
+            Stamp<V> stamp = stamps.get(key);
+            if (stamp != null) {
+                if (stamp.value == null) {
+                    stamps.remove(key, stamp);
+                } else if (stamp.staleSince == 0) {
+                    stamp.staleSince = now();
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies the future cache that all its values were removed.
+     */
+    protected final void invalidateAll() {
+        if (stamps != null) {
+            for (K key : stamps.keySet()) {
+                invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the current time in milliseconds.
+     *
+     * @return the current time
+     */
+    long now() {
+        return System.currentTimeMillis();
+    }
+
     /**
      * Perform a cache lookup for the specified key within the specified context. When the value cannot be loaded (because it
      * does not exist or it failed or anything else that does not come to my mind), the value null is returned.
@@ -97,60 +171,232 @@ public abstract class FutureCache<K, V, C> {
      * @return the value
      */
     public final V get(final C context, final K key) {
+        if (policy != null) {
+            return getWithPolicy(context, key);
+        }
+
         // First we try a simple cache get
         V value = get(key);
 
         // If it does not succeed then we go through a process that will avoid to load
         // the same resource concurrently
         if (value == null) {
-            // Create our future
-            Retrieval<K, V, C> retrieval = new Retrieval<K, V, C>(context, key, this);
+            value = retrieve(context, key);
+        }
 
-            // This boolean means we inserted in the local
-            boolean inserted = true;
+        //
+        return value;
+    }
 
-            //
-            try {
-                Retrieval<K, V, C> phantom = futureEntries.putIfAbsent(key, retrieval);
+    private V retrieve(final C context, final K key) {
+        V value = null;
 
-                // Use the value that could have been inserted by another thread
-                if (phantom != null) {
-                    retrieval = phantom;
-                    inserted = false;
-                } else {
+        // Create our future
+        Retrieval<K, V, C> retrieval = new Retrieval<K, V, C>(context, key, this);
+
+        // This boolean means we inserted in the local
+        boolean inserted = true;
+
+        //
+        try {
+            Retrieval<K, V, C> phantom = futureEntries.putIfAbsent(key, retrieval);
+
+            // Use the value that could have been inserted by another thread
+            if (phantom != null) {
+                retrieval = phantom;
+                inserted = false;
+            } else {
+                try {
+                    retrieval.current = Thread.currentThread();
+                    retrieval.future.run();
+                } catch (Exception e) {
+                    log.error("Retrieval of resource " + key + " threw an exception", e);
+                } finally {
+                    retrieval.current = null;
+                }
+            }
+
+            // Returns the value
+            if (retrieval.current == Thread.currentThread()) {
+                throw new IllegalStateException("Reentrancy detected when obtaining key " + key + " with context "
+                        + context + " detected");
+            } else {
+                try {
+                    value = retrieval.future.get();
+                } catch (ExecutionException e) {
+                    log.error("Computing of resource " + key + " threw an exception", e.getCause());
+                } catch (InterruptedException e) {
+                    // We should handle interruped exception in some manner
+                    log.error("Retrieval of resource " + key + " threw an exception", e);
+                }
+            }
+        } finally {
+            // Clean up the per key map but only if our insertion succeeded and with our future
+            if (inserted) {
+                futureEntries.remove(key, retrieval);
+            }
+        }
+
+        //
+        return value;
+    }
+
+    private V getWithPolicy(C context, K key) {
+        long now = now();
+        Stamp<V> stamp = stamps.get(key);
+        V value = get(key);
+        if (value != null) {
+            if (stamp == null || stamp.value == null) {
+                // The value was put by someone else
+                stamps.put(key, new Stamp<V>(value, now));
+            } else if (policy.getTimeToLive() > 0) {
+                long age = now - stamp.loaded;
+                if (age >= policy.getTimeToLive()) {
+                    if (!isStale(stamp, now)) {
+                        return retrieve(context, key);
+                    }
+                    return refresh(context, key, value);
+                } else if (policy.getRefreshAheadTime() > 0 && age >= policy.getTimeToLive() - policy.getRefreshAheadTime()) {
+                    return refresh(context, key, value);
+                }
+            }
+            return value;
+        } else if (stamp != null) {
+            if (stamp.value == null) {
+                if (now - stamp.loaded < policy.getNegativeTimeToLive()) {
+                    return null;
+                }
+            } else if (isStale(stamp, now)) {
+                return refresh(context, key, stamp.value);
+            }
+        }
+        return retrieve(context, key);
+    }
+
+    /**
+     * Returns true when the value of the stamp can be returned while it is reloaded.
+     */
+    private boolean isStale(Stamp<V> stamp, long now) {
+        if (policy.getStaleTime() == 0) {
+            return false;
+        }
+        if (stamp.staleSince == 0) {
+            stamp.staleSince = now;
+        }
+        return now - stamp.staleSince < policy.getStaleTime();
+    }
+
+    /**
+     * Reload the value of the key unless it is already being loaded.
+     *
+     * @return the reloaded value when the reload is performed by the current thread otherwise the current value
+     */
+    private V refresh(C context, final K key, V current) {
+        final Retrieval<K, V, C> retrieval = new Retrieval<K, V, C>(context, key, this);
+        if (futureEntries.putIfAbsent(key, retrieval) == null) {
+            Runnable task = new Runnable() {
+                public void run() {
                     try {
                         retrieval.current = Thread.currentThread();
                         retrieval.future.run();
-                    } catch (Exception e) {
-                        log.error("Retrieval of resource " + key + " threw an exception", e);
+                        retrieval.future.get();
+                    } catch (ExecutionException e) {
+                        log.error("Refresh of resource " + key + " threw an exception", e.getCause());
+                    } catch (InterruptedException e) {
+                        log.error("Refresh of resource " + key + " threw an exception", e);
                     } finally {
                         retrieval.current = null;
+                        futureEntries.remove(key, retrieval);
                     }
                 }
+            };
+            Executor executor = policy.getExecutor();
+            if (executor != null) {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    futureEntries.remove(key, retrieval);
+                    log.debug("Refresh of resource " + key + " was rejected", e);
+                }
+            } else {
+                task.run();
+                try {
+                    return retrieval.future.get();
+                } catch (Exception ignore) {
+                    // The failure is logged by the task
+                }
+            }
+        }
+        return current;
+    }
 
-                // Returns the value
-                if (retrieval.current == Thread.currentThread()) {
-                    throw new IllegalStateException("Reentrancy detected when obtaining key " + key + " with context "
-                            + context + " detected");
+    /**
+     * Updates the cache with the value returned by the loader.
+     *
+     * @param key the key
+     * @param value the value which may be null
+     */
+    void loaded(K key, V value) {
+        if (value != null) {
+            put(key, value);
+        }
+        if (stamps != null) {
+            long now = now();
+            if (value != null) {
+                stamps.put(key, new Stamp<V>(value, now));
+            } else {
+                // Make sure that a reloaded value that does not exist anymore is not returned
+                remove(key);
+                if (policy.getNegativeTimeToLive() > 0) {
+                    stamps.put(key, new Stamp<V>(null, now));
                 } else {
-                    try {
-                        value = retrieval.future.get();
-                    } catch (ExecutionException e) {
-                        log.error("Computing of resource " + key + " threw an exception", e.getCause());
-                    } catch (InterruptedException e) {
-                        // We should handle interruped exception in some manner
-                        log.error("Retrieval of resource " + key + " threw an exception", e);
-                    }
+                    stamps.remove(key);
                 }
-            } finally {
-                // Clean up the per key map but only if our insertion succeeded and with our future
-                if (inserted) {
-                    futureEntries.remove(key, retrieval);
+            }
+            if (loads.incrementAndGet() % 1024 == 0) {
+                purge(now);
+            }
+        }
+    }
+
+    /**
+     * Removes the stamps that are not useful anymore.
+     */
+    private void purge(long now) {
+        for (Map.Entry<K, Stamp<V>> entry : stamps.entrySet()) {
+            Stamp<V> stamp = entry.getValue();
+            if (stamp.value == null) {
+                if (now - stamp.loaded >= policy.getNegativeTimeToLive()) {
+                    stamps.remove(entry.getKey(), stamp);
+                }
+            } else if (stamp.staleSince != 0) {
+                if (now - stamp.staleSince >= policy.getStaleTime()) {
+                    stamps.remove(entry.getKey(), stamp);
                 }
+            } else if (get(entry.getKey()) == null) {
+                // The value was evicted by the cache
+                stamp.staleSince = now;
             }
         }
+    }
 
-        //
-        return value;
+    /**
+     * The load time of a value, a null value is a cached null value.
+     */
+    private static class Stamp<V> {
+
+        /** . */
+        final V value;
+
+        /** . */
+        final long loaded;
+
+        /** The time at which the value was found removed or expired. */
+        volatile long staleSince;
+
+        private Stamp(V value, long loaded) {
+            this.value = value;
+            this.loaded = loaded;
+        }
     }
 }
@@ -33,7 +33,11 @@ public class FutureExoCache<K extends Serializable, V, C> extends FutureCache<K,
     private final ExoCache<K, V> cache;
 
     public FutureExoCache(Loader<K, V, C> loader, ExoCache<K, V> cache) {
-        super(loader);
+        this(loader, cache, null);
+    }
+
+    public FutureExoCache(Loader<K, V, C> loader, ExoCache<K, V> cache, RefreshPolicy policy) {
+        super(loader, policy);
 
         //
         this.cache = cache;
@@ -41,10 +45,13 @@ public class FutureExoCache<K extends Serializable, V, C> extends FutureCache<K,
 
     public void clear() {
         cache.clearCache();
+        invalidateAll();
     }
 
+    @Override
     public void remove(K key) {
         cache.remove(key);
+        invalidate(key);
     }
 
     @Override
@@ -34,7 +34,11 @@ public class FutureMap<K extends Serializable, V, C> extends FutureCache<K, V, C
     final Map<K, V> data;
 
     public FutureMap(Loader<K, V, C> loader) {
-        super(loader);
+        this(loader, null);
+    }
+
+    public FutureMap(Loader<K, V, C> loader, RefreshPolicy policy) {
+        super(loader, policy);
 
         //
         this.data = new ConcurrentHashMap<K, V>();
@@ -42,10 +46,13 @@ public class FutureMap<K extends Serializable, V, C> extends FutureCache<K, V, C
 
     public void clear() {
         data.clear();
+        invalidateAll();
     }
 
+    @Override
     public void remove(K key) {
         data.remove(key);
+        invalidate(key);
     }
 
     @Override
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.cache.future;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.exoplatform.commons.utils.PropertyManager;
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.component.RequestLifeCycle;
+import org.gatein.common.logging.Logger;
+import org.gatein.common.logging.LoggerFactory;
+
+/**
+ * <p>
+ * The bounded executor performing the refresh ahead reloads of the future caches configured by
+ * {@link RefreshPolicy#fromProperties(String)}. A reload is executed with the container and the thread context class
+ * loader of the thread that triggers it, within a request life cycle of that container, so that the loaders can use
+ * the container services as they do on the request thread.
+ * </p>
+ *
+ * <p>
+ * The <code>gatein.cache.refresh.threads</code> property configures the number of threads and the
+ * <code>gatein.cache.refresh.queue</code> property the number of pending reloads. A reload submitted when the queue is
+ * full is rejected, the value is then reloaded by a later access.
+ * </p>
+ */
+public class RefreshExecutor implements Executor {
+
+    /** . */
+    private static final Logger log = LoggerFactory.getLogger(RefreshExecutor.class);
+
+    /** . */
+    private static final int DEFAULT_THREADS = 1;
+
+    /** . */
+    private static final int DEFAULT_QUEUE = 1024;
+
+    /** . */
+    private static volatile RefreshExecutor instance;
+
+    /**
+     * Returns the executor shared by the caches, it is created on the first call.
+     *
+     * @return the shared executor
+     */
+    public static RefreshExecutor getInstance() {
+        RefreshExecutor executor = instance;
+        if (executor == null) {
+            synchronized (RefreshExecutor.class) {
+                executor = instance;
+                if (executor == null) {
+                    executor = new RefreshExecutor(getSize("gatein.cache.refresh.threads", DEFAULT_THREADS),
+                            getSize("gatein.cache.refresh.queue", DEFAULT_QUEUE));
+                    instance = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static int getSize(String name, int defaultValue) {
+        String value = PropertyManager.getProperty(name);
+        if (value != null) {
+            try {
+                int size = Integer.parseInt(value.trim());
+                if (size > 0) {
+                    return size;
+                }
+            } catch (NumberFormatException ignore) {
+            }
+            log.warn("Invalid value " + value + " for " + name + ", " + defaultValue + " is used instead");
+        }
+        return defaultValue;
+    }
+
+    /** . */
+    private final ThreadPoolExecutor executor;
+
+    public RefreshExecutor(int threads, int queueSize) {
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+                queueSize), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "gatein-cache-refresh-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Executes the task with the current container and thread context class loader of the caller.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException when the queue is full
+     */
+    public void execute(final Runnable command) {
+        final ExoContainer container = ExoContainerContext.getCurrentContainer();
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        executor.execute(new Runnable() {
+            public void run() {
+                Thread thread = Thread.currentThread();
+                ClassLoader previous = thread.getContextClassLoader();
+                ExoContainerContext.setCurrentContainer(container);
+                thread.setContextClassLoader(classLoader);
+                try {
+                    if (container != null) {
+                        RequestLifeCycle.begin(container);
+                    }
+                    try {
+                        command.run();
+                    } finally {
+                        if (container != null) {
+                            RequestLifeCycle.end();
+                        }
+                    }
+                } finally {
+                    thread.setContextClassLoader(previous);
+                    ExoContainerContext.setCurrentContainer(null);
+                }
+            }
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
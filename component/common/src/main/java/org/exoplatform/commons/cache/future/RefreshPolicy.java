@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.cache.future;
+
+import java.util.concurrent.Executor;
+
+import org.exoplatform.commons.utils.PropertyManager;
+import org.gatein.common.logging.Logger;
+import org.gatein.common.logging.LoggerFactory;
+
+/**
+ * <p>
+ * Configures how a {@link FutureCache} refreshes its values, all the times are expressed in milliseconds and a zero time
+ * disables the corresponding feature:
+ * <ul>
+ * <li>the time to live is the age after which a value is expired and must be loaded again</li>
+ * <li>the refresh ahead time is the time before the expiration of a value during which an access to the value triggers its
+ * reload, the frequently accessed values are therefore reloaded before they expire</li>
+ * <li>the stale time is the time during which an expired or removed value is still returned while it is reloaded</li>
+ * <li>the negative time to live is the time during which a null value returned by the loader is cached</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * A single reload of a value is performed at a time while the other threads keep on returning the previous value. The
+ * reload is executed by the executor of the policy when there is one, otherwise it is executed by the thread that
+ * triggers it. The executor must only be used when the loader context can be used by another thread than the one
+ * accessing the cache.
+ * </p>
+ *
+ * <p>
+ * The services using a future cache create their policy with {@link #fromProperties(String)} so that it is configured
+ * by the configuration properties and disabled by default, the reloads are then executed by the shared
+ * {@link RefreshExecutor}.
+ * </p>
+ */
+public class RefreshPolicy {
+
+    /** . */
+    private static final Logger log = LoggerFactory.getLogger(RefreshPolicy.class);
+
+    /**
+     * Creates the policy configured by the <code>time-to-live</code>, <code>refresh-ahead</code>, <code>stale-time</code>
+     * and <code>negative-time-to-live</code> properties of a prefix, for instance
+     * <code>gatein.templates.cache.time-to-live</code>. The times are expressed in milliseconds and a missing property is
+     * a zero time. The reloads are performed by the shared {@link RefreshExecutor} with the container of the thread
+ * accessing the cache.
+     *
+     * @param prefix the property prefix
+     * @return the policy or null when none of the properties is set or when the configuration is invalid
+     */
+    public static RefreshPolicy fromProperties(String prefix) {
+        String timeToLive = PropertyManager.getProperty(prefix + ".time-to-live");
+        String refreshAheadTime = PropertyManager.getProperty(prefix + ".refresh-ahead");
+        String staleTime = PropertyManager.getProperty(prefix + ".stale-time");
+        String negativeTimeToLive = PropertyManager.getProperty(prefix + ".negative-time-to-live");
+        if (timeToLive == null && refreshAheadTime == null && staleTime == null && negativeTimeToLive == null) {
+            return null;
+        }
+        try {
+            return new RefreshPolicy(parseTime(timeToLive), parseTime(refreshAheadTime), parseTime(staleTime),
+                    parseTime(negativeTimeToLive), RefreshExecutor.getInstance());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid refresh policy " + prefix + ", the cache is used without policy: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static long parseTime(String value) {
+        return value != null ? Long.parseLong(value.trim()) : 0;
+    }
+
+    /** . */
+    private final long timeToLive;
+
+    /** . */
+    private final long refreshAheadTime;
+
+    /** . */
+    private final long staleTime;
+
+    /** . */
+    private final long negativeTimeToLive;
+
+    /** . */
+    private final Executor executor;
+
+    public RefreshPolicy(long timeToLive, long refreshAheadTime, long staleTime, long negativeTimeToLive, Executor executor) {
+        if (timeToLive < 0 || refreshAheadTime < 0 || staleTime < 0 || negativeTimeToLive < 0) {
+            throw new IllegalArgumentException("Times cannot be negative");
+        }
+        if (refreshAheadTime > 0 && refreshAheadTime >= timeToLive) {
+            throw new IllegalArgumentException("Refresh ahead time " + refreshAheadTime
+                    + " must be lower than the time to live " + timeToLive);
+        }
+
+        //
+        this.timeToLive = timeToLive;
+        this.refreshAheadTime = refreshAheadTime;
+        this.staleTime = staleTime;
+        this.negativeTimeToLive = negativeTimeToLive;
+        this.executor = executor;
+    }
+
+    public RefreshPolicy(long timeToLive, long refreshAheadTime, long staleTime, long negativeTimeToLive) {
+        this(timeToLive, refreshAheadTime, staleTime, negativeTimeToLive, null);
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public long getRefreshAheadTime() {
+        return refreshAheadTime;
+    }
+
+    public long getStaleTime() {
+        return staleTime;
+    }
+
+    public long getNegativeTimeToLive() {
+        return negativeTimeToLive;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+}
@@ -34,15 +34,10 @@ class Retrieval<K, V, C> implements Callable<V> {
         // Retrieve the value from the loader
         V value = cache.loader.retrieve(context, key);
 
-        //
-        if (value != null) {
-            // Cache it, it is made available to other threads (unless someone removes it)
-            cache.put(key, value);
-
-            // Return value
-            return value;
-        } else {
-            return null;
-        }
+        // Cache it, it is made available to other threads (unless someone removes it)
+        cache.loaded(key, value);
+
+        // Return value
+        return value;
     }
 }
@@ -21,7 +21,8 @@ package org.exoplatform.commons.serialization.api;
 
 /**
  * A type converter that performs a bidirectional conversion between an external type and an internal type. The converter only
- * assure conversion of non null values.
+ * assure conversion of non null values. A single converter instance performs all the conversions of a type, concurrently
+ * when several objects are serialized at the same time, therefore a converter should not hold any state.
  *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  * @version $Revision$
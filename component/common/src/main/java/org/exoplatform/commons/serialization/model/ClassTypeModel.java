@@ -19,8 +19,10 @@
 
 package org.exoplatform.commons.serialization.model;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 
@@ -42,6 +44,9 @@ public final class ClassTypeModel<O> extends TypeModel<O> {
     /** . */
     private final SerializationMode serializationMode;
 
+    /** The non transient fields of this type and of its super types, computed lazily once the fields are built. */
+    private volatile List<FieldModel<? super O, ?>> serializedFields;
+
     ClassTypeModel(Class<O> type, ClassTypeModel<? super O> superType, Map<String, FieldModel<O, ?>> fields,
             SerializationMode serializationMode) {
         super(type, superType);
@@ -70,4 +75,27 @@ public final class ClassTypeModel<O> extends TypeModel<O> {
         return immutableFields;
     }
 
+    /**
+     * Returns the non transient fields of this type followed by the non transient fields of its super types, this is the
+     * order in which the state of an object is serialized.
+     *
+     * @return the serialized fields
+     */
+    public List<FieldModel<? super O, ?>> getSerializedFields() {
+        List<FieldModel<? super O, ?>> fields = serializedFields;
+        if (fields == null) {
+            fields = new ArrayList<FieldModel<? super O, ?>>();
+            for (ClassTypeModel<? super O> current = this; current != null; current = current.getSuperType()) {
+                for (FieldModel<? super O, ?> fieldModel : current.getFields()) {
+                    if (!fieldModel.isTransient()) {
+                        fields.add(fieldModel);
+                    }
+                }
+            }
+            fields = Collections.unmodifiableList(fields);
+            serializedFields = fields;
+        }
+        return fields;
+    }
+
 }
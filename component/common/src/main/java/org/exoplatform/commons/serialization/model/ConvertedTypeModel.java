@@ -33,6 +33,9 @@ public class ConvertedTypeModel<O, T> extends TypeModel<O> {
     /** . */
     private final Class<? extends TypeConverter<O, T>> converterJavaType;
 
+    /** The shared converter instance, created lazily. */
+    private volatile TypeConverter<O, T> converter;
+
     ConvertedTypeModel(Class<O> javaType, TypeModel<? super O> superType, TypeModel<T> targetType,
             Class<? extends TypeConverter<O, T>> converterJavaType) {
         super(javaType, superType);
@@ -49,4 +52,23 @@ public class ConvertedTypeModel<O, T> extends TypeModel<O> {
     public Class<? extends TypeConverter<O, T>> getConverterJavaType() {
         return converterJavaType;
     }
+
+    /**
+     * Returns the converter of this type, the same instance is returned for all the conversions.
+     *
+     * @return the converter
+     * @throws TypeException if the converter cannot be instantiated
+     */
+    public TypeConverter<O, T> getConverter() throws TypeException {
+        TypeConverter<O, T> converter = this.converter;
+        if (converter == null) {
+            try {
+                converter = converterJavaType.newInstance();
+            } catch (Exception e) {
+                throw new TypeException("Cannot instantiate converter " + converterJavaType.getName(), e);
+            }
+            this.converter = converter;
+        }
+        return converter;
+    }
 }
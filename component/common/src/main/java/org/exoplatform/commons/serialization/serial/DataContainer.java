@@ -23,7 +23,8 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
 
 
 /**
@@ -33,10 +34,14 @@ import java.util.LinkedList;
 public class DataContainer implements Externalizable {
 
     /** . */
-    private final LinkedList<Object> structure;
+    private final ArrayList<Object> structure;
+
+    /** The index of the next value to read. */
+    private int index;
 
     public DataContainer() {
-        this.structure = new LinkedList<Object>();
+        this.structure = new ArrayList<Object>();
+        this.index = 0;
     }
 
     public void writeInt(int i) {
@@ -48,29 +53,33 @@ public class DataContainer implements Externalizable {
     }
 
     public int readInt() {
-        return (Integer) structure.removeFirst();
+        return (Integer) readObject();
     }
 
     public Object readObject() {
-        return structure.removeFirst();
+        if (index >= structure.size()) {
+            throw new NoSuchElementException();
+        }
+        return structure.get(index++);
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeInt(structure.size());
-        for (Object o : structure) {
-            out.writeObject(o);
+        out.writeInt(structure.size() - index);
+        for (int i = index; i < structure.size(); i++) {
+            out.writeObject(structure.get(i));
         }
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         int size = in.readInt();
+        structure.ensureCapacity(size);
         while (size-- > 0) {
-            structure.addLast(in.readObject());
+            structure.add(in.readObject());
         }
     }
 
     @Override
     public String toString() {
-        return "DataContainer[" + structure + "]";
+        return "DataContainer[" + structure.subList(index, structure.size()) + "]";
     }
 }
@@ -81,34 +81,26 @@ public class ObjectReader extends ObjectInputStream {
 
     protected <O> O instantiate(int id, DataContainer container, ClassTypeModel<O> typeModel) throws IOException {
         Map<FieldModel<? super O, ?>, Object> state = new HashMap<FieldModel<? super O, ?>, Object>();
-        ClassTypeModel<? super O> currentTypeModel = typeModel;
         List<FieldUpdate<O>> sets = new ArrayList<FieldUpdate<O>>();
-        while (currentTypeModel != null) {
-            if (currentTypeModel instanceof ClassTypeModel) {
-                for (FieldModel<? super O, ?> fieldModel : currentTypeModel.getFields()) {
-                    if (!fieldModel.isTransient()) {
-                        switch (container.readInt()) {
-                            case DataKind.NULL_VALUE:
-                                state.put(fieldModel, null);
-                                break;
-                            case DataKind.OBJECT_REF:
-                                int refId = container.readInt();
-                                Object refO = idToObject.get(refId);
-                                if (refO != null) {
-                                    state.put(fieldModel, refO);
-                                } else {
-                                    sets.add(new FieldUpdate<O>(refId, fieldModel));
-                                }
-                                break;
-                            case DataKind.OBJECT:
-                                Object o = container.readObject();
-                                state.put(fieldModel, o);
-                                break;
-                        }
+        for (FieldModel<? super O, ?> fieldModel : typeModel.getSerializedFields()) {
+            switch (container.readInt()) {
+                case DataKind.NULL_VALUE:
+                    state.put(fieldModel, null);
+                    break;
+                case DataKind.OBJECT_REF:
+                    int refId = container.readInt();
+                    Object refO = idToObject.get(refId);
+                    if (refO != null) {
+                        state.put(fieldModel, refO);
+                    } else {
+                        sets.add(new FieldUpdate<O>(refId, fieldModel));
                     }
-                }
+                    break;
+                case DataKind.OBJECT:
+                    Object o = container.readObject();
+                    state.put(fieldModel, o);
+                    break;
             }
-            currentTypeModel = currentTypeModel.getSuperType();
         }
 
         //
@@ -198,12 +190,7 @@ public class ObjectReader extends ObjectInputStream {
         Object inner = resolveObject(container);
         T t = convertedType.getTargetType().getJavaType().cast(inner);
 
-        TypeConverter<O, T> converter;
-        try {
-            converter = convertedType.getConverterJavaType().newInstance();
-        } catch (Exception e) {
-            throw new AssertionError(e);
-        }
+        TypeConverter<O, T> converter = convertedType.getConverter();
 
         //
         O o = null;
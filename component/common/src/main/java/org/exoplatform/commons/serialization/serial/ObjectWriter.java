@@ -34,8 +34,6 @@ import org.exoplatform.commons.serialization.model.ConvertedTypeModel;
 import org.exoplatform.commons.serialization.model.FieldModel;
 import org.exoplatform.commons.serialization.model.SerializationMode;
 import org.exoplatform.commons.serialization.model.TypeModel;
-import org.gatein.common.logging.Logger;
-import org.gatein.common.logging.LoggerFactory;
 
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
@@ -43,9 +41,6 @@ import org.gatein.common.logging.LoggerFactory;
  */
 public class ObjectWriter extends ObjectOutputStream {
 
-    /** . */
-    private static final Logger log = LoggerFactory.getLogger(ObjectWriter.class);
-
     /** . */
     private final SerializationContext context;
 
@@ -89,15 +84,7 @@ public class ObjectWriter extends ObjectOutputStream {
     }
 
     private <O, T> void write(ConvertedTypeModel<O, T> typeModel, O obj, DataContainer output) throws IOException {
-        Class<? extends TypeConverter<O, T>> converterClass = typeModel.getConverterJavaType();
-
-        //
-        TypeConverter<O, T> converter;
-        try {
-            converter = converterClass.newInstance();
-        } catch (Exception e) {
-            throw new AssertionError(e);
-        }
+        TypeConverter<O, T> converter = typeModel.getConverter();
 
         //
         T target;
@@ -126,54 +113,21 @@ public class ObjectWriter extends ObjectOutputStream {
             output.writeObject(typeModel.getJavaType());
 
             //
-            SerializationStatus status = SerializationStatus.NONE;
-            for (ClassTypeModel<? super O> currentTypeModel = typeModel; currentTypeModel != null; currentTypeModel = currentTypeModel
-                    .getSuperType()) {
-                if (currentTypeModel instanceof ClassTypeModel<?>) {
-                    for (FieldModel<?, ?> fieldModel : currentTypeModel.getFields()) {
-                        if (!fieldModel.isTransient()) {
-                            // System.out.println("About to serialize field " + fieldModel + " of type " + currentTypeModel);
-                            Object fieldValue = fieldModel.get(obj);
-                            if (fieldValue == null) {
-                                output.writeObject(DataKind.NULL_VALUE);
-                            } else {
-                                Integer fieldValueId = objectToId.get(fieldValue);
-                                if (fieldValueId != null) {
-                                    output.writeObject(DataKind.OBJECT_REF);
-                                    output.writeInt(fieldValueId);
-                                } else {
-                                    output.writeObject(DataKind.OBJECT);
-                                    output.writeObject(fieldValue);
-                                }
-                            }
-                        }
-                    }
-                    switch (status) {
-                        case NONE:
-                            status = SerializationStatus.FULL;
-                            break;
-                    }
+            for (FieldModel<? super O, ?> fieldModel : typeModel.getSerializedFields()) {
+                Object fieldValue = fieldModel.get(obj);
+                if (fieldValue == null) {
+                    output.writeObject(DataKind.NULL_VALUE);
                 } else {
-                    if (!currentTypeModel.getFields().isEmpty()) {
-                        switch (status) {
-                            case FULL:
-                                status = SerializationStatus.PARTIAL;
-                                break;
-                        }
+                    Integer fieldValueId = objectToId.get(fieldValue);
+                    if (fieldValueId != null) {
+                        output.writeObject(DataKind.OBJECT_REF);
+                        output.writeInt(fieldValueId);
+                    } else {
+                        output.writeObject(DataKind.OBJECT);
+                        output.writeObject(fieldValue);
                     }
                 }
             }
-
-            //
-            switch (status) {
-                case FULL:
-                    break;
-                case PARTIAL:
-                    log.debug("Partial serialization of object " + obj);
-                    break;
-                case NONE:
-                    throw new NotSerializableException("Type " + typeModel + " is not serializable");
-            }
         } else if (typeModel.getSerializationMode() == SerializationMode.SERIALIZABLE) {
             output.writeInt(DataKind.SERIALIZED_OBJECT);
             output.writeObject(obj);
@@ -197,7 +151,6 @@ public class ObjectWriter extends ObjectOutputStream {
         //
         Integer id = objectToId.get(obj);
         if (id != null) {
-            output = new DataContainer();
             output.writeInt(DataKind.OBJECT_REF);
             output.writeObject(id);
         } else {
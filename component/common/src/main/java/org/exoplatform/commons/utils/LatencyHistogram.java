@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * A lock free histogram of latencies in microseconds over a rolling time window, used to compute the percentiles of the
+ * recent latencies.
+ * </p>
+ *
+ * <p>
+ * The values are counted in logarithmic buckets: each power of two is divided in {@link #SUB_BUCKETS} buckets, so the
+ * value returned for a percentile is at most 12.5% above the recorded value. The window is divided in slots, a slot
+ * counts the values recorded during its period and is replaced when its period is over. The percentiles are computed
+ * from the slots of the window which means the oldest values leave the window by slot.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    /** The number of buckets of each power of two. */
+    private static final int SUB_BUCKETS = 8;
+
+    /** . */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /** The greatest power of two counted, the greater values are counted in the last bucket (about 19 hours). */
+    private static final int MAX_EXPONENT = 36;
+
+    /** . */
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    /** The default window of 5 minutes. */
+    private static final long DEFAULT_WINDOW = TimeUnit.MINUTES.toMillis(5);
+
+    /** . */
+    private static final int DEFAULT_SLOTS = 10;
+
+    /** The percentiles of {@link #getPercentileSummary()}. */
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    /** . */
+    private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+    /**
+     * Converts a latency in microseconds to milliseconds, the -1 of a missing latency is kept.
+     *
+     * @param micros the latency in microseconds or -1
+     * @return the latency in milliseconds or -1
+     */
+    public static double toMillis(double micros) {
+        return micros == -1 ? -1 : micros / 1000D;
+    }
+
+    /**
+     * Returns the index of the bucket of a value.
+     *
+     * @param value the value
+     * @return the bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the greatest value counted in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the greatest value of the bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /** The counts of a slot period. */
+    private static class Slot {
+
+        /** . */
+        private final long period;
+
+        /** . */
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+        private Slot(long period) {
+            this.period = period;
+        }
+    }
+
+    /** The slot duration in milliseconds. */
+    private final long slotDuration;
+
+    /** . */
+    private final AtomicReferenceArray<Slot> slots;
+
+    public LatencyHistogram() {
+        this(DEFAULT_WINDOW, DEFAULT_SLOTS);
+    }
+
+    /**
+     * Create a histogram.
+     *
+     * @param window the window duration in milliseconds
+     * @param slotCount the number of slots of the window
+     */
+    public LatencyHistogram(long window, int slotCount) {
+        if (slotCount < 1) {
+            throw new IllegalArgumentException("Slot count must be positive");
+        }
+        if (window < slotCount) {
+            throw new IllegalArgumentException("Window of " + window + "ms is too short for " + slotCount + " slots");
+        }
+        this.slotDuration = window / slotCount;
+        this.slots = new AtomicReferenceArray<Slot>(slotCount);
+    }
+
+    /**
+     * Returns the current time in milliseconds.
+     *
+     * @return the current time
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param micros the latency in microseconds
+     */
+    public void record(long micros) {
+        long period = currentTimeMillis() / slotDuration;
+        int index = (int) (period % slots.length());
+        Slot slot = slots.get(index);
+        while (slot == null || slot.period < period) {
+            Slot next = new Slot(period);
+            if (slots.compareAndSet(index, slot, next)) {
+                slot = next;
+            } else {
+                slot = slots.get(index);
+            }
+        }
+        if (slot.period == period) {
+            slot.counts.incrementAndGet(bucket(micros));
+        }
+    }
+
+    /**
+     * Returns the counts by bucket of the slots of the current window.
+     */
+    private long[] counts() {
+        long period = currentTimeMillis() / slotDuration;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.period > period - slots.length() && slot.period <= period) {
+                for (int j = 0; j < BUCKET_COUNT; j++) {
+                    counts[j] += slot.counts.get(j);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the number of latencies recorded in the current window.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (long c : counts()) {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the latency at a percentile of the latencies recorded in the current window.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in microseconds or -1 when no latency was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        return getValuesAtPercentiles(percentile)[0];
+    }
+
+    /**
+     * Returns the latencies at several percentiles, computed from the same counts.
+     *
+     * @param percentiles the percentiles between 0 and 100
+     * @return the latencies in microseconds or -1 when no latency was recorded
+     */
+    public long[] getValuesAtPercentiles(double... percentiles) {
+        long[] counts = counts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        long[] values = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            double percentile = percentiles[i];
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Invalid percentile " + percentile);
+            }
+            if (total == 0) {
+                values[i] = -1;
+            } else {
+                long rank = Math.max(1, (long) Math.ceil(percentile / 100D * total));
+                long count = 0;
+                for (int j = 0; j < BUCKET_COUNT; j++) {
+                    count += counts[j];
+                    if (count >= rank) {
+                        values[i] = highestValue(j);
+                        break;
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the latencies at several percentiles in milliseconds.
+     *
+     * @param percentiles the percentiles between 0 and 100
+     * @return the latencies in milliseconds or -1 when no latency was recorded
+     */
+    public double[] getMillisAtPercentiles(double... percentiles) {
+        long[] values = getValuesAtPercentiles(percentiles);
+        double[] millis = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            millis[i] = toMillis(values[i]);
+        }
+        return millis;
+    }
+
+    /**
+     * Returns the p50, p90, p99 and p999 latencies in seconds, formatted as <code>p50=0.012</code>.
+     *
+     * @return the formatted latencies, -1 when no latency was recorded
+     */
+    public String[] getPercentileSummary() {
+        double[] millis = getMillisAtPercentiles(PERCENTILES);
+        String[] summary = new String[millis.length];
+        for (int i = 0; i < millis.length; i++) {
+            summary[i] = PERCENTILE_NAMES[i] + "=" + (millis[i] == -1 ? -1 : millis[i] / 1000D);
+        }
+        return summary;
+    }
+}
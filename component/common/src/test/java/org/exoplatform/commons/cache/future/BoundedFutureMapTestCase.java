@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.cache.future;
+
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+public class BoundedFutureMapTestCase extends TestCase {
+
+    /** Weight each value by its length. */
+    private static final BoundedFutureMap.Weigher<String, String> WEIGHER = new BoundedFutureMap.Weigher<String, String>() {
+        public long getWeight(String key, String value) {
+            return value.length();
+        }
+    };
+
+    private static Callable<String> value(final String value) {
+        return new Callable<String>() {
+            public String call() throws Exception {
+                return value;
+            }
+        };
+    }
+
+    public void testEvictLeastRecentlyUsed() {
+        BoundedFutureMap<String, String, Callable<String>> cache = new BoundedFutureMap<String, String, Callable<String>>(
+                new StringLoader(), WEIGHER, 10);
+        assertEquals("aaaa", cache.get(value("aaaa"), "a"));
+        assertEquals("bbbb", cache.get(value("bbbb"), "b"));
+        assertEquals(8, cache.getWeight());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        // Access a so b becomes the least recently used
+        assertEquals("aaaa", cache.get(value("other"), "a"));
+        assertEquals(1, cache.getHitCount());
+
+        //
+        assertEquals("cccc", cache.get(value("cccc"), "c"));
+        assertEquals(8, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.data.containsKey("a"));
+        assertFalse(cache.data.containsKey("b"));
+        assertTrue(cache.data.containsKey("c"));
+    }
+
+    public void testEvictSeveral() {
+        BoundedFutureMap<String, String, Callable<String>> cache = new BoundedFutureMap<String, String, Callable<String>>(
+                new StringLoader(), WEIGHER, 10);
+        cache.get(value("aaa"), "a");
+        cache.get(value("bbb"), "b");
+        cache.get(value("ccc"), "c");
+        cache.get(value("dddddddddd"), "d");
+        assertEquals(1, cache.getSize());
+        assertEquals(10, cache.getWeight());
+        assertEquals(3, cache.getEvictionCount());
+    }
+
+    public void testTooHeavy() {
+        BoundedFutureMap<String, String, Callable<String>> cache = new BoundedFutureMap<String, String, Callable<String>>(
+                new StringLoader(), WEIGHER, 10);
+        cache.get(value("aaa"), "a");
+        assertEquals("0123456789A", cache.get(value("0123456789A"), "b"));
+        assertFalse(cache.data.containsKey("b"));
+        assertTrue(cache.data.containsKey("a"));
+        assertEquals(3, cache.getWeight());
+    }
+
+    public void testReplace() {
+        BoundedFutureMap<String, String, Callable<String>> cache = new BoundedFutureMap<String, String, Callable<String>>(
+                new StringLoader(), WEIGHER, 10);
+        cache.put("a", "aaa");
+        cache.put("a", "aaaaa");
+        assertEquals(5, cache.getWeight());
+        assertEquals(1, cache.getSize());
+    }
+
+    public void testRemoveAndClear() {
+        BoundedFutureMap<String, String, Callable<String>> cache = new BoundedFutureMap<String, String, Callable<String>>(
+                new StringLoader(), WEIGHER, 10);
+        cache.get(value("aaa"), "a");
+        cache.get(value("bbb"), "b");
+        cache.remove("a");
+        assertEquals(3, cache.getWeight());
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+        assertEquals(0, cache.getSize());
+    }
+}
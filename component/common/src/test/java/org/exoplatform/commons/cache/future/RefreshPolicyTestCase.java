@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.cache.future;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.exoplatform.commons.utils.PropertyManager;
+
+public class RefreshPolicyTestCase extends TestCase {
+
+    /** Returns the current value and counts the loads. */
+    private static class Source implements Callable<String> {
+
+        /** . */
+        String value;
+
+        /** . */
+        int loads;
+
+        public String call() throws Exception {
+            loads++;
+            return value;
+        }
+    }
+
+    /** Collects the tasks instead of executing them. */
+    private static class QueueExecutor implements Executor {
+
+        /** . */
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            tasks.clear();
+        }
+    }
+
+    /** A future map with a manual clock. */
+    private static class ClockMap extends FutureMap<String, String, Callable<String>> {
+
+        /** . */
+        long time = 1000;
+
+        private ClockMap(RefreshPolicy policy) {
+            super(new StringLoader(), policy);
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+    /** . */
+    private Source source;
+
+    @Override
+    protected void setUp() throws Exception {
+        source = new Source();
+        source.value = "v1";
+    }
+
+    public void testNegative() {
+        ClockMap cache = new ClockMap(new RefreshPolicy(0, 0, 0, 100));
+        source.value = null;
+        assertNull(cache.get(source, "foo"));
+        assertNull(cache.get(source, "foo"));
+        assertEquals(1, source.loads);
+
+        //
+        cache.time = 1100;
+        assertNull(cache.get(source, "foo"));
+        assertEquals(2, source.loads);
+
+        // A removal forgets the null value
+        source.value = "v1";
+        cache.remove("foo");
+        assertEquals("v1", cache.get(source, "foo"));
+        assertEquals(3, source.loads);
+    }
+
+    public void testNoNegative() {
+        ClockMap cache = new ClockMap(new RefreshPolicy(0, 0, 0, 0));
+        source.value = null;
+        assertNull(cache.get(source, "foo"));
+        assertNull(cache.get(source, "foo"));
+        assertEquals(2, source.loads);
+    }
+
+    public void testStaleWhileRevalidate() {
+        QueueExecutor executor = new QueueExecutor();
+        ClockMap cache = new ClockMap(new RefreshPolicy(0, 0, 100, 0, executor));
+        assertEquals("v1", cache.get(source, "foo"));
+
+        // The removed value is returned and a single reload is scheduled
+        source.value = "v2";
+        cache.remove("foo");
+        assertEquals("v1", cache.get(source, "foo"));
+        assertEquals("v1", cache.get(source, "foo"));
+        assertEquals(1, executor.tasks.size());
+        assertEquals(1, source.loads);
+
+        //
+        executor.runAll();
+        assertEquals(2, source.loads);
+        assertEquals("v2", cache.get(source, "foo"));
+        assertEquals(0, executor.tasks.size());
+    }
+
+    public void testStaleTimeElapsed() {
+        QueueExecutor executor = new QueueExecutor();
+        ClockMap cache = new ClockMap(new RefreshPolicy(0, 0, 100, 0, executor));
+        assertEquals("v1", cache.get(source, "foo"));
+        source.value = "v2";
+        cache.remove("foo");
+
+        // The stale value is not returned anymore after the stale time
+        cache.time = 1100;
+        assertEquals("v2", cache.get(source, "foo"));
+        assertEquals(0, executor.tasks.size());
+    }
+
+    public void testExpire() {
+        ClockMap cache = new ClockMap(new RefreshPolicy(100, 0, 0, 0));
+        assertEquals("v1", cache.get(source, "foo"));
+        source.value = "v2";
+        cache.time = 1099;
+        assertEquals("v1", cache.get(source, "foo"));
+        cache.time = 1100;
+        assertEquals("v2", cache.get(source, "foo"));
+        assertEquals(2, source.loads);
+    }
+
+    public void testRefreshAhead() {
+        QueueExecutor executor = new QueueExecutor();
+        ClockMap cache = new ClockMap(new RefreshPolicy(100, 20, 0, 0, executor));
+        assertEquals("v1", cache.get(source, "foo"));
+        source.value = "v2";
+        cache.time = 1050;
+        assertEquals("v1", cache.get(source, "foo"));
+        assertEquals(0, executor.tasks.size());
+
+        //
+        cache.time = 1080;
+        assertEquals("v1", cache.get(source, "foo"));
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals("v2", cache.get(source, "foo"));
+
+        // The value was reloaded at 1080 so it does not expire at 1100
+        cache.time = 1120;
+        assertEquals("v2", cache.get(source, "foo"));
+        assertEquals(2, source.loads);
+    }
+
+    public void testRefreshByCaller() {
+        ClockMap cache = new ClockMap(new RefreshPolicy(100, 20, 0, 0));
+        assertEquals("v1", cache.get(source, "foo"));
+        source.value = "v2";
+        cache.time = 1080;
+        assertEquals("v2", cache.get(source, "foo"));
+        assertEquals(2, source.loads);
+    }
+
+    public void testRefreshRemoved() {
+        ClockMap cache = new ClockMap(new RefreshPolicy(100, 20, 0, 0));
+        assertEquals("v1", cache.get(source, "foo"));
+        source.value = null;
+        cache.time = 1080;
+        assertNull(cache.get(source, "foo"));
+        assertFalse(cache.data.containsKey("foo"));
+    }
+
+    public void testInvalidPolicy() {
+        try {
+            new RefreshPolicy(100, 100, 0, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new RefreshPolicy(-1, 0, 0, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testFromProperties() throws Exception {
+        assertNull(RefreshPolicy.fromProperties("test.refresh.none"));
+
+        //
+        PropertyManager.setProperty("test.refresh.cache.time-to-live", "60000");
+        PropertyManager.setProperty("test.refresh.cache.stale-time", "5000");
+        RefreshPolicy policy = RefreshPolicy.fromProperties("test.refresh.cache");
+        assertNotNull(policy);
+        assertEquals(60000, policy.getTimeToLive());
+        assertEquals(0, policy.getRefreshAheadTime());
+        assertEquals(5000, policy.getStaleTime());
+        assertEquals(0, policy.getNegativeTimeToLive());
+        assertSame(RefreshExecutor.getInstance(), policy.getExecutor());
+
+        // An invalid policy is ignored
+        PropertyManager.setProperty("test.refresh.invalid.refresh-ahead", "1000");
+        assertNull(RefreshPolicy.fromProperties("test.refresh.invalid"));
+    }
+
+    public void testRefreshExecutor() throws Exception {
+        RefreshExecutor executor = new RefreshExecutor(1, 1);
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            final Thread[] threads = new Thread[1];
+            final CountDownLatch done = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                public void run() {
+                    threads[0] = Thread.currentThread();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                    done.countDown();
+                }
+            });
+
+            // One running and one queued reload, the next one is rejected
+            executor.execute(new Runnable() {
+                public void run() {
+                }
+            });
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                    }
+                });
+                fail();
+            } catch (RejectedExecutionException expected) {
+            }
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertNotSame(Thread.currentThread(), threads[0]);
+            assertTrue(threads[0].isDaemon());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
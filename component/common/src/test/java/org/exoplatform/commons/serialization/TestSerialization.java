@@ -130,4 +130,35 @@ public class TestSerialization extends AbstractGateInTest {
         assertEquals("foo", g.a);
         assertEquals(null, g.b);
     }
+
+    public void testSuperTypeField() throws Exception {
+        TypeDomain domain = new TypeDomain();
+        domain.addTypeModel(C2.class);
+        SerializationContext context = new SerializationContext(domain);
+        C2 c = new C2();
+        c.a = "foo";
+        ((C1) c).a = "bar";
+        c = context.clone(c);
+        assertEquals("foo", c.a);
+        assertEquals("bar", ((C1) c).a);
+    }
+
+    public void testWriteSeveralTimes() throws Exception {
+        TypeDomain domain = new TypeDomain();
+        domain.addTypeModel(A.class);
+        SerializationContext context = new SerializationContext(domain);
+        A a = new A();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append('a');
+        }
+        a.a = sb.toString();
+        byte[] large = context.write(a);
+        a.a = "foo";
+        byte[] small = context.write(a);
+        assertTrue(small.length < large.length);
+        assertEquals(sb.toString(), ((A) context.read(large)).a);
+        assertEquals("foo", ((A) context.read(small)).a);
+        assertEquals("foo", context.clone(a).a);
+    }
 }
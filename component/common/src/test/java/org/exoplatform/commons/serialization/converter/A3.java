@@ -32,6 +32,13 @@ public class A3 extends TypeConverter<A1, A2> {
     /** . */
     public static TypeConverter<A1, A2> delegate;
 
+    /** . */
+    public static int instances;
+
+    public A3() {
+        instances++;
+    }
+
     @Override
     public A2 write(A1 input) throws Exception {
         if (delegate == null) {
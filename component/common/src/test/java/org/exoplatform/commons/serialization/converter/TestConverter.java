@@ -56,6 +56,27 @@ public class TestConverter extends AbstractGateInTest {
         assertEquals("foo", a.state);
     }
 
+    public void testConverterIsReused() throws Exception {
+        TypeDomain domain = new TypeDomain();
+        domain.addTypeModel(A1.class);
+        A3.delegate = new TypeConverter<A1, A2>() {
+            @Override
+            public A2 write(A1 input) throws Exception {
+                return new A2(input.state);
+            }
+
+            @Override
+            public A1 read(A2 output) throws Exception {
+                return new A1(output.state);
+            }
+        };
+        SerializationContext context = new SerializationContext(domain);
+        assertEquals("foo", context.clone(new A1("foo")).state);
+        int instances = A3.instances;
+        assertEquals("bar", context.clone(new A1("bar")).state);
+        assertEquals(instances, A3.instances);
+    }
+
     public void testConvertSerializableType() throws Exception {
         TypeDomain domain = new TypeDomain();
         domain.addTypeModel(B1.class);
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.serialization.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.exoplatform.commons.serialization.api.annotations.Serialized;
+
+/**
+ * A node of the tree serialized by the {@link SerializationDriver}.
+ */
+@Serialized
+public class Node {
+
+    /** . */
+    String name;
+
+    /** . */
+    int index;
+
+    /** . */
+    Node parent;
+
+    /** . */
+    List<Node> children = new ArrayList<Node>();
+
+    /**
+     * Build a tree of the specified depth where each node has the specified number of children.
+     *
+     * @param depth the depth
+     * @param width the number of children per node
+     * @return the root node
+     */
+    static Node tree(int depth, int width) {
+        Node root = new Node();
+        root.name = "root";
+        build(root, depth, width);
+        return root;
+    }
+
+    private static void build(Node node, int depth, int width) {
+        if (depth > 0) {
+            for (int i = 0; i < width; i++) {
+                Node child = new Node();
+                child.name = node.name + "/" + i;
+                child.index = i;
+                child.parent = node;
+                node.children.add(child);
+                build(child, depth - 1, width);
+            }
+        }
+    }
+}
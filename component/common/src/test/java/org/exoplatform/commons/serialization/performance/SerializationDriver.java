@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.serialization.performance;
+
+import org.exoplatform.commons.serialization.SerializationContext;
+import org.exoplatform.commons.serialization.model.TypeDomain;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+
+/**
+ * Measures the cloning of a tree of nodes by the serialization context, the depth and the width of the tree are
+ * parameters of the test case.
+ */
+public class SerializationDriver extends JapexDriverBase {
+
+    /** . */
+    private SerializationContext context;
+
+    /** . */
+    private Node tree;
+
+    @Override
+    public void initializeDriver() {
+        TypeDomain domain = new TypeDomain();
+        domain.addTypeModel(Node.class);
+        context = new SerializationContext(domain);
+    }
+
+    @Override
+    public void prepare(TestCase testCase) {
+        tree = Node.tree(testCase.getIntParam("depth"), testCase.getIntParam("width"));
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        try {
+            context.clone(tree);
+        } catch (Exception e) {
+            AssertionError afe = new AssertionError("Could not clone the tree");
+            afe.initCause(e);
+            throw afe;
+        }
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        tree = null;
+    }
+
+    @Override
+    public void terminateDriver() {
+        context = null;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.utils;
+
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+public class TestLatencyHistogram extends TestCase {
+
+    private static class Histogram extends LatencyHistogram {
+
+        /** . */
+        private long time = 1000000;
+
+        private Histogram() {
+            super(1000, 10);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return time;
+        }
+    }
+
+    public void testBuckets() {
+        for (long value = 0; value < 100000; value++) {
+            int bucket = LatencyHistogram.bucket(value);
+            long highest = LatencyHistogram.highestValue(bucket);
+            assertTrue(value <= highest);
+            assertTrue(highest - value <= value / 8);
+            assertEquals(bucket, LatencyHistogram.bucket(highest));
+            assertEquals(bucket + 1, LatencyHistogram.bucket(highest + 1));
+        }
+        assertEquals(LatencyHistogram.bucket(Long.MAX_VALUE), LatencyHistogram.bucket(1L << 40));
+    }
+
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(-1, histogram.getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        long[] values = histogram.getValuesAtPercentiles(0, 50, 90, 99, 99.9, 100);
+        assertEquals(1, values[0]);
+        assertInBucket(500, values[1]);
+        assertInBucket(900, values[2]);
+        assertInBucket(990, values[3]);
+        assertInBucket(999, values[4]);
+        assertInBucket(1000, values[5]);
+        try {
+            histogram.getValueAtPercentile(101);
+            fail();
+        } catch (IllegalArgumentException ignore) {
+        }
+    }
+
+    public void testPercentileSummary() {
+        Histogram histogram = new Histogram();
+        assertEquals(-1D, LatencyHistogram.toMillis(-1));
+        assertEquals(1.5D, LatencyHistogram.toMillis(1500));
+        assertEquals(-1D, histogram.getMillisAtPercentiles(50)[0]);
+        String[] summary = histogram.getPercentileSummary();
+        assertEquals(4, summary.length);
+        assertEquals("p50=-1.0", summary[0]);
+        assertEquals("p999=-1.0", summary[3]);
+        for (int i = 0; i < 100; i++) {
+            histogram.record(4095);
+        }
+        assertEquals(4.095D, histogram.getMillisAtPercentiles(50)[0]);
+        summary = histogram.getPercentileSummary();
+        assertEquals("p50=0.004095", summary[0]);
+        assertEquals("p90=0.004095", summary[1]);
+        assertEquals("p99=0.004095", summary[2]);
+        assertEquals("p999=0.004095", summary[3]);
+    }
+
+    public void testWindow() {
+        Histogram histogram = new Histogram();
+        histogram.record(10);
+        histogram.time += 500;
+        histogram.record(1000);
+        assertEquals(2, histogram.getCount());
+        assertInBucket(1000, histogram.getValueAtPercentile(100));
+
+        // The first value leaves the window
+        histogram.time += 550;
+        assertEquals(1, histogram.getCount());
+        assertInBucket(1000, histogram.getValueAtPercentile(0));
+
+        // The slot of the first value is reused
+        histogram.record(20);
+        assertEquals(2, histogram.getCount());
+        assertInBucket(20, histogram.getValueAtPercentile(0));
+
+        // All the values leave the window
+        histogram.time += 1000;
+        assertEquals(0, histogram.getCount());
+        assertEquals(-1, histogram.getValueAtPercentile(50));
+    }
+
+    public void testConcurrentRecords() throws Exception {
+        final Histogram histogram = new Histogram();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.record(j);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, histogram.getCount());
+    }
+
+    private void assertInBucket(long expected, long value) {
+        assertEquals(LatencyHistogram.bucket(expected), LatencyHistogram.bucket(value));
+    }
+}
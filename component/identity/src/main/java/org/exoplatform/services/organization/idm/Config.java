@@ -68,6 +68,10 @@ public class Config {
 
     private boolean updateLastLoginTimeAfterAuthentication = true;
 
+    private long lastLoginTimeUpdateInterval = 0;
+
+    private int lastLoginTimeUpdateMaxPending = 10000;
+
     public Config() {
     }
 
@@ -336,4 +340,20 @@ public class Config {
     public void setUpdateLastLoginTimeAfterAuthentication(boolean updateLastLoginTimeAfterAuthentication) {
         this.updateLastLoginTimeAfterAuthentication = updateLastLoginTimeAfterAuthentication;
     }
+
+    public long getLastLoginTimeUpdateInterval() {
+        return lastLoginTimeUpdateInterval;
+    }
+
+    public void setLastLoginTimeUpdateInterval(long lastLoginTimeUpdateInterval) {
+        this.lastLoginTimeUpdateInterval = lastLoginTimeUpdateInterval;
+    }
+
+    public int getLastLoginTimeUpdateMaxPending() {
+        return lastLoginTimeUpdateMaxPending;
+    }
+
+    public void setLastLoginTimeUpdateMaxPending(int lastLoginTimeUpdateMaxPending) {
+        this.lastLoginTimeUpdateMaxPending = lastLoginTimeUpdateMaxPending;
+    }
 }
@@ -28,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.exoplatform.services.organization.Group;
 import org.exoplatform.services.organization.GroupEventListener;
@@ -51,6 +52,9 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
 
     private static final String CYCLIC_ID = "org.gatein.portal.identity.LOOPED_GROUP_ID";
 
+    /** The number of times the groups of a user were loaded from the identity session. */
+    private final AtomicLong userGroupsLoadCount = new AtomicLong();
+
     public GroupDAOImpl(PicketLinkIDMOrganizationServiceImpl orgService, PicketLinkIDMService service) {
         super(orgService, service);
         listeners_ = new ArrayList<GroupEventListener>();
@@ -146,7 +150,10 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
         if (broadcast) {
             preSave(group, false);
         }
-        persistGroup(group);
+        org.picketlink.idm.api.Group jbidGroup = persistGroup(group);
+
+        // Only the members of the group have it in their cached groups
+        invalidateGroupsOfUsers(findMemberNames(jbidGroup));
         if (broadcast) {
             postSave(group, false);
         }
@@ -193,6 +200,9 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
             }
         }
 
+        // The group has no child, only its own members have it in their cached groups
+        Collection<String> memberNames = findMemberNames(jbidGroup);
+
         //preDelete event should be raise here, when group will be really removed
         if (broadcast) {
             preDelete(group);
@@ -238,6 +248,8 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
             handleException("Cannot remove group: " + plGroupName + "; ", e);
         }
 
+        invalidateGroupsOfUsers(memberNames);
+
         if (broadcast) {
             postDelete(group);
         }
@@ -496,23 +508,44 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
             return Collections.emptyList();
         }
 
-        Collection<org.picketlink.idm.api.Group> allGroups = new HashSet<org.picketlink.idm.api.Group>();
+        // The groups are copied as the callers may modify them
+        List<Group> exoGroups = new LinkedList<Group>();
 
-        try {
-            orgService.flush();
+        ArrayList<Group> cachedGroups = null;
+        if (getIntegrationCache() != null) {
+            cachedGroups = getIntegrationCache().getGtnUserGroups(getCacheNS(), user);
+        }
 
-            allGroups = getIdentitySession().getRelationshipManager().findRelatedGroups(user, null, null);
-        } catch (Exception e) {
-            // TODO:
-            handleException("Identity operation error: ", e);
+        if (cachedGroups != null) {
+            for (Group group : cachedGroups) {
+                exoGroups.add(copyGroup(group));
+            }
+        } else {
+            Collection<org.picketlink.idm.api.Group> allGroups = new HashSet<org.picketlink.idm.api.Group>();
 
-        }
+            boolean failed = false;
+            userGroupsLoadCount.incrementAndGet();
+            try {
+                orgService.flush();
 
-        List<Group> exoGroups = new LinkedList<Group>();
+                allGroups = getIdentitySession().getRelationshipManager().findRelatedGroups(user, null, null);
+            } catch (Exception e) {
+                // TODO:
+                handleException("Identity operation error: ", e);
+                failed = true;
+            }
 
-        for (org.picketlink.idm.api.Group group : allGroups) {
-            exoGroups.add(convertGroup(group));
+            ArrayList<Group> groups = new ArrayList<Group>(allGroups.size());
+
+            for (org.picketlink.idm.api.Group group : allGroups) {
+                Group exoGroup = convertGroup(group);
+                groups.add(exoGroup);
+                exoGroups.add(copyGroup(exoGroup));
+            }
 
+            if (!failed && getIntegrationCache() != null) {
+                getIntegrationCache().putGtnUserGroups(getCacheNS(), user, groups);
+            }
         }
 
         if (log.isTraceEnabled()) {
@@ -840,6 +873,94 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
         return jbidGroup;
     }
 
+    /**
+     * Invalidate the cached groups of a user, it must be called when the memberships of the user are modified.
+     *
+     * @param userName the user name
+     */
+    void invalidateGroupsOfUser(String userName) {
+        if (getIntegrationCache() != null) {
+            getIntegrationCache().invalidateGtnUserGroups(getCacheNS(), userName);
+        }
+    }
+
+    /**
+     * Invalidate the cached groups of all users, it must be called when memberships of any user may have been modified.
+     */
+    void invalidateGroupsOfUsers() {
+        if (getIntegrationCache() != null) {
+            getIntegrationCache().invalidateGtnUserGroups(getCacheNS());
+        }
+    }
+
+    /**
+     * Invalidate the cached groups of several users, the groups of all users are invalidated when the user names are null.
+     *
+     * @param userNames the user names
+     */
+    private void invalidateGroupsOfUsers(Collection<String> userNames) {
+        if (userNames == null) {
+            invalidateGroupsOfUsers();
+        } else {
+            for (String userName : userNames) {
+                invalidateGroupsOfUser(userName);
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the users related to a group, or null when they cannot be determined.
+     *
+     * @param jbidGroup the group
+     * @return the member names
+     */
+    private Collection<String> findMemberNames(org.picketlink.idm.api.Group jbidGroup) {
+        if (getIntegrationCache() == null) {
+            return Collections.emptySet();
+        }
+        if (jbidGroup == null) {
+            return null;
+        }
+
+        Collection<org.picketlink.idm.api.User> users = null;
+        try {
+            orgService.flush();
+
+            users = getIdentitySession().getRelationshipManager().findRelatedUsers(jbidGroup, null);
+        } catch (Exception e) {
+            handleException("Identity operation error: ", e);
+        }
+
+        if (users == null) {
+            return null;
+        }
+
+        Set<String> names = new HashSet<String>();
+        for (org.picketlink.idm.api.User user : users) {
+            names.add(user.getId());
+        }
+        return names;
+    }
+
+    /**
+     * Returns the number of times the groups of a user were loaded from the identity session rather than from the
+     * integration cache.
+     *
+     * @return the user groups load count
+     */
+    public long getUserGroupsLoadCount() {
+        return userGroupsLoadCount.get();
+    }
+
+    private static Group copyGroup(Group group) {
+        ExtGroup copy = new ExtGroup(group.getGroupName());
+        copy.setId(group.getId());
+        copy.setParentId(group.getParentId());
+        copy.setLabel(group.getLabel());
+        copy.setDescription(group.getDescription());
+        return copy;
+    }
+
     private IntegrationCache getIntegrationCache() {
         // TODO: refactor to remove cast. For now to avoid adding new config option and share existing cache instannce
         // TODO: it should be there.
@@ -94,11 +94,15 @@ public class IDMUserListAccess implements ListAccess<User>, Serializable {
         for (; i < users.size(); i++) {
             org.picketlink.idm.api.User user = users.get(i);
 
-            User gtnUser = new UserImpl(user.getId());
-            ((UserDAOImpl) getOrganizationService().getUserHandler()).populateUser(gtnUser, getIDMService()
-                    .getIdentitySession());
-            exoUsers[i] = gtnUser;
-            lastExisting = gtnUser;
+            exoUsers[i] = new UserImpl(user.getId());
+        }
+
+        // Populate the whole page at once
+        ((UserDAOImpl) getOrganizationService().getUserHandler()).populateUsers(exoUsers, getIDMService()
+                .getIdentitySession());
+
+        if (i > 0) {
+            lastExisting = exoUsers[i - 1];
         }
 
         if (length > users.size()) {
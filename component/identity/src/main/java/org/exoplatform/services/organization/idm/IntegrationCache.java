@@ -1,5 +1,7 @@
 package org.exoplatform.services.organization.idm;
 
+import java.util.ArrayList;
+
 import org.exoplatform.services.organization.Query;
 import org.gatein.common.NotYetImplemented;
 import org.gatein.common.logging.Logger;
@@ -45,6 +47,8 @@ public class IntegrationCache extends AbstractInfinispanCacheProvider {
 
     public static final String USER_QUERY_NODE = "GTN_USER_QUERY_LAZY_LIST";
 
+    public static final String USER_GROUPS_NODE = "GTN_USER_GROUPS";
+
     public static final String MAIN_ROOT = "NODE_GTN_ORG_SERVICE_INT_CACHE_MAIN_ROOT";
 
     public static final String NODE_OBJECT_KEY = "object";
@@ -160,6 +164,106 @@ public class IntegrationCache extends AbstractInfinispanCacheProvider {
 
     }
 
+    /**
+     * Invalidate all the IDMUserListAccess
+     *
+     * @param ns
+     */
+    void invalidateGtnUserLazyPageLists(String ns) {
+        Node node = getNode(getFqn(ns, USER_QUERY_NODE));
+
+        if (node != null) {
+            node.removeChildren();
+
+            if (log.isTraceEnabled()) {
+                log.trace(this.toString() + "GateIn user query lists invalidated" + ";namespace=" + ns);
+            }
+        }
+    }
+
+    /**
+     * Store the groups of a user
+     *
+     * @param ns
+     * @param userName
+     * @param groups
+     */
+    void putGtnUserGroups(String ns, String userName, ArrayList<org.exoplatform.services.organization.Group> groups) {
+        Fqn nodeFqn = getFqn(ns, USER_GROUPS_NODE, userName);
+
+        Node ioNode = addNode(nodeFqn);
+
+        if (ioNode != null) {
+            ioNode.put(NODE_OBJECT_KEY, groups);
+
+            if (log.isTraceEnabled()) {
+
+                log.trace(this.toString() + "GateIn user groups cached. User: " + userName + ";namespace=" + ns);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the groups of a user
+     *
+     * @param ns
+     * @param userName
+     * @return the groups or null when they are not cached
+     */
+    ArrayList<org.exoplatform.services.organization.Group> getGtnUserGroups(String ns, String userName) {
+        Fqn nodeFqn = getFqn(ns, USER_GROUPS_NODE, userName);
+
+        Node node = getNode(nodeFqn);
+
+        if (node != null) {
+            ArrayList<org.exoplatform.services.organization.Group> groups = (ArrayList<org.exoplatform.services.organization.Group>) node
+                    .get(NODE_OBJECT_KEY);
+
+            if (log.isTraceEnabled() && groups != null) {
+                log.trace(this.toString() + "GateIn user groups found in cache. User: " + userName + ";namespace=" + ns);
+            }
+
+            return groups;
+        }
+
+        return null;
+    }
+
+    /**
+     * Invalidate the groups of a user
+     *
+     * @param ns
+     * @param userName
+     */
+    void invalidateGtnUserGroups(String ns, String userName) {
+        Node node = getNode(getFqn(ns, USER_GROUPS_NODE, userName));
+
+        if (node != null) {
+            node.remove(NODE_OBJECT_KEY);
+
+            if (log.isTraceEnabled()) {
+                log.trace(this.toString() + "GateIn user groups invalidated. User: " + userName + ";namespace=" + ns);
+            }
+        }
+    }
+
+    /**
+     * Invalidate the groups of all users
+     *
+     * @param ns
+     */
+    void invalidateGtnUserGroups(String ns) {
+        Node node = getNode(getFqn(ns, USER_GROUPS_NODE));
+
+        if (node != null) {
+            node.removeChildren();
+
+            if (log.isTraceEnabled()) {
+                log.trace(this.toString() + "GateIn groups of all users invalidated" + ";namespace=" + ns);
+            }
+        }
+    }
+
     /**
      * Store PLIDM root group
      *
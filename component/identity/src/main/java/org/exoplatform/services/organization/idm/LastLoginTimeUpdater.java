@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.services.organization.idm;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.component.RequestLifeCycle;
+
+/**
+ * <p>
+ * Records the last login times of the authenticated users in memory and writes them to the identity store in batches,
+ * so that a login does not require a write transaction. The logins of a user that happen between two flushes are
+ * coalesced into a single write of the latest time.
+ * </p>
+ *
+ * <p>
+ * The pending times are flushed periodically by a background thread and when the updater is stopped. The number of
+ * pending users is bounded, when the bound is reached {@link #update(String, long)} returns false and the caller should
+ * write the time itself.
+ * </p>
+ */
+public class LastLoginTimeUpdater {
+
+    /** . */
+    private final PicketLinkIDMOrganizationServiceImpl orgService;
+
+    /** . */
+    private final long interval;
+
+    /** . */
+    private final int maxPending;
+
+    /** The pending last login times by user name. */
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<String, Long>();
+
+    /** . */
+    private final AtomicLong flushCount = new AtomicLong();
+
+    /** . */
+    private final AtomicLong writeCount = new AtomicLong();
+
+    /** . */
+    private final AtomicLong rejectCount = new AtomicLong();
+
+    /** . */
+    private final AtomicLong failCount = new AtomicLong();
+
+    /** . */
+    private volatile long lastFlushTime;
+
+    /** . */
+    private volatile long maxFlushTime;
+
+    /** . */
+    private ScheduledExecutorService executor;
+
+    /** . */
+    private ExoContainer container;
+
+    /**
+     * Create an updater.
+     *
+     * @param orgService the organization service
+     * @param interval the interval between two flushes in milliseconds
+     * @param maxPending the maximum number of pending users
+     */
+    public LastLoginTimeUpdater(PicketLinkIDMOrganizationServiceImpl orgService, long interval, int maxPending) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The flush interval must be positive");
+        }
+        this.orgService = orgService;
+        this.interval = interval;
+        this.maxPending = maxPending;
+    }
+
+    public synchronized void start() {
+        if (executor == null) {
+            container = ExoContainerContext.getCurrentContainer();
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "LastLoginTimeUpdater");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    ExoContainerContext.setCurrentContainer(container);
+                    try {
+                        flush();
+                    } finally {
+                        ExoContainerContext.setCurrentContainer(null);
+                    }
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop the background flushes and write the pending times.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(interval, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+            flush();
+        }
+    }
+
+    /**
+     * Record the last login time of a user.
+     *
+     * @param userName the user name
+     * @param time the login time
+     * @return false when too many users are pending and the time was not recorded
+     */
+    public boolean update(String userName, long time) {
+        Long previous = pending.get(userName);
+        if (previous == null && pending.size() >= maxPending) {
+            rejectCount.incrementAndGet();
+            return false;
+        }
+        while (true) {
+            if (previous == null) {
+                previous = pending.putIfAbsent(userName, time);
+                if (previous == null) {
+                    return true;
+                }
+            } else if (previous >= time || pending.replace(userName, previous, time)) {
+                return true;
+            } else {
+                previous = pending.get(userName);
+            }
+        }
+    }
+
+    /**
+     * Returns the last login time of a user that is not yet written.
+     *
+     * @param userName the user name
+     * @return the pending time or null
+     */
+    public Long getPendingTime(String userName) {
+        return pending.get(userName);
+    }
+
+    /**
+     * Write the pending times to the identity store within a single request. When a write fails the request is rolled
+     * back and the times are written again one user per request, so that the failure of a user does not lose the times
+     * of the others. A time is removed from the pending times only once its request is ended.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Long> times = new LinkedHashMap<String, Long>(pending);
+            if (!writeAll(times)) {
+                for (Map.Entry<String, Long> time : times.entrySet()) {
+                    if (!writeAll(Collections.singletonMap(time.getKey(), time.getValue()))) {
+                        failCount.incrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            long time = System.currentTimeMillis() - start;
+            lastFlushTime = time;
+            if (time > maxFlushTime) {
+                maxFlushTime = time;
+            }
+            flushCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Write times within a request, the request is rolled back when a write fails.
+     *
+     * @param times the times to write by user name
+     * @return true when the times were written
+     */
+    private boolean writeAll(Map<String, Long> times) {
+        UserDAOImpl userDAO = (UserDAOImpl) orgService.getUserHandler();
+        boolean written = false;
+        RequestLifeCycle.begin(orgService);
+        try {
+            for (Map.Entry<String, Long> time : times.entrySet()) {
+                write(time.getKey(), time.getValue());
+            }
+
+            // The writes are flushed so that a failure is noticed before the request ends
+            userDAO.getIdentitySession().save();
+            written = true;
+        } catch (Exception e) {
+            userDAO.handleException("Could not write the last login times of " + times.keySet() + "; ", e);
+        } finally {
+            RequestLifeCycle.end();
+        }
+        if (written) {
+            for (Map.Entry<String, Long> time : times.entrySet()) {
+                writeCount.incrementAndGet();
+
+                // Keep a time recorded during the write for the next flush
+                pending.remove(time.getKey(), time.getValue());
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Write the last login time of a user within the current request.
+     *
+     * @param userName the user name
+     * @param time the last login time
+     * @throws Exception when the write fails
+     */
+    protected void write(String userName, long time) throws Exception {
+        ((UserDAOImpl) orgService.getUserHandler()).updateLastLoginTime(userName, time);
+    }
+
+    /**
+     * Returns the number of users whose last login time is not yet written.
+     *
+     * @return the pending count
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Returns the number of login times that were not recorded because too many users were pending.
+     *
+     * @return the reject count
+     */
+    public long getRejectCount() {
+        return rejectCount.get();
+    }
+
+    /**
+     * Returns the number of login times whose write failed, they are written again by the next flush.
+     *
+     * @return the fail count
+     */
+    public long getFailCount() {
+        return failCount.get();
+    }
+
+    /**
+     * Returns the duration of the last flush in milliseconds.
+     *
+     * @return the last flush time
+     */
+    public long getLastFlushTime() {
+        return lastFlushTime;
+    }
+
+    /**
+     * Returns the duration of the longest flush in milliseconds.
+     *
+     * @return the max flush time
+     */
+    public long getMaxFlushTime() {
+        return maxFlushTime;
+    }
+}
@@ -159,6 +159,8 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
             getIdentitySession().getRoleManager().createRole(mt.getName(), user.getUserName(), groupId);
         }
 
+        getGroupDAO().invalidateGroupsOfUser(user.getUserName());
+
         if (broadcast) {
             postSave(membership, true);
         }
@@ -215,6 +217,8 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
             }
         }
 
+        getGroupDAO().invalidateGroupsOfUser(m.getUserName());
+
         if (broadcast) {
             postSave(m, false);
         }
@@ -294,6 +298,8 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
             }
         }
 
+        getGroupDAO().invalidateGroupsOfUser(m.getUserName());
+
         if (broadcast) {
             postDelete(m);
         }
@@ -368,6 +374,8 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
 
         }
 
+        getGroupDAO().invalidateGroupsOfUser(userName);
+
         // TODO: Exo UI has hardcoded casts to List
         return new LinkedList(memberships);
 
@@ -796,6 +804,10 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
         return true;
     }
 
+    private GroupDAOImpl getGroupDAO() {
+        return (GroupDAOImpl) orgService.getGroupHandler();
+    }
+
     public String getPLIDMGroupName(String gtnGroupName) {
         return orgService.getConfiguration().getPLIDMGroupName(gtnGroupName);
     }
@@ -178,6 +178,9 @@ public class MembershipTypeDAOImpl extends AbstractDAOImpl implements Membership
                 handleException("Error occured when removing membership type", e);
             }
 
+            // The memberships of this type are gone
+            ((GroupDAOImpl) orgService.getGroupHandler()).invalidateGroupsOfUsers();
+
             if (broadcast) {
                 postDelete(mt);
             }
@@ -26,6 +26,11 @@ import org.exoplatform.container.component.ComponentRequestLifecycle;
 import org.exoplatform.container.component.RequestLifeCycle;
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.container.xml.ObjectParameter;
+import org.exoplatform.management.annotations.Managed;
+import org.exoplatform.management.annotations.ManagedDescription;
+import org.exoplatform.management.jmx.annotations.NameTemplate;
+import org.exoplatform.management.jmx.annotations.Property;
+import org.exoplatform.management.rest.annotations.RESTEndpoint;
 import org.exoplatform.services.organization.BaseOrganizationService;
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
@@ -36,6 +41,11 @@ import org.picocontainer.Startable;
 /*
  * @author <a href="mailto:boleslaw.dawidowicz at redhat.com">Boleslaw Dawidowicz</a>
  */
+@Managed
+@ManagedDescription("PicketLink IDM Organization Service")
+@NameTemplate({ @Property(key = "name", value = "plidmorganization"),
+        @Property(key = "service", value = "PicketLinkIDMOrganizationService") })
+@RESTEndpoint(path = "plidmorganization")
 public class PicketLinkIDMOrganizationServiceImpl extends BaseOrganizationService implements Startable,
         ComponentRequestLifecycle {
 
@@ -49,6 +59,8 @@ public class PicketLinkIDMOrganizationServiceImpl extends BaseOrganizationServic
 
     private JTAUserTransactionLifecycleService jtaTransactionLifecycleService;
 
+    private volatile LastLoginTimeUpdater lastLoginTimeUpdater;
+
     private static final Logger log = LoggerFactory.getLogger(PicketLinkIDMOrganizationServiceImpl.class);
     private static final boolean traceLoggingEnabled = log.isTraceEnabled();
 
@@ -98,6 +110,12 @@ public class PicketLinkIDMOrganizationServiceImpl extends BaseOrganizationServic
                 jtaTransactionLifecycleService.registerListener(new IDMTransactionSyncListener(idmService_));
             }
 
+            if (configuration.getLastLoginTimeUpdateInterval() > 0) {
+                lastLoginTimeUpdater = new LastLoginTimeUpdater(this, configuration.getLastLoginTimeUpdateInterval(),
+                        configuration.getLastLoginTimeUpdateMaxPending());
+                lastLoginTimeUpdater.start();
+            }
+
             RequestLifeCycle.begin(this);
 
             super.start();
@@ -112,7 +130,9 @@ public class PicketLinkIDMOrganizationServiceImpl extends BaseOrganizationServic
 
     @Override
     public void stop() {
-        // toto
+        if (lastLoginTimeUpdater != null) {
+            lastLoginTimeUpdater.stop();
+        }
     }
 
     /*
@@ -211,6 +231,64 @@ public class PicketLinkIDMOrganizationServiceImpl extends BaseOrganizationServic
         }
     }
 
+    /**
+     * Returns the updater writing the last login times in the background or null when they are written at login.
+     *
+     * @return the last login time updater
+     */
+    public LastLoginTimeUpdater getLastLoginTimeUpdater() {
+        return lastLoginTimeUpdater;
+    }
+
+    @Managed
+    @ManagedDescription("The number of users whose last login time is waiting to be written")
+    public int getLastLoginTimePendingCount() {
+        LastLoginTimeUpdater updater = lastLoginTimeUpdater;
+        return updater != null ? updater.getPendingCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of flushes of the last login times")
+    public long getLastLoginTimeFlushCount() {
+        LastLoginTimeUpdater updater = lastLoginTimeUpdater;
+        return updater != null ? updater.getFlushCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of last login times written by the flushes")
+    public long getLastLoginTimeWriteCount() {
+        LastLoginTimeUpdater updater = lastLoginTimeUpdater;
+        return updater != null ? updater.getWriteCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of last login times written at login because too many users were pending")
+    public long getLastLoginTimeRejectCount() {
+        LastLoginTimeUpdater updater = lastLoginTimeUpdater;
+        return updater != null ? updater.getRejectCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of last login times whose write failed")
+    public long getLastLoginTimeFailCount() {
+        LastLoginTimeUpdater updater = lastLoginTimeUpdater;
+        return updater != null ? updater.getFailCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The duration in milliseconds of the last flush of the last login times")
+    public long getLastLoginTimeLastFlushTime() {
+        LastLoginTimeUpdater updater = lastLoginTimeUpdater;
+        return updater != null ? updater.getLastFlushTime() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The duration in milliseconds of the longest flush of the last login times")
+    public long getLastLoginTimeMaxFlushTime() {
+        LastLoginTimeUpdater updater = lastLoginTimeUpdater;
+        return updater != null ? updater.getMaxFlushTime() : 0;
+    }
+
     public Config getConfiguration() {
         return configuration;
     }
@@ -44,6 +44,9 @@ import org.picketlink.idm.impl.configuration.jaxb2.JAXB2IdentityConfiguration;
 import org.picketlink.idm.impl.credential.DatabaseReadingSaltEncoder;
 import org.picketlink.idm.spi.cache.IdentityStoreCacheProvider;
 import org.picketlink.idm.spi.configuration.metadata.IdentityConfigurationMetaData;
+import org.picketlink.idm.spi.configuration.metadata.IdentityObjectAttributeMetaData;
+import org.picketlink.idm.spi.configuration.metadata.IdentityObjectTypeMetaData;
+import org.picketlink.idm.spi.configuration.metadata.IdentityStoreConfigurationMetaData;
 import org.picocontainer.Startable;
 
 /*
@@ -71,6 +74,8 @@ public class PicketLinkIDMServiceImpl implements PicketLinkIDMService, Startable
 
     public static final String CACHE_CONFIG_STORE_OPTION = "storeCacheConfig";
 
+    private static final String HIBERNATE_STORE_CLASS = "org.picketlink.idm.impl.store.hibernate.HibernateIdentityStoreImpl";
+
     private IdentitySessionFactory identitySessionFactory;
 
     private String config;
@@ -83,6 +88,9 @@ public class PicketLinkIDMServiceImpl implements PicketLinkIDMService, Startable
 
     private HibernateService hibernateService;
 
+    /** True when the identities and their attributes are all stored by the Hibernate store. */
+    private boolean hibernateStore;
+
     private InfinispanCacheFactory infinispanCacheFactory = InfinispanCacheFactory.getInstance();
 
     private PicketLinkIDMServiceImpl() {
@@ -133,6 +141,7 @@ public class PicketLinkIDMServiceImpl implements PicketLinkIDMService, Startable
                     .getInputStream(this.config));
 
             identityConfiguration = new IdentityConfigurationImpl().configure(configMD);
+            hibernateStore = isHibernateStore(configMD);
 
             identityConfiguration.getIdentityConfigurationRegistry().register(hibernateService.getSessionFactory(),
                     "hibernateSessionFactory");
@@ -229,4 +238,31 @@ public class PicketLinkIDMServiceImpl implements PicketLinkIDMService, Startable
     public HibernateService getHibernateService() {
         return hibernateService;
     }
+
+    /**
+     * Returns true when the identities and their attributes are all stored by the Hibernate store under their own names,
+     * they can then be read with queries on the session factory of the {@link #getHibernateService()}.
+     *
+     * @return true when the Hibernate store is the only store
+     */
+    public boolean isHibernateStore() {
+        return hibernateStore;
+    }
+
+    private static boolean isHibernateStore(IdentityConfigurationMetaData configMD) {
+        for (IdentityStoreConfigurationMetaData store : configMD.getIdentityStores()) {
+            if (!HIBERNATE_STORE_CLASS.equals(store.getClassName())) {
+                return false;
+            }
+            for (IdentityObjectTypeMetaData type : store.getSupportedIdentityTypes()) {
+                for (IdentityObjectAttributeMetaData attribute : type.getAttributes()) {
+                    String mapping = attribute.getStoreMapping();
+                    if (mapping != null && !mapping.equals(attribute.getName())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
 }
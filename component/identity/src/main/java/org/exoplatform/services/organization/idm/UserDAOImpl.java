@@ -25,10 +25,12 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.exoplatform.commons.utils.EmptySerializablePageList;
 import org.exoplatform.commons.utils.LazyPageList;
@@ -40,6 +42,7 @@ import org.exoplatform.services.organization.UserEventListener;
 import org.exoplatform.services.organization.UserHandler;
 import org.exoplatform.services.organization.impl.UserImpl;
 import org.gatein.common.logging.LogLevel;
+import org.hibernate.Session;
 import org.picketlink.idm.api.Attribute;
 import org.picketlink.idm.api.AttributesManager;
 import org.picketlink.idm.api.IdentitySession;
@@ -54,6 +57,12 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
 
     private List<UserEventListener> listeners_ = new ArrayList<UserEventListener>(3);
 
+    /** The number of identity session flushes performed to populate users. */
+    private final AtomicLong populateFlushCount = new AtomicLong();
+
+    /** The number of attribute fetches performed to populate users. */
+    private final AtomicLong populateFetchCount = new AtomicLong();
+
     public static final String USER_PASSWORD = "password";
 
     public static final String USER_FIRST_NAME = "firstName";
@@ -72,6 +81,14 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
 
     public static final String USER_ENABLED = "enabled";
 
+    /** The identity object type of the users in the identity configurations of the portal. */
+    private static final String USER_IDENTITY_TYPE = "USER";
+
+    /** The text attribute values of users, one row per value, a user without attributes has a single row. */
+    private static final String POPULATE_QUERY = "select o.name, r.name, a.name, v from "
+            + "org.picketlink.idm.impl.model.hibernate.HibernateIdentityObject o join o.realm r left join o.attributes a "
+            + "left join a.textValues v where o.name in (:names) and o.identityType.name = :type";
+
     public static final Set<String> USER_NON_PROFILE_KEYS;
 
     public static final DateFormat dateFormat = DateFormat.getInstance();
@@ -140,9 +157,7 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
 
         }
 
-        if (getIntegrationCache() != null) {
-            getIntegrationCache().invalidateAll();
-        }
+        invalidateUser(user.getUserName());
 
         persistUserInfo(user, session, true);
 
@@ -200,9 +215,7 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
             handleException("Cannot update enabled status for user: " + userName + "; ", e);
         }
 
-        if (getIntegrationCache() != null) {
-            getIntegrationCache().invalidateAll();
-        }
+        invalidateUser(userName);
 
         if (broadcast)
             postSetEnabled(foundUser);
@@ -254,9 +267,7 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
 
         }
 
-        if (getIntegrationCache() != null) {
-            getIntegrationCache().invalidateAll();
-        }
+        invalidateUser(userName);
 
         if (broadcast) {
             postDelete(exoUser);
@@ -357,7 +368,10 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
         if (authenticated && orgService.getConfiguration().isUpdateLastLoginTimeAfterAuthentication()) {
             UserImpl userImpl = (UserImpl) user;
             userImpl.setLastLoginTime(Calendar.getInstance().getTime());
-            saveUser(userImpl, false);
+            LastLoginTimeUpdater updater = orgService.getLastLoginTimeUpdater();
+            if (updater == null || !updater.update(username, userImpl.getLastLoginTime().getTime())) {
+                saveUser(userImpl, false);
+            }
         }
 
         if (log.isTraceEnabled()) {
@@ -674,6 +688,21 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
 
     }
 
+    /**
+     * Write the last login time of a user, the user is skipped when it does not exist anymore.
+     *
+     * @param userName the user name
+     * @param time the last login time
+     * @throws Exception when the write fails, the caller is responsible for rolling back the request
+     */
+    void updateLastLoginTime(String userName, long time) throws Exception {
+        IdentitySession session = service_.getIdentitySession();
+        if (session.getPersistenceManager().findUser(userName) != null) {
+            Attribute[] attrs = new Attribute[] { new SimpleAttribute(USER_LAST_LOGIN_TIME, "" + time) };
+            session.getAttributesManager().updateAttributes(userName, attrs);
+        }
+    }
+
     public User getPopulatedUser(String userName, IdentitySession session, boolean enabledOnly) throws Exception {
         Object u = null;
 
@@ -698,11 +727,134 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
 
     public void populateUser(User user, IdentitySession session) {
         orgService.flush();
+        populateFlushCount.incrementAndGet();
+
+        populateUser(user, session.getAttributesManager());
+    }
+
+    /**
+     * Populate the users of a list page, the identity session is flushed once for all the users instead of once per user.
+     * When the Hibernate store is the only store the attributes of the whole page are fetched with a single query,
+     * otherwise they are fetched user by user. The null entries of the array are ignored.
+     *
+     * @param users the users to populate
+     * @param session the identity session
+     */
+    public void populateUsers(User[] users, IdentitySession session) {
+        orgService.flush();
+        populateFlushCount.incrementAndGet();
 
+        Map<String, Map<String, Attribute>> attributes = fetchAttributes(users);
         AttributesManager am = session.getAttributesManager();
+        for (User user : users) {
+            if (user != null) {
+                Map<String, Attribute> attrs = attributes != null ? attributes.get(user.getUserName()) : null;
+                if (attrs != null) {
+                    populateUser(user, attrs);
+                } else {
+                    populateUser(user, am);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetch the text attributes of users with a single query on the Hibernate store. A user is left out when it cannot
+     * be told apart, for instance a user name present in several realms, it is then fetched through the attributes
+     * manager.
+     *
+     * @param users the users
+     * @return the attributes by user name or null when the store cannot be queried
+     */
+    private Map<String, Map<String, Attribute>> fetchAttributes(User[] users) {
+        PicketLinkIDMServiceImpl service = (PicketLinkIDMServiceImpl) service_;
+        if (!service.isHibernateStore()) {
+            return null;
+        }
+        Set<String> names = new HashSet<String>();
+        for (User user : users) {
+            if (user != null) {
+                names.add(user.getUserName());
+            }
+        }
+        if (names.isEmpty()) {
+            return null;
+        }
+
+        //
+        List<?> rows;
+        populateFetchCount.incrementAndGet();
+        try {
+            Session session = service.getHibernateService().getSessionFactory().getCurrentSession();
+            rows = session.createQuery(POPULATE_QUERY).setParameterList("names", names).setString("type", USER_IDENTITY_TYPE)
+                    .list();
+        } catch (Exception e) {
+            handleException("Cannot obtain attributes for users: " + names + "; ", e);
+            return null;
+        }
 
+        //
+        Map<String, Map<String, Attribute>> attributes = new HashMap<String, Map<String, Attribute>>();
+        Map<String, String> realms = new HashMap<String, String>();
+        Set<String> ambiguous = new HashSet<String>();
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            String userName = (String) columns[0];
+            String realm = (String) columns[1];
+            String previous = realms.put(userName, realm);
+            if (previous != null && !previous.equals(realm)) {
+                ambiguous.add(userName);
+            }
+            Map<String, Attribute> attrs = attributes.get(userName);
+            if (attrs == null) {
+                attrs = new HashMap<String, Attribute>();
+                attributes.put(userName, attrs);
+            }
+            String name = (String) columns[2];
+            if (name != null && columns[3] != null && !attrs.containsKey(name)) {
+                attrs.put(name, new SimpleAttribute(name, columns[3]));
+            }
+        }
+        attributes.keySet().removeAll(ambiguous);
+        return attributes;
+    }
+
+    /**
+     * Invalidate the cached user query lists and the cached groups of a user, the other cached data do not depend on
+     * the user.
+     *
+     * @param userName the user name
+     */
+    private void invalidateUser(String userName) {
+        if (getIntegrationCache() != null) {
+            getIntegrationCache().invalidateGtnUserLazyPageLists(getCacheNS());
+            getIntegrationCache().invalidateGtnUserGroups(getCacheNS(), userName);
+        }
+    }
+
+    /**
+     * Returns the number of identity session flushes performed to populate users.
+     *
+     * @return the populate flush count
+     */
+    public long getPopulateFlushCount() {
+        return populateFlushCount.get();
+    }
+
+    /**
+     * Returns the number of attribute fetches performed to populate users.
+     *
+     * @return the populate fetch count
+     */
+    public long getPopulateFetchCount() {
+        return populateFetchCount.get();
+    }
+
+    private void populateUser(User user, AttributesManager am) {
         Map<String, Attribute> attrs = null;
 
+        populateFetchCount.incrementAndGet();
+
         try {
             attrs = am.getAttributes(new SimpleUser(user.getUserName()));
         } catch (Exception e) {
@@ -711,65 +863,76 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
 
         }
 
-        if (attrs == null) {
-            return;
-        } else {
-            if (attrs.containsKey(USER_CREATED_DATE)) {
+        if (attrs != null) {
+            populateUser(user, attrs);
+        }
+    }
+
+    private void populateUser(User user, Map<String, Attribute> attrs) {
+        if (attrs.containsKey(USER_CREATED_DATE)) {
+            try {
+                long date = Long.parseLong(attrs.get(USER_CREATED_DATE).getValue().toString());
+                user.setCreatedDate(new Date(date));
+            } catch (NumberFormatException e) {
+                // For backward compatibility with GateIn 3.0 and EPP 5 Beta
                 try {
-                    long date = Long.parseLong(attrs.get(USER_CREATED_DATE).getValue().toString());
-                    user.setCreatedDate(new Date(date));
-                } catch (NumberFormatException e) {
-                    // For backward compatibility with GateIn 3.0 and EPP 5 Beta
-                    try {
-                        user.setCreatedDate(dateFormat.parse(attrs.get(USER_CREATED_DATE).getValue().toString()));
-                    } catch (ParseException e2) {
-                        log.error("Cannot parse the creation date for: " + user.getUserName());
-                    }
+                    user.setCreatedDate(dateFormat.parse(attrs.get(USER_CREATED_DATE).getValue().toString()));
+                } catch (ParseException e2) {
+                    log.error("Cannot parse the creation date for: " + user.getUserName());
                 }
             }
-            if (attrs.containsKey(USER_EMAIL)) {
-                user.setEmail(attrs.get(USER_EMAIL).getValue().toString());
-            }
-            if (attrs.containsKey(USER_FIRST_NAME)) {
-                user.setFirstName(attrs.get(USER_FIRST_NAME).getValue().toString());
-            }
-            if (attrs.containsKey(USER_LAST_LOGIN_TIME)) {
-                try {
-                    Long lastLoginMillis = null;
-                    Attribute lastLoginAttr = attrs.get(USER_LAST_LOGIN_TIME);
-                    if (lastLoginAttr != null) {
-                        Object lastLoginValue = lastLoginAttr.getValue();
-                        if (lastLoginValue != null) {
-                            lastLoginMillis = Long.parseLong(lastLoginValue.toString());
-                        }
-                    }
-                    if (lastLoginMillis != null) {
-                        user.setLastLoginTime(new Date(lastLoginMillis));
-                    }
-                } catch (NumberFormatException e) {
-                    // For backward compatibility with GateIn 3.0 and EPP 5 Beta
-                    try {
-                        user.setLastLoginTime(dateFormat.parse(attrs.get(USER_LAST_LOGIN_TIME).getValue().toString()));
-                    } catch (ParseException e2) {
-                        log.error("Cannot parse the last login date for: " + user.getUserName());
+        }
+        if (attrs.containsKey(USER_EMAIL)) {
+            user.setEmail(attrs.get(USER_EMAIL).getValue().toString());
+        }
+        if (attrs.containsKey(USER_FIRST_NAME)) {
+            user.setFirstName(attrs.get(USER_FIRST_NAME).getValue().toString());
+        }
+        if (attrs.containsKey(USER_LAST_LOGIN_TIME)) {
+            try {
+                Long lastLoginMillis = null;
+                Attribute lastLoginAttr = attrs.get(USER_LAST_LOGIN_TIME);
+                if (lastLoginAttr != null) {
+                    Object lastLoginValue = lastLoginAttr.getValue();
+                    if (lastLoginValue != null) {
+                        lastLoginMillis = Long.parseLong(lastLoginValue.toString());
                     }
                 }
+                if (lastLoginMillis != null) {
+                    user.setLastLoginTime(new Date(lastLoginMillis));
+                }
+            } catch (NumberFormatException e) {
+                // For backward compatibility with GateIn 3.0 and EPP 5 Beta
+                try {
+                    user.setLastLoginTime(dateFormat.parse(attrs.get(USER_LAST_LOGIN_TIME).getValue().toString()));
+                } catch (ParseException e2) {
+                    log.error("Cannot parse the last login date for: " + user.getUserName());
+                }
             }
-            if (attrs.containsKey(USER_LAST_NAME)) {
-                user.setLastName(attrs.get(USER_LAST_NAME).getValue().toString());
-            }
-            if (attrs.containsKey(USER_DISPLAY_NAME)) {
-                // TODO: GTNPORTAL-2358 Change once displayName will be available as part of Organization API
-                user.setFullName(attrs.get(USER_DISPLAY_NAME).getValue().toString());
-            }
-            if (attrs.containsKey(USER_ORGANIZATION_ID)) {
-                user.setOrganizationId(attrs.get(USER_ORGANIZATION_ID).getValue().toString());
-            }
-            if (attrs.containsKey(USER_PASSWORD)) {
-                user.setPassword(attrs.get(USER_PASSWORD).getValue().toString());
-            }
-            if (attrs.containsKey(USER_ENABLED)) {
-                ((UserImpl) user).setEnabled(Boolean.parseBoolean(attrs.get(USER_ENABLED).getValue().toString()));
+        }
+        if (attrs.containsKey(USER_LAST_NAME)) {
+            user.setLastName(attrs.get(USER_LAST_NAME).getValue().toString());
+        }
+        if (attrs.containsKey(USER_DISPLAY_NAME)) {
+            // TODO: GTNPORTAL-2358 Change once displayName will be available as part of Organization API
+            user.setFullName(attrs.get(USER_DISPLAY_NAME).getValue().toString());
+        }
+        if (attrs.containsKey(USER_ORGANIZATION_ID)) {
+            user.setOrganizationId(attrs.get(USER_ORGANIZATION_ID).getValue().toString());
+        }
+        if (attrs.containsKey(USER_PASSWORD)) {
+            user.setPassword(attrs.get(USER_PASSWORD).getValue().toString());
+        }
+        if (attrs.containsKey(USER_ENABLED)) {
+            ((UserImpl) user).setEnabled(Boolean.parseBoolean(attrs.get(USER_ENABLED).getValue().toString()));
+        }
+
+        // A login time not yet written is more recent than the stored one
+        LastLoginTimeUpdater updater = orgService.getLastLoginTimeUpdater();
+        if (updater != null) {
+            Long pending = updater.getPendingTime(user.getUserName());
+            if (pending != null && (user.getLastLoginTime() == null || user.getLastLoginTime().getTime() < pending)) {
+                user.setLastLoginTime(new Date(pending));
             }
         }
     }
@@ -29,11 +29,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.exoplatform.commons.utils.ListAccess;
 import org.exoplatform.commons.utils.PageList;
 import org.exoplatform.container.PortalContainer;
 import org.exoplatform.container.component.ComponentRequestLifecycle;
 import org.exoplatform.container.component.RequestLifeCycle;
 import org.exoplatform.services.organization.idm.Config;
+import org.exoplatform.services.organization.idm.GroupDAOImpl;
 import org.exoplatform.services.organization.idm.PicketLinkIDMOrganizationServiceImpl;
 import org.exoplatform.services.organization.idm.UserDAOImpl;
 import org.junit.After;
@@ -162,6 +164,35 @@ public class AbstractTestOrganizationService {
         }
     }
 
+    @Test
+    public void testUserPagePopulatedAtOnce() throws Exception {
+        for (String name : USERS)
+            createUser(name);
+
+        UserDAOImpl userDAO = (UserDAOImpl) userHandler_;
+        ListAccess<User> users = userHandler_.findUsersByQuery(new Query());
+        int size = users.getSize();
+        long flushes = userDAO.getPopulateFlushCount();
+        long fetches = userDAO.getPopulateFetchCount();
+        User[] page = users.load(0, size);
+        assertEquals(USERS_LIST_SIZE + 1, page.length);
+        for (User u : page) {
+            if (!u.getUserName().equals("demo"))
+                assertEquals("exo@exoportal.org", u.getEmail());
+        }
+
+        // The session is flushed and the attributes are fetched once for the whole page
+        assertEquals(flushes + 1, userDAO.getPopulateFlushCount());
+        assertEquals(fetches + 1, userDAO.getPopulateFetchCount());
+
+        // The number of fetches does not depend on the page size
+        fetches = userDAO.getPopulateFetchCount();
+        page = users.load(0, 1);
+        assertEquals(1, page.length);
+        assertNotNull(page[0].getCreatedDate());
+        assertEquals(fetches + 1, userDAO.getPopulateFetchCount());
+    }
+
     @Test
     public void testUser() throws Exception {
         createUser(USER);
@@ -550,6 +581,110 @@ public class AbstractTestOrganizationService {
         groupHandler_.removeGroup(group3, true);
     }
 
+    @Test
+    public void testGroupsOfUser() throws Exception {
+        User user = createUser(Benj);
+
+        Group group = groupHandler_.createGroupInstance();
+        group.setGroupName(Group1);
+        groupHandler_.addChild(null, group, true);
+
+        MembershipType mt = mtHandler_.createMembershipTypeInstance();
+        mt.setName("testmembership");
+        mtHandler_.createMembershipType(mt, true);
+
+        int size = groupHandler_.findGroupsOfUser(Benj).size();
+        membershipHandler_.linkMembership(user, group, mt, true);
+        Collection<Group> groups = groupHandler_.findGroupsOfUser(Benj);
+        assertEquals(size + 1, groups.size());
+
+        // Modifying the returned groups does not modify the groups returned later
+        for (Group g : groups) {
+            g.setLabel("modified");
+        }
+        for (Group g : groupHandler_.findGroupsOfUser(Benj)) {
+            assertFalse("modified".equals(g.getLabel()));
+        }
+
+        // The groups are up to date after the membership is removed
+        String memId = membershipHandler_.findMembershipByUserGroupAndType(Benj, group.getId(), "testmembership").getId();
+        membershipHandler_.removeMembership(memId, true);
+        assertEquals(size, groupHandler_.findGroupsOfUser(Benj).size());
+
+        // And after a group is modified
+        membershipHandler_.linkMembership(user, group, mt, true);
+        group.setLabel("Label");
+        groupHandler_.saveGroup(group, true);
+        boolean found = false;
+        for (Group g : groupHandler_.findGroupsOfUser(Benj)) {
+            if (g.getId().equals(group.getId())) {
+                assertEquals("Label", g.getLabel());
+                found = true;
+            }
+        }
+        assertTrue(found);
+
+        membershipHandler_.removeMembershipByUser(Benj, true);
+        for (Group g : groupHandler_.findGroupsOfUser(Benj)) {
+            assertFalse(g.getId().equals(group.getId()));
+        }
+
+        mtHandler_.removeMembershipType("testmembership", true);
+        userHandler_.removeUser(Benj, true);
+        groupHandler_.removeGroup(group, true);
+    }
+
+    @Test
+    public void testGroupsOfUnrelatedUser() throws Exception {
+        GroupDAOImpl groupDAO = (GroupDAOImpl) groupHandler_;
+        User user = createUser(Benj);
+        createUser(Tuan);
+
+        Group group = groupHandler_.createGroupInstance();
+        group.setGroupName(Group1);
+        groupHandler_.addChild(null, group, true);
+
+        MembershipType mt = mtHandler_.createMembershipTypeInstance();
+        mt.setName("testmembership");
+        mtHandler_.createMembershipType(mt, true);
+        membershipHandler_.linkMembership(user, group, mt, true);
+
+        // The groups of both users are cached
+        groupHandler_.findGroupsOfUser(Benj);
+        groupHandler_.findGroupsOfUser(Tuan);
+        long loads = groupDAO.getUserGroupsLoadCount();
+        groupHandler_.findGroupsOfUser(Tuan);
+        assertEquals(loads, groupDAO.getUserGroupsLoadCount());
+
+        // Saving the group only invalidates the groups of its members
+        group.setLabel("Label");
+        groupHandler_.saveGroup(group, true);
+        groupHandler_.findGroupsOfUser(Tuan);
+        assertEquals(loads, groupDAO.getUserGroupsLoadCount());
+        groupHandler_.findGroupsOfUser(Benj);
+        assertEquals(loads + 1, groupDAO.getUserGroupsLoadCount());
+
+        // Creating a user only invalidates its own groups
+        createUser(USER);
+        groupHandler_.findGroupsOfUser(Tuan);
+        groupHandler_.findGroupsOfUser(Benj);
+        assertEquals(loads + 1, groupDAO.getUserGroupsLoadCount());
+
+        // Removing the group only invalidates the groups of its members
+        groupHandler_.removeGroup(group, true);
+        groupHandler_.findGroupsOfUser(Tuan);
+        assertEquals(loads + 1, groupDAO.getUserGroupsLoadCount());
+        for (Group g : groupHandler_.findGroupsOfUser(Benj)) {
+            assertFalse(g.getId().equals(group.getId()));
+        }
+        assertEquals(loads + 2, groupDAO.getUserGroupsLoadCount());
+
+        membershipHandler_.removeMembershipByUser(Benj, true);
+        mtHandler_.removeMembershipType("testmembership", true);
+        userHandler_.removeUser(Benj, true);
+        userHandler_.removeUser(Tuan, true);
+    }
+
     @Test
     public void testUserProfileListener() throws Exception {
         System.out.println("Trigger testUserProfileListener");
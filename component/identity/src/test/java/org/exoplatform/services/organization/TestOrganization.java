@@ -33,6 +33,7 @@ import org.exoplatform.component.test.ConfigurationUnit;
 import org.exoplatform.component.test.ConfiguredBy;
 import org.exoplatform.component.test.ContainerScope;
 import org.exoplatform.container.PortalContainer;
+import org.exoplatform.services.organization.idm.LastLoginTimeUpdater;
 import org.exoplatform.services.organization.idm.PicketLinkIDMOrganizationServiceImpl;
 
 /**
@@ -177,6 +178,67 @@ public class TestOrganization extends AbstractKernelTest {
         }
     }
 
+    public void testLastLoginTimeUpdater() throws Exception {
+        if (!(organizationService instanceof PicketLinkIDMOrganizationServiceImpl)) {
+            return;
+        }
+        LastLoginTimeUpdater updater = new LastLoginTimeUpdater((PicketLinkIDMOrganizationServiceImpl) organizationService,
+                60000, 1);
+        long time = System.currentTimeMillis() + 60000;
+
+        // Logins of the same user are coalesced
+        Assert.assertTrue(updater.update(USER_1, time - 1));
+        Assert.assertTrue(updater.update(USER_1, time));
+        Assert.assertTrue(updater.update(USER_1, time - 2));
+        Assert.assertEquals(1, updater.getPendingCount());
+
+        // The number of pending users is bounded
+        Assert.assertFalse(updater.update(USER_2, time));
+        Assert.assertEquals(1, updater.getRejectCount());
+
+        updater.flush();
+        Assert.assertEquals(0, updater.getPendingCount());
+        Assert.assertEquals(1, updater.getWriteCount());
+        Assert.assertEquals(1, updater.getFlushCount());
+        Assert.assertEquals(time, userHandler_.findUserByName(USER_1).getLastLoginTime().getTime());
+    }
+
+    public void testLastLoginTimeUpdaterFailure() throws Exception {
+        if (!(organizationService instanceof PicketLinkIDMOrganizationServiceImpl)) {
+            return;
+        }
+        LastLoginTimeUpdater updater = new LastLoginTimeUpdater((PicketLinkIDMOrganizationServiceImpl) organizationService,
+                60000, 10) {
+            @Override
+            protected void write(String userName, long time) throws Exception {
+                if (USER_2.equals(userName)) {
+                    throw new Exception("Cannot write " + userName);
+                }
+                super.write(userName, time);
+            }
+        };
+        long time = System.currentTimeMillis() + 60000;
+        Assert.assertTrue(updater.update(USER_1, time));
+        Assert.assertTrue(updater.update(USER_2, time));
+        Assert.assertTrue(updater.update(USER_3, time));
+
+        // The flush runs in its own requests, the failed one is rolled back
+        end();
+        try {
+            updater.flush();
+        } finally {
+            begin();
+        }
+
+        // The failure of a user does not lose the times of the others, it is kept for the next flush
+        Assert.assertEquals(1, updater.getPendingCount());
+        Assert.assertEquals(Long.valueOf(time), updater.getPendingTime(USER_2));
+        Assert.assertEquals(2, updater.getWriteCount());
+        Assert.assertEquals(1, updater.getFailCount());
+        Assert.assertEquals(time, userHandler_.findUserByName(USER_1).getLastLoginTime().getTime());
+        Assert.assertEquals(time, userHandler_.findUserByName(USER_3).getLastLoginTime().getTime());
+    }
+
     public void testDisplayName() throws Exception {
         UserHandler uHandler = organizationService.getUserHandler();
         User john = uHandler.findUserByName("john");
@@ -20,17 +20,31 @@
 package org.exoplatform.portal.config;
 
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.exoplatform.commons.utils.IOUtil;
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
 import org.exoplatform.container.PortalContainer;
 import org.exoplatform.container.component.BaseComponentPlugin;
 import org.exoplatform.container.component.RequestLifeCycle;
@@ -57,8 +71,11 @@ import org.exoplatform.portal.mop.navigation.NavigationService;
 import org.exoplatform.portal.mop.page.PageService;
 import org.exoplatform.portal.pom.config.POMSession;
 import org.exoplatform.portal.pom.config.POMSessionManager;
+import org.exoplatform.portal.pom.data.MappedAttributes;
+import org.exoplatform.portal.pom.data.Mapper;
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
+import org.gatein.mop.api.workspace.Site;
 import org.gatein.mop.api.workspace.Workspace;
 import org.jibx.runtime.JiBXException;
 
@@ -120,7 +137,13 @@ public class NewPortalConfigListener extends BaseComponentPlugin {
     /** . */
     private DescriptionService descriptionService_;
 
-    final Set<String> createdOwners = new HashSet<String>();
+    final Set<String> createdOwners = Collections.synchronizedSet(new HashSet<String>());
+
+    /** The sites are imported one after another unless configured otherwise. */
+    private static final int DEFAULT_IMPORT_THREADS = 1;
+
+    /** The number of sites imported concurrently. */
+    private int importThreads;
 
     private boolean isFirstStartup = false;
 
@@ -177,6 +200,13 @@ public class NewPortalConfigListener extends BaseComponentPlugin {
         for (NewPortalConfig ele : configs) {
           ele.setOverrideMode(overrideExistingData);
         }
+
+        valueParam = params.getValueParam("import.threads");
+        if (valueParam != null) {
+            importThreads = Integer.parseInt(valueParam.getValue().trim());
+        } else {
+            importThreads = DEFAULT_IMPORT_THREADS;
+        }
         this.pomMgr = pomMgr;
     }
 
@@ -233,74 +263,247 @@ public class NewPortalConfigListener extends BaseComponentPlugin {
 
     public void run() throws Exception {
         boolean prepareImport = performImport();
-        if (isUseTryCatch) {
-            RequestLifeCycle.begin(PortalContainer.getInstance());
-            try {
-                for (NewPortalConfig ele : configs) {
+
+        //
+        long time = System.currentTimeMillis();
+        Collection<SiteImport> imports = prepareImports(prepareImport);
+        log.info("Prepared the import of " + imports.size() + " sites in " + (System.currentTimeMillis() - time) + " ms");
+
+        // The sites are imported concurrently, each phase is completed for all the sites before the next one starts
+        ExecutorService executor = null;
+        if (importThreads > 1 && imports.size() > 1) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Math.min(importThreads, imports.size()), new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PortalConfigImport-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        try {
+            runPhase("portal configurations", imports, executor, new ImportPhase() {
+                public boolean run(NewPortalConfig config, String owner) throws Exception {
+                    RequestLifeCycle.begin(PortalContainer.getInstance());
                     try {
-                        if(ele.getOverrideMode() || prepareImport) {
-                            initPortalConfigDB(ele);
+                        if (createPortalConfig(config, owner)) {
+                            createdOwners.add(owner);
+                            return true;
+                        } else {
+                            return false;
                         }
-                    } catch (Exception e) {
-                        log.error("NewPortalConfig error: " + e.getMessage(), e);
+                    } finally {
+                        RequestLifeCycle.end();
                     }
                 }
-            } finally {
-                RequestLifeCycle.end();
+            });
+            runPhase("pages", imports, executor, new ImportPhase() {
+                public boolean run(NewPortalConfig config, String owner) throws Exception {
+                    if (createdOwners.contains(owner)) {
+                        createPage(config, owner);
+                    }
+                    return true;
+                }
+            });
+            runPhase("navigations", imports, executor, new ImportPhase() {
+                public boolean run(NewPortalConfig config, String owner) throws Exception {
+                    RequestLifeCycle.begin(PortalContainer.getInstance());
+                    try {
+                        createPageNavigation(config, owner);
+                        return true;
+                    } finally {
+                        RequestLifeCycle.end();
+                    }
+                }
+            });
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
             }
-            for (NewPortalConfig ele : configs) {
-                try {
-                    if(ele.getOverrideMode() || prepareImport) {
-                        initPageDB(ele);
+        }
+
+        //
+        saveFingerprints(imports);
+        touchImport();
+    }
+
+    /**
+     * Returns the sites to import, the configurations of a site are imported in their order. The sites imported on each
+     * start because of the override mode are skipped when their configuration did not change since the last import.
+     */
+    private Collection<SiteImport> prepareImports(boolean prepareImport) {
+        Map<String, SiteImport> imports = new LinkedHashMap<String, SiteImport>();
+        for (NewPortalConfig config : configs) {
+            if (config.getOverrideMode() || prepareImport) {
+                for (String owner : config.getPredefinedOwner()) {
+                    String type = config.getOwnerType();
+                    String name = fixOwnerName(type, owner);
+                    String key = type + "::" + name;
+                    SiteImport siteImport = imports.get(key);
+                    if (siteImport == null) {
+                        siteImport = new SiteImport(type, name);
+                        imports.put(key, siteImport);
                     }
-                } catch (Exception e) {
-                    log.error("NewPortalConfig error: " + e.getMessage(), e);
+                    siteImport.configs.add(config);
+                    siteImport.owners.add(owner);
                 }
             }
+        }
+
+        //
+        for (SiteImport siteImport : imports.values()) {
+            siteImport.fingerprint = fingerprint(siteImport);
+        }
+
+        // A requested import is performed whatever the configuration
+        if (!prepareImport) {
+            int skipped = 0;
             RequestLifeCycle.begin(PortalContainer.getInstance());
             try {
-                for (NewPortalConfig ele : configs) {
-                    try {
-                        if(ele.getOverrideMode() || prepareImport) {
-                            initPageNavigationDB(ele);
-                        }
-                    } catch (Exception e) {
-                        log.error("NewPortalConfig error: " + e.getMessage(), e);
+                Workspace workspace = pomMgr.getSession().getWorkspace();
+                for (Iterator<SiteImport> i = imports.values().iterator(); i.hasNext();) {
+                    SiteImport siteImport = i.next();
+                    Site site = workspace.getSite(Mapper.parseSiteType(siteImport.type), siteImport.name);
+                    String fingerprint = site != null ? site.getAttributes().getValue(MappedAttributes.IMPORT_FINGERPRINT) : null;
+                    if (siteImport.fingerprint != null && siteImport.fingerprint.equals(fingerprint)) {
+                        log.debug("Configuration of " + siteImport.type + " " + siteImport.name + " did not change, skipping it");
+                        i.remove();
+                        skipped++;
                     }
                 }
             } finally {
                 RequestLifeCycle.end();
             }
+            if (skipped > 0) {
+                log.info("Skipped the import of " + skipped + " sites whose configuration did not change");
+            }
+        }
+        return imports.values();
+    }
+
+    /**
+     * Returns the fingerprint of the configuration files of a site or null when it cannot be computed.
+     */
+    private String fingerprint(SiteImport siteImport) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (int i = 0; i < siteImport.configs.size(); i++) {
+                NewPortalConfig config = siteImport.configs.get(i);
+                String owner = siteImport.owners.get(i);
+                update(digest, config.getOwnerType());
+                update(digest, owner);
+                update(digest, getRightMode(config.getImportMode()).name());
+                for (String fileName : new String[] { config.getOwnerType(), "pages", "navigation" }) {
+                    update(digest, getConfigXML(config, owner, fileName));
+                }
+            }
+            byte[] bytes = digest.digest();
+            StringBuilder sb = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            log.debug("Could not compute the fingerprint of " + siteImport.type + " " + siteImport.name, e);
+            return null;
+        }
+    }
+
+    private static void update(MessageDigest digest, String s) throws UnsupportedEncodingException {
+        // A missing value is distinct from an empty one
+        if (s == null) {
+            digest.update((byte) 0);
         } else {
-            RequestLifeCycle.begin(PortalContainer.getInstance());
-            try {
-                for (NewPortalConfig ele : configs) {
-                    if(ele.getOverrideMode() || prepareImport) {
-                        initPortalConfigDB(ele);
-                    }
+            digest.update((byte) 1);
+            byte[] bytes = s.getBytes("UTF-8");
+            digest.update(new byte[] { (byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8),
+                    (byte) bytes.length });
+            digest.update(bytes);
+        }
+    }
+
+    /**
+     * Runs a phase of the import for each site, on the executor when there is one.
+     */
+    private void runPhase(String name, Collection<SiteImport> imports, ExecutorService executor, final ImportPhase phase)
+            throws Exception {
+        long time = System.currentTimeMillis();
+        Exception failure = null;
+        if (executor == null) {
+            for (SiteImport siteImport : imports) {
+                failure = run(phase, siteImport);
+                if (failure != null) {
+                    break;
                 }
-            } finally {
-                RequestLifeCycle.end();
             }
-            for (NewPortalConfig ele : configs) {
-                if(ele.getOverrideMode() || prepareImport) {
-                    initPageDB(ele);
+        } else {
+            final ExoContainer container = PortalContainer.getInstance();
+            List<Future<Exception>> futures = new ArrayList<Future<Exception>>(imports.size());
+            for (final SiteImport siteImport : imports) {
+                futures.add(executor.submit(new Callable<Exception>() {
+                    public Exception call() {
+                        ExoContainerContext.setCurrentContainer(container);
+                        try {
+                            return run(phase, siteImport);
+                        } finally {
+                            ExoContainerContext.setCurrentContainer(null);
+                        }
+                    }
+                }));
+            }
+            for (Future<Exception> future : futures) {
+                Exception e = future.get();
+                if (failure == null) {
+                    failure = e;
                 }
             }
-            RequestLifeCycle.begin(PortalContainer.getInstance());
+        }
+        log.info("Imported the " + name + " of " + imports.size() + " sites in " + (System.currentTimeMillis() - time) + " ms");
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Runs a phase of the import for the configurations of a site and returns the failure to rethrow if any.
+     */
+    private Exception run(ImportPhase phase, SiteImport siteImport) {
+        for (int i = 0; i < siteImport.configs.size(); i++) {
             try {
-                for (NewPortalConfig ele : configs) {
-                    if(ele.getOverrideMode() || prepareImport) {
-                        initPageNavigationDB(ele);
-                    }
+                if (!phase.run(siteImport.configs.get(i), siteImport.owners.get(i))) {
+                    siteImport.failed = true;
+                }
+            } catch (Exception e) {
+                siteImport.failed = true;
+                if (isUseTryCatch) {
+                    log.error("NewPortalConfig error: " + e.getMessage(), e);
+                } else {
+                    return e;
                 }
-            } finally {
-                RequestLifeCycle.end();
             }
         }
+        return null;
+    }
 
-        //
-        touchImport();
+    /**
+     * Records the fingerprint of the sites imported successfully.
+     */
+    private void saveFingerprints(Collection<SiteImport> imports) {
+        RequestLifeCycle.begin(PortalContainer.getInstance());
+        try {
+            POMSession session = pomMgr.getSession();
+            Workspace workspace = session.getWorkspace();
+            for (SiteImport siteImport : imports) {
+                Site site = workspace.getSite(Mapper.parseSiteType(siteImport.type), siteImport.name);
+                if (site != null) {
+                    String fingerprint = siteImport.failed ? null : siteImport.fingerprint;
+                    site.getAttributes().setValue(MappedAttributes.IMPORT_FINGERPRINT, fingerprint);
+                }
+            }
+            session.save();
+        } finally {
+            RequestLifeCycle.end();
+        }
     }
 
     String getDefaultPortal() {
@@ -545,22 +748,8 @@ public class NewPortalConfigListener extends BaseComponentPlugin {
             throws Exception {
         log.debug("About to load config=" + config + " owner=" + owner + " fileName=" + fileName);
 
-        //
-        String ownerType = config.getOwnerType();
-
         // Get XML
-        String path = "/" + ownerType + "/" + owner + "/" + fileName + ".xml";
-        String xml = getDefaultConfig(config.getTemplateLocation(), path);
-
-        //
-        if (xml == null) {
-            String templateName = config.getTemplateName() != null ? config.getTemplateName() : fileName;
-            path = "/" + ownerType + "/template/" + templateName + "/" + fileName + ".xml";
-            xml = getDefaultConfig(config.getTemplateLocation(), path);
-            if (xml != null) {
-                xml = OWNER_PATTERN.matcher(xml).replaceAll(StringEscapeUtils.escapeXml(owner));
-            }
-        }
+        String xml = getConfigXML(config, owner, fileName);
 
         //
         if (xml != null) {
@@ -570,11 +759,11 @@ public class NewPortalConfigListener extends BaseComponentPlugin {
                 ok = true;
                 return o;
             } catch (JiBXException e) {
-                log.error(e.getMessage() + " file: " + path, e);
+                log.error(e.getMessage() + " file: " + fileName + ".xml of " + config.getOwnerType() + " " + owner, e);
                 throw e;
             } finally {
                 if (!ok) {
-                    log.error("Could not load file: " + path);
+                    log.error("Could not load file: " + fileName + ".xml of " + config.getOwnerType() + " " + owner);
                 }
             }
         }
@@ -583,6 +772,31 @@ public class NewPortalConfigListener extends BaseComponentPlugin {
         return null;
     }
 
+    /**
+     * Returns the xml of a configuration, from the owner directory or from the template directory.
+     *
+     * @param config the config object
+     * @param owner the owner
+     * @param fileName the file name
+     * @return the xml of the config or null
+     */
+    private String getConfigXML(NewPortalConfig config, String owner, String fileName) {
+        String ownerType = config.getOwnerType();
+        String path = "/" + ownerType + "/" + owner + "/" + fileName + ".xml";
+        String xml = getDefaultConfig(config.getTemplateLocation(), path);
+
+        //
+        if (xml == null) {
+            String templateName = config.getTemplateName() != null ? config.getTemplateName() : fileName;
+            path = "/" + ownerType + "/template/" + templateName + "/" + fileName + ".xml";
+            xml = getDefaultConfig(config.getTemplateLocation(), path);
+            if (xml != null) {
+                xml = OWNER_PATTERN.matcher(xml).replaceAll(StringEscapeUtils.escapeXml(owner));
+            }
+        }
+        return xml;
+    }
+
     private String getDefaultConfig(String location, String path) {
         String s = location + path;
         String content = null;
@@ -758,4 +972,45 @@ public class NewPortalConfigListener extends BaseComponentPlugin {
 
         return importMode;
     }
+
+    /**
+     * A phase of the import of a site.
+     */
+    private interface ImportPhase {
+        /**
+         * Import a configuration of a site.
+         *
+         * @return false when the configuration could not be imported
+         */
+        boolean run(NewPortalConfig config, String owner) throws Exception;
+    }
+
+    /**
+     * The configurations of a site to import.
+     */
+    private static class SiteImport {
+
+        /** . */
+        private final String type;
+
+        /** . */
+        private final String name;
+
+        /** . */
+        private final List<NewPortalConfig> configs = new ArrayList<NewPortalConfig>();
+
+        /** The owner of each configuration. */
+        private final List<String> owners = new ArrayList<String>();
+
+        /** . */
+        private String fingerprint;
+
+        /** . */
+        private volatile boolean failed;
+
+        private SiteImport(String type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+    }
 }
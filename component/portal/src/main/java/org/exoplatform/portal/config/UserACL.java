@@ -23,12 +23,25 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.component.ComponentRequestLifecycle;
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.container.xml.ValueParam;
 import org.exoplatform.container.xml.ValuesParam;
+import org.exoplatform.management.annotations.Managed;
+import org.exoplatform.management.annotations.ManagedDescription;
+import org.exoplatform.management.jmx.annotations.NameTemplate;
+import org.exoplatform.management.jmx.annotations.Property;
+import org.exoplatform.management.rest.annotations.RESTEndpoint;
 import org.exoplatform.portal.config.model.Page;
 import org.exoplatform.portal.config.model.PortalConfig;
 import org.exoplatform.portal.mop.SiteKey;
@@ -42,8 +55,20 @@ import org.exoplatform.services.security.Identity;
 import org.exoplatform.services.security.IdentityConstants;
 import org.exoplatform.services.security.MembershipEntry;
 
-/** Jun 27, 2006 */
-public class UserACL {
+/**
+ * Jun 27, 2006
+ *
+ * <p>
+ * The permission expressions are parsed once and shared, the results of the permission checks are also remembered for the
+ * duration of a request as the same expressions are checked many times when a page is rendered. The memberships of an
+ * identity must therefore not change during a request.
+ * </p>
+ */
+@Managed
+@ManagedDescription("User ACL service")
+@NameTemplate({ @Property(key = "view", value = "portal"), @Property(key = "service", value = "acl") })
+@RESTEndpoint(path = "useracl")
+public class UserACL implements ComponentRequestLifecycle {
     public static final String EVERYONE = "Everyone";
 
     /**
@@ -59,6 +84,25 @@ public class UserACL {
 
     private static final Identity guest = new Identity(null, NO_MEMBERSHIP, NO_ROLES);
 
+    /** The maximum number of compiled permission expressions. */
+    private static final int MAX_COMPILED_PERMISSIONS = 10000;
+
+    /** The compiled permission expressions shared by the requests. */
+    private static final ConcurrentMap<String, CompiledPermission> compiledPermissions =
+            new ConcurrentHashMap<String, CompiledPermission>();
+
+    /** The permission checks of the current request. */
+    private final ThreadLocal<RequestMemo> currentMemo = new ThreadLocal<RequestMemo>();
+
+    /** . */
+    private final AtomicLong evaluationCount = new AtomicLong();
+
+    /** . */
+    private final AtomicLong savedEvaluationCount = new AtomicLong();
+
+    /** . */
+    private final AtomicLong requestCount = new AtomicLong();
+
     private String superUser_;
 
     private String guestGroup_;
@@ -465,14 +509,138 @@ public class UserACL {
         if (EVERYONE.equals(expPerm)) {
             return true;
         }
-        Permission permission = new Permission();
-        permission.setPermissionExpression(expPerm);
-        String groupId = permission.getGroupId();
-        if ((currentUser == null || currentUser.equals(IdentityConstants.ANONIM)) && groupId.equals(guestGroup_)) {
-            return true;
+        RequestMemo memo = currentMemo.get();
+        if (memo != null) {
+            Boolean granted = memo.get(identity, expPerm);
+            if (granted != null) {
+                memo.saved++;
+                savedEvaluationCount.incrementAndGet();
+                return granted;
+            }
+        }
+        CompiledPermission permission = compile(expPerm);
+        boolean granted;
+        if ((currentUser == null || currentUser.equals(IdentityConstants.ANONIM)) && permission.groupId.equals(guestGroup_)) {
+            granted = true;
+        } else {
+            granted = identity.isMemberOf(permission.groupId, permission.membership);
+        }
+        evaluationCount.incrementAndGet();
+        if (memo != null) {
+            memo.evaluations++;
+            memo.put(identity, expPerm, granted);
+        }
+        return granted;
+    }
+
+    private static CompiledPermission compile(String expPerm) {
+        CompiledPermission compiled = compiledPermissions.get(expPerm);
+        if (compiled == null) {
+            Permission permission = new Permission();
+            permission.setPermissionExpression(expPerm);
+            compiled = new CompiledPermission(permission.getMembership(), permission.getGroupId());
+            if (compiledPermissions.size() < MAX_COMPILED_PERMISSIONS) {
+                compiledPermissions.put(expPerm, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    public void startRequest(ExoContainer container) {
+        RequestMemo memo = currentMemo.get();
+        if (memo == null) {
+            currentMemo.set(new RequestMemo());
+        } else {
+            memo.depth++;
+        }
+    }
+
+    public void endRequest(ExoContainer container) {
+        RequestMemo memo = currentMemo.get();
+        if (memo != null) {
+            if (memo.depth > 0) {
+                memo.depth--;
+            } else {
+                currentMemo.remove();
+                requestCount.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Request performed " + memo.evaluations + " permission evaluations and saved " + memo.saved);
+                }
+            }
+        }
+    }
+
+    @Managed
+    @ManagedDescription("The number of permission evaluations")
+    public long getEvaluationCount() {
+        return evaluationCount.get();
+    }
+
+    @Managed
+    @ManagedDescription("The number of permission evaluations saved by remembering the checks of a request")
+    public long getSavedEvaluationCount() {
+        return savedEvaluationCount.get();
+    }
+
+    @Managed
+    @ManagedDescription("The number of requests that remembered their permission checks")
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Managed
+    @ManagedDescription("The number of compiled permission expressions")
+    public int getCompiledPermissionCount() {
+        return compiledPermissions.size();
+    }
+
+    /**
+     * A parsed permission expression.
+     */
+    private static final class CompiledPermission {
+
+        /** . */
+        final String membership;
+
+        /** . */
+        final String groupId;
+
+        private CompiledPermission(String membership, String groupId) {
+            this.membership = membership;
+            this.groupId = groupId;
+        }
+    }
+
+    /**
+     * The results of the permission checks performed during a request.
+     */
+    private static final class RequestMemo {
+
+        /** . */
+        private final Map<Identity, Map<String, Boolean>> results = new IdentityHashMap<Identity, Map<String, Boolean>>();
+
+        /** The number of nested requests. */
+        private int depth;
+
+        /** . */
+        private int evaluations;
+
+        /** . */
+        private int saved;
+
+        Boolean get(Identity identity, String expPerm) {
+            Map<String, Boolean> identityResults = results.get(identity);
+            return identityResults != null ? identityResults.get(expPerm) : null;
+        }
+
+        void put(Identity identity, String expPerm, boolean granted) {
+            Map<String, Boolean> identityResults = results.get(identity);
+            if (identityResults == null) {
+                identityResults = new HashMap<String, Boolean>();
+                results.put(identity, identityResults);
+            }
+            identityResults.put(expPerm, granted);
         }
-        String membership = permission.getMembership();
-        return identity.isMemberOf(groupId, membership);
     }
 
     private List<String> defragmentPermission(String permission) {
@@ -29,7 +29,7 @@ import org.exoplatform.portal.mop.importer.ImportMode;
  * @version $Revision$
  */
 public abstract class ImportTask<T> {
-    protected final T data;
+    protected T data;
 
     protected ImportTask(T data) {
         this.data = data;
@@ -38,4 +38,11 @@ public abstract class ImportTask<T> {
     public abstract void importData(ImportMode importMode) throws Exception;
 
     public abstract void rollback() throws Exception;
+
+    /**
+     * Releases the imported data once it was imported, only the state needed by {@link #rollback()} is kept.
+     */
+    public void release() {
+        data = null;
+    }
 }
@@ -174,6 +174,19 @@ public class PageImportTask extends AbstractImportTask<Page.PageSet> {
         }
     }
 
+    @Override
+    public void release() {
+        // Only the names of the created pages are needed to destroy them
+        if (rollbackDeletes != null) {
+            Page.PageSet deletes = new Page.PageSet();
+            for (Page page : rollbackDeletes.getPages()) {
+                deletes.getPages().add(new Page(page.getOwnerType(), page.getOwnerId(), page.getName()));
+            }
+            rollbackDeletes = deletes;
+        }
+        super.release();
+    }
+
     Page.PageSet getRollbackSaves() {
         return rollbackSaves;
     }
@@ -87,4 +87,13 @@ public class SiteLayoutImportTask extends AbstractImportTask<PortalConfig> {
             dataStorage.save();
         }
     }
+
+    @Override
+    public void release() {
+        // Only the key of a created site is needed to remove it
+        if (rollbackDelete != null) {
+            rollbackDelete = new PortalConfig(rollbackDelete.getType(), rollbackDelete.getName());
+        }
+        super.release();
+    }
 }
@@ -24,8 +24,10 @@ package org.exoplatform.portal.mop.management.operations;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -67,6 +69,9 @@ import org.gatein.mop.api.workspace.Workspace;
 public class MopImportResource extends SecureOperationHandler implements OperationHandler {
     private static final Logger log = LoggerFactory.getLogger(MopImportResource.class);
 
+    /** The default number of sites imported between two saves of the session. */
+    private static final int DEFAULT_BATCH_SIZE = 10;
+
     // TODO: Would like to see the step operations be handled by mgmt core.
 
     // TODO: Clean this up when we have time
@@ -120,19 +125,46 @@ public class MopImportResource extends SecureOperationHandler implements Operati
             throw new OperationException(operationName, "Unknown importMode " + mode);
         }
 
-        Map<SiteKey, MopImport> importMap = new HashMap<SiteKey, MopImport>();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        String batch = operationContext.getAttributes().getValue("batchSize");
+        if (batch != null && !"".equals(batch)) {
+            try {
+                batchSize = Integer.parseInt(batch.trim());
+            } catch (NumberFormatException e) {
+                throw new OperationException(operationName, "Invalid batchSize " + batch);
+            }
+            if (batchSize < 1)
+                throw new OperationException(operationName, "Invalid batchSize " + batch);
+        }
+
+        // Obtain the site from the session when it's needed.
+        MOPSiteProvider siteProvider = new MOPSiteProvider() {
+            @Override
+            public Site getSite(SiteKey siteKey) {
+                return mgr.getSession().getWorkspace().getSite(Utils.getObjectType(siteKey.getType()), siteKey.getName());
+            }
+        };
+
+        // The zip is imported site by site while it is read: the entries of a site are unmarshalled until an entry of
+        // another site is found, then the site is imported before reading further. The unmarshalled data of a site is
+        // released once the site is imported, the tasks that ran only keep what their rollback needs: the previous state
+        // of the site layout, pages and navigation nodes the import changed and the names of what it created. This
+        // state grows with the data the import replaces and is kept until the import ends. The export writes the entries
+        // of a site one after the other, a zip where the entries of a site are not contiguous is rejected since the site
+        // would otherwise be imported several times with a part of its data.
+        List<MopImport> importsRan = new ArrayList<MopImport>();
+        Set<SiteKey> imported = new HashSet<SiteKey>();
         final NonCloseableZipInputStream zis = new NonCloseableZipInputStream(inputStream);
         ZipEntry entry;
-        boolean empty = false;
+        MopImport pending = null;
         try {
-            log.info("Preparing data for import.");
+            log.info("Performing import using importMode '" + mode + "' and batchSize " + batchSize);
             while ((entry = zis.getNextEntry()) != null) {
                 // Skip directories
                 if (entry.isDirectory())
                     continue;
                 // Skip empty entries (this allows empty zip files to not cause exceptions).
-                empty = entry.getName().equals("");
-                if (empty)
+                if (entry.getName().equals(""))
                     continue;
 
                 // Parse zip entry
@@ -140,10 +172,21 @@ public class MopImportResource extends SecureOperationHandler implements Operati
                 SiteKey siteKey = Utils.siteKey(parts[0], parts[1]);
                 String file = parts[2];
 
-                MopImport mopImport = importMap.get(siteKey);
-                if (mopImport == null) {
-                    mopImport = new MopImport();
-                    importMap.put(siteKey, mopImport);
+                if (pending != null && !pending.siteKey.equals(siteKey)) {
+                    importSite(pending, importMode, importsRan);
+                    imported.add(pending.siteKey);
+                    pending = null;
+                    if (importsRan.size() % batchSize == 0) {
+                        saveBatch(session, importsRan.size());
+                    }
+                }
+                if (pending == null) {
+                    if (imported.contains(siteKey)) {
+                        throw new OperationException(operationName, "The zip entry " + entry.getName()
+                                + " belongs to the site " + siteKey + " which was already imported, the entries of a site"
+                                + " must follow each other in the zip file.");
+                    }
+                    pending = new MopImport(siteKey);
                 }
 
                 if (SiteLayoutExportTask.FILES.contains(file)) {
@@ -157,8 +200,8 @@ public class MopImportResource extends SecureOperationHandler implements Operati
                                 "Name of site does not match that of the zip entry site name.");
                     }
 
-                    // Add import task to run later
-                    mopImport.siteTask = new SiteLayoutImportTask(portalConfig, siteKey, dataStorage);
+                    // Add import task to run when the site is complete
+                    pending.siteTask = new SiteLayoutImportTask(portalConfig, siteKey, dataStorage);
                 } else if (file.equals(PageExportTask.FILE)) {
                     // Unmarshal page data
                     Marshaller<Page.PageSet> marshaller = operationContext.getBindingProvider().getMarshaller(
@@ -169,16 +212,8 @@ public class MopImportResource extends SecureOperationHandler implements Operati
                         page.setOwnerId(siteKey.getName());
                     }
 
-                    // Obtain the site from the session when it's needed.
-                    MOPSiteProvider siteProvider = new MOPSiteProvider() {
-                        @Override
-                        public Site getSite(SiteKey siteKey) {
-                            return mgr.getSession().getWorkspace()
-                                    .getSite(Utils.getObjectType(siteKey.getType()), siteKey.getName());
-                        }
-                    };
-                    // Add import task to run later.
-                    mopImport.pageTask = new PageImportTask(pages, siteKey, dataStorage, pageService, siteProvider);
+                    // Add import task to run when the site is complete
+                    pending.pageTask = new PageImportTask(pages, siteKey, dataStorage, pageService, siteProvider);
                 } else if (file.equals(NavigationExportTask.FILE)) {
                     // Unmarshal navigation data
                     Marshaller<PageNavigation> marshaller = operationContext.getBindingProvider().getMarshaller(
@@ -187,16 +222,37 @@ public class MopImportResource extends SecureOperationHandler implements Operati
                     navigation.setOwnerType(siteKey.getTypeName());
                     navigation.setOwnerId(siteKey.getName());
 
-                    // Add import task to run later
-                    mopImport.navigationTask = new NavigationImportTask(navigation, siteKey, navigationService,
+                    // Add import task to run when the site is complete
+                    pending.navigationTask = new NavigationImportTask(navigation, siteKey, navigationService,
                             descriptionService, dataStorage);
                 }
             }
 
-            resultHandler.completed(NoResultModel.INSTANCE);
+            if (pending != null) {
+                importSite(pending, importMode, importsRan);
+                pending = null;
+            }
+
+            if (importsRan.isEmpty()) {
+                log.info("Nothing to import, zip file empty.");
+            } else {
+                if (importsRan.size() % batchSize != 0) {
+                    saveBatch(session, importsRan.size());
+                }
+                log.info("Import successful !");
+            }
         } catch (Throwable t) {
-            throw new OperationException(operationContext.getOperationName(), "Exception reading data for import.", t);
+            if (importsRan.isEmpty()) {
+                throw new OperationException(operationName, "Exception reading data for import.", t);
+            }
+
+            boolean rollbackSuccess = rollback(importsRan, t);
+            String message = (rollbackSuccess) ? "Error during import. Tasks successfully rolled back. Portal should be back to consistent state."
+                    : "Error during import. Errors in rollback as well. Portal may be in an inconsistent state.";
+
+            throw new OperationException(operationName, message, t);
         } finally {
+            importsRan.clear();
             try {
                 zis.reallyClose();
             } catch (IOException e) {
@@ -204,98 +260,97 @@ public class MopImportResource extends SecureOperationHandler implements Operati
             }
         }
 
-        if (empty) {
-            log.info("Nothing to import, zip file empty.");
-            return;
+        resultHandler.completed(NoResultModel.INSTANCE);
+    }
+
+    private static void importSite(MopImport mopImport, ImportMode importMode, List<MopImport> importsRan) throws Exception {
+        // The tasks are recorded before they run so that a task that fails is rolled back as well
+        MopImport ran = new MopImport(mopImport.siteKey);
+        importsRan.add(ran);
+
+        log.debug("Importing data for site " + mopImport.siteKey);
+
+        // Site layout import
+        if (mopImport.siteTask != null) {
+            log.debug("Importing site layout data.");
+            ran.siteTask = mopImport.siteTask;
+            mopImport.siteTask.importData(importMode);
         }
 
-        // Perform import
-        Map<SiteKey, MopImport> importsRan = new HashMap<SiteKey, MopImport>();
-        try {
-            log.info("Performing import using importMode '" + mode + "'");
-            for (Map.Entry<SiteKey, MopImport> mopImportEntry : importMap.entrySet()) {
-                SiteKey siteKey = mopImportEntry.getKey();
-                MopImport mopImport = mopImportEntry.getValue();
-                MopImport ran = new MopImport();
-
-                if (importsRan.containsKey(siteKey)) {
-                    throw new IllegalStateException("Multiple site imports for same operation.");
-                }
-                importsRan.put(siteKey, ran);
+        // Page import
+        if (mopImport.pageTask != null) {
+            log.debug("Importing page data.");
+            ran.pageTask = mopImport.pageTask;
+            mopImport.pageTask.importData(importMode);
+        }
 
-                log.debug("Importing data for site " + siteKey);
+        // Navigation import
+        if (mopImport.navigationTask != null) {
+            log.debug("Importing navigation data.");
+            ran.navigationTask = mopImport.navigationTask;
+            mopImport.navigationTask.importData(importMode);
+        }
 
-                // Site layout import
-                if (mopImport.siteTask != null) {
-                    log.debug("Importing site layout data.");
-                    ran.siteTask = mopImport.siteTask;
-                    mopImport.siteTask.importData(importMode);
-                }
+        // The site is imported, only the rollback state of its tasks is kept
+        if (ran.siteTask != null) {
+            ran.siteTask.release();
+        }
+        if (ran.pageTask != null) {
+            ran.pageTask.release();
+        }
+        if (ran.navigationTask != null) {
+            ran.navigationTask.release();
+        }
+    }
 
-                // Page import
-                if (mopImport.pageTask != null) {
-                    log.debug("Importing page data.");
-                    ran.pageTask = mopImport.pageTask;
-                    mopImport.pageTask.importData(importMode);
-                }
+    private static void saveBatch(POMSession session, int imported) {
+        session.save();
+        log.info("Imported " + imported + " sites.");
+    }
 
-                // Navigation import
-                if (mopImport.navigationTask != null) {
-                    log.debug("Importing navigation data.");
-                    ran.navigationTask = mopImport.navigationTask;
-                    mopImport.navigationTask.importData(importMode);
+    private static boolean rollback(List<MopImport> importsRan, Throwable t) {
+        boolean rollbackSuccess = true;
+        log.error("Exception importing data.", t);
+        log.info("Attempting to rollback data modified by import.");
+
+        // Rollback the sites in the reverse order of the import
+        for (int i = importsRan.size() - 1; i >= 0; i--) {
+            MopImport mopImport = importsRan.get(i);
+            SiteKey siteKey = mopImport.siteKey;
+
+            log.debug("Rolling back imported data for site " + siteKey);
+            if (mopImport.navigationTask != null) {
+                log.debug("Rolling back navigation modified during import...");
+                try {
+                    mopImport.navigationTask.rollback();
+                } catch (Throwable t1) // Continue rolling back even though there are exceptions.
+                {
+                    rollbackSuccess = false;
+                    log.error("Error rolling back navigation data for site " + siteKey, t1);
                 }
             }
-            log.info("Import successful !");
-        } catch (Throwable t) {
-            boolean rollbackSuccess = true;
-            log.error("Exception importing data.", t);
-            log.info("Attempting to rollback data modified by import.");
-            for (Map.Entry<SiteKey, MopImport> mopImportEntry : importsRan.entrySet()) {
-                SiteKey siteKey = mopImportEntry.getKey();
-                MopImport mopImport = mopImportEntry.getValue();
-
-                log.debug("Rolling back imported data for site " + siteKey);
-                if (mopImport.navigationTask != null) {
-                    log.debug("Rolling back navigation modified during import...");
-                    try {
-                        mopImport.navigationTask.rollback();
-                    } catch (Throwable t1) // Continue rolling back even though there are exceptions.
-                    {
-                        rollbackSuccess = false;
-                        log.error("Error rolling back navigation data for site " + siteKey, t1);
-                    }
+            if (mopImport.pageTask != null) {
+                log.debug("Rolling back pages modified during import...");
+                try {
+                    mopImport.pageTask.rollback();
+                } catch (Throwable t1) // Continue rolling back even though there are exceptions.
+                {
+                    rollbackSuccess = false;
+                    log.error("Error rolling back page data for site " + siteKey, t1);
                 }
-                if (mopImport.pageTask != null) {
-                    log.debug("Rolling back pages modified during import...");
-                    try {
-                        mopImport.pageTask.rollback();
-                    } catch (Throwable t1) // Continue rolling back even though there are exceptions.
-                    {
-                        rollbackSuccess = false;
-                        log.error("Error rolling back page data for site " + siteKey, t1);
-                    }
-                }
-                if (mopImport.siteTask != null) {
-                    log.debug("Rolling back site layout modified during import...");
-                    try {
-                        mopImport.siteTask.rollback();
-                    } catch (Throwable t1) // Continue rolling back even though there are exceptions.
-                    {
-                        rollbackSuccess = false;
-                        log.error("Error rolling back site layout for site " + siteKey, t1);
-                    }
+            }
+            if (mopImport.siteTask != null) {
+                log.debug("Rolling back site layout modified during import...");
+                try {
+                    mopImport.siteTask.rollback();
+                } catch (Throwable t1) // Continue rolling back even though there are exceptions.
+                {
+                    rollbackSuccess = false;
+                    log.error("Error rolling back site layout for site " + siteKey, t1);
                 }
             }
-
-            String message = (rollbackSuccess) ? "Error during import. Tasks successfully rolled back. Portal should be back to consistent state."
-                    : "Error during import. Errors in rollback as well. Portal may be in an inconsistent state.";
-
-            throw new OperationException(operationName, message, t);
-        } finally {
-            importMap.clear();
-            importsRan.clear();
         }
+        return rollbackSuccess;
     }
 
     private static String[] parseEntry(ZipEntry entry) throws IOException {
@@ -338,8 +393,13 @@ public class MopImportResource extends SecureOperationHandler implements Operati
     }
 
     private static class MopImport {
+        private final SiteKey siteKey;
         private SiteLayoutImportTask siteTask;
         private PageImportTask pageTask;
         private NavigationImportTask navigationTask;
+
+        private MopImport(SiteKey siteKey) {
+            this.siteKey = siteKey;
+        }
     }
 }
@@ -20,8 +20,17 @@
 package org.exoplatform.portal.mop.navigation;
 
 import static org.exoplatform.portal.mop.Utils.objectType;
+import static org.exoplatform.portal.mop.Utils.siteType;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.exoplatform.portal.mop.SiteKey;
 import org.exoplatform.portal.pom.config.POMSession;
@@ -37,6 +46,9 @@ import org.gatein.mop.api.workspace.Workspace;
  */
 abstract class DataCache {
 
+    /** The maximum number of sites resolved by a single query. */
+    static final int BATCH_SIZE = 50;
+
     protected abstract void removeNodes(Collection<String> keys);
 
     protected abstract NodeData getNode(POMSession session, String key);
@@ -45,6 +57,29 @@ abstract class DataCache {
 
     protected abstract void removeNavigation(SiteKey key);
 
+    protected abstract SubtreeData getSubtree(POMSession session, SubtreeKey key);
+
+    protected abstract void removeSubtrees(Collection<SubtreeKey> keys);
+
+    /**
+     * Returns the navigations of several sites, the default implementation performs a lookup per site and should be
+     * overriden when the cache can resolve all the sites at once, the missing navigations are then loaded with
+     * {@link #loadNavigations(POMSession, Collection)}.
+     *
+     * @param session the session
+     * @param keys the site keys
+     * @return the navigations in the order of the keys
+     */
+    protected Map<SiteKey, NavigationData> getNavigations(POMSession session, Collection<SiteKey> keys) {
+        Map<SiteKey, NavigationData> navigations = new LinkedHashMap<SiteKey, NavigationData>();
+        for (SiteKey key : keys) {
+            if (!navigations.containsKey(key)) {
+                navigations.put(key, getNavigation(session, key));
+            }
+        }
+        return navigations;
+    }
+
     protected abstract void clear();
 
     final NodeData getNodeData(POMSession session, String nodeId) {
@@ -69,8 +104,61 @@ abstract class DataCache {
         return data;
     }
 
+    final Map<SiteKey, NavigationData> getNavigationData(POMSession session, Collection<SiteKey> keys) {
+        for (SiteKey key : keys) {
+            if (key == null) {
+                throw new NullPointerException("No null key accepted");
+            }
+        }
+
+        //
+        if (session.isModified()) {
+            return loadNavigations(session, keys);
+        } else {
+            return getNavigations(session, keys);
+        }
+    }
+
+    final SubtreeData getSubtreeData(POMSession session, String nodeId, int height) {
+        SubtreeKey key = new SubtreeKey(nodeId, height);
+        if (session.isModified()) {
+            return loadSubtree(session, key);
+        } else {
+            return getSubtree(session, key);
+        }
+    }
+
     final void removeNodeData(POMSession session, Collection<String> ids) {
         removeNodes(ids);
+        removeSubtrees(getSubtreeKeys(session, ids));
+    }
+
+    /**
+     * Returns the keys of the subtrees that can contain any of the nodes, i.e the subtrees rooted at a node and the subtrees
+     * rooted at an ancestor of a node that are high enough to reach the node.
+     *
+     * @param session the session
+     * @param ids the node ids
+     * @return the subtree keys
+     */
+    private Set<SubtreeKey> getSubtreeKeys(POMSession session, Collection<String> ids) {
+        Set<SubtreeKey> keys = new HashSet<SubtreeKey>();
+        for (String id : ids) {
+            for (int height = 1; height <= SubtreeData.MAX_HEIGHT; height++) {
+                keys.add(new SubtreeKey(id, height));
+            }
+            Navigation navigation = session.findObjectById(ObjectType.NAVIGATION, id);
+            if (navigation != null) {
+                Navigation ancestor = navigation.getParent();
+                for (int distance = 1; ancestor != null && distance <= SubtreeData.MAX_HEIGHT; distance++) {
+                    for (int height = distance; height <= SubtreeData.MAX_HEIGHT; height++) {
+                        keys.add(new SubtreeKey(ancestor.getObjectId(), height));
+                    }
+                    ancestor = ancestor.getParent();
+                }
+            }
+        }
+        return keys;
     }
 
     final void removeNavigationData(POMSession session, SiteKey key) {
@@ -86,6 +174,15 @@ abstract class DataCache {
         }
     }
 
+    protected final SubtreeData loadSubtree(POMSession session, SubtreeKey key) {
+        Navigation navigation = session.findObjectById(ObjectType.NAVIGATION, key.rootId);
+        if (navigation != null) {
+            return new SubtreeData(key, navigation);
+        } else {
+            return null;
+        }
+    }
+
     protected final NavigationData loadNavigation(POMSession session, SiteKey key) {
         Workspace workspace = session.getWorkspace();
         ObjectType<Site> objectType = objectType(key.getType());
@@ -101,4 +198,52 @@ abstract class DataCache {
             return NavigationData.EMPTY;
         }
     }
+
+    /**
+     * Loads the navigations of several sites with the same session. When the session is not modified the default
+     * navigations are found with one query per batch of {@link #BATCH_SIZE} sites, a site not returned by the query is
+     * then looked up directly so a lagging query index cannot make an existing navigation appear missing.
+     *
+     * @param session the session
+     * @param keys the site keys
+     * @return the navigations in the order of the keys, a missing navigation is mapped to {@link NavigationData#EMPTY}
+     */
+    protected Map<SiteKey, NavigationData> loadNavigations(POMSession session, Collection<SiteKey> keys) {
+        Map<SiteKey, NavigationData> navigations = new LinkedHashMap<SiteKey, NavigationData>();
+        for (SiteKey key : keys) {
+            navigations.put(key, null);
+        }
+
+        //
+        if (!session.isModified()) {
+            List<SiteKey> list = new ArrayList<SiteKey>(navigations.keySet());
+            for (int from = 0; from < list.size(); from += BATCH_SIZE) {
+                Map<ObjectType<Site>, List<String>> sites = new HashMap<ObjectType<Site>, List<String>>();
+                for (SiteKey key : list.subList(from, Math.min(from + BATCH_SIZE, list.size()))) {
+                    ObjectType<Site> siteType = objectType(key.getType());
+                    List<String> names = sites.get(siteType);
+                    if (names == null) {
+                        sites.put(siteType, names = new ArrayList<String>());
+                    }
+                    names.add(key.getName());
+                }
+                for (Iterator<Navigation> i = session.findDefaultNavigations(sites); i.hasNext();) {
+                    Navigation defaultNavigation = i.next();
+                    Site site = defaultNavigation.getSite();
+                    SiteKey key = new SiteKey(siteType(site.getObjectType()), site.getName());
+                    if (navigations.containsKey(key) && navigations.get(key) == null) {
+                        navigations.put(key, new NavigationData(key, defaultNavigation));
+                    }
+                }
+            }
+        }
+
+        //
+        for (Map.Entry<SiteKey, NavigationData> entry : navigations.entrySet()) {
+            if (entry.getValue() == null) {
+                entry.setValue(loadNavigation(session, entry.getKey()));
+            }
+        }
+        return navigations;
+    }
 }
@@ -20,18 +20,25 @@
 package org.exoplatform.portal.mop.navigation;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.exoplatform.commons.cache.future.FutureExoCache;
 import org.exoplatform.commons.cache.future.Loader;
+import org.exoplatform.commons.cache.future.RefreshPolicy;
 import org.exoplatform.commons.scope.ScopedKey;
 import org.exoplatform.portal.mop.SiteKey;
 import org.exoplatform.portal.pom.config.POMSession;
+import org.exoplatform.portal.pom.config.POMSessionManager;
 import org.exoplatform.services.cache.CacheService;
 import org.exoplatform.services.cache.ExoCache;
 
 /**
- * An implementation using the cache service.
+ * An implementation using the cache service, a site without navigation is cached as {@link NavigationData#EMPTY} until
+ * its navigation is saved.
  *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  */
@@ -43,13 +50,25 @@ public class ExoDataCache extends DataCache {
     /** . */
     protected FutureExoCache<ScopedKey<?>, Serializable, POMSession> objects;
 
+    /** . */
+    private final POMSessionManager manager;
+
     /** . */
     private Loader<ScopedKey<?>, Serializable, POMSession> navigationLoader = new Loader<ScopedKey<?>, Serializable, POMSession>() {
         public Serializable retrieve(POMSession session, ScopedKey<?> scopedKey) throws Exception {
+            // A refresh is loaded by the refresh executor within its own request life cycle, it must use the session of
+            // that thread and not the session of the request that triggered it
+            POMSession current = manager != null ? manager.getSession() : null;
+            if (current != null) {
+                session = current;
+            }
+
+            //
             Object key = scopedKey.getKey();
             if (key instanceof SiteKey) {
-                NavigationData data = loadNavigation(session, (SiteKey) key);
-                return data == NavigationData.EMPTY ? null : data;
+                return loadNavigation(session, (SiteKey) key);
+            } else if (key instanceof SubtreeKey) {
+                return loadSubtree(session, (SubtreeKey) key);
             } else {
                 return loadNode(session, (String) key);
             }
@@ -57,8 +76,14 @@ public class ExoDataCache extends DataCache {
     };
 
     public ExoDataCache(CacheService cacheService) {
+        this(cacheService, null);
+    }
+
+    public ExoDataCache(CacheService cacheService, POMSessionManager manager) {
+        this.manager = manager;
         this.cache = cacheService.getCacheInstance(NavigationService.class.getSimpleName());
-        this.objects = new FutureExoCache<ScopedKey<?>, Serializable, POMSession>(navigationLoader, cache);
+        this.objects = new FutureExoCache<ScopedKey<?>, Serializable, POMSession>(navigationLoader, cache,
+                RefreshPolicy.fromProperties("gatein.navigation.cache"));
     }
 
     @Override
@@ -73,6 +98,18 @@ public class ExoDataCache extends DataCache {
         return (NodeData) objects.get(session, ScopedKey.create(key));
     }
 
+    @Override
+    protected SubtreeData getSubtree(POMSession session, SubtreeKey key) {
+        return (SubtreeData) objects.get(session, ScopedKey.create(key));
+    }
+
+    @Override
+    protected void removeSubtrees(Collection<SubtreeKey> keys) {
+        for (SubtreeKey key : keys) {
+            cache.remove(ScopedKey.create(key));
+        }
+    }
+
     @Override
     protected void removeNavigation(SiteKey key) {
         cache.remove(ScopedKey.create(key));
@@ -83,6 +120,28 @@ public class ExoDataCache extends DataCache {
         return (NavigationData) objects.get(session, ScopedKey.create(key));
     }
 
+    @Override
+    protected Map<SiteKey, NavigationData> getNavigations(POMSession session, Collection<SiteKey> keys) {
+        Map<SiteKey, NavigationData> navigations = new LinkedHashMap<SiteKey, NavigationData>();
+        List<SiteKey> missing = new ArrayList<SiteKey>();
+        for (SiteKey key : keys) {
+            if (!navigations.containsKey(key)) {
+                NavigationData data = (NavigationData) cache.get(ScopedKey.create(key));
+                navigations.put(key, data);
+                if (data == null) {
+                    missing.add(key);
+                }
+            }
+        }
+        if (missing.size() > 0) {
+            for (Map.Entry<SiteKey, NavigationData> entry : loadNavigations(session, missing).entrySet()) {
+                cache.put(ScopedKey.create(entry.getKey()), entry.getValue());
+                navigations.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return navigations;
+    }
+
     @Override
     protected void clear() {
         cache.clearCache();
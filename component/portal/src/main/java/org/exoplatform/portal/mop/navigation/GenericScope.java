@@ -209,6 +209,9 @@ public class GenericScope {
 
     public static class Tree implements Scope {
 
+        /** . */
+        final int height;
+
         /** . */
         private final Visitor visitor;
 
@@ -219,6 +222,7 @@ public class GenericScope {
          * @param height the max height of the pruned tree
          */
         public Tree(final int height) {
+            this.height = height;
             this.visitor = new Visitor() {
                 public VisitMode enter(int depth, String id, String name, NodeState state) {
                     if (height < 0 || depth < height) {
@@ -19,6 +19,7 @@
 
 package org.exoplatform.portal.mop.navigation;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.exoplatform.portal.mop.SiteKey;
@@ -63,6 +64,18 @@ public interface NavigationService {
      */
     List<NavigationContext> loadNavigations(SiteType type) throws NullPointerException, NavigationServiceException;
 
+    /**
+     * Find and returns the navigations of several sites in a single operation, the navigations are returned in the order of
+     * the keys and the keys that do not match a navigation are ignored.
+     *
+     * @param keys the navigation keys
+     * @return the matching navigations
+     * @throws NullPointerException if the keys or any key is null
+     * @throws NavigationServiceException anything that would prevent the operation to succeed
+     */
+    List<NavigationContext> loadNavigations(Collection<SiteKey> keys) throws NullPointerException,
+            NavigationServiceException;
+
     /**
      * Create, update a navigation. When the navigation state is not null, the navigation will be created or updated depending
      * on whether or not the navigation already exists.
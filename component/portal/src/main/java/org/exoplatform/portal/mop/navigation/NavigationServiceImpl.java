@@ -111,6 +111,25 @@ public class NavigationServiceImpl implements NavigationService {
         return navigations;
     }
 
+    @Override
+    public List<NavigationContext> loadNavigations(Collection<SiteKey> keys) throws NullPointerException,
+            NavigationServiceException {
+        if (keys == null) {
+            throw new NullPointerException();
+        }
+
+        //
+        POMSession session = manager.getSession();
+        Map<SiteKey, NavigationData> datas = dataCache.getNavigationData(session, keys);
+        List<NavigationContext> navigations = new ArrayList<NavigationContext>(datas.size());
+        for (NavigationData data : datas.values()) {
+            if (data != null && data != NavigationData.EMPTY) {
+                navigations.add(new NavigationContext(data));
+            }
+        }
+        return navigations;
+    }
+
     public void saveNavigation(NavigationContext navigation) throws NullPointerException, NavigationServiceException {
         if (navigation == null) {
             throw new NullPointerException();
@@ -180,7 +199,7 @@ public class NavigationServiceImpl implements NavigationService {
             dataCache.removeNavigation(navigation.key);
             String rootId = navigation.data.rootId;
             if (rootId != null) {
-                dataCache.removeNodes(Collections.singleton(rootId));
+                dataCache.removeNodeData(session, Collections.singleton(rootId));
             }
 
             // Destroy nav
@@ -210,10 +229,22 @@ public class NavigationServiceImpl implements NavigationService {
         String nodeId = navigation.data.rootId;
         if (navigation.data.rootId != null) {
             POMSession session = manager.getSession();
-            NodeData data = dataCache.getNodeData(session, nodeId);
+
+            // A tree shaped scope is served by a snapshot of the subtree instead of a lookup per node
+            SubtreeData subtree = null;
+            NodeData data;
+            if (scope instanceof GenericScope.Tree && ((GenericScope.Tree) scope).height > 0
+                    && ((GenericScope.Tree) scope).height <= SubtreeData.MAX_HEIGHT) {
+                subtree = dataCache.getSubtreeData(session, nodeId, ((GenericScope.Tree) scope).height);
+                data = subtree != null ? subtree.getRoot() : null;
+            } else {
+                data = dataCache.getNodeData(session, nodeId);
+            }
+
+            //
             if (data != null) {
                 NodeContext<N> context = new NodeContext<N>(model, data);
-                updateNode(context, scope, listener);
+                updateTree(context.tree, data, subtree, new FederatingVisitor<N>(context.tree, context, scope), listener);
                 return context;
             } else {
                 return null;
@@ -268,6 +299,14 @@ public class NavigationServiceImpl implements NavigationService {
             throw new NavigationServiceException(NavigationError.UPDATE_CONCURRENTLY_REMOVED_NODE);
         }
 
+        //
+        updateTree(tree, data, null, visitor, listener);
+    }
+
+    private <N> void updateTree(TreeContext<N> tree, NodeData data, SubtreeData subtree, Scope.Visitor visitor,
+            NodeChangeListener<NodeContext<N>> listener) throws NavigationServiceException {
+        POMSession session = manager.getSession();
+
         // Switch to edit mode
         tree.editMode = true;
 
@@ -275,7 +314,7 @@ public class NavigationServiceImpl implements NavigationService {
         try {
 
             TreeUpdate.perform(tree, NodeContextUpdateAdapter.<N> create(), data,
-                    NodeDataUpdateAdapter.create(dataCache, session), listener, visitor);
+                    NodeDataUpdateAdapter.create(dataCache, session, subtree), listener, visitor);
         } finally {
             // Disable edit mode
             tree.editMode = false;
@@ -423,7 +462,11 @@ public class NavigationServiceImpl implements NavigationService {
     private static class NodeDataUpdateAdapter implements TreeUpdateAdapter<NodeData> {
 
         static NodeDataUpdateAdapter create(DataCache dataCache, POMSession session) {
-            return new NodeDataUpdateAdapter(dataCache, session);
+            return new NodeDataUpdateAdapter(dataCache, session, null);
+        }
+
+        static NodeDataUpdateAdapter create(DataCache dataCache, POMSession session, SubtreeData subtree) {
+            return new NodeDataUpdateAdapter(dataCache, session, subtree);
         }
 
         /** . */
@@ -432,9 +475,13 @@ public class NavigationServiceImpl implements NavigationService {
         /** . */
         private final POMSession session;
 
-        private NodeDataUpdateAdapter(DataCache dataCache, POMSession session) {
+        /** The subtree resolving the descendants before the cache when it is not null. */
+        private final SubtreeData subtree;
+
+        private NodeDataUpdateAdapter(DataCache dataCache, POMSession session, SubtreeData subtree) {
             this.dataCache = dataCache;
             this.session = session;
+            this.subtree = subtree;
         }
 
         public String getHandle(NodeData node) {
@@ -446,6 +493,14 @@ public class NavigationServiceImpl implements NavigationService {
         }
 
         public NodeData getDescendant(NodeData node, String handle) {
+            if (subtree != null) {
+                NodeData data = subtree.getDescendant(node.id, handle);
+                if (data != null) {
+                    return data;
+                }
+            }
+
+            //
             NodeData data = dataCache.getNodeData(session, handle);
             NodeData current = data;
             while (current != null) {
@@ -21,6 +21,7 @@ package org.exoplatform.portal.mop.navigation;
 
 import static org.exoplatform.portal.mop.Utils.siteType;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.jcr.RepositoryException;
@@ -79,7 +80,7 @@ public class NavigationServiceWrapper implements NavigationService, Startable {
 
     public NavigationServiceWrapper(RepositoryService repositoryService, POMSessionManager manager,
             ListenerService listenerService, CacheService cacheService) {
-        ExoDataCache cache = new ExoDataCache(cacheService);
+        ExoDataCache cache = new ExoDataCache(cacheService, manager);
 
         //
         this.repositoryService = repositoryService;
@@ -98,6 +99,12 @@ public class NavigationServiceWrapper implements NavigationService, Startable {
         return service.loadNavigations(type);
     }
 
+    @Override
+    public List<NavigationContext> loadNavigations(Collection<SiteKey> keys) throws NullPointerException,
+            NavigationServiceException {
+        return service.loadNavigations(keys);
+    }
+
     public void saveNavigation(NavigationContext navigation) throws NullPointerException, NavigationServiceException {
         boolean created = navigation.data == null;
 
@@ -75,6 +75,26 @@ class NodeData implements Serializable {
         }
 
         //
+        NodeState state = createState(navigation);
+
+        //
+        String parentId;
+        Navigation parent = navigation.getParent();
+        if (parent != null) {
+            parentId = parent.getObjectId();
+        } else {
+            parentId = null;
+        }
+
+        //
+        this.parentId = parentId;
+        this.id = navigation.getObjectId();
+        this.name = navigation.getName();
+        this.state = state;
+        this.children = children;
+    }
+
+    static NodeState createState(Navigation navigation) {
         String label = null;
         if (navigation.isAdapted(Described.class)) {
             Described described = navigation.adapt(Described.class);
@@ -108,25 +128,9 @@ class NodeData implements Serializable {
         Attributes attrs = navigation.getAttributes();
 
         //
-        NodeState state = new NodeState(label, attrs.getValue(MappedAttributes.ICON),
+        return new NodeState(label, attrs.getValue(MappedAttributes.ICON),
                 startPublicationDate != null ? startPublicationDate.getTime() : -1,
                 endPublicationDate != null ? endPublicationDate.getTime() : -1, visibility, pageRef);
-
-        //
-        String parentId;
-        Navigation parent = navigation.getParent();
-        if (parent != null) {
-            parentId = parent.getObjectId();
-        } else {
-            parentId = null;
-        }
-
-        //
-        this.parentId = parentId;
-        this.id = navigation.getObjectId();
-        this.name = navigation.getName();
-        this.state = state;
-        this.children = children;
     }
 
     NodeData(NodeContext<?> context) {
@@ -19,7 +19,10 @@
 
 package org.exoplatform.portal.mop.navigation;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -40,9 +43,13 @@ public class SimpleDataCache extends DataCache {
     /** . */
     protected Map<MarshalledObject<String>, MarshalledObject<NodeData>> nodes;
 
+    /** . */
+    protected Map<MarshalledObject<SubtreeKey>, MarshalledObject<SubtreeData>> subtrees;
+
     public SimpleDataCache() {
         this.navigations = new ConcurrentHashMap<MarshalledObject<SiteKey>, MarshalledObject<NavigationData>>();
         this.nodes = new ConcurrentHashMap<MarshalledObject<String>, MarshalledObject<NodeData>>();
+        this.subtrees = new ConcurrentHashMap<MarshalledObject<SubtreeKey>, MarshalledObject<SubtreeData>>();
     }
 
     @Override
@@ -69,6 +76,28 @@ public class SimpleDataCache extends DataCache {
         }
     }
 
+    @Override
+    protected SubtreeData getSubtree(POMSession session, SubtreeKey key) {
+        MarshalledObject<SubtreeKey> marshalledKey = MarshalledObject.marshall(key);
+        MarshalledObject<SubtreeData> marshalledSubtree = subtrees.get(marshalledKey);
+        if (marshalledSubtree == null) {
+            SubtreeData subtree = loadSubtree(session, key);
+            if (subtree != null) {
+                subtrees.put(marshalledKey, MarshalledObject.marshall(subtree));
+            }
+            return subtree;
+        } else {
+            return marshalledSubtree.unmarshall();
+        }
+    }
+
+    @Override
+    protected void removeSubtrees(Collection<SubtreeKey> keys) {
+        for (SubtreeKey key : keys) {
+            subtrees.remove(MarshalledObject.marshall(key));
+        }
+    }
+
     @Override
     protected void removeNavigation(SiteKey key) {
         navigations.remove(MarshalledObject.marshall(key));
@@ -91,9 +120,34 @@ public class SimpleDataCache extends DataCache {
         }
     }
 
+    @Override
+    protected Map<SiteKey, NavigationData> getNavigations(POMSession session, Collection<SiteKey> keys) {
+        Map<SiteKey, NavigationData> result = new LinkedHashMap<SiteKey, NavigationData>();
+        List<SiteKey> missing = new ArrayList<SiteKey>();
+        for (SiteKey key : keys) {
+            if (!result.containsKey(key)) {
+                MarshalledObject<NavigationData> marshalledNavigation = navigations.get(MarshalledObject.marshall(key));
+                if (marshalledNavigation == null) {
+                    result.put(key, null);
+                    missing.add(key);
+                } else {
+                    result.put(key, marshalledNavigation.unmarshall());
+                }
+            }
+        }
+        if (missing.size() > 0) {
+            for (Map.Entry<SiteKey, NavigationData> entry : loadNavigations(session, missing).entrySet()) {
+                navigations.put(MarshalledObject.marshall(entry.getKey()), MarshalledObject.marshall(entry.getValue()));
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
     @Override
     protected void clear() {
         navigations.clear();
         nodes.clear();
+        subtrees.clear();
     }
 }
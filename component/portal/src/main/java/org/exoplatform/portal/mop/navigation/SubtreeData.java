@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.mop.navigation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gatein.mop.api.workspace.Navigation;
+
+/**
+ * <p>
+ * An immutable snapshot of the nodes of a subtree down to a given height, the nodes are stored in flat arrays in depth
+ * first order so a whole menu can be cached and served as a single value instead of a value per node. The nodes at the
+ * bottom of the subtree keep the ids of their children even though the children are not part of the snapshot.
+ * </p>
+ *
+ * <p>
+ * The {@link NodeData} of the snapshot are created when they are first requested.
+ * </p>
+ */
+class SubtreeData implements Serializable {
+
+    /** The heights for which a snapshot is cached, from one to the height of the largest predefined tree scope. */
+    static final int MAX_HEIGHT = 9;
+
+    /** The parent id of the root node. */
+    private final String parentId;
+
+    /** . */
+    private final String[] ids;
+
+    /** . */
+    private final String[] names;
+
+    /** . */
+    private final NodeState[] states;
+
+    /** The index of the parent of a node, the root node has no parent. */
+    private final int[] parents;
+
+    /** The children of the node at the index i are the child ids from offsets[i] to offsets[i + 1]. */
+    private final int[] offsets;
+
+    /** . */
+    private final String[] childIds;
+
+    /** . */
+    private transient volatile Map<String, Integer> indexes;
+
+    /** . */
+    private transient volatile NodeData[] datas;
+
+    SubtreeData(SubtreeKey key, Navigation root) {
+        List<Navigation> nodes = new ArrayList<Navigation>();
+        List<Integer> parents = new ArrayList<Integer>();
+        List<String> childIds = new ArrayList<String>();
+        List<Integer> offsets = new ArrayList<Integer>();
+        add(root, -1, key.height, nodes, parents, offsets, childIds);
+
+        //
+        int size = nodes.size();
+        this.parentId = root.getParent() != null ? root.getParent().getObjectId() : null;
+        this.ids = new String[size];
+        this.names = new String[size];
+        this.states = new NodeState[size];
+        this.parents = new int[size];
+        this.offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            Navigation node = nodes.get(i);
+            ids[i] = node.getObjectId();
+            names[i] = node.getName();
+            states[i] = NodeData.createState(node);
+            this.parents[i] = parents.get(i);
+            this.offsets[i] = offsets.get(i);
+        }
+        this.offsets[size] = childIds.size();
+        this.childIds = childIds.toArray(new String[childIds.size()]);
+    }
+
+    private static void add(Navigation node, int parent, int height, List<Navigation> nodes, List<Integer> parents,
+            List<Integer> offsets, List<String> childIds) {
+        int index = nodes.size();
+        nodes.add(node);
+        parents.add(parent);
+
+        // The children of the node are contiguous
+        offsets.add(childIds.size());
+        List<Navigation> children = node.getChildren();
+        if (children != null) {
+            for (Navigation child : children) {
+                childIds.add(child.getObjectId());
+            }
+            if (height > 0) {
+                for (Navigation child : children) {
+                    add(child, index, height - 1, nodes, parents, offsets, childIds);
+                }
+            }
+        }
+    }
+
+    NodeData getRoot() {
+        return getData(0);
+    }
+
+    /**
+     * Returns the data of a descendant or self of a node when both belong to the snapshot.
+     *
+     * @param ancestorId the ancestor id
+     * @param id the descendant id
+     * @return the descendant data or null
+     */
+    NodeData getDescendant(String ancestorId, String id) {
+        Integer index = getIndexes().get(id);
+        if (index != null) {
+            for (int current = index; current != -1; current = parents[current]) {
+                if (ids[current].equals(ancestorId)) {
+                    return getData(index);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Integer> getIndexes() {
+        Map<String, Integer> indexes = this.indexes;
+        if (indexes == null) {
+            indexes = new HashMap<String, Integer>(ids.length * 2);
+            for (int i = 0; i < ids.length; i++) {
+                indexes.put(ids[i], i);
+            }
+            this.indexes = indexes;
+        }
+        return indexes;
+    }
+
+    private NodeData getData(int index) {
+        NodeData[] datas = this.datas;
+        if (datas == null) {
+            this.datas = datas = new NodeData[ids.length];
+        }
+        NodeData data = datas[index];
+        if (data == null) {
+            String parentId = index == 0 ? this.parentId : ids[parents[index]];
+            String[] children = Arrays.copyOfRange(childIds, offsets[index], offsets[index + 1]);
+            datas[index] = data = new NodeData(parentId, ids[index], names[index], states[index], children);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.mop.navigation;
+
+import java.io.Serializable;
+
+/**
+ * The key of a {@link SubtreeData}.
+ */
+class SubtreeKey implements Serializable {
+
+    /** . */
+    final String rootId;
+
+    /** . */
+    final int height;
+
+    SubtreeKey(String rootId, int height) {
+        if (rootId == null) {
+            throw new NullPointerException("No null root id accepted");
+        }
+        this.rootId = rootId;
+        this.height = height;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof SubtreeKey) {
+            SubtreeKey that = (SubtreeKey) obj;
+            return rootId.equals(that.rootId) && height == that.height;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return rootId.hashCode() * 31 + height;
+    }
+
+    @Override
+    public String toString() {
+        return "SubtreeKey[rootId=" + rootId + ",height=" + height + "]";
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.mop.page;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.exoplatform.portal.mop.Described;
+import org.exoplatform.portal.mop.SiteKey;
+import org.exoplatform.portal.mop.SiteType;
+import org.exoplatform.portal.mop.Utils;
+import org.exoplatform.portal.pom.config.POMSession;
+import org.gatein.mop.api.workspace.ObjectType;
+import org.gatein.mop.api.workspace.Page;
+import org.gatein.mop.api.workspace.Site;
+
+/**
+ * <p>
+ * An in memory index of the page titles used to find pages without querying the repository. The pages are sorted by site
+ * type, site name and page name which allows to iterate over the pages of a site type or of a site without scanning the
+ * other pages.
+ * </p>
+ *
+ * <p>
+ * The index is built from the repository the first time it is used and it is then maintained by the page service once
+ * the sessions saving, cloning or destroying pages are saved. The pages updated before the index is built are not
+ * overwritten by the build since their modifications may not be visible yet to the session building the index. The index
+ * is local to the node, it is not used in a cluster.
+ * </p>
+ */
+class PageIndex {
+
+    /** . */
+    private static final Comparator<PageKey> COMPARATOR = new Comparator<PageKey>() {
+        public int compare(PageKey o1, PageKey o2) {
+            int result = o1.site.getType().compareTo(o2.site.getType());
+            if (result == 0) {
+                result = o1.site.getName().compareTo(o2.site.getName());
+                if (result == 0) {
+                    result = o1.name.compareTo(o2.name);
+                }
+            }
+            return result;
+        }
+    };
+
+    /**
+     * The criterions of a page search.
+     */
+    static class Query {
+
+        /** . */
+        final SiteType siteType;
+
+        /** . */
+        final String siteName;
+
+        /** The lower case page name prefix. */
+        final String pageName;
+
+        /** The lower case title substring. */
+        final String title;
+
+        Query(SiteType siteType, String siteName, String pageName, String title) {
+            this.siteType = siteType;
+            this.siteName = trim(siteName);
+            this.pageName = pageName != null ? trim(pageName.toLowerCase()) : null;
+            this.title = title != null ? trim(title.toLowerCase()) : null;
+        }
+
+        private static String trim(String s) {
+            if (s != null) {
+                s = s.trim();
+                if (s.length() == 0) {
+                    s = null;
+                }
+            }
+            return s;
+        }
+
+        /**
+         * Returns true when the page matches the criterions of the query.
+         *
+         * @param key the page key
+         * @param title the lower case page title
+         * @return true when the page matches
+         */
+        boolean matches(PageKey key, String title) {
+            if (siteType != null && siteType != key.site.getType()) {
+                return false;
+            }
+            if (siteName != null && !siteName.equals(key.site.getName())) {
+                return false;
+            }
+            if (pageName != null && !key.name.toLowerCase().startsWith(pageName)) {
+                return false;
+            }
+            if (this.title != null && !title.contains(this.title)) {
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the first key that can be matched by the query.
+         *
+         * @return the first key
+         */
+        PageKey from() {
+            if (siteType == null) {
+                return null;
+            } else if (siteName == null) {
+                return siteType.key("").page("");
+            } else {
+                return siteType.key(siteName).page("");
+            }
+        }
+
+        /**
+         * Returns true when no key following the specified key can be matched by the query.
+         *
+         * @param key the key
+         * @return true when the iteration can stop
+         */
+        boolean after(PageKey key) {
+            if (siteType == null) {
+                return false;
+            } else if (siteType != key.site.getType()) {
+                return true;
+            } else {
+                return siteName != null && !siteName.equals(key.site.getName());
+            }
+        }
+    }
+
+    /** The lower case titles, the empty string stands for no title. */
+    private final ConcurrentSkipListMap<PageKey, String> titles = new ConcurrentSkipListMap<PageKey, String>(COMPARATOR);
+
+    /** . */
+    private volatile boolean built = false;
+
+    /** The pages updated while the index is not built, the build does not overwrite them. */
+    private final Set<PageKey> updated = new HashSet<PageKey>();
+
+    /**
+     * Build the index from the repository unless it is already built.
+     *
+     * @param session the session
+     */
+    void build(POMSession session) {
+        if (!built) {
+            synchronized (this) {
+                if (!built) {
+                    List<PageKey> keys = new ArrayList<PageKey>();
+                    List<String> values = new ArrayList<String>();
+                    for (SiteType siteType : SiteType.values()) {
+                        ObjectType<Site> objectType = Utils.objectType(siteType);
+                        for (Site site : session.getWorkspace().getSites(objectType)) {
+                            Page pages = site.getRootPage().getChild("pages");
+                            if (pages != null) {
+                                SiteKey siteKey = siteType.key(site.getName());
+                                for (Page page : pages.getChildren()) {
+                                    keys.add(siteKey.page(page.getName()));
+                                    values.add(toValue(page.adapt(Described.class).getName()));
+                                }
+                            }
+                        }
+                    }
+                    for (int i = 0; i < keys.size(); i++) {
+                        PageKey key = keys.get(i);
+                        if (!updated.contains(key)) {
+                            titles.put(key, values.get(i));
+                        }
+                    }
+                    updated.clear();
+                    built = true;
+                }
+            }
+        }
+    }
+
+    synchronized void put(PageKey key, String title) {
+        titles.put(key, toValue(title));
+        if (!built) {
+            updated.add(key);
+        }
+    }
+
+    synchronized void remove(PageKey key) {
+        titles.remove(key);
+        if (!built) {
+            updated.add(key);
+        }
+    }
+
+    /**
+     * Remove the pages of a site.
+     *
+     * @param siteKey the site key
+     */
+    synchronized void remove(SiteKey siteKey) {
+        for (Iterator<PageKey> i = titles.tailMap(siteKey.page("")).keySet().iterator(); i.hasNext();) {
+            PageKey key = i.next();
+            if (!key.site.equals(siteKey)) {
+                break;
+            }
+            i.remove();
+            if (!built) {
+                updated.add(key);
+            }
+        }
+    }
+
+    /**
+     * Clear the index, it will be built again the next time it is used.
+     */
+    synchronized void clear() {
+        titles.clear();
+        updated.clear();
+        built = false;
+    }
+
+    /**
+     * Returns the keys of the pages matching the query, in order.
+     *
+     * @param query the query
+     * @return the matching keys
+     */
+    Iterator<PageKey> find(final Query query) {
+        PageKey from = query.from();
+        ConcurrentNavigableMap<PageKey, String> map = from != null ? titles.tailMap(from) : titles;
+        final Iterator<Map.Entry<PageKey, String>> i = map.entrySet().iterator();
+        return new Iterator<PageKey>() {
+
+            /** . */
+            private PageKey next;
+
+            public boolean hasNext() {
+                while (next == null && i.hasNext()) {
+                    Map.Entry<PageKey, String> entry = i.next();
+                    PageKey key = entry.getKey();
+                    if (query.after(key)) {
+                        break;
+                    }
+                    if (query.matches(key, entry.getValue())) {
+                        next = key;
+                    }
+                }
+                return next != null;
+            }
+
+            public PageKey next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                PageKey key = next;
+                next = null;
+                return key;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the value stored for a title.
+     *
+     * @param title the title
+     * @return the lower case title
+     */
+    static String toValue(String title) {
+        return title == null ? "" : title.toLowerCase();
+    }
+}
@@ -61,7 +61,9 @@ public interface PageService {
 
     /**
      * Query the page service to find pages that match the <code>siteType</code>, <code>siteName</code>, <code>pageName</code>
-     * and <code>title</code> criterions.
+     * and <code>title</code> criterions. The page name is matched as a case insensitive prefix and the title as a case
+     * insensitive substring, a null or blank criterion matches any page. Outside of a cluster the pages are returned in the
+     * order of the site type, the site name and the page name.
      *
      * @param offset the query offset
      * @param limit the query limit
@@ -1,10 +1,11 @@
 package org.exoplatform.portal.mop.page;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
+import org.exoplatform.container.ExoContainer;
 import org.exoplatform.portal.mop.Described;
 import org.exoplatform.portal.mop.ProtectedContainer;
 import org.exoplatform.portal.mop.ProtectedResource;
@@ -40,6 +41,12 @@ public class PageServiceImpl implements PageService {
     /** . */
     private final DataCache dataCache;
 
+    /** . */
+    final PageIndex index;
+
+    /** The index of a cluster node does not see the pages written by the other nodes, the repository is queried instead. */
+    boolean indexed;
+
     /**
      * Create an instance that uses a simple data cache, such instance should be used for testing purposes.
      *
@@ -66,6 +73,8 @@ public class PageServiceImpl implements PageService {
         }
         this.manager = manager;
         this.dataCache = dataCache;
+        this.index = new PageIndex();
+        this.indexed = !ExoContainer.getProfiles().contains("cluster");
     }
 
     @Override
@@ -178,6 +187,7 @@ public class PageServiceImpl implements PageService {
         // Update state
         page.data = dataCache.getPageData(session, page.key);
         page.state = null;
+        indexPage(session, page.key, page.data.state.displayName);
 
         //
         return created;
@@ -207,6 +217,7 @@ public class PageServiceImpl implements PageService {
         if (page != null) {
             page.destroy();
             dataCache.removePage(session, key);
+            unindexPage(session, key);
             return true;
         } else {
             return false;
@@ -290,7 +301,50 @@ public class PageServiceImpl implements PageService {
         dataCache.removePage(session, dst);
 
         //
-        return new PageContext(new PageData(dstPage));
+        PageData data = new PageData(dstPage);
+        indexPage(session, dst, data.state.displayName);
+        return new PageContext(data);
+    }
+
+    /**
+     * Update the index with a page once the session is saved, so rolled back changes never reach the index.
+     */
+    private void indexPage(POMSession session, final PageKey key, final String title) {
+        if (indexed) {
+            session.scheduleAfterSave(new Runnable() {
+                public void run() {
+                    index.put(key, title);
+                }
+            });
+        }
+    }
+
+    /**
+     * Remove a page from the index once the session is saved.
+     */
+    private void unindexPage(POMSession session, final PageKey key) {
+        if (indexed) {
+            session.scheduleAfterSave(new Runnable() {
+                public void run() {
+                    index.remove(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Remove the pages of a site from the index once the session is saved.
+     *
+     * @param site the site key
+     */
+    void unindexSite(final SiteKey site) {
+        if (indexed) {
+            manager.getSession().scheduleAfterSave(new Runnable() {
+                public void run() {
+                    index.remove(site);
+                }
+            });
+        }
     }
 
     private void copy(Page srcPage, Page dstPage, UIContainer src, UIContainer dst) {
@@ -368,25 +422,72 @@ public class PageServiceImpl implements PageService {
         }
     }
 
+    /**
+     * Find the pages with the page index instead of querying the repository. The session is saved first so the index
+     * contains the changes of the session. A page of the index is verified against its data before it is returned since the
+     * index is not transactional and does not see the pages destroyed with their site. In a cluster the repository is
+     * queried as the index would miss the pages written by the other nodes.
+     */
     @Override
     public QueryResult<PageContext> findPages(int from, int to, SiteType siteType, String siteName, String pageName,
             String pageTitle) {
         POMSession session = manager.getSession();
-        org.chromattic.api.query.QueryResult<Page> a = session.findObjects(ObjectType.PAGE, Utils.objectType(siteType),
-                siteName, pageTitle, from, to);
-        int size = a.size();
-        PageContext[] array = new PageContext[size];
-        int ptr = 0;
-        while (a.hasNext()) {
-            Page page = a.next();
-            PageData data = new PageData(page);
-            dataCache.putPage(data);
-            array[ptr++] = new PageContext(data);
+        PageIndex.Query query = new PageIndex.Query(siteType, siteName, pageName, pageTitle);
+        if (!indexed) {
+            return queryPages(session, from, to, query);
+        }
+
+        //
+        session.save();
+        index.build(session);
+
+        //
+        Iterator<PageKey> keys = index.find(query);
+        for (int i = 0; i < from && keys.hasNext(); i++) {
+            keys.next();
+        }
+        List<PageContext> list = new ArrayList<PageContext>();
+        while (list.size() < to && keys.hasNext()) {
+            PageKey key = keys.next();
+            PageData data = dataCache.getPageData(session, key);
+            if (data != null && data != PageData.EMPTY && query.matches(key, PageIndex.toValue(data.state.displayName))) {
+                list.add(new PageContext(data));
+            }
+        }
+        return new QueryResult<PageContext>(from, list.size(), list);
+    }
+
+    /**
+     * Find the pages with a repository query, the page name criterion is not part of the query and is checked on the
+     * returned pages.
+     */
+    private QueryResult<PageContext> queryPages(POMSession session, int from, int to, PageIndex.Query query) {
+        ObjectType<Site> siteType = query.siteType != null ? Utils.objectType(query.siteType) : null;
+        org.chromattic.api.query.QueryResult<Page> pages;
+        if (query.pageName == null) {
+            pages = session.findObjects(ObjectType.PAGE, siteType, query.siteName, query.title, from, to);
+        } else {
+            pages = session.findObjects(ObjectType.PAGE, siteType, query.siteName, query.title, 0, Integer.MAX_VALUE);
+        }
+        List<PageContext> list = new ArrayList<PageContext>();
+        int skipped = query.pageName == null ? from : 0;
+        while (list.size() < to && pages.hasNext()) {
+            Page page = pages.next();
+            if (query.pageName == null || page.getName().toLowerCase().startsWith(query.pageName)) {
+                if (skipped < from) {
+                    skipped++;
+                } else {
+                    PageData data = new PageData(page);
+                    dataCache.putPage(data);
+                    list.add(new PageContext(data));
+                }
+            }
         }
-        return new QueryResult<PageContext>(from, size, Arrays.asList(array));
+        return new QueryResult<PageContext>(from, list.size(), list);
     }
 
     public void clearCache() {
         dataCache.clear();
+        index.clear();
     }
 }
@@ -5,6 +5,8 @@ import java.util.List;
 import javax.transaction.Status;
 
 import org.exoplatform.container.PortalContainer;
+import org.exoplatform.portal.config.DataStorage;
+import org.exoplatform.portal.config.model.PortalConfig;
 import org.exoplatform.portal.mop.EventType;
 import org.exoplatform.portal.mop.QueryResult;
 import org.exoplatform.portal.mop.SiteKey;
@@ -12,6 +14,8 @@ import org.exoplatform.portal.mop.SiteType;
 import org.exoplatform.portal.pom.config.POMSession;
 import org.exoplatform.portal.pom.config.POMSessionManager;
 import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.listener.Event;
+import org.exoplatform.services.listener.Listener;
 import org.exoplatform.services.listener.ListenerService;
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
@@ -51,12 +55,32 @@ public class PageServiceWrapper implements PageService {
         this.service = new PageServiceImpl(manager);
         this.manager = manager;
         this.listenerService = listenerService;
+
+        //
+        listenSiteRemovals();
     }
 
     public PageServiceWrapper(POMSessionManager manager, ListenerService listenerService, CacheService cacheService) {
         this.service = new PageServiceImpl(manager, new ExoDataCache(cacheService));
         this.manager = manager;
         this.listenerService = listenerService;
+
+        //
+        listenSiteRemovals();
+    }
+
+    /**
+     * The pages of a removed site are destroyed without the page service, they are removed from the page index once the
+     * removal of the site is saved.
+     */
+    private void listenSiteRemovals() {
+        listenerService.addListener(DataStorage.PORTAL_CONFIG_REMOVED, new Listener<DataStorage, PortalConfig>() {
+            @Override
+            public void onEvent(Event<DataStorage, PortalConfig> event) throws Exception {
+                PortalConfig config = event.getData();
+                service.unindexSite(new SiteKey(config.getType(), config.getName()));
+            }
+        });
     }
 
     @Override
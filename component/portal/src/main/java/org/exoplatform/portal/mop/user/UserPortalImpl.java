@@ -128,17 +128,19 @@ public class UserPortalImpl implements UserPortal {
                         throw new UserPortalException("Could not retrieve groups", e);
                     }
 
-                    //
+                    // Load the navigations of all the groups at once
+                    List<SiteKey> groupKeys = new ArrayList<SiteKey>(groups.size());
                     for (Object group : groups) {
                         Group m = (Group) group;
                         String groupId = m.getId().trim();
                         if (!groupId.equals(service.getUserACL().getGuestsGroup())) {
-                            NavigationContext groupNavigation = service.getNavigationService().loadNavigation(
-                                    SiteKey.group(groupId));
-                            if (groupNavigation != null && groupNavigation.getState() != null) {
-                                navigations.add(new UserNavigation(this, groupNavigation, service.getUserACL()
-                                        .hasEditPermissionOnNavigation(groupNavigation.getKey())));
-                            }
+                            groupKeys.add(SiteKey.group(groupId));
+                        }
+                    }
+                    for (NavigationContext groupNavigation : service.getNavigationService().loadNavigations(groupKeys)) {
+                        if (groupNavigation.getState() != null) {
+                            navigations.add(new UserNavigation(this, groupNavigation, service.getUserACL()
+                                    .hasEditPermissionOnNavigation(groupNavigation.getKey())));
                         }
                     }
                 }
@@ -20,6 +20,9 @@
 package org.exoplatform.portal.pom.config;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -41,6 +44,7 @@ import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
 import org.gatein.mop.api.Model;
 import org.gatein.mop.api.content.Customization;
+import org.gatein.mop.api.workspace.Navigation;
 import org.gatein.mop.api.workspace.ObjectType;
 import org.gatein.mop.api.workspace.Site;
 import org.gatein.mop.api.workspace.Workspace;
@@ -81,6 +85,9 @@ public final class POMSession {
     /** . */
     private List<Serializable> staleKeys;
 
+    /** . */
+    private List<Runnable> saveActions;
+
     /** . */
     private boolean modified;
 
@@ -99,6 +106,7 @@ public final class POMSession {
         this.isInTask = false;
         this.markedForRollback = false;
         this.staleKeys = null;
+        this.saveActions = null;
         this.configurator = configurator;
         this.context = context;
     }
@@ -127,6 +135,22 @@ public final class POMSession {
         staleKeys.add(key);
     }
 
+    /**
+     * Schedule an action to run once the changes of this session are saved, the action is discarded if the changes are not
+     * saved.
+     *
+     * @param action the action
+     */
+    public void scheduleAfterSave(Runnable action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        if (saveActions == null) {
+            saveActions = new LinkedList<Runnable>();
+        }
+        saveActions.add(action);
+    }
+
     private Model getModel() {
         if (model == null) {
             model = mgr.getPOMService().getModel();
@@ -256,6 +280,50 @@ public final class POMSession {
         return session.createQueryBuilder(mappedClass).where(statement).get().objects((long) offset, (long) limit);
     }
 
+    /**
+     * Finds the default navigations of several sites with a single query. The pending changes are not saved before the
+     * query is executed so it should only be used when the session is not modified. A navigation that does not belong to
+     * any of the sites can be returned and should be filtered out by the caller.
+     *
+     * @param sites the site names per site type
+     * @return the default navigations found
+     */
+    public Iterator<Navigation> findDefaultNavigations(Map<ObjectType<Site>, ? extends Collection<String>> sites) {
+        String workspaceChunk = pathOf(getWorkspace());
+        StringBuilder statement = new StringBuilder();
+        for (Map.Entry<ObjectType<Site>, ? extends Collection<String>> entry : sites.entrySet()) {
+            String ownerTypeChunk;
+            if (entry.getKey() == ObjectType.PORTAL_SITE) {
+                ownerTypeChunk = "mop:portalsites";
+            } else if (entry.getKey() == ObjectType.GROUP_SITE) {
+                ownerTypeChunk = "mop:groupsites";
+            } else {
+                ownerTypeChunk = "mop:usersites";
+            }
+            for (String ownerId : entry.getValue()) {
+                String ownerIdChunk;
+                try {
+                    ownerIdChunk = "mop:" + formatter.encodeNodeName(null, ownerId).replace("'", "''");
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                if (statement.length() > 0) {
+                    statement.append(" OR ");
+                }
+                statement.append("jcr:path LIKE '").append(workspaceChunk).append('/').append(ownerTypeChunk).append('/')
+                        .append(ownerIdChunk).append("/mop:rootnavigation/mop:children/mop:default'");
+            }
+        }
+        if (statement.length() == 0) {
+            return Collections.<Navigation> emptyList().iterator();
+        }
+
+        //
+        ChromatticSession session = context.getSession();
+        Class<Navigation> mappedClass = (Class<Navigation>) mapping.get(ObjectType.NAVIGATION);
+        return session.createQueryBuilder(mappedClass).where(statement.toString()).get().objects();
+    }
+
     private final SynchronizationListener listener = new SynchronizationListener() {
         public void beforeSynchronization() {
         }
@@ -263,6 +331,8 @@ public final class POMSession {
         public void afterSynchronization(SynchronizationStatus status) {
             if (status == SynchronizationStatus.SAVED) {
                 reset();
+            } else if (saveActions != null) {
+                saveActions.clear();
             }
         }
     };
@@ -282,6 +352,19 @@ public final class POMSession {
             staleKeys.clear();
         }
 
+        // Run the actions waiting for the save
+        if (saveActions != null && saveActions.size() > 0) {
+            List<Runnable> actions = new ArrayList<Runnable>(saveActions);
+            saveActions.clear();
+            for (Runnable action : actions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    log.error("Could not run action " + action + " after save", e);
+                }
+            }
+        }
+
         // Reset modified flag
         if (log.isTraceEnabled()) {
             log.trace("Setting modified flag to false");
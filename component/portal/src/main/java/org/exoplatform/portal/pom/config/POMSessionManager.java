@@ -21,19 +21,18 @@ package org.exoplatform.portal.pom.config;
 
 import java.io.Serializable;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
 
 import org.exoplatform.commons.chromattic.ChromatticLifeCycle;
 import org.exoplatform.commons.chromattic.ChromatticManager;
 import org.exoplatform.commons.chromattic.SessionContext;
 import org.exoplatform.commons.scope.ScopedKey;
 import org.exoplatform.portal.pom.config.cache.DataCache;
+import org.exoplatform.portal.pom.config.cache.OwnerKeyIndex;
 import org.exoplatform.portal.pom.config.cache.PortalNamesCache;
-import org.exoplatform.portal.pom.data.OwnerKey;
 import org.exoplatform.portal.pom.data.PortalKey;
 import org.exoplatform.services.cache.CacheService;
-import org.exoplatform.services.cache.CachedObjectSelector;
 import org.exoplatform.services.cache.ExoCache;
-import org.exoplatform.services.cache.ObjectCacheInfo;
 import org.exoplatform.services.jcr.RepositoryService;
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
@@ -67,6 +66,9 @@ public class POMSessionManager implements Startable {
     /** . */
     private final RepositoryService repositoryService;
 
+    /** The owner index of the cache entries. */
+    private final OwnerKeyIndex ownerIndex;
+
     public POMSessionManager(RepositoryService repositoryService, ChromatticManager manager, CacheService cacheService) {
         //
         this.repositoryService = repositoryService;
@@ -74,6 +76,10 @@ public class POMSessionManager implements Startable {
         this.cache = cacheService.getCacheInstance("MOPSessionManager");
         this.pomService = null;
         this.executor = new PortalNamesCache(new DataCache(new ExecutorDispatcher()));
+        this.ownerIndex = new OwnerKeyIndex();
+
+        //
+        cache.addCacheListener(ownerIndex);
     }
 
     public ChromatticLifeCycle getLifeCycle() {
@@ -117,33 +123,17 @@ public class POMSessionManager implements Startable {
 
         //
         if (key instanceof PortalKey) {
-            // This code seems complex but actually it tries to find all objects in cache that have the same
-            // owner key than the portal key, for instance if we remove (portal,classic) then all pages
-            // related to (portal,classic) are also evicted
+            // Find all objects in cache that have the same owner key than the portal key, for instance if we remove
+            // (portal,classic) then all pages related to (portal,classic) are also evicted. In a cluster the index
+            // also holds the entries replicated from the other nodes since their puts reach the cache listener
             final PortalKey portalKey = (PortalKey) key;
-            try {
-                cache.select(new CachedObjectSelector<ScopedKey<?>, Object>() {
-                    public boolean select(ScopedKey<?> selectedGlobalKey, ObjectCacheInfo<?> ocinfo) {
-                        if (globalKey.getScope().equals(selectedGlobalKey.getScope())) {
-                            Serializable selectedLocalKey = selectedGlobalKey.getKey();
-                            if (selectedLocalKey instanceof OwnerKey) {
-                                OwnerKey selectedOwnerKey = (OwnerKey) selectedLocalKey;
-                                if (selectedOwnerKey.getType().equals(portalKey.getType())
-                                        && selectedOwnerKey.getId().equals(portalKey.getId())) {
-                                    return true;
-                                }
-                            }
-                        }
-                        return false;
-                    }
-
-                    public void onSelect(ExoCache<? extends ScopedKey<?>, ?> exoCache, ScopedKey<?> key,
-                            ObjectCacheInfo<?> ocinfo) throws Exception {
-                        cache.remove(key);
-                    }
-                });
-            } catch (Exception e) {
-                log.error("Unexpected error when clearing pom cache", e);
+            ScopedKey<PortalKey> ownerKey = ScopedKey.create(globalKey.getScope(), portalKey);
+            List<ScopedKey<?>> ownedKeys = ownerIndex.removeOwner(ownerKey);
+            if (log.isTraceEnabled()) {
+                log.trace("Evicting " + ownedKeys.size() + " indexed entries for owner " + ownerKey);
+            }
+            for (ScopedKey<?> ownedKey : ownedKeys) {
+                cache.remove(ownedKey);
             }
         } else {
             cache.remove(globalKey);
@@ -177,6 +167,7 @@ public class POMSessionManager implements Startable {
 
         //
         cache.clearCache();
+        ownerIndex.clear();
     }
 
     public MOPService getPOMService() {
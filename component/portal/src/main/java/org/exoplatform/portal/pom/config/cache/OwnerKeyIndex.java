@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.portal.pom.config.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.exoplatform.commons.scope.ScopedKey;
+import org.exoplatform.portal.pom.data.OwnerKey;
+import org.exoplatform.portal.pom.data.PortalKey;
+import org.exoplatform.services.cache.CacheListener;
+import org.exoplatform.services.cache.CacheListenerContext;
+
+/**
+ * A secondary index of the MOP cache that associates a site (the owner type and the owner id of a scoped
+ * {@link OwnerKey}) with the cache keys that belong to that site. It is maintained as a cache listener so it follows
+ * the put, remove, expiration and clear operations of the cache and allows to evict the entries of a site without
+ * scanning the whole cache. With the <code>cluster</code> profile the cache notifies its listeners of the puts and
+ * removes replicated from the other nodes as well, the index of each node therefore follows the entries of the whole
+ * cluster.
+ */
+public class OwnerKeyIndex implements CacheListener<ScopedKey<?>, Object> {
+
+    /** . */
+    private final ConcurrentMap<ScopedKey<PortalKey>, Set<ScopedKey<?>>> index = new ConcurrentHashMap<ScopedKey<PortalKey>, Set<ScopedKey<?>>>();
+
+    /**
+     * Returns the owner of a cache key or null when the key is not owned by a site.
+     *
+     * @param key the cache key
+     * @return the owner
+     */
+    static ScopedKey<PortalKey> getOwner(ScopedKey<?> key) {
+        Serializable localKey = key.getKey();
+        if (localKey instanceof OwnerKey) {
+            OwnerKey ownerKey = (OwnerKey) localKey;
+            PortalKey owner = ownerKey instanceof PortalKey ? (PortalKey) ownerKey : new PortalKey(ownerKey.getType(),
+                    ownerKey.getId());
+            return ScopedKey.create(key.getScope(), owner);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Register a cache key in the index.
+     *
+     * @param key the key
+     */
+    public void add(ScopedKey<?> key) {
+        ScopedKey<PortalKey> owner = getOwner(key);
+        if (owner != null) {
+            Set<ScopedKey<?>> keys = index.get(owner);
+            if (keys == null) {
+                keys = Collections.newSetFromMap(new ConcurrentHashMap<ScopedKey<?>, Boolean>());
+                Set<ScopedKey<?>> previous = index.putIfAbsent(owner, keys);
+                if (previous != null) {
+                    keys = previous;
+                }
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Unregister a cache key from the index.
+     *
+     * @param key the key
+     */
+    public void remove(ScopedKey<?> key) {
+        ScopedKey<PortalKey> owner = getOwner(key);
+        if (owner != null) {
+            Set<ScopedKey<?>> keys = index.get(owner);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    // Only remove the exact set we observed empty, a concurrent add may have created a new one
+                    index.remove(owner, keys);
+                }
+            }
+        }
+    }
+
+    /**
+     * Detach all the keys belonging to the site designated by the portal key and returns them, the returned list can be
+     * used to remove the entries from the cache.
+     *
+     * @param portalKey the scoped portal key
+     * @return the keys of the site
+     */
+    public List<ScopedKey<?>> removeOwner(ScopedKey<PortalKey> portalKey) {
+        Set<ScopedKey<?>> keys = index.remove(portalKey);
+        if (keys != null) {
+            return new ArrayList<ScopedKey<?>>(keys);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the number of keys indexed for the specified site.
+     *
+     * @param portalKey the scoped portal key
+     * @return the number of keys
+     */
+    public int getSize(ScopedKey<PortalKey> portalKey) {
+        Set<ScopedKey<?>> keys = index.get(portalKey);
+        return keys != null ? keys.size() : 0;
+    }
+
+    public void clear() {
+        index.clear();
+    }
+
+    public void onExpire(CacheListenerContext context, ScopedKey<?> key, Object obj) throws Exception {
+        remove(key);
+    }
+
+    public void onRemove(CacheListenerContext context, ScopedKey<?> key, Object obj) throws Exception {
+        remove(key);
+    }
+
+    public void onPut(CacheListenerContext context, ScopedKey<?> key, Object obj) throws Exception {
+        add(key);
+    }
+
+    public void onGet(CacheListenerContext context, ScopedKey<?> key, Object obj) throws Exception {
+    }
+
+    public void onClearCache(CacheListenerContext context) throws Exception {
+        clear();
+    }
+}
@@ -83,4 +83,7 @@ public class MappedAttributes {
 
     /** . */
     public static final Key<String> THEME = Key.create("theme", ValueType.STRING);
+
+    /** The fingerprint of the configuration of a site when it was imported at startup. */
+    public static final Key<String> IMPORT_FINGERPRINT = Key.create("import-fingerprint", ValueType.STRING);
 }
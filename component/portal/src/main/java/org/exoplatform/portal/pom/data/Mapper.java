@@ -82,7 +82,7 @@ public class Mapper {
 
     /** . */
     private static final Set<String> portalPropertiesBlackList = Tools.set(MappedAttributes.LOCALE.getName(),
-            MappedAttributes.SKIN.getName());
+            MappedAttributes.SKIN.getName(), MappedAttributes.IMPORT_FINGERPRINT.getName());
 
     /** . */
     private static final Set<String> windowPropertiesBlackList = Tools.set(MappedAttributes.THEME.getName(),
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.tree.diff;
+
+/**
+ * <p>
+ * Computes the changes of two lists without the full LCS matrix, the changes are exactly the ones obtained by walking the
+ * LCS matrix in {@link ListChangeIterator}.
+ * </p>
+ *
+ * <p>
+ * The number of changes <code>D</code> is first computed with the greedy algorithm of Eugene W. Myers (An O(ND)
+ * Difference Algorithm and Its Variations) that only keeps one vector of the size of the lists. An optimal path can only
+ * cross the diagonals that are at most <code>(D - |N - M|) / 2</code> away from the diagonals of its start and of its end,
+ * so the number of changes remaining from each cell is only computed in this band. The matrix walk is then replayed: an
+ * element is added when adding it keeps the remaining changes optimal, which is the case exactly when the matrix walk adds
+ * it.
+ * </p>
+ *
+ * <p>
+ * The time and the memory are proportional to the size of the first list times the number of changes, and never exceed
+ * the ones of the LCS matrix.
+ * </p>
+ *
+ * @param <E> the element type
+ */
+class BandedLCS<E> {
+
+    /** . */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /** . */
+    private final ListDiff<?, ?, E> diff;
+
+    /** . */
+    private final Object[] elements1;
+
+    /** . */
+    private final Object[] elements2;
+
+    /** . */
+    private final int n;
+
+    /** . */
+    private final int m;
+
+    /** The lowest diagonal of the band. */
+    private int kMin;
+
+    /** The highest diagonal of the band. */
+    private int kMax;
+
+    /** The number of cells stored for each element of the first list. */
+    private int stride;
+
+    /** The remaining changes of the cells of the band, rows are indexed by x and cells by y. */
+    private int[] cells;
+
+    BandedLCS(ListDiff<?, ?, E> diff, Object[] elements1, Object[] elements2) {
+        this.diff = diff;
+        this.elements1 = elements1;
+        this.elements2 = elements2;
+        this.n = elements1.length;
+        this.m = elements2.length;
+    }
+
+    /**
+     * Returns the changes transforming the first list into the second list.
+     *
+     * @return the changes
+     */
+    ListChangeType[] compute() {
+        int d = distance();
+        int delta = n - m;
+        int p = (d - Math.abs(delta)) / 2;
+        kMin = Math.max(-m, Math.min(0, delta) - p);
+        kMax = Math.min(n, Math.max(0, delta) + p);
+        stride = Math.min(kMax - kMin + 1, m + 1);
+        cells = new int[(n + 1) * stride];
+
+        // The remaining changes of each cell of the band, from the end of the lists
+        for (int x = n; x >= 0; x--) {
+            for (int y = high(x); y >= low(x); y--) {
+                int v;
+                if (x == n) {
+                    v = m - y;
+                } else if (y == m) {
+                    v = n - x;
+                } else if (equals(x, y)) {
+                    v = get(x + 1, y + 1);
+                } else {
+                    v = Math.min(get(x + 1, y), get(x, y + 1));
+                    if (v != INFINITY) {
+                        v++;
+                    }
+                }
+                cells[x * stride + y - low(x)] = v;
+            }
+        }
+
+        // Replay the matrix walk
+        ListChangeType[] changes = new ListChangeType[n + m - (n + m - d) / 2];
+        int size = 0;
+        int x = 0;
+        int y = 0;
+        while (x < n || y < m) {
+            if (x < n && y < m && equals(x, y)) {
+                changes[size++] = ListChangeType.SAME;
+                x++;
+                y++;
+            } else if (y < m && (x == n || get(x, y + 1) == get(x, y) - 1)) {
+                changes[size++] = ListChangeType.ADD;
+                y++;
+            } else {
+                changes[size++] = ListChangeType.REMOVE;
+                x++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the minimum number of additions and removals transforming the first list into the second list.
+     */
+    private int distance() {
+        int max = n + m;
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && equals(x, y)) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    return d;
+                }
+            }
+        }
+        throw new AssertionError();
+    }
+
+    private int low(int x) {
+        return Math.max(0, x - kMax);
+    }
+
+    private int high(int x) {
+        return Math.min(m, x - kMin);
+    }
+
+    private int get(int x, int y) {
+        if (y < low(x) || y > high(x)) {
+            return INFINITY;
+        } else {
+            return cells[x * stride + y - low(x)];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean equals(int i, int j) {
+        return diff.equals((E) elements1[i], (E) elements2[j]);
+    }
+}
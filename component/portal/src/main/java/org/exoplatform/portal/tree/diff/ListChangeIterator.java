@@ -29,7 +29,9 @@ import java.util.NoSuchElementException;
 
 /**
  * Iterates over a list of {@link ListChangeType} computed from two list of objects. The implementation is optimized to use the
- * LCS algorithm only when needed, for trivial list no LCS computation should be required.
+ * LCS algorithm only when needed, for trivial list no LCS computation should be required. When the LCS matrix would be
+ * larger than the maximum matrix size of the diff, the same changes are computed without the matrix by
+ * {@link BandedLCS}.
  *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  */
@@ -44,6 +46,9 @@ public class ListChangeIterator<L1, L2, E> implements Iterator<ListChangeType> {
     /** . */
     private static final int LCS_MODE = 1;
 
+    /** . */
+    private static final int BANDED_MODE = 2;
+
     /** . */
     ListDiff<L1, L2, E> diff;
 
@@ -94,6 +99,14 @@ public class ListChangeIterator<L1, L2, E> implements Iterator<ListChangeType> {
     /** . */
     private int n;
 
+    // Banded state
+
+    /** . */
+    private ListChangeType[] changes;
+
+    /** . */
+    private int changeIndex;
+
     ListChangeIterator(ListDiff<L1, L2, E> diff, L1 elements1, L2 elements2) {
         this.diff = diff;
         this.elements1 = elements1;
@@ -156,8 +169,15 @@ public class ListChangeIterator<L1, L2, E> implements Iterator<ListChangeType> {
                             next1();
                             next2();
                         } else {
-                            lcs(index1, elements1, elements2);
-                            mode = LCS_MODE;
+                            long size = (1L + diff.adapter1.size(elements1) - index1)
+                                    * (1L + diff.adapter2.size(elements2) - index2);
+                            if (size <= diff.maxMatrixSize) {
+                                lcs(index1, elements1, elements2);
+                                mode = LCS_MODE;
+                            } else {
+                                banded(index1, elements1, elements2);
+                                mode = BANDED_MODE;
+                            }
                         }
                     } else {
                         type = ListChangeType.REMOVE;
@@ -205,6 +225,25 @@ public class ListChangeIterator<L1, L2, E> implements Iterator<ListChangeType> {
                         break;
                     }
                 }
+            } else if (mode == BANDED_MODE) {
+                if (changeIndex < changes.length) {
+                    type = changes[changeIndex++];
+                    buffered = true;
+                    if (type == ListChangeType.SAME) {
+                        element = next1;
+                        next1();
+                        next2();
+                    } else if (type == ListChangeType.ADD) {
+                        element = next2;
+                        next2();
+                    } else {
+                        element = next1;
+                        next1();
+                    }
+                } else {
+                    // Force a break with buffered to false
+                    break;
+                }
             } else {
                 throw new AssertionError();
             }
@@ -276,6 +315,29 @@ public class ListChangeIterator<L1, L2, E> implements Iterator<ListChangeType> {
         }
     }
 
+    /**
+     * Compute the changes from the specified offset in the band of the optimal paths instead of the LCS matrix.
+     *
+     * @param offset the offset
+     * @param elements1 the elements 1
+     * @param elements2 the elements 2
+     */
+    private void banded(int offset, L1 elements1, L2 elements2) {
+        Object[] array1 = toArray(diff.adapter1, elements1, offset);
+        Object[] array2 = toArray(diff.adapter2, elements2, offset);
+        changes = new BandedLCS<E>(diff, array1, array2).compute();
+        changeIndex = 0;
+    }
+
+    private static <L, E> Object[] toArray(ListAdapter<L, E> adapter, L elements, int offset) {
+        Object[] array = new Object[adapter.size(elements) - offset];
+        Iterator<E> it = adapter.iterator(elements, true);
+        for (int i = array.length - 1; i >= 0; i--) {
+            array[i] = it.next();
+        }
+        return array;
+    }
+
     // For unit testing purpose
     String getMatrix() {
         StringBuilder sb = new StringBuilder();
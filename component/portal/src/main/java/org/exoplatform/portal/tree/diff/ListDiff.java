@@ -27,6 +27,9 @@ import java.util.Comparator;
  */
 public class ListDiff<L1, L2, E> {
 
+    /** The default maximum number of cells of an LCS matrix. */
+    static final int DEFAULT_MAX_MATRIX_SIZE = 32 * 32;
+
     /** . */
     final Comparator<E> comparator;
 
@@ -36,10 +39,14 @@ public class ListDiff<L1, L2, E> {
     /** . */
     final ListAdapter<L2, E> adapter2;
 
+    /** Above this number of cells the changes are computed without the full LCS matrix. */
+    int maxMatrixSize;
+
     public ListDiff(ListAdapter<L1, E> adapter1, ListAdapter<L2, E> adapter2, Comparator<E> comparator) {
         this.adapter1 = adapter1;
         this.adapter2 = adapter2;
         this.comparator = comparator;
+        this.maxMatrixSize = DEFAULT_MAX_MATRIX_SIZE;
     }
 
     public ListDiff(ListAdapter<L1, E> adapter1, ListAdapter<L2, E> adapter2) {
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.config;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+import org.exoplatform.component.test.ContainerScope;
+import org.exoplatform.component.test.KernelBootstrap;
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.container.component.RequestLifeCycle;
+import org.exoplatform.portal.config.model.Application;
+import org.exoplatform.portal.config.model.PortalConfig;
+import org.exoplatform.portal.mop.SiteType;
+import org.exoplatform.portal.mop.importer.ImportMode;
+import org.exoplatform.portal.mop.page.PageContext;
+import org.exoplatform.portal.mop.page.PageKey;
+import org.exoplatform.portal.mop.page.PageService;
+import org.exoplatform.portal.pom.config.POMSessionManager;
+
+public class TestImportFingerprint extends AbstractGateInTest {
+
+    /** . */
+    private Set<String> clearProperties = new HashSet<String>();
+
+    protected void setSystemProperty(String key, String value) {
+        clearProperties.add(key);
+        System.setProperty(key, value);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        for (String key : clearProperties) {
+            System.clearProperty(key);
+        }
+        clearProperties.clear();
+    }
+
+    public void testRebootSequential() throws Exception {
+        assertEquals("site1/layout|modified|site2/layout|site 2|site 2|site 2", reboot(1));
+    }
+
+    public void testRebootConcurrent() throws Exception {
+        assertEquals(reboot(1), reboot(4));
+    }
+
+    /**
+     * Boots with the site1 configuration in override mode, modifies an imported page, reboots with the same configuration
+     * and then with the site2 configuration. Returns the state observed after the reboots.
+     */
+    private String reboot(int threads) throws Exception {
+        KernelBootstrap bootstrap = new KernelBootstrap();
+        bootstrap.addConfiguration(ContainerScope.PORTAL, "conf/exo.portal.component.test.jcr-configuration.xml");
+        bootstrap.addConfiguration(ContainerScope.PORTAL, "conf/exo.portal.component.identity-configuration.xml");
+        bootstrap.addConfiguration(ContainerScope.PORTAL, "conf/exo.portal.component.portal-configuration.xml");
+        bootstrap.addConfiguration(ContainerScope.PORTAL, "org/exoplatform/portal/config/TestImportFingerprint-configuration.xml");
+
+        //
+        setSystemProperty("override.1", "true");
+        setSystemProperty("import.mode.1", ImportMode.MERGE.toString());
+        setSystemProperty("import.threads.1", Integer.toString(threads));
+        setSystemProperty("import.portal.1", "site1");
+
+        bootstrap.boot();
+        PortalContainer container = bootstrap.getContainer();
+        RequestLifeCycle.begin(container);
+        PageService pageService = (PageService) container.getComponentInstanceOfType(PageService.class);
+        PageContext page1 = pageService.loadPage(PageKey.parse("portal::classic::page1"));
+        assertEquals("site 1", page1.getState().getDisplayName());
+        page1.setState(page1.getState().builder().displayName("modified").build());
+        pageService.savePage(page1);
+        POMSessionManager mgr = (POMSessionManager) container.getComponentInstanceOfType(POMSessionManager.class);
+        mgr.getSession().save();
+        RequestLifeCycle.end();
+        bootstrap.dispose();
+
+        // The configuration did not change, the site is skipped and the modification is kept
+        StringBuilder sb = new StringBuilder();
+        bootstrap.boot();
+        container = bootstrap.getContainer();
+        RequestLifeCycle.begin(container);
+        sb.append(getLayoutId(container, SiteType.PORTAL.getName(), "classic"));
+        sb.append('|').append(getDisplayName(container, "portal::classic::page1"));
+        RequestLifeCycle.end();
+        bootstrap.dispose();
+
+        // The configuration changed, the sites are imported again
+        setSystemProperty("import.portal.1", "site2");
+        bootstrap.boot();
+        container = bootstrap.getContainer();
+        RequestLifeCycle.begin(container);
+        sb.append('|').append(getLayoutId(container, SiteType.PORTAL.getName(), "classic"));
+        sb.append('|').append(getDisplayName(container, "portal::classic::page1"));
+        sb.append('|').append(getDisplayName(container, "group::/platform/administrators::page1"));
+        sb.append('|').append(getDisplayName(container, "user::root::dashboard1"));
+        RequestLifeCycle.end();
+        bootstrap.dispose();
+        return sb.toString();
+    }
+
+    private static String getLayoutId(PortalContainer container, String type, String name) throws Exception {
+        DataStorage dataStorage = (DataStorage) container.getComponentInstanceOfType(DataStorage.class);
+        PortalConfig portal = dataStorage.getPortalConfig(type, name);
+        Application<?> layoutPortlet = (Application<?>) portal.getPortalLayout().getChildren().get(0);
+        return dataStorage.getId(layoutPortlet.getState());
+    }
+
+    private static String getDisplayName(PortalContainer container, String pageKey) {
+        PageService pageService = (PageService) container.getComponentInstanceOfType(PageService.class);
+        PageContext page = pageService.loadPage(PageKey.parse(pageKey));
+        return page != null ? page.getState().getDisplayName() : null;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.config.security;
+
+import org.exoplatform.portal.config.model.PortalConfig;
+
+public class TestRequestPermissions extends AbstractTestUserACL {
+
+    private PortalConfig portal() {
+        PortalConfig portal = new PortalConfig();
+        portal.setAccessPermissions(new String[] { "manager:/manageable" });
+        portal.setEditPermission("*:/platform/administrators");
+        return portal;
+    }
+
+    public void testRemember() {
+        PortalConfig portal = portal();
+        ua.startRequest(null);
+        try {
+            assertTrue(manager.hasPermission(portal));
+            long evaluations = ua.getEvaluationCount();
+            long saved = ua.getSavedEvaluationCount();
+            assertTrue(manager.hasPermission(portal));
+            assertEquals(evaluations, ua.getEvaluationCount());
+            assertEquals(saved + 2, ua.getSavedEvaluationCount());
+
+            // Another identity is evaluated
+            assertTrue(administrator.hasPermission(portal));
+            assertTrue(ua.getEvaluationCount() > evaluations);
+        } finally {
+            ua.endRequest(null);
+        }
+    }
+
+    public void testForgetAfterRequest() {
+        PortalConfig portal = portal();
+        ua.startRequest(null);
+        try {
+            assertTrue(manager.hasPermission(portal));
+        } finally {
+            ua.endRequest(null);
+        }
+
+        //
+        manager.removeMembershipByGroup("/manageable");
+        ua.startRequest(null);
+        try {
+            assertFalse(manager.hasPermission(portal));
+        } finally {
+            ua.endRequest(null);
+        }
+    }
+
+    public void testNotRememberedOutsideRequest() {
+        PortalConfig portal = portal();
+        long saved = ua.getSavedEvaluationCount();
+        assertTrue(manager.hasPermission(portal));
+        assertTrue(manager.hasPermission(portal));
+        assertEquals(saved, ua.getSavedEvaluationCount());
+    }
+
+    public void testNestedRequest() {
+        PortalConfig portal = portal();
+        ua.startRequest(null);
+        try {
+            ua.startRequest(null);
+            ua.endRequest(null);
+
+            // The nested request does not end the request
+            long saved = ua.getSavedEvaluationCount();
+            assertTrue(manager.hasPermission(portal));
+            assertTrue(manager.hasPermission(portal));
+            assertEquals(saved + 2, ua.getSavedEvaluationCount());
+        } finally {
+            ua.endRequest(null);
+        }
+    }
+}
@@ -111,6 +111,33 @@ public class PageImportTaskTest extends TestCase {
         Assert.assertNull(task.getRollbackSaves());
     }
 
+    public void testRelease_NoPages() throws Exception {
+        Page.PageSet importing = new Builder().addPage("page1").addPage("page2").addPage("page3").build();
+        PageImportTask task = new PageImportTask(importing, siteKey, dataStorage, pageService, siteProvider);
+
+        when(site.getRootPage()).thenReturn(rootPage);
+        when(rootPage.getChild("pages")).thenReturn(pages);
+        when(pages.getChildren()).thenReturn(Collections.<org.gatein.mop.api.workspace.Page> emptyList());
+
+        task.importData(ImportMode.CONSERVE);
+        task.release();
+
+        // The imported pages are no longer referenced, only their names are kept
+        Assert.assertEquals(3, task.getRollbackDeletes().getPages().size());
+        for (int i = 0; i < 3; i++) {
+            Page page = task.getRollbackDeletes().getPages().get(i);
+            Assert.assertNotSame(importing.getPages().get(i), page);
+            Assert.assertEquals(importing.getPages().get(i).getName(), page.getName());
+        }
+        Assert.assertNull(task.getRollbackSaves());
+
+        task.rollback();
+
+        for (Page page : importing.getPages()) {
+            verify(pageService).destroyPage(siteKey.page(page.getName()));
+        }
+    }
+
     public void testConserve_SamePages() throws Exception {
         Page.PageSet importing = new Builder().addPage("page1").addPage("page2").addPage("page3").build();
         PageImportTask task = new PageImportTask(importing, siteKey, dataStorage, pageService, siteProvider);
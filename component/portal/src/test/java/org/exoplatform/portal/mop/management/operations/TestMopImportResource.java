@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.mop.management.operations;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.portal.config.AbstractConfigTest;
+import org.exoplatform.portal.config.DataStorage;
+import org.exoplatform.portal.config.model.PortalConfig;
+import org.exoplatform.portal.mop.description.DescriptionService;
+import org.exoplatform.portal.mop.navigation.NavigationService;
+import org.exoplatform.portal.mop.page.PageService;
+import org.exoplatform.portal.pom.config.POMSessionManager;
+import org.gatein.management.api.ContentType;
+import org.gatein.management.api.binding.Marshaller;
+import org.gatein.management.api.exceptions.OperationException;
+import org.gatein.management.api.operation.OperationAttachment;
+import org.gatein.management.api.operation.OperationContext;
+import org.gatein.management.api.operation.ResultHandler;
+import org.gatein.management.api.operation.model.NoResultModel;
+
+public class TestMopImportResource extends AbstractConfigTest {
+
+    /** . */
+    private DataStorage storage;
+
+    /** . */
+    private POMSessionManager mgr;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        PortalContainer container = getContainer();
+        storage = (DataStorage) container.getComponentInstanceOfType(DataStorage.class);
+        mgr = (POMSessionManager) container.getComponentInstanceOfType(POMSessionManager.class);
+    }
+
+    public void testImportSiteBySite() throws Exception {
+        begin();
+        mgr.openSession();
+        ResultHandler resultHandler = mock(ResultHandler.class);
+        OperationContext context = context(zip("portal/import_a/portal.xml", "portal/import_b/portal.xml",
+                "portal/import_c/portal.xml"), new PortalConfig("portal", "import_a"), new PortalConfig("portal", "import_b"),
+                new PortalConfig("portal", "import_c"));
+        new MopImportResource().doExecute(context, resultHandler);
+        verify(resultHandler).completed(NoResultModel.INSTANCE);
+        end(true);
+
+        //
+        begin();
+        mgr.openSession();
+        assertNotNull(storage.getPortalConfig("portal", "import_a"));
+        assertNotNull(storage.getPortalConfig("portal", "import_b"));
+        assertNotNull(storage.getPortalConfig("portal", "import_c"));
+        end();
+    }
+
+    public void testInterleavedSites() throws Exception {
+        begin();
+        mgr.openSession();
+        ResultHandler resultHandler = mock(ResultHandler.class);
+        OperationContext context = context(zip("portal/interleaved_a/portal.xml", "portal/interleaved_b/portal.xml",
+                "portal/interleaved_a/pages.xml"), new PortalConfig("portal", "interleaved_a"), new PortalConfig("portal",
+                "interleaved_b"));
+        try {
+            new MopImportResource().doExecute(context, resultHandler);
+            fail();
+        } catch (OperationException e) {
+            // The site appearing again is reported and the sites already imported are rolled back
+            assertTrue(e.getCause() instanceof OperationException);
+            assertTrue(e.getCause().getMessage().contains("portal/interleaved_a/pages.xml"));
+        }
+        verify(resultHandler, never()).completed(any(NoResultModel.class));
+        assertNull(storage.getPortalConfig("portal", "interleaved_a"));
+        assertNull(storage.getPortalConfig("portal", "interleaved_b"));
+        end(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private OperationContext context(byte[] zip, PortalConfig first, PortalConfig... next) throws Exception {
+        PortalContainer container = getContainer();
+        OperationContext context = mock(OperationContext.class, RETURNS_DEEP_STUBS);
+        when(context.getOperationName()).thenReturn("import-resource");
+        OperationAttachment attachment = mock(OperationAttachment.class);
+        when(attachment.getStream()).thenReturn(new ByteArrayInputStream(zip));
+        when(context.getAttachment(true)).thenReturn(attachment);
+        when(context.getAttributes().getValue("importMode")).thenReturn("merge");
+        when(context.getAttributes().getValue("batchSize")).thenReturn("2");
+        when(context.getRuntimeContext().getRuntimeComponent(POMSessionManager.class)).thenReturn(mgr);
+        when(context.getRuntimeContext().getRuntimeComponent(DataStorage.class)).thenReturn(storage);
+        when(context.getRuntimeContext().getRuntimeComponent(PageService.class)).thenReturn(
+                (PageService) container.getComponentInstanceOfType(PageService.class));
+        when(context.getRuntimeContext().getRuntimeComponent(NavigationService.class)).thenReturn(
+                (NavigationService) container.getComponentInstanceOfType(NavigationService.class));
+        when(context.getRuntimeContext().getRuntimeComponent(DescriptionService.class)).thenReturn(
+                (DescriptionService) container.getComponentInstanceOfType(DescriptionService.class));
+
+        // The site layouts are returned in the order of the zip entries
+        Marshaller<PortalConfig> marshaller = mock(Marshaller.class);
+        when(marshaller.unmarshal(any(InputStream.class))).thenReturn(first, next);
+        when(context.getBindingProvider().getMarshaller(PortalConfig.class, ContentType.XML)).thenReturn(marshaller);
+        return context;
+    }
+
+    private static byte[] zip(String... entries) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipOutputStream zos = new ZipOutputStream(out);
+        for (String entry : entries) {
+            zos.putNextEntry(new ZipEntry(entry));
+            zos.write("<data/>".getBytes("UTF-8"));
+            zos.closeEntry();
+        }
+        zos.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.mop.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.exoplatform.commons.scope.ScopedKey;
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.portal.mop.SiteKey;
+import org.exoplatform.portal.pom.config.POMSession;
+import org.exoplatform.services.cache.CacheService;
+import org.gatein.mop.api.workspace.ObjectType;
+import org.gatein.mop.api.workspace.Workspace;
+
+public class TestNavigationServiceBulkLoad extends AbstractTestNavigationService {
+
+    /** Counts the accesses to the data layer. */
+    private static class CountingDataCache extends ExoDataCache {
+
+        /** . */
+        int loads;
+
+        /** . */
+        int loadedKeys;
+
+        private CountingDataCache(CacheService cacheService) {
+            super(cacheService);
+        }
+
+        @Override
+        protected Map<SiteKey, NavigationData> loadNavigations(POMSession session, Collection<SiteKey> keys) {
+            loads++;
+            loadedKeys += keys.size();
+            return super.loadNavigations(session, keys);
+        }
+    }
+
+    private List<SiteKey> createGroups(String prefix, int count) throws Exception {
+        Workspace workspace = mgr.getPOMService().getModel().getWorkspace();
+        List<SiteKey> keys = new ArrayList<SiteKey>();
+        for (int i = 0; i < count; i++) {
+            String name = "/" + prefix + i;
+            workspace.addSite(ObjectType.GROUP_SITE, name).getRootNavigation().addChild("default");
+            keys.add(SiteKey.group(name));
+        }
+        sync(true);
+        return keys;
+    }
+
+    public void testRoundTrips() throws Exception {
+        CacheService cacheService = (CacheService) PortalContainer.getInstance().getComponentInstanceOfType(CacheService.class);
+        for (int count : new int[] { 2, 20, DataCache.BATCH_SIZE + 10 }) {
+            CountingDataCache cache = new CountingDataCache(cacheService);
+            cache.clear();
+            NavigationServiceImpl service = new NavigationServiceImpl(mgr, cache);
+            List<SiteKey> keys = createGroups("round_trips_" + count + "_", count);
+            SiteKey missing = SiteKey.group("/round_trips_" + count + "_missing");
+            keys.add(missing);
+
+            // The cold load resolves all the sites at once whatever the number of groups
+            List<NavigationContext> navigations = service.loadNavigations(keys);
+            assertEquals(count, navigations.size());
+            assertEquals(1, cache.loads);
+            assertEquals(count + 1, cache.loadedKeys);
+            for (int i = 0; i < count; i++) {
+                assertEquals(keys.get(i), navigations.get(i).getKey());
+            }
+
+            // The site without navigation is cached as well
+            assertSame(NavigationData.EMPTY, cache.cache.get(ScopedKey.create(missing)));
+            assertNull(service.loadNavigation(missing));
+
+            // The warm load does not reach the session
+            navigations = service.loadNavigations(keys);
+            assertEquals(count, navigations.size());
+            assertEquals(1, cache.loads);
+            assertEquals(count + 1, cache.loadedKeys);
+        }
+    }
+
+    public void testSaveInvalidatesMissingNavigation() throws Exception {
+        CacheService cacheService = (CacheService) PortalContainer.getInstance().getComponentInstanceOfType(CacheService.class);
+        CountingDataCache cache = new CountingDataCache(cacheService);
+        cache.clear();
+        NavigationServiceImpl service = new NavigationServiceImpl(mgr, cache);
+        Workspace workspace = mgr.getPOMService().getModel().getWorkspace();
+        workspace.addSite(ObjectType.GROUP_SITE, "/save_invalidates_missing_navigation");
+        sync(true);
+
+        //
+        SiteKey key = SiteKey.group("/save_invalidates_missing_navigation");
+        assertEquals(0, service.loadNavigations(Arrays.asList(key)).size());
+        assertEquals(1, cache.loads);
+
+        //
+        service.saveNavigation(new NavigationContext(key, new NavigationState(0)));
+        sync(true);
+
+        //
+        List<NavigationContext> navigations = service.loadNavigations(Arrays.asList(key));
+        assertEquals(1, navigations.size());
+        assertEquals(2, cache.loads);
+    }
+
+    public void testSameAsSingleLoad() throws Exception {
+        List<SiteKey> keys = new ArrayList<SiteKey>(createGroups("same_as_single_load_", 3));
+        keys.add(1, SiteKey.group("/same_as_single_load_missing"));
+        keys.add(keys.get(0));
+        List<NavigationContext> navigations = service.loadNavigations(keys);
+        assertEquals(3, navigations.size());
+        for (int i = 0; i < 3; i++) {
+            NavigationContext expected = service.loadNavigation(SiteKey.group("/same_as_single_load_" + i));
+            NavigationContext navigation = navigations.get(i);
+            assertEquals(expected.getKey(), navigation.getKey());
+            assertEquals(expected.data.rootId, navigation.data.rootId);
+        }
+    }
+
+    public void testNullKey() throws Exception {
+        try {
+            service.loadNavigations((Collection<SiteKey>) null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+        try {
+            service.loadNavigations(Arrays.asList(SiteKey.group("/foo"), null));
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.mop.navigation;
+
+import org.exoplatform.portal.mop.SiteKey;
+import org.exoplatform.portal.pom.config.POMSession;
+import org.gatein.mop.api.workspace.Navigation;
+import org.gatein.mop.api.workspace.ObjectType;
+import org.gatein.mop.api.workspace.Site;
+
+public class TestNavigationServiceSubtree extends AbstractTestNavigationService {
+
+    /** Counts the node and subtree accesses. */
+    private static class CountingDataCache extends SimpleDataCache {
+
+        /** . */
+        int nodes;
+
+        /** . */
+        int subtrees;
+
+        @Override
+        protected NodeData getNode(POMSession session, String key) {
+            nodes++;
+            return super.getNode(session, key);
+        }
+
+        @Override
+        protected SubtreeData getSubtree(POMSession session, SubtreeKey key) {
+            subtrees++;
+            return super.getSubtree(session, key);
+        }
+    }
+
+    /** The same visit than a tree scope that does not use the subtrees. */
+    private static Scope unshaped(final Scope scope) {
+        return new Scope() {
+            public Visitor get() {
+                return scope.get();
+            }
+        };
+    }
+
+    /** . */
+    private CountingDataCache cache;
+
+    /** . */
+    private NavigationServiceImpl service;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        //
+        cache = new CountingDataCache();
+        service = new NavigationServiceImpl(mgr, cache);
+    }
+
+    private NavigationContext createNavigation(String name) throws Exception {
+        Site portal = mgr.getPOMService().getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, name);
+        Navigation root = portal.getRootNavigation().addChild("default");
+        for (String a : new String[] { "a", "b", "c" }) {
+            Navigation child = root.addChild(a);
+            for (String b : new String[] { "d", "e" }) {
+                child.addChild(b).addChild("f");
+            }
+        }
+        sync(true);
+        return service.loadNavigation(SiteKey.portal(name));
+    }
+
+    public void testSingleLookup() throws Exception {
+        NavigationContext nav = createNavigation("subtree_single_lookup");
+        cache.nodes = 0;
+
+        //
+        Node root = service.loadNode(Node.MODEL, nav, Scope.GRANDCHILDREN, null).getNode();
+        assertEquals(1, cache.subtrees);
+        assertEquals(0, cache.nodes);
+        assertEquals(3, root.getNodeCount());
+        root.assertConsistent();
+
+        // The same tree as the one loaded node by node
+        Node expected = service.loadNode(Node.MODEL, nav, unshaped(Scope.GRANDCHILDREN), null).getNode();
+        assertTrue(cache.nodes > 0);
+        expected.assertEquals(root);
+
+        // The bottom nodes are not expanded
+        assertNull(root.getChild("a").getChild("d").getChildren());
+        assertEquals(1, root.getChild("a").getChild("d").getNodeCount());
+    }
+
+    public void testInvalidation() throws Exception {
+        NavigationContext nav = createNavigation("subtree_invalidation");
+        Node root = service.loadNode(Node.MODEL, nav, Scope.GRANDCHILDREN, null).getNode();
+
+        // Update a node of the subtree
+        Node d = root.getChild("b").getChild("d");
+        d.setState(d.getState().builder().label("foo").build());
+        service.saveNode(root.context, null);
+        sync(true);
+        root = service.loadNode(Node.MODEL, nav, Scope.GRANDCHILDREN, null).getNode();
+        assertEquals("foo", root.getChild("b").getChild("d").getState().getLabel());
+
+        // Add a node under the bottom of the subtree
+        Node e = root.getChild("c").getChild("e");
+        service.updateNode(e.context, Scope.CHILDREN, null);
+        e.addChild("g");
+        service.saveNode(e.context, null);
+        sync(true);
+        root = service.loadNode(Node.MODEL, nav, Scope.GRANDCHILDREN, null).getNode();
+        assertEquals(2, root.getChild("c").getChild("e").getNodeCount());
+
+        // Remove a child
+        root.removeChild("a");
+        service.saveNode(root.context, null);
+        sync(true);
+        root = service.loadNode(Node.MODEL, nav, Scope.GRANDCHILDREN, null).getNode();
+        assertNull(root.getChild("a"));
+        assertEquals(2, root.getNodeCount());
+        root.assertConsistent();
+    }
+
+    public void testModifiedSession() throws Exception {
+        NavigationContext nav = createNavigation("subtree_modified_session");
+        service.loadNode(Node.MODEL, nav, Scope.GRANDCHILDREN, null);
+
+        // A modified session is not served from the cache
+        Navigation a = mgr.getSession().findObjectById(ObjectType.NAVIGATION, nav.data.rootId).getChild("a");
+        a.addChild("z");
+        Node root = service.loadNode(Node.MODEL, nav, Scope.GRANDCHILDREN, null).getNode();
+        assertEquals(3, root.getChild("a").getNodeCount());
+    }
+}
@@ -1,5 +1,6 @@
 package org.exoplatform.portal.mop.page;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
@@ -287,6 +288,117 @@ public class TestPageService extends AbstractTestPageService {
         assertEquals(2, result.getSize());
     }
 
+    private List<String> findPages(int offset, int limit, String pageName, String pageTitle) {
+        List<String> names = new ArrayList<String>();
+        for (PageContext page : service.findPages(offset, limit, SiteType.PORTAL, "find_indexed_pages", pageName, pageTitle)) {
+            names.add(page.getKey().getName());
+        }
+        return names;
+    }
+
+    private PageContext createPage(SiteKey site, String name, String displayName) {
+        return new PageContext(site.page(name), new PageState(displayName, "foo_description", false, "foo_factory_id",
+                Collections.singletonList("foo_access_permission"), "foo_edit_permission",
+                Collections.singletonList("foo-move-apps-permissions"), Collections.singletonList("foo-move-containers-permissions")));
+    }
+
+    public void testFindIndexed() throws Exception {
+        mgr.getPOMService().getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "find_indexed_pages").getRootPage()
+                .addChild("pages").addChild("juu").adapt(Described.class).setName("Juuu Ziii");
+        sync(true);
+
+        // The index is built with the existing pages
+        assertEquals(Arrays.asList("juu"), findPages(0, 10, null, "ziii"));
+
+        // Then maintained by the service
+        SiteKey site = SiteKey.portal("find_indexed_pages");
+        service.savePage(createPage(site, "foo", "Foo Page"));
+        service.savePage(createPage(site, "foo2", "Other Foo"));
+        service.savePage(createPage(site, "bar", "Bar"));
+        sync(true);
+        assertEquals(Arrays.asList("bar", "foo", "foo2", "juu"), findPages(0, 10, null, null));
+        assertEquals(Arrays.asList("foo", "foo2"), findPages(0, 10, null, "foo"));
+        assertEquals(Arrays.asList("foo", "foo2"), findPages(0, 10, "FO", null));
+        assertEquals(Arrays.asList("foo2"), findPages(0, 10, "foo", "other"));
+        assertEquals(Arrays.asList("foo", "foo2"), findPages(1, 2, null, null));
+        assertEquals(Collections.emptyList(), findPages(4, 10, null, null));
+        assertEquals(Collections.emptyList(), findPages(0, 10, null, "juuu bar"));
+
+        //
+        PageContext bar = service.loadPage(site.page("bar"));
+        bar.setState(bar.getState().builder().displayName("Juuu Bar").build());
+        service.savePage(bar);
+        service.clone(site.page("foo"), site.page("clone"));
+        service.destroyPage(site.page("foo2"));
+        sync(true);
+        assertEquals(Arrays.asList("bar", "juu"), findPages(0, 10, null, "juuu"));
+        assertEquals(Arrays.asList("bar", "clone", "foo", "juu"), findPages(0, 10, null, null));
+        assertEquals(Arrays.asList("clone", "foo"), findPages(0, 10, null, "foo page"));
+
+        // Rebuilt after clear
+        service.clearCache();
+        assertEquals(Arrays.asList("bar", "clone", "foo", "juu"), findPages(0, 10, null, null));
+    }
+
+    private boolean isIndexed(PageKey key) {
+        for (Iterator<PageKey> i = service.index.find(new PageIndex.Query(null, null, null, null)); i.hasNext();) {
+            if (i.next().equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void testIndexUpdatedOnSave() throws Exception {
+        mgr.getPOMService().getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "index_updated_on_save").getRootPage()
+                .addChild("pages");
+        sync(true);
+        SiteKey site = SiteKey.portal("index_updated_on_save");
+        assertEquals(0, service.findPages(0, 10, SiteType.PORTAL, site.getName(), null, null).getSize());
+
+        // The index is updated once the session is saved
+        service.savePage(createPage(site, "saved", "Saved"));
+        assertFalse(isIndexed(site.page("saved")));
+        sync(true);
+        assertTrue(isIndexed(site.page("saved")));
+
+        // Discarded changes never reach the index
+        service.savePage(createPage(site, "discarded", "Discarded"));
+        service.destroyPage(site.page("saved"));
+        sync(false);
+        assertFalse(isIndexed(site.page("discarded")));
+        assertTrue(isIndexed(site.page("saved")));
+
+        //
+        service.destroyPage(site.page("saved"));
+        sync(true);
+        assertFalse(isIndexed(site.page("saved")));
+    }
+
+    public void testFindQueried() throws Exception {
+        service.indexed = false;
+        Page pages = mgr.getPOMService().getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "find_queried_pages")
+                .getRootPage().addChild("pages");
+        pages.addChild("foo").adapt(Described.class).setName("Foo Page");
+        pages.addChild("foo2").adapt(Described.class).setName("Other Foo");
+        pages.addChild("bar").adapt(Described.class).setName("Bar");
+        sync(true);
+
+        // The pages written without the page service are found by the query
+        assertEquals(3, service.findPages(0, 10, SiteType.PORTAL, "find_queried_pages", null, null).getSize());
+        assertEquals(2, service.findPages(0, 10, SiteType.PORTAL, "find_queried_pages", null, "foo").getSize());
+        assertEquals(2, service.findPages(0, 10, SiteType.PORTAL, "find_queried_pages", "FO", null).getSize());
+        assertEquals(1, service.findPages(1, 10, SiteType.PORTAL, "find_queried_pages", "foo", null).getSize());
+        assertEquals(1, service.findPages(0, 10, SiteType.PORTAL, "find_queried_pages", "foo", "other").getSize());
+        assertEquals(0, service.findPages(0, 10, SiteType.PORTAL, "find_queried_pages", "baz", null).getSize());
+
+        // The index is not maintained
+        service.savePage(createPage(SiteKey.portal("find_queried_pages"), "juu", "Juu"));
+        sync(true);
+        assertFalse(isIndexed(SiteKey.portal("find_queried_pages").page("juu")));
+        assertEquals(4, service.findPages(0, 10, SiteType.PORTAL, "find_queried_pages", null, null).getSize());
+    }
+
     public void testClone() throws Exception {
         Page foo = mgr.getPOMService().getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "clone_page").getRootPage()
                 .addChild("pages").addChild("foo");
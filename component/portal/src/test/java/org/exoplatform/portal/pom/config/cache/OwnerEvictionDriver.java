@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.pom.config.cache;
+
+import java.io.Serializable;
+
+import org.exoplatform.commons.scope.ScopedKey;
+import org.exoplatform.portal.pom.data.OwnerKey;
+import org.exoplatform.portal.pom.data.PageKey;
+import org.exoplatform.portal.pom.data.PortalKey;
+import org.exoplatform.services.cache.CachedObjectSelector;
+import org.exoplatform.services.cache.ExoCache;
+import org.exoplatform.services.cache.ObjectCacheInfo;
+import org.exoplatform.services.cache.concurrent.ConcurrentFIFOExoCache;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+
+/**
+ * Measures the eviction of a site from a cache holding the entries of many sites, either with the owner index or by
+ * selecting the entries of the site among all the cache entries. The evicted entries are put back after each eviction so
+ * the cache keeps the same size. The number of sites and of pages per site are parameters of the test case.
+ */
+public class OwnerEvictionDriver extends JapexDriverBase {
+
+    /** . */
+    private boolean indexed;
+
+    /** . */
+    private ExoCache<ScopedKey<?>, Object> cache;
+
+    /** . */
+    private OwnerKeyIndex index;
+
+    /** . */
+    private int sites;
+
+    /** . */
+    private int pages;
+
+    /** . */
+    private int next;
+
+    @Override
+    public void initializeDriver() {
+        indexed = getBooleanParam("indexed");
+    }
+
+    @Override
+    public void prepare(TestCase testCase) {
+        sites = testCase.getIntParam("sites");
+        pages = testCase.getIntParam("pages");
+        cache = new ConcurrentFIFOExoCache<ScopedKey<?>, Object>(2 * sites * (pages + 1));
+        index = new OwnerKeyIndex();
+        if (indexed) {
+            cache.addCacheListener(index);
+        }
+        for (int i = 0; i < sites; i++) {
+            put("site" + i);
+        }
+        next = 0;
+    }
+
+    private void put(String site) {
+        cache.put(ScopedKey.create("repo", new PortalKey("portal", site)), site);
+        for (int j = 0; j < pages; j++) {
+            cache.put(ScopedKey.create("repo", new PageKey("portal", site, "page" + j)), site);
+        }
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        String site = "site" + (next++ % sites);
+        final PortalKey portalKey = new PortalKey("portal", site);
+        if (indexed) {
+            for (ScopedKey<?> key : index.removeOwner(ScopedKey.create("repo", portalKey))) {
+                cache.remove(key);
+            }
+        } else {
+            try {
+                cache.select(new CachedObjectSelector<ScopedKey<?>, Object>() {
+                    public boolean select(ScopedKey<?> key, ObjectCacheInfo<?> ocinfo) {
+                        Serializable localKey = key.getKey();
+                        if (localKey instanceof OwnerKey) {
+                            OwnerKey ownerKey = (OwnerKey) localKey;
+                            return ownerKey.getType().equals(portalKey.getType()) && ownerKey.getId().equals(portalKey.getId());
+                        }
+                        return false;
+                    }
+
+                    public void onSelect(ExoCache<? extends ScopedKey<?>, ?> exoCache, ScopedKey<?> key,
+                            ObjectCacheInfo<?> ocinfo) throws Exception {
+                        cache.remove(key);
+                    }
+                });
+            } catch (Exception e) {
+                AssertionError afe = new AssertionError("Could not select the entries of " + site);
+                afe.initCause(e);
+                throw afe;
+            }
+        }
+        put(site);
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        cache = null;
+        index = null;
+    }
+}
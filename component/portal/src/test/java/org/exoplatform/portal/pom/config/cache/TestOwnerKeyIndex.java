@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.portal.pom.config.cache;
+
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.exoplatform.commons.scope.ScopedKey;
+import org.exoplatform.portal.pom.data.NavigationKey;
+import org.exoplatform.portal.pom.data.PageKey;
+import org.exoplatform.portal.pom.data.PortalKey;
+
+public class TestOwnerKeyIndex extends TestCase {
+
+    public void testAddRemove() throws Exception {
+        OwnerKeyIndex index = new OwnerKeyIndex();
+        ScopedKey<PortalKey> owner = ScopedKey.create("repo", new PortalKey("portal", "classic"));
+        ScopedKey<PortalKey> portal = ScopedKey.create("repo", new PortalKey("portal", "classic"));
+        ScopedKey<PageKey> page = ScopedKey.create("repo", new PageKey("portal", "classic", "home"));
+        ScopedKey<NavigationKey> nav = ScopedKey.create("repo", new NavigationKey("portal", "classic"));
+
+        //
+        index.onPut(null, portal, null);
+        index.onPut(null, page, null);
+        index.onPut(null, nav, null);
+        index.onPut(null, ScopedKey.create("repo", "not_owned"), null);
+        assertEquals(3, index.getSize(owner));
+
+        //
+        index.onExpire(null, page, null);
+        assertEquals(2, index.getSize(owner));
+        index.onRemove(null, nav, null);
+        assertEquals(1, index.getSize(owner));
+        index.onRemove(null, portal, null);
+        assertEquals(0, index.getSize(owner));
+    }
+
+    public void testScope() throws Exception {
+        OwnerKeyIndex index = new OwnerKeyIndex();
+        index.add(ScopedKey.create("repo1", new PageKey("portal", "classic", "home")));
+        index.add(ScopedKey.create("repo2", new PageKey("portal", "classic", "home")));
+        assertEquals(1, index.getSize(ScopedKey.create("repo1", new PortalKey("portal", "classic"))));
+        assertEquals(1, index.getSize(ScopedKey.create("repo2", new PortalKey("portal", "classic"))));
+        index.onClearCache(null);
+        assertEquals(0, index.getSize(ScopedKey.create("repo1", new PortalKey("portal", "classic"))));
+        assertEquals(0, index.getSize(ScopedKey.create("repo2", new PortalKey("portal", "classic"))));
+    }
+
+    public void testRemoveOwner() throws Exception {
+        OwnerKeyIndex index = new OwnerKeyIndex();
+        populate(index, 10, 5);
+        ScopedKey<PortalKey> owner = ScopedKey.create("repo", new PortalKey("portal", "site3"));
+        List<ScopedKey<?>> keys = index.removeOwner(owner);
+        assertEquals(6, keys.size());
+        assertEquals(6, new HashSet<ScopedKey<?>>(keys).size());
+        for (ScopedKey<?> key : keys) {
+            assertEquals(owner, OwnerKeyIndex.getOwner(key));
+        }
+        assertEquals(0, index.getSize(owner));
+        assertEquals(6, index.getSize(ScopedKey.create("repo", new PortalKey("portal", "site4"))));
+        assertTrue(index.removeOwner(owner).isEmpty());
+    }
+
+    public void testEvictionOnlyVisitsTheSite() throws Exception {
+        int[] sizes = { 100, 1000, 10000 };
+        for (int size : sizes) {
+            OwnerKeyIndex index = new OwnerKeyIndex();
+            populate(index, size, 10);
+
+            // Evicting a site yields exactly its own keys whatever the number of sites
+            for (int j = 0; j < 100; j++) {
+                ScopedKey<PortalKey> owner = ScopedKey.create("repo", new PortalKey("portal", "site" + j));
+                List<ScopedKey<?>> keys = index.removeOwner(owner);
+                assertEquals(11, keys.size());
+                for (ScopedKey<?> key : keys) {
+                    assertEquals(owner, OwnerKeyIndex.getOwner(key));
+                }
+            }
+
+            // The other sites are left untouched
+            for (int j = 100; j < size; j++) {
+                assertEquals(11, index.getSize(ScopedKey.create("repo", new PortalKey("portal", "site" + j))));
+            }
+        }
+    }
+
+    private void populate(OwnerKeyIndex index, int sites, int pages) {
+        for (int i = 0; i < sites; i++) {
+            String site = "site" + i;
+            index.add(ScopedKey.create("repo", new PortalKey("portal", site)));
+            for (int j = 0; j < pages; j++) {
+                index.add(ScopedKey.create("repo", new PageKey("portal", site, "page" + j)));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.tree.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+
+/**
+ * Measures the diff of two lists of names. The maximum matrix size is a parameter of the driver, the size of the lists and
+ * the number of edits of the second list are parameters of the test case, when the number of edits is negative the
+ * lists have no name in common.
+ */
+public class ListDiffDriver extends JapexDriverBase {
+
+    /** . */
+    private ListDiff<String[], String[], String> diff;
+
+    /** . */
+    private String[] elements1;
+
+    /** . */
+    private String[] elements2;
+
+    @Override
+    public void initializeDriver() {
+        diff = new ListDiff<String[], String[], String>(Adapters.<String> list(), Adapters.<String> list());
+        diff.maxMatrixSize = getIntParam("maxMatrixSize");
+    }
+
+    @Override
+    public void prepare(TestCase testCase) {
+        Random random = new Random(0);
+        int size = testCase.getIntParam("size");
+        int edits = testCase.getIntParam("edits");
+        elements1 = names(random, size);
+        if (edits < 0) {
+            elements2 = names(random, size);
+        } else {
+            List<String> edited = new ArrayList<String>(Arrays.asList(elements1));
+            for (int i = 0; i < edits; i++) {
+                int index = random.nextInt(edited.size());
+                switch (i % 3) {
+                    case 0:
+                        edited.add(index, "added" + i);
+                        break;
+                    case 1:
+                        edited.remove(index);
+                        break;
+                    default:
+                        edited.add(random.nextInt(edited.size()), edited.remove(index));
+                        break;
+                }
+            }
+            elements2 = edited.toArray(new String[edited.size()]);
+        }
+    }
+
+    private static String[] names(Random random, int size) {
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = "node" + random.nextInt(1000000);
+        }
+        return names;
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        for (ListChangeIterator<String[], String[], String> it = diff.iterator(elements1, elements2); it.hasNext();) {
+            it.next();
+        }
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        elements1 = null;
+        elements2 = null;
+    }
+
+    @Override
+    public void terminateDriver() {
+        diff = null;
+    }
+}
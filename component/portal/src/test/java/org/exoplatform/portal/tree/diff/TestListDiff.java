@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.tree.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestListDiff extends TestCase {
+
+    private static String[] list(String s) {
+        String[] list = new String[s.length()];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = String.valueOf(s.charAt(i));
+        }
+        return list;
+    }
+
+    private static String[] random(Random random, int size, int alphabet) {
+        String[] list = new String[size];
+        for (int i = 0; i < size; i++) {
+            list[i] = String.valueOf((char) ('a' + random.nextInt(alphabet)));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the changes as a list of type, element and indexes.
+     */
+    private static List<String> changes(String[] elements1, String[] elements2, int maxMatrixSize) {
+        ListDiff<String[], String[], String> diff = new ListDiff<String[], String[], String>(Adapters.<String> list(),
+                Adapters.<String> list());
+        diff.maxMatrixSize = maxMatrixSize;
+        List<String> changes = new ArrayList<String>();
+        for (ListChangeIterator<String[], String[], String> it = diff.iterator(elements1, elements2); it.hasNext();) {
+            ListChangeType type = it.next();
+            changes.add(type + " " + it.getElement() + " " + it.getIndex1() + " " + it.getIndex2());
+        }
+        return changes;
+    }
+
+    /**
+     * Asserts the changes computed without the LCS matrix are the changes walked from the LCS matrix.
+     */
+    private static void assertSameChanges(String[] elements1, String[] elements2) {
+        List<String> expected = changes(elements1, elements2, Integer.MAX_VALUE);
+        assertValidChanges("Changes of " + Arrays.asList(elements1) + " " + Arrays.asList(elements2), elements1, elements2,
+                expected);
+        for (int maxMatrixSize : new int[] { 0, 4, 17, 64, ListDiff.DEFAULT_MAX_MATRIX_SIZE }) {
+            String message = "Changes of " + Arrays.asList(elements1) + " " + Arrays.asList(elements2) + " with "
+                    + maxMatrixSize;
+            assertEquals(message, expected, changes(elements1, elements2, maxMatrixSize));
+        }
+    }
+
+    private static void assertValidChanges(String message, String[] elements1, String[] elements2, List<String> changes) {
+        int index1 = 0;
+        int index2 = 0;
+        for (String change : changes) {
+            String[] parts = change.split(" ");
+            ListChangeType type = ListChangeType.valueOf(parts[0]);
+            if (type == ListChangeType.SAME) {
+                assertEquals(message, elements1[index1++], parts[1]);
+                assertEquals(message, elements2[index2++], parts[1]);
+            } else if (type == ListChangeType.ADD) {
+                assertEquals(message, elements2[index2++], parts[1]);
+            } else {
+                assertEquals(message, elements1[index1++], parts[1]);
+            }
+            assertEquals(message, index1, Integer.parseInt(parts[2]));
+            assertEquals(message, index2, Integer.parseInt(parts[3]));
+        }
+        assertEquals(message, elements1.length, index1);
+        assertEquals(message, elements2.length, index2);
+    }
+
+    private static int count(List<String> changes, ListChangeType type) {
+        int count = 0;
+        for (String change : changes) {
+            if (change.startsWith(type + " ")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Asserts the changes walked from the LCS matrix and checks the changes computed without the matrix are the
+     * same.
+     */
+    private static void assertChanges(String s1, String s2, String expected) {
+        StringBuilder sb = new StringBuilder();
+        ListDiff<String[], String[], String> diff = new ListDiff<String[], String[], String>(Adapters.<String> list(),
+                Adapters.<String> list());
+        for (ListChangeIterator<String[], String[], String> it = diff.iterator(list(s1), list(s2)); it.hasNext();) {
+            switch (it.next()) {
+                case SAME:
+                    sb.append('=');
+                    break;
+                case ADD:
+                    sb.append('+');
+                    break;
+                case REMOVE:
+                    sb.append('-');
+                    break;
+            }
+            sb.append(it.getElement());
+        }
+        assertEquals(expected, sb.toString());
+        assertSameChanges(list(s1), list(s2));
+    }
+
+    public void testChanges() {
+        assertChanges("", "", "");
+        assertChanges("abc", "abc", "=a=b=c");
+        assertChanges("abc", "", "-a-b-c");
+        assertChanges("", "abc", "+a+b+c");
+        assertChanges("abc", "acb", "=a+c=b-c");
+        assertChanges("abc", "bca", "-a=b=c+a");
+        assertChanges("abcd", "xbcy", "+x-a=b=c+y-d");
+    }
+
+    public void testRandom() {
+        Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            int alphabet = 1 + random.nextInt(8);
+            String[] elements1 = random(random, random.nextInt(24), alphabet);
+            String[] elements2 = random(random, random.nextInt(24), alphabet);
+            assertSameChanges(elements1, elements2);
+        }
+    }
+
+    public void testRandomEdits() {
+        Random random = new Random(0);
+        for (int i = 0; i < 200; i++) {
+            String[] elements1 = random(random, 100 + random.nextInt(100), 26);
+            List<String> edited = new ArrayList<String>(Arrays.asList(elements1));
+            for (int j = random.nextInt(10); j >= 0; j--) {
+                int index = random.nextInt(edited.size());
+                switch (random.nextInt(3)) {
+                    case 0:
+                        edited.remove(index);
+                        break;
+                    case 1:
+                        edited.add(index, String.valueOf((char) ('A' + random.nextInt(26))));
+                        break;
+                    default:
+                        edited.add(random.nextInt(edited.size()), edited.remove(index));
+                        break;
+                }
+            }
+            assertSameChanges(elements1, edited.toArray(new String[edited.size()]));
+        }
+    }
+
+    public void testLarge() {
+        Random random = new Random(0);
+        String[] elements1 = random(random, 2000, 26);
+        String[] elements2 = elements1.clone();
+        elements2[0] = "z";
+        elements2[1000] = "z";
+        List<String> expected = changes(elements1, elements2, Integer.MAX_VALUE);
+        assertValidChanges("Large changes", elements1, elements2, expected);
+        assertEquals(expected, changes(elements1, elements2, ListDiff.DEFAULT_MAX_MATRIX_SIZE));
+    }
+
+    public void testFewChanges() {
+        Random random = new Random(0);
+        String[] elements1 = random(random, 100000, 26);
+        List<String> edited = new ArrayList<String>(Arrays.asList(elements1));
+        edited.remove(90000);
+        edited.add(50000, "A");
+        edited.remove(10);
+        String[] elements2 = edited.toArray(new String[edited.size()]);
+
+        // The matrix would have 10^10 cells
+        List<String> changes = changes(elements1, elements2, ListDiff.DEFAULT_MAX_MATRIX_SIZE);
+        assertValidChanges("Few changes", elements1, elements2, changes);
+        assertEquals(elements1.length - 2, count(changes, ListChangeType.SAME));
+        assertEquals(1, count(changes, ListChangeType.ADD));
+        assertEquals(2, count(changes, ListChangeType.REMOVE));
+    }
+}
@@ -33,6 +33,7 @@ import java.util.ResourceBundle;
 
 import org.exoplatform.commons.cache.future.FutureCache;
 import org.exoplatform.commons.cache.future.FutureExoCache;
+import org.exoplatform.commons.cache.future.RefreshPolicy;
 import org.exoplatform.commons.cache.future.Loader;
 import org.exoplatform.commons.utils.IOUtil;
 import org.exoplatform.commons.utils.MapResourceBundle;
@@ -399,7 +400,8 @@ public abstract class BaseResourceBundleService implements ResourceBundleService
         if (futureCache_ == null) {
             synchronized (this) {
                 if (futureCache_ == null) {
-                    futureCache_ = new FutureExoCache<String, ResourceBundle, ResourceBundleContext>(loader_, cache_);
+                    futureCache_ = new FutureExoCache<String, ResourceBundle, ResourceBundleContext>(loader_, cache_,
+                            RefreshPolicy.fromProperties("gatein.resource.bundle.cache"));
                 }
             }
         }
@@ -25,11 +25,16 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.tools.GroovyClass;
 
 import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyCodeSource;
@@ -151,7 +156,13 @@ public class GroovyScriptBuilder {
         this.currentType = null;
     }
 
-    public GroovyScript build() throws TemplateCompilationException {
+    /**
+     * Generate the Groovy text of the template.
+     *
+     * @return the Groovy text
+     * @throws TemplateCompilationException when the template cannot be parsed
+     */
+    private String generate() throws TemplateCompilationException {
         List<TemplateSection> sections = new TemplateParser().parse(templateText);
 
         //
@@ -164,7 +175,11 @@ public class GroovyScriptBuilder {
         }
 
         //
-        String groovyText = script.toString();
+        return script.toString();
+    }
+
+    public GroovyScript build() throws TemplateCompilationException {
+        String groovyText = generate();
 
         //
         CompilerConfiguration config = new CompilerConfiguration();
@@ -195,7 +210,38 @@ public class GroovyScriptBuilder {
                 Collections.unmodifiableMap(new HashMap<Integer, TextItem>(script.positionTable)));
     }
 
-    private ClassLoader prepareClassLoader() {
+    /**
+     * Compile the template to class bytes instead of loading the classes.
+     *
+     * @return the precompiled template
+     * @throws TemplateCompilationException when the template cannot be compiled
+     */
+    public PrecompiledTemplate precompile() throws TemplateCompilationException {
+        String groovyText = generate();
+
+        //
+        CompilerConfiguration config = new CompilerConfiguration();
+        config.setScriptBaseClass(BaseScript.class.getName());
+        GroovyClassLoader loader = new GroovyClassLoader(prepareClassLoader(), config);
+        CompilationUnit unit = new CompilationUnit(config, null, loader);
+        unit.addSource(new SourceUnit(templateName, groovyText, config, loader, unit.getErrorCollector()));
+        try {
+            unit.compile(Phases.CLASS_GENERATION);
+        } catch (CompilationFailedException e) {
+            throw new GroovyCompilationException(e, templateText, groovyText);
+        }
+
+        //
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        for (Object o : unit.getClasses()) {
+            GroovyClass groovyClass = (GroovyClass) o;
+            classes.put(groovyClass.getName(), groovyClass.getBytes());
+        }
+        return new PrecompiledTemplate(PrecompiledTemplate.checksum(templateText), groovyText,
+                new HashMap<Integer, TextItem>(script.positionTable), classes);
+    }
+
+    static ClassLoader prepareClassLoader() {
         final ClassLoader tccl = SecurityHelper.doPrivilegedAction(new PrivilegedAction<ClassLoader>() {
             public ClassLoader run() {
                 return Thread.currentThread().getContextClassLoader();
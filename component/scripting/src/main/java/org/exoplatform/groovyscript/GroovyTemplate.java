@@ -63,20 +63,28 @@ public class GroovyTemplate {
     }
 
     public GroovyTemplate(String templateId, String templateName, String templateText) throws TemplateCompilationException {
-        if (templateName == null) {
-            templateName = "fic";
-        } else {
-            templateName = templateName.replaceAll("-", "_");
-        }
-
-        //
-        GroovyScriptBuilder compiler = new GroovyScriptBuilder(templateId, templateName, templateText);
+        GroovyScriptBuilder compiler = new GroovyScriptBuilder(templateId, getScriptName(templateName), templateText);
 
         //
         this.script = compiler.build();
         this.templateText = templateText;
     }
 
+    public GroovyTemplate(String templateText, GroovyScript script) {
+        this.script = script;
+        this.templateText = templateText;
+    }
+
+    /**
+     * Returns the name of the Groovy script of a template.
+     *
+     * @param templateName the template name
+     * @return the script name
+     */
+    static String getScriptName(String templateName) {
+        return templateName == null ? "fic" : templateName.replaceAll("-", "_");
+    }
+
     public String getId() {
         return script.getTemplateId();
     }
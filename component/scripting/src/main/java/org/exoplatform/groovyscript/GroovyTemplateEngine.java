@@ -26,4 +26,9 @@ public class GroovyTemplateEngine {
     public GroovyTemplate createTemplate(String id, String name, String text) throws TemplateCompilationException {
         return new GroovyTemplate(id, name, text);
     }
+
+    public GroovyTemplate createTemplate(String id, String text, PrecompiledTemplate precompiled)
+            throws TemplateCompilationException {
+        return new GroovyTemplate(text, precompiled.load(id));
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.groovyscript;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import groovy.lang.GroovySystem;
+
+/**
+ * <p>
+ * The compiled form of a template: the classes of its Groovy script and the line table used to report the template
+ * errors. A template is precompiled at build time by {@link TemplatePrecompiler} and the result is stored next to the
+ * template with the {@link #SUFFIX} suffix, so that the template service loads the classes instead of compiling the
+ * template.
+ * </p>
+ *
+ * <p>
+ * The checksum of the template text and the Groovy version are stored with the classes, a precompiled template is only
+ * used when it {@link #matches(String)} the current text of the template.
+ * </p>
+ */
+public class PrecompiledTemplate {
+
+    /** The suffix appended to the name of a template to obtain the name of its precompiled form. */
+    public static final String SUFFIX = ".compiled";
+
+    /** . */
+    private static final int VERSION = 1;
+
+    /**
+     * Precompile a template.
+     *
+     * @param templateName the template name
+     * @param templateText the template text
+     * @return the precompiled template
+     * @throws TemplateCompilationException when the template cannot be compiled
+     */
+    public static PrecompiledTemplate compile(String templateName, String templateText) throws TemplateCompilationException {
+        GroovyScriptBuilder builder = new GroovyScriptBuilder(null, GroovyTemplate.getScriptName(templateName), templateText);
+        return builder.precompile();
+    }
+
+    /**
+     * Read a precompiled template.
+     *
+     * @param in the input stream
+     * @return the precompiled template or null when it was written by an incompatible version
+     * @throws IOException any IO exception
+     */
+    public static PrecompiledTemplate read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != VERSION) {
+            return null;
+        }
+        String groovyVersion = data.readUTF();
+        String checksum = data.readUTF();
+        String groovyText = readString(data);
+        int size = data.readInt();
+        Map<Integer, TextItem> lineTable = new HashMap<Integer, TextItem>(size);
+        for (int i = 0; i < size; i++) {
+            int lineNumber = data.readInt();
+            int col = data.readInt();
+            int line = data.readInt();
+            lineTable.put(lineNumber, new TextItem(new Position(col, line), readString(data)));
+        }
+        size = data.readInt();
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>(size);
+        for (int i = 0; i < size; i++) {
+            String name = data.readUTF();
+            byte[] bytes = new byte[data.readInt()];
+            data.readFully(bytes);
+            classes.put(name, bytes);
+        }
+        return new PrecompiledTemplate(groovyVersion, checksum, groovyText, lineTable, classes);
+    }
+
+    /**
+     * Returns the checksum of a template text.
+     *
+     * @param templateText the template text
+     * @return the checksum
+     */
+    static String checksum(String templateText) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(templateText.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeString(DataOutputStream data, String s) throws IOException {
+        byte[] bytes = s.getBytes("UTF-8");
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    /** . */
+    private final String groovyVersion;
+
+    /** . */
+    private final String checksum;
+
+    /** . */
+    private final String groovyText;
+
+    /** . */
+    private final Map<Integer, TextItem> lineTable;
+
+    /** The class bytes by class name. */
+    private final Map<String, byte[]> classes;
+
+    PrecompiledTemplate(String groovyVersion, String checksum, String groovyText, Map<Integer, TextItem> lineTable,
+            Map<String, byte[]> classes) {
+        this.groovyVersion = groovyVersion;
+        this.checksum = checksum;
+        this.groovyText = groovyText;
+        this.lineTable = lineTable;
+        this.classes = classes;
+    }
+
+    PrecompiledTemplate(String checksum, String groovyText, Map<Integer, TextItem> lineTable, Map<String, byte[]> classes) {
+        this(GroovySystem.getVersion(), checksum, groovyText, lineTable, classes);
+    }
+
+    /**
+     * Returns true when the template was compiled from the specified text with the current Groovy version.
+     *
+     * @param templateText the current template text
+     * @return true when the precompiled template can be used
+     */
+    public boolean matches(String templateText) {
+        return groovyVersion.equals(GroovySystem.getVersion()) && checksum.equals(checksum(templateText));
+    }
+
+    /**
+     * Load the classes of the template.
+     *
+     * @param templateId the template id
+     * @return the script of the template
+     * @throws TemplateCompilationException when the classes cannot be loaded
+     */
+    public GroovyScript load(String templateId) throws TemplateCompilationException {
+        Loader loader = new Loader(GroovyScriptBuilder.prepareClassLoader(), classes);
+        Class<?> scriptClass = null;
+        try {
+            for (String name : classes.keySet()) {
+                Class<?> clazz = loader.loadClass(name);
+                if (BaseScript.class.isAssignableFrom(clazz)) {
+                    scriptClass = clazz;
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new TemplateCompilationException(e, null);
+        } catch (LinkageError e) {
+            throw new TemplateCompilationException(e, null);
+        }
+        if (scriptClass == null) {
+            throw new TemplateCompilationException(new ClassNotFoundException("No script class"), null);
+        }
+        return new GroovyScript(templateId, groovyText, scriptClass, Collections.unmodifiableMap(lineTable));
+    }
+
+    /**
+     * Write the precompiled template.
+     *
+     * @param out the output stream
+     * @throws IOException any IO exception
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(VERSION);
+        data.writeUTF(groovyVersion);
+        data.writeUTF(checksum);
+        writeString(data, groovyText);
+        data.writeInt(lineTable.size());
+        for (Map.Entry<Integer, TextItem> entry : lineTable.entrySet()) {
+            TextItem item = entry.getValue();
+            data.writeInt(entry.getKey());
+            data.writeInt(item.getPosition().getCol());
+            data.writeInt(item.getPosition().getLine());
+            writeString(data, item.getData());
+        }
+        data.writeInt(classes.size());
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            data.writeUTF(entry.getKey());
+            data.writeInt(entry.getValue().length);
+            data.write(entry.getValue());
+        }
+        data.flush();
+    }
+
+    /**
+     * Defines the classes of a template, they take precedence over the classes of the parent loader since the script
+     * classes of distinct templates have the same names.
+     */
+    private static class Loader extends ClassLoader {
+
+        /** . */
+        private final Map<String, byte[]> classes;
+
+        private Loader(ClassLoader parent, Map<String, byte[]> classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                return super.loadClass(name, resolve);
+            }
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                clazz = defineClass(name, bytes, 0, bytes.length);
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+}
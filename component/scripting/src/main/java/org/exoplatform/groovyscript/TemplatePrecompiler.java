@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.groovyscript;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.exoplatform.commons.utils.IOUtil;
+import org.gatein.common.io.IOTools;
+
+/**
+ * <p>
+ * Precompiles the templates of a directory at build time, it is executed with the source directory and the target
+ * directory as arguments. The precompiled form of each <code>.gtmpl</code> file is written at the same relative path in
+ * the target directory with the {@link PrecompiledTemplate#SUFFIX} suffix.
+ * </p>
+ *
+ * <p>
+ * A template that cannot be compiled, for instance when a class it uses is not on the build class path, is reported and
+ * skipped: it is then compiled at runtime as usual.
+ * </p>
+ */
+public class TemplatePrecompiler {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: TemplatePrecompiler <source directory> <target directory>");
+        }
+        File source = new File(args[0]);
+        File target = new File(args[1]);
+        if (!source.isDirectory()) {
+            System.out.println("No templates to precompile in " + source);
+            return;
+        }
+        TemplatePrecompiler precompiler = new TemplatePrecompiler();
+        precompiler.precompile(source, target);
+        System.out.println("Precompiled " + precompiler.compiled + " templates of " + source + ", " + precompiler.failed
+                + " failed");
+    }
+
+    /** . */
+    private int compiled;
+
+    /** . */
+    private int failed;
+
+    /**
+     * Precompile the templates of a directory and of its sub directories.
+     *
+     * @param source the source directory
+     * @param target the target directory
+     * @throws IOException any IO exception
+     */
+    public void precompile(File source, File target) throws IOException {
+        File[] files = source.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    precompile(file, new File(target, file.getName()));
+                } else if (file.getName().endsWith(".gtmpl")) {
+                    precompileTemplate(file, new File(target, file.getName() + PrecompiledTemplate.SUFFIX));
+                }
+            }
+        }
+    }
+
+    private void precompileTemplate(File file, File target) throws IOException {
+        String text;
+        InputStream in = new FileInputStream(file);
+        try {
+            // Decode the template as the template service does
+            text = new String(IOUtil.getStreamContentAsBytes(in));
+        } finally {
+            IOTools.safeClose(in);
+        }
+
+        //
+        PrecompiledTemplate template;
+        try {
+            template = PrecompiledTemplate.compile("/" + file.getName(), text);
+        } catch (TemplateCompilationException e) {
+            System.err.println("Could not precompile the template " + file + ": " + e.getCause());
+            failed++;
+            return;
+        }
+
+        //
+        target.getParentFile().mkdirs();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+        try {
+            template.write(out);
+        } finally {
+            IOTools.safeClose(out);
+        }
+        compiled++;
+    }
+}
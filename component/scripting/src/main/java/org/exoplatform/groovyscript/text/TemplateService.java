@@ -19,16 +19,20 @@
 
 package org.exoplatform.groovyscript.text;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Locale;
 
 import org.exoplatform.commons.cache.future.FutureCache;
 import org.exoplatform.commons.cache.future.FutureExoCache;
+import org.exoplatform.commons.cache.future.RefreshPolicy;
 import org.exoplatform.commons.cache.future.Loader;
 import org.exoplatform.commons.utils.IOUtil;
 import org.exoplatform.groovyscript.GroovyTemplate;
 import org.exoplatform.groovyscript.GroovyTemplateEngine;
+import org.exoplatform.groovyscript.PrecompiledTemplate;
+import org.exoplatform.groovyscript.TemplateCompilationException;
 import org.exoplatform.management.annotations.Impact;
 import org.exoplatform.management.annotations.ImpactType;
 import org.exoplatform.management.annotations.Managed;
@@ -87,6 +91,20 @@ public class TemplateService {
             // Julien: it's a bit dangerious here, with respect to the file encoding...
             String text = new String(bytes);
 
+            // Use the template precompiled at build time unless the template changed since
+            PrecompiledTemplate precompiled = getPrecompiledTemplate(context, key.getURL());
+            if (precompiled != null) {
+                if (precompiled.matches(text)) {
+                    try {
+                        return engine_.createTemplate(key.getURL(), text, precompiled);
+                    } catch (TemplateCompilationException e) {
+                        log.warn("Could not load the precompiled template " + key.getURL() + ", it will be compiled", e);
+                    }
+                } else if (log.isDebugEnabled()) {
+                    log.debug("The template " + key.getURL() + " changed since it was precompiled, it will be compiled");
+                }
+            }
+
             // Finally do the expensive template creation
             return engine_.createTemplate(key.getURL(), name, text);
         }
@@ -101,20 +119,21 @@ public class TemplateService {
         this.engine_ = new GroovyTemplateEngine();
         this.statisticService = statisticService;
         this.templatesCache_ = cservice.getCacheInstance(TemplateService.class.getSimpleName());
-        this.futureCache = new FutureExoCache<ResourceKey, GroovyTemplate, ResourceResolver>(loader, templatesCache_);
+        this.futureCache = new FutureExoCache<ResourceKey, GroovyTemplate, ResourceResolver>(loader, templatesCache_,
+                RefreshPolicy.fromProperties("gatein.templates.cache"));
     }
 
     public void merge(String name, BindingContext context) throws Exception {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         GroovyTemplate template = getTemplate(name, context.getResourceResolver());
         context.put("_ctx", context);
         context.setGroovyTemplateService(this);
         template.render(context.getWriter(), context, (Locale) context.get("locale"));
-        long endTime = System.currentTimeMillis();
+        long endTime = System.nanoTime();
 
         TemplateStatistic templateStatistic = statisticService.getTemplateStatistic(name);
-        templateStatistic.setTime(endTime - startTime);
+        templateStatistic.setTimeNanos(endTime - startTime);
         templateStatistic.setResolver(context.getResourceResolver());
     }
 
@@ -151,6 +170,27 @@ public class TemplateService {
         return template;
     }
 
+    private PrecompiledTemplate getPrecompiledTemplate(ResourceResolver resolver, String url) {
+        InputStream in;
+        try {
+            in = resolver.getInputStream(url + PrecompiledTemplate.SUFFIX);
+        } catch (Exception e) {
+            // The template is not precompiled
+            return null;
+        }
+        if (in == null) {
+            return null;
+        }
+        try {
+            return PrecompiledTemplate.read(in);
+        } catch (IOException e) {
+            log.warn("Could not read the precompiled template " + url, e);
+            return null;
+        } finally {
+            IOTools.safeClose(in);
+        }
+    }
+
     public final void invalidateTemplate(String name, ResourceResolver resolver) {
         ResourceKey resourceKey = resolver.createResourceKey(name);
         getTemplatesCache().remove(resourceKey);
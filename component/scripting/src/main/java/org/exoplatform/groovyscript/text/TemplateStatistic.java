@@ -19,6 +19,10 @@
 
 package org.exoplatform.groovyscript.text;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.exoplatform.commons.utils.LatencyHistogram;
 import org.exoplatform.resolver.ResourceResolver;
 import org.gatein.common.concurrent.AtomicPositiveLong;
 import org.gatein.common.concurrent.LongSampler;
@@ -29,8 +33,11 @@ import org.gatein.common.concurrent.LongSampler;
 
 public class TemplateStatistic {
 
+    // the times are recorded in microseconds
     private final LongSampler times = new LongSampler(1000);
 
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
     private String name;
 
     private final AtomicPositiveLong maxTime = new AtomicPositiveLong();
@@ -38,7 +45,7 @@ public class TemplateStatistic {
     private final AtomicPositiveLong minTime = new AtomicPositiveLong();
 
     // count variable, store number of request
-    private volatile long countRequest = 0;
+    private final AtomicLong countRequest = new AtomicLong();
 
     // resolver for name
     private ResourceResolver resolver;
@@ -48,42 +55,74 @@ public class TemplateStatistic {
     }
 
     public void setTime(long timeMillis) {
+        setTimeNanos(TimeUnit.MILLISECONDS.toNanos(timeMillis));
+    }
+
+    /**
+     * Log the time.
+     *
+     * @param timeNanos the time to log in nanoseconds
+     */
+    public void setTimeNanos(long timeNanos) {
+        long timeMicros = TimeUnit.NANOSECONDS.toMicros(timeNanos);
 
         //
-        times.add(timeMillis);
+        times.add(timeMicros);
+        histogram.record(timeMicros);
 
         // if time > max time then put a new max time value
-        maxTime.setIfGreater(timeMillis);
+        maxTime.setIfGreater(timeMicros);
 
         // generate first value for min time
-        minTime.setIfLower(timeMillis);
+        minTime.setIfLower(timeMicros);
 
         //
-        countRequest++;
+        countRequest.incrementAndGet();
     }
 
     public double getMaxTime() {
-        long maxTime = this.maxTime.get();
-        if (maxTime == -1) {
-            return -1;
-        }
-        return maxTime;
+        return LatencyHistogram.toMillis(maxTime.get());
     }
 
     public double getMinTime() {
-        long minTime = this.minTime.get();
-        if (minTime == -1) {
-            return -1;
-        }
-        return minTime;
+        return LatencyHistogram.toMillis(minTime.get());
     }
 
     public double getAverageTime() {
-        return times.average();
+        return LatencyHistogram.toMillis(times.average());
+    }
+
+    /**
+     * Returns the time at a percentile of the times logged during the last minutes.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the time in milliseconds or -1
+     */
+    public double getPercentileTime(double percentile) {
+        return getPercentileTimes(percentile)[0];
+    }
+
+    /**
+     * Returns the times at several percentiles of the times logged during the last minutes.
+     *
+     * @param percentiles the percentiles between 0 and 100
+     * @return the times in milliseconds or -1
+     */
+    public double[] getPercentileTimes(double... percentiles) {
+        return histogram.getMillisAtPercentiles(percentiles);
+    }
+
+    /**
+     * Returns the p50, p90, p99 and p999 times logged during the last minutes.
+     *
+     * @return the times in seconds formatted as <code>p50=0.012</code>
+     */
+    public String[] getPercentileSummary() {
+        return histogram.getPercentileSummary();
     }
 
     public long executionCount() {
-        return countRequest;
+        return countRequest.get();
     }
 
     public void setResolver(ResourceResolver resolver) {
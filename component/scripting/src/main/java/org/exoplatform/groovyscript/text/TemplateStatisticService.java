@@ -131,6 +131,30 @@ public class TemplateStatisticService {
         return toSeconds(app.getAverageTime());
     }
 
+    /*
+     * return the rendering time of a specified template at a percentile
+     */
+    @Managed
+    @ManagedDescription("The rendering time of a specified template at a percentile of the last minutes in seconds")
+    @Impact(ImpactType.READ)
+    public double getPercentileTime(@ManagedDescription("The template id") @ManagedName("templateId") String name,
+            @ManagedDescription("The percentile between 0 and 100") @ManagedName("percentile") double percentile) {
+        TemplateStatistic app = apps.get(name);
+        return toSeconds(app.getPercentileTime(percentile));
+    }
+
+    /*
+     * return the p50, p90, p99 and p999 rendering times of a specified template
+     */
+    @Managed
+    @ManagedDescription("The 50th, 90th, 99th and 99.9th percentiles of the rendering time of a specified template"
+            + " during the last minutes in seconds")
+    @Impact(ImpactType.READ)
+    public String[] getPercentileTimes(@ManagedDescription("The template id") @ManagedName("templateId") String name) {
+        TemplateStatistic app = apps.get(name);
+        return app.getPercentileSummary();
+    }
+
     /*
      * returns 10 slowest template
      */
@@ -18,7 +18,10 @@
  */
 package org.exoplatform.groovyscript;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
 
 import org.exoplatform.component.test.AbstractGateInTest;
 
@@ -37,4 +40,30 @@ public class TestGroovyTemplateEngine extends AbstractGateInTest {
             fail("Creating GroovyTemplate is failed ");
         }
     }
+
+    public void testPrecompiledTemplate() throws Exception {
+        String text = "a<%= foo %>b\n<% throw new RuntimeException(); %>";
+        PrecompiledTemplate precompiled = PrecompiledTemplate.compile("/file-lt.gtmpl", text);
+        assertTrue(precompiled.matches(text));
+        assertFalse(precompiled.matches(text + " "));
+
+        //
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        precompiled.write(out);
+        precompiled = PrecompiledTemplate.read(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(precompiled.matches(text));
+
+        //
+        GroovyTemplateEngine engine_ = new GroovyTemplateEngine();
+        GroovyTemplate template = engine_.createTemplate("/path/to/file-lt.gtmpl", text, precompiled);
+        assertEquals("/path/to/file-lt.gtmpl", template.getId());
+        assertEquals(text, template.getText());
+        try {
+            template.render(Collections.singletonMap("foo", "bar"));
+            fail();
+        } catch (TemplateRuntimeException e) {
+            assertEquals("throw new RuntimeException();", e.getText().trim());
+            assertEquals(2, (Object) e.getLineNumber());
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.groovyscript.text;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+import org.exoplatform.groovyscript.GroovyTemplate;
+import org.exoplatform.groovyscript.PrecompiledTemplate;
+import org.exoplatform.resolver.MockResourceResolver;
+import org.exoplatform.services.cache.CacheService;
+
+public class TestTemplateService extends AbstractGateInTest {
+
+    /** . */
+    private static final String URL = "war:/groovy/test.gtmpl";
+
+    /** . */
+    private static final String TEXT = "a<%= 1 + 1 %>b";
+
+    /** . */
+    private TemplateService service;
+
+    /** . */
+    private Map<String, URL> resources;
+
+    /** . */
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        // The template cache is bypassed by the tests
+        CacheService cacheService = (CacheService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { CacheService.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+        service = new TemplateService(new TemplateStatisticService(), cacheService);
+        resources = new HashMap<String, URL>();
+        dir = File.createTempFile("templates", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    public void testPrecompiled() throws Exception {
+        put(URL, TEXT.getBytes("UTF-8"));
+        put(URL + PrecompiledTemplate.SUFFIX, precompile(TEXT));
+        GroovyTemplate template = getTemplate();
+        assertEquals("precompiled", template.getClassName());
+        assertEquals("a2b", template.render());
+    }
+
+    public void testChangedSincePrecompiled() throws Exception {
+        put(URL, "a<%= 2 + 2 %>b".getBytes("UTF-8"));
+        put(URL + PrecompiledTemplate.SUFFIX, precompile(TEXT));
+        GroovyTemplate template = getTemplate();
+        assertFalse("precompiled".equals(template.getClassName()));
+        assertEquals("a4b", template.render());
+    }
+
+    public void testNotPrecompiled() throws Exception {
+        put(URL, TEXT.getBytes("UTF-8"));
+        GroovyTemplate template = getTemplate();
+        assertFalse("precompiled".equals(template.getClassName()));
+        assertEquals("a2b", template.render());
+    }
+
+    public void testCorruptedPrecompiled() throws Exception {
+        put(URL, TEXT.getBytes("UTF-8"));
+        put(URL + PrecompiledTemplate.SUFFIX, new byte[] { 0, 1, 2 });
+        GroovyTemplate template = getTemplate();
+        assertFalse("precompiled".equals(template.getClassName()));
+        assertEquals("a2b", template.render());
+    }
+
+    private GroovyTemplate getTemplate() throws Exception {
+        return service.getTemplate(URL, new MockResourceResolver(resources), false);
+    }
+
+    private static byte[] precompile(String text) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrecompiledTemplate.compile("precompiled", text).write(out);
+        return out.toByteArray();
+    }
+
+    private void put(String url, byte[] content) throws IOException {
+        File file = new File(dir, "resource" + resources.size());
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+        resources.put(url, file.toURI().toURL());
+    }
+}
@@ -68,6 +68,18 @@ public class ControllerContext {
         this.renderContext = new RenderContext();
     }
 
+    /**
+     * Creates a context for the same controller request with other servlet request and response objects, the context
+     * has its own render state so that it can render URLs concurrently with the original context.
+     *
+     * @param context the original context
+     * @param request the request
+     * @param response the response
+     */
+    public ControllerContext(ControllerContext context, HttpServletRequest request, HttpServletResponse response) {
+        this(context.controller, context.router, request, response, context.parameters);
+    }
+
     public WebAppController getController() {
         return controller;
     }
@@ -146,6 +146,12 @@ class Route {
     /** . */
     private Route[] children;
 
+    /** The children that can match a segment name, in the order of the children. */
+    private Map<String, Route[]> segmentChildren;
+
+    /** The children that can match a segment whose name is not in {@link #segmentChildren}. */
+    private Route[] anySegmentChildren;
+
     /** . */
     private Map<QualifiedName, RouteParam> routeParamMap;
 
@@ -163,6 +169,8 @@ class Route {
         this.parent = null;
         this.terminal = true;
         this.children = EMPTY_ROUTE_ARRAY;
+        this.segmentChildren = Collections.emptyMap();
+        this.anySegmentChildren = EMPTY_ROUTE_ARRAY;
         this.routeParamMap = Collections.emptyMap();
         this.routeParamArray = EMPTY_ROUTE_PARAM_ARRAY;
         this.requestParamMap = Collections.emptyMap();
@@ -422,7 +430,7 @@ class Route {
      * @return the route matcher
      */
     final RouteMatcher route(String path, Map<String, String[]> requestParams) {
-        return new RouteMatcher(this, Path.parse(path), requestParams);
+        return new RouteMatcher(this, Path.parse(path), requestParams, router.getMatchers());
     }
 
     static class RouteFrame {
@@ -458,6 +466,12 @@ class Route {
         /** The matches. */
         private Map<QualifiedName, String> matches;
 
+        /** The children that can match the first segment of the path. */
+        private Route[] candidates;
+
+        /** The end of the first segment of the path. */
+        private int segmentEnd;
+
         /**
          * The index when iterating child in
          * {@link org.exoplatform.web.controller.router.Route.RouteFrame.Status#PROCESS_CHILDREN} status.
@@ -507,15 +521,19 @@ class Route {
         /** . */
         private RouteFrame next;
 
-        RouteMatcher(Route route, Path path, Map<String, String[]> requestParams) {
+        /** . */
+        private final Regex.Matcher[] matchers;
+
+        RouteMatcher(Route route, Path path, Map<String, String[]> requestParams, Regex.Matcher[] matchers) {
             this.frame = new RouteFrame(route, path);
             this.requestParams = requestParams;
+            this.matchers = matchers;
         }
 
         public boolean hasNext() {
             if (next == null) {
                 if (frame != null) {
-                    frame = route(frame, requestParams);
+                    frame = route(frame, requestParams, matchers);
                 }
                 if (frame != null && frame.status == RouteFrame.Status.MATCHED) {
                     next = frame;
@@ -538,7 +556,7 @@ class Route {
         }
     }
 
-    private static RouteFrame route(RouteFrame root, Map<String, String[]> requestParams) {
+    private static RouteFrame route(RouteFrame root, Map<String, String[]> requestParams, Regex.Matcher[] matchers) {
         RouteFrame current = root;
 
         //
@@ -615,6 +633,17 @@ class Route {
                     if (current.path.length() == 1 && current.route.terminal) {
                         next = RouteFrame.Status.MATCHED;
                     } else {
+                        // Find the next '/' for determining the segment and the children that can match it
+                        int pos = current.path.indexOf('/', 1);
+                        if (pos == -1) {
+                            pos = current.path.length();
+                        }
+                        Route[] candidates = null;
+                        if (current.route.segmentChildren.size() > 0) {
+                            candidates = current.route.segmentChildren.get(current.path.getValue().substring(1, pos));
+                        }
+                        current.candidates = candidates != null ? candidates : current.route.anySegmentChildren;
+                        current.segmentEnd = pos;
                         next = RouteFrame.Status.PROCESS_CHILDREN;
                     }
                 } else {
@@ -624,8 +653,8 @@ class Route {
                 //
                 current.status = next;
             } else if (current.status == RouteFrame.Status.PROCESS_CHILDREN) {
-                if (current.childIndex < current.route.children.length) {
-                    Route child = current.route.children[current.childIndex++];
+                if (current.childIndex < current.candidates.length) {
+                    Route child = current.candidates[current.childIndex++];
 
                     // The next frame
                     RouteFrame next;
@@ -639,37 +668,27 @@ class Route {
                             // Delegate the process to the next route
                             next = new RouteFrame(current, segmentRoute, current.path);
                         } else {
-                            // Find the next '/' for determining the segment and next path
-                            // JULIEN : this can be computed multiple times
-                            int pos = current.path.indexOf('/', 1);
-                            if (pos == -1) {
-                                pos = current.path.length();
-                            }
-                            String segment = current.path.getValue().substring(1, pos);
-
-                            // Determine next path
-                            if (segmentRoute.name.equals(segment)) {
-                                // Lazy create next segment path
-                                // JULIEN : this can be computed multiple times
-                                Path nextSegmentPath;
-                                if (pos == current.path.length()) {
-                                    // todo make a constant
-                                    nextSegmentPath = Path.SLASH;
-                                } else {
-                                    nextSegmentPath = current.path.subPath(pos);
-                                }
-
-                                // Delegate the process to the next route
-                                next = new RouteFrame(current, segmentRoute, nextSegmentPath);
+                            // The candidates only contain the segment routes matching the segment
+                            int pos = current.segmentEnd;
+                            Path nextSegmentPath;
+                            if (pos == current.path.length()) {
+                                nextSegmentPath = Path.SLASH;
                             } else {
-                                next = null;
+                                nextSegmentPath = current.path.subPath(pos);
                             }
+
+                            // Delegate the process to the next route
+                            next = new RouteFrame(current, segmentRoute, nextSegmentPath);
                         }
                     } else if (child instanceof PatternRoute) {
                         PatternRoute patternRoute = (PatternRoute) child;
 
                         //
-                        Regex.Match[] matches = patternRoute.pattern.matcher().find(current.path.getValue());
+                        Regex.Matcher matcher = matchers[patternRoute.pattern.index];
+                        if (matcher == null) {
+                            matcher = matchers[patternRoute.pattern.index] = patternRoute.pattern.matcher();
+                        }
+                        Regex.Match[] matches = matcher.find(current.path.getValue());
 
                         // We match
                         if (matches.length > 0) {
@@ -781,6 +800,7 @@ class Route {
             children = Tools.appendTo(children, route);
             terminal = false;
             ((Route) route).parent = this;
+            compileChildren();
         } else {
             throw new IllegalArgumentException("Only accept segment or pattern routes");
         }
@@ -789,6 +809,37 @@ class Route {
         return route;
     }
 
+    /**
+     * Index the children by segment name, the children matching a segment are the segment routes with the same name or an
+     * empty name and the pattern routes. The children keep the declaration order so the routing priority is preserved and
+     * the segment routes of other names are never tried.
+     */
+    private void compileChildren() {
+        Map<String, Route[]> segmentChildren = new HashMap<String, Route[]>();
+        for (String name : getSegmentNames()) {
+            if (name.length() > 0) {
+                segmentChildren.put(name, getSegmentChildren(name));
+            }
+        }
+        this.segmentChildren = segmentChildren;
+        this.anySegmentChildren = getSegmentChildren(null);
+    }
+
+    private Route[] getSegmentChildren(String name) {
+        List<Route> routes = new ArrayList<Route>();
+        for (Route child : children) {
+            if (child instanceof PatternRoute) {
+                routes.add(child);
+            } else {
+                String childName = ((SegmentRoute) child).name;
+                if (childName.length() == 0 || childName.equals(name)) {
+                    routes.add(child);
+                }
+            }
+        }
+        return routes.toArray(new Route[routes.size()]);
+    }
+
     final Set<String> getSegmentNames() {
         Set<String> names = new HashSet<String>();
         for (Route child : children) {
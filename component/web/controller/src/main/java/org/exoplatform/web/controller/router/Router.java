@@ -79,6 +79,9 @@ public class Router {
     /** . */
     private Regex[] regexes;
 
+    /** The regex matchers reused by the routings of a thread. */
+    private final ThreadLocal<Regex.Matcher[]> matchers = new ThreadLocal<Regex.Matcher[]>();
+
     public Router(ControllerDescriptor metaData) throws RouterConfigException {
         this(metaData, RegexFactory.JAVA);
     }
@@ -121,6 +124,15 @@ public class Router {
         return regex;
     }
 
+    Regex.Matcher[] getMatchers() {
+        Regex.Matcher[] array = matchers.get();
+        if (array == null || array.length != regexes.length) {
+            array = new Regex.Matcher[regexes.length];
+            matchers.set(array);
+        }
+        return array;
+    }
+
     public void render(Map<QualifiedName, String> parameters, URIWriter writer) throws IOException {
         render(new RenderContext(parameters), writer);
     }
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.controller.performance;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.exoplatform.web.controller.QualifiedName;
+import org.exoplatform.web.controller.metadata.ControllerDescriptor;
+import org.exoplatform.web.controller.metadata.DescriptorBuilder;
+import org.exoplatform.web.controller.router.JRegexFactory;
+import org.exoplatform.web.controller.router.RegexFactory;
+import org.exoplatform.web.controller.router.Router;
+import org.json.JSONObject;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+
+/**
+ * Measures the routing of the path obtained by rendering the parameters of the test case.
+ */
+public class ControllerRouterDriver extends JapexDriverBase {
+
+    /** . */
+    private RegexFactory regexFactory;
+
+    /** . */
+    private Router router;
+
+    /** . */
+    private String path;
+
+    /** . */
+    private Map<String, String[]> queryParams;
+
+    @Override
+    public void initializeDriver() {
+        String regexFactoryName = getParam("regex");
+        if (regexFactoryName.equals("jregex")) {
+            regexFactory = JRegexFactory.INSTANCE;
+        } else if (regexFactoryName.equals("java")) {
+            regexFactory = RegexFactory.JAVA;
+        }
+    }
+
+    @Override
+    public void prepare(TestCase testCase) {
+        try {
+            URL url = ControllerRouterDriver.class.getResource("controller.xml");
+            DescriptorBuilder builder = new DescriptorBuilder();
+            ControllerDescriptor descriptor = builder.build(url.openStream());
+            Router router = descriptor.build(regexFactory);
+
+            //
+            Map<QualifiedName, String> input = new HashMap<QualifiedName, String>();
+            String parameters = testCase.getParam("parameters");
+            JSONObject o = new JSONObject(parameters);
+            for (Iterator<String> i = o.keys(); i.hasNext();) {
+                String key = i.next();
+                String value = (String) o.get(key);
+                input.put(QualifiedName.parse(key), value);
+            }
+
+            //
+            String path = router.render(input);
+            if (path == null) {
+                throw new Exception("Could not render " + input);
+            }
+
+            //
+            this.router = router;
+            this.path = path;
+            this.queryParams = Collections.emptyMap();
+        } catch (Exception e) {
+            AssertionError afe = new AssertionError("Could not load controller configuration");
+            afe.initCause(e);
+            throw afe;
+        }
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        router.route(path, queryParams);
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        this.router = null;
+        this.path = null;
+        this.queryParams = null;
+    }
+
+    @Override
+    public void terminateDriver() {
+    }
+}
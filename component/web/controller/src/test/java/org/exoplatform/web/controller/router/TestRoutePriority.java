@@ -22,6 +22,10 @@ package org.exoplatform.web.controller.router;
 import static org.exoplatform.web.controller.metadata.DescriptorBuilder.*;
 
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.exoplatform.web.controller.QualifiedName;
 
 
 /**
@@ -46,4 +50,24 @@ public class TestRoutePriority extends AbstractTestController {
         assertEquals("/foo", router.render(Collections.singletonMap(Names.FOO, "b")));
         assertEquals("/foo", router.render(Collections.singletonMap(Names.FOO, "foo")));
     }
+
+    public void testBacktrackAcrossExactMatching() throws Exception {
+
+        Router router = router().add(route("/a/b").with(routeParam("foo").withValue("1"))).add(route("/{foo}/c"))
+                .add(route("/a/c").with(routeParam("foo").withValue("2"))).build();
+
+        assertEquals(Collections.singletonMap(Names.FOO, "1"), router.route("/a/b"));
+        assertEquals(Collections.singletonMap(Names.FOO, "a"), router.route("/a/c"));
+        assertEquals(Collections.singletonMap(Names.FOO, "b"), router.route("/b/c"));
+        assertNull(router.route("/b/b"));
+
+        // All the matches are returned in the declaration order, routing meanwhile does not disturb the iteration
+        Iterator<Map<QualifiedName, String>> matcher = router.matcher("/a/c", Collections.<String, String[]> emptyMap());
+        assertTrue(matcher.hasNext());
+        assertEquals(Collections.singletonMap(Names.FOO, "a"), matcher.next());
+        assertEquals(Collections.singletonMap(Names.FOO, "b"), router.route("/b/c"));
+        assertTrue(matcher.hasNext());
+        assertEquals(Collections.singletonMap(Names.FOO, "2"), matcher.next());
+        assertFalse(matcher.hasNext());
+    }
 }
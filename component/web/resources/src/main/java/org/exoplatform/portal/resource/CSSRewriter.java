@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.resource;
+
+import java.io.IOException;
+
+import org.exoplatform.services.resources.Orientation;
+
+/**
+ * <p>
+ * Rewrites the lines of a stylesheet served by the {@link SkinService}, the rewriter performs in order:
+ * <ul>
+ * <li>the removal of the declarations marked for the opposite orientation by a <code>/* orientation=lt *&#47;</code> or
+ * <code>/* orientation=rt *&#47;</code> comment</li>
+ * <li>the resolution against the base path of the relative urls of the <code>background</code> and <code>src</code>
+ * declarations</li>
+ * <li>the replacement of the <code>@import url(...);</code> rules by the {@link #processImport} method</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * The rewriter scans the line by hand instead of matching regular expressions and it reuses its buffers from one line to
+ * another, a line that contains none of the rewritten constructs is copied as is. The output is the same as the one of
+ * the regular expressions it replaces, including the removal of the backslashes of the rewritten declarations and of the
+ * replaced imports.
+ * </p>
+ *
+ * <p>
+ * A rewriter is bound to a stylesheet and is not thread safe.
+ * </p>
+ */
+abstract class CSSRewriter {
+
+    /** . */
+    private final String basePath;
+
+    /** . */
+    private final String removedOrientation;
+
+    /** . */
+    private final StringBuilder oriented = new StringBuilder();
+
+    /** . */
+    private final StringBuilder background = new StringBuilder();
+
+    /** . */
+    private final StringBuilder src = new StringBuilder();
+
+    /** . */
+    private final StringBuilder declaration = new StringBuilder();
+
+    /** . */
+    private final StringBuilder url = new StringBuilder();
+
+    CSSRewriter(String basePath, Orientation orientation) {
+        this.basePath = basePath;
+        this.removedOrientation = orientation == Orientation.LT ? "rt" : "lt";
+    }
+
+    /**
+     * Process an import rule of the stylesheet.
+     *
+     * @param includedPath the path of the imported stylesheet resolved against the base path
+     * @param prefix the rule text that precedes the path, for instance <code>@import url('</code>
+     * @param suffix the rule text that follows the path, for instance <code>');</code>
+     * @param out the output
+     * @throws RenderingException any rendering exception
+     * @throws IOException any io exception
+     */
+    protected abstract void processImport(String includedPath, CharSequence prefix, CharSequence suffix, StringBuilder out)
+            throws RenderingException, IOException;
+
+    /**
+     * Rewrite a line of the stylesheet.
+     *
+     * @param line the line
+     * @param out the output
+     * @throws RenderingException any rendering exception
+     * @throws IOException any io exception
+     */
+    public void rewrite(String line, StringBuilder out) throws RenderingException, IOException {
+        CharSequence s = removeOrientation(line);
+        s = resolveURLs(s, "background", background);
+        s = resolveURLs(s, "src", src);
+        processImports(s, out);
+    }
+
+    private CharSequence removeOrientation(String line) {
+        if (line.indexOf("orientation=") == -1) {
+            return line;
+        }
+        StringBuilder out = oriented;
+        out.setLength(0);
+        int length = line.length();
+        int copied = 0;
+        int from = 0;
+        while (true) {
+            // The declaration starts at from and ends at the next semicolon unless a brace is found before
+            int end = from;
+            while (end < length && line.charAt(end) != ';' && line.charAt(end) != '{') {
+                end++;
+            }
+            if (end == length) {
+                break;
+            }
+            int next = line.charAt(end) == ';' ? matchOrientationComment(line, end + 1) : -1;
+            if (next != -1) {
+                out.append(line, copied, from);
+                copied = from = next;
+            } else {
+                from = end + 1;
+            }
+        }
+        out.append(line, copied, length);
+        return out;
+    }
+
+    /**
+     * Match <code>\s*&#47;\*\s*orientation=xx\s*\*&#47;</code> where xx is the removed orientation.
+     *
+     * @return the index following the comment or -1
+     */
+    private int matchOrientationComment(CharSequence s, int from) {
+        int i = skipWhitespaces(s, from);
+        if (!startsWith(s, "/*", i)) {
+            return -1;
+        }
+        i = skipWhitespaces(s, i + 2);
+        if (!startsWith(s, "orientation=", i) || !startsWith(s, removedOrientation, i + 12)) {
+            return -1;
+        }
+        i = skipWhitespaces(s, i + 14);
+        return startsWith(s, "*/", i) ? i + 2 : -1;
+    }
+
+    /**
+     * Resolve the relative urls of the declarations starting with the keyword and ending with a semicolon.
+     */
+    private CharSequence resolveURLs(CharSequence s, String keyword, StringBuilder out) {
+        int start = indexOf(s, keyword, 0);
+        if (start == -1) {
+            return s;
+        }
+        out.setLength(0);
+        int length = s.length();
+        int copied = 0;
+        while (start != -1) {
+            int next = start + keyword.length();
+            if (next < length && s.charAt(next) != ';') {
+                int end = indexOf(s, ";", next);
+                if (end == -1) {
+                    break;
+                }
+                out.append(s, copied, start);
+                resolveDeclaration(s, start, end + 1, out);
+                copied = end + 1;
+                start = indexOf(s, keyword, copied);
+            } else {
+                start = indexOf(s, keyword, start + 1);
+            }
+        }
+        out.append(s, copied, length);
+        return out;
+    }
+
+    private void resolveDeclaration(CharSequence s, int from, int to, StringBuilder out) {
+        StringBuilder tmp = declaration;
+        tmp.setLength(0);
+        int copied = from;
+        int start = indexOf(s, "url(", from);
+        while (start != -1 && start < to) {
+            int pathStart = start + 4;
+            if (pathStart < to && isQuote(s.charAt(pathStart))) {
+                pathStart++;
+            }
+            int pathEnd = pathStart;
+            while (pathEnd < to && !isQuote(s.charAt(pathEnd)) && s.charAt(pathEnd) != ';' && s.charAt(pathEnd) != ')') {
+                pathEnd++;
+            }
+            int end = pathEnd;
+            if (end < to && isQuote(s.charAt(end))) {
+                end++;
+            }
+            if (pathEnd > pathStart && end < to && s.charAt(end) == ')') {
+                end++;
+                if (s.charAt(pathStart) != '/') {
+                    url.setLength(0);
+                    url.append(s, start, pathStart).append(basePath).append(s, pathStart, end);
+                    tmp.append(s, copied, start);
+                    unescape(url, tmp);
+                    copied = end;
+                }
+                start = indexOf(s, "url(", end);
+            } else {
+                start = indexOf(s, "url(", start + 1);
+            }
+        }
+        tmp.append(s, copied, to);
+        unescape(tmp, out);
+    }
+
+    private void processImports(CharSequence s, StringBuilder out) throws RenderingException, IOException {
+        int start = indexOf(s, "@import", 0);
+        if (start == -1) {
+            out.append(s);
+            return;
+        }
+        int length = s.length();
+        int copied = 0;
+        while (start != -1) {
+            int end = -1;
+            int pathStart = -1;
+            int pathEnd = -1;
+
+            // @import\s+url\(['"]?
+            int i = skipWhitespaces(s, start + 7);
+            if (i > start + 7 && startsWith(s, "url(", i)) {
+                pathStart = i + 4;
+                if (pathStart < length && isQuote(s.charAt(pathStart))) {
+                    pathStart++;
+                }
+
+                // [^'";]+.css with backtracking from the longest path
+                int max = pathStart;
+                while (max < length && !isQuote(s.charAt(max)) && s.charAt(max) != ';') {
+                    max++;
+                }
+                for (int j = max; j > pathStart && end == -1; j--) {
+                    if (j < length && !isLineTerminator(s.charAt(j)) && startsWith(s, "css", j + 1)) {
+                        pathEnd = j + 4;
+                        end = matchImportEnd(s, pathEnd);
+                    }
+                }
+            }
+
+            //
+            if (end != -1) {
+                String includedPath = s.subSequence(pathStart, pathEnd).toString();
+                if (!includedPath.startsWith("/")) {
+                    includedPath = basePath + includedPath;
+                }
+                StringBuilder replacement = new StringBuilder();
+                processImport(includedPath, s.subSequence(start, pathStart), s.subSequence(pathEnd, end), replacement);
+                out.append(s, copied, start);
+                unescape(replacement, out);
+                copied = end;
+                start = indexOf(s, "@import", end);
+            } else {
+                start = indexOf(s, "@import", start + 1);
+            }
+        }
+        out.append(s, copied, length);
+    }
+
+    /**
+     * Match <code>['"]?\)\s*;</code>.
+     *
+     * @return the index following the semicolon or -1
+     */
+    private static int matchImportEnd(CharSequence s, int from) {
+        int i = from;
+        if (i < s.length() && isQuote(s.charAt(i))) {
+            i++;
+        }
+        if (i >= s.length() || s.charAt(i) != ')') {
+            return -1;
+        }
+        i = skipWhitespaces(s, i + 1);
+        return i < s.length() && s.charAt(i) == ';' ? i + 1 : -1;
+    }
+
+    /**
+     * Append a replacement the way {@link java.util.regex.Matcher#appendReplacement(StringBuffer, String)} does for the
+     * backslashes of a replacement string: a backslash is removed and the character that follows it is kept.
+     */
+    private static void unescape(CharSequence s, StringBuilder out) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                c = s.charAt(++i);
+            }
+            out.append(c);
+        }
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '\'' || c == '"';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static int skipWhitespaces(CharSequence s, int from) {
+        int i = from;
+        while (i < s.length() && isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean startsWith(CharSequence s, String prefix, int from) {
+        if (from + prefix.length() > s.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(from + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence s, String str, int from) {
+        int last = s.length() - str.length();
+        char first = str.charAt(0);
+        for (int i = from; i <= last; i++) {
+            if (s.charAt(i) == first && startsWith(s, str, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -73,6 +73,15 @@ public class CachedStylesheet {
         return lastModified;
     }
 
+    /**
+     * Returns the approximative memory footprint in bytes of the text and of the encoded bytes.
+     *
+     * @return the weight
+     */
+    public long getWeight() {
+        return text.length() * 2L + bytes.length;
+    }
+
     public void writeTo(BinaryOutput output) throws IOException {
         output.write(bytes);
     }
@@ -32,12 +32,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.servlet.ServletContext;
 
-import org.exoplatform.commons.cache.future.FutureMap;
+import org.exoplatform.commons.cache.future.BoundedFutureMap;
 import org.exoplatform.commons.cache.future.Loader;
 import org.exoplatform.commons.utils.BinaryOutput;
 import org.exoplatform.commons.utils.ByteArrayOutput;
@@ -76,27 +74,6 @@ public class SkinService extends AbstractResourceService implements Startable {
 
     protected static Log log = ExoLogger.getLogger("portal.SkinService");
 
-    private static final String LEFT_P = "\\(";
-
-    private static final String RIGHT_P = "\\)";
-
-    /** Immutable and therefore thread safe. */
-    private static final Pattern IMPORT_PATTERN = Pattern.compile("(@import\\s+" + "url" + LEFT_P + "['\"]?"
-            + ")([^'\";]+.css)(" + "['\"]?" + RIGHT_P + "\\s*;)");
-
-    /** Immutable and therefore thread safe. */
-    private static final Pattern BACKGROUND_PATTERN = Pattern.compile("(background[^;])+([^;]*;)");
-
-    private static final Pattern FONT_FACE_PATTERN = Pattern.compile("(src[^;])+([^;]*;)");
-
-    private static final Pattern URL_PATTERN = Pattern.compile("(url" + LEFT_P + "['\"]?)([^'\";" + RIGHT_P + "]+)(['\"]?\\))");
-
-    /** Immutable and therefore thread safe. */
-    private static final Pattern LT = Pattern.compile("[^{;]*;\\s*/\\*\\s*orientation=lt\\s*\\*/");
-
-    /** Immutable and therefore thread safe. */
-    private static final Pattern RT = Pattern.compile("[^{;]*;\\s*/\\*\\s*orientation=rt\\s*\\*/");
-
     public static final String DEFAULT_SKIN = "Default";
 
     /** The deployer. */
@@ -108,9 +85,9 @@ public class SkinService extends AbstractResourceService implements Startable {
 
     private final HashSet<String> availableSkins_;
 
-    private final FutureMap<String, CachedStylesheet, SkinContext> ltCache;
+    private final BoundedFutureMap<String, CachedStylesheet, SkinContext> ltCache;
 
-    private final FutureMap<String, CachedStylesheet, SkinContext> rtCache;
+    private final BoundedFutureMap<String, CachedStylesheet, SkinContext> rtCache;
 
     private final Map<String, Set<String>> portletThemes_;
 
@@ -127,6 +104,9 @@ public class SkinService extends AbstractResourceService implements Startable {
 
     private static final long MAX_AGE;
 
+    /** The maximum weight in bytes of each orientation stylesheet cache. */
+    private static final long CACHE_MAX_WEIGHT;
+
     static {
         long seconds = 86400;
         String propValue = PropertyManager.getProperty("gatein.assets.css.max-age");
@@ -139,6 +119,24 @@ public class SkinService extends AbstractResourceService implements Startable {
         }
 
         MAX_AGE = seconds;
+
+        long maxWeight = 32 * 1024 * 1024;
+        propValue = PropertyManager.getProperty("gatein.assets.css.cache.max-weight");
+        if (propValue != null) {
+            try {
+                maxWeight = Long.valueOf(propValue);
+            } catch (NumberFormatException e) {
+                log.warn("The gatein.assets.css.cache.max-weight property is not set properly.");
+            }
+        }
+
+        CACHE_MAX_WEIGHT = maxWeight;
+    }
+
+    static class StylesheetWeigher implements BoundedFutureMap.Weigher<String, CachedStylesheet> {
+        public long getWeight(String key, CachedStylesheet value) {
+            return key.length() * 2L + value.getWeight();
+        }
     }
 
     static class SkinContext {
@@ -160,7 +158,7 @@ public class SkinService extends AbstractResourceService implements Startable {
                     return null;
                 }
 
-                StringBuffer sb = new StringBuffer();
+                StringBuilder sb = new StringBuilder();
                 processCSSRecursively(context.controller, sb, true, skin, context.orientation);
                 String css = sb.toString();
                 try {
@@ -180,8 +178,9 @@ public class SkinService extends AbstractResourceService implements Startable {
         portalSkins_ = new LinkedHashMap<SkinKey, SkinConfig>();
         skinConfigs_ = new LinkedHashMap<SkinKey, SkinConfig>(20);
         availableSkins_ = new HashSet<String>(5);
-        ltCache = new FutureMap<String, CachedStylesheet, SkinContext>(loader);
-        rtCache = new FutureMap<String, CachedStylesheet, SkinContext>(loader);
+        StylesheetWeigher weigher = new StylesheetWeigher();
+        ltCache = new BoundedFutureMap<String, CachedStylesheet, SkinContext>(loader, weigher, CACHE_MAX_WEIGHT);
+        rtCache = new BoundedFutureMap<String, CachedStylesheet, SkinContext>(loader, weigher, CACHE_MAX_WEIGHT);
         portletThemes_ = new HashMap<String, Set<String>>();
         portalContainerName = context.getPortalContainerName();
         deployer = new GateInSkinConfigDeployer(portalContainerName, this);
@@ -457,7 +456,7 @@ public class SkinService extends AbstractResourceService implements Startable {
         // Check if it is running under developing mode
         String resource = "/" + context.getParameter(ResourceRequestHandler.RESOURCE_QN) + ".css";
         if (!compress) {
-            StringBuffer sb = new StringBuffer();
+            StringBuilder sb = new StringBuilder();
             Resource skin = getCSSResource(resource, resource);
             if (skin != null) {
                 processCSSRecursively(context, sb, false, skin, orientation);
@@ -466,7 +465,8 @@ public class SkinService extends AbstractResourceService implements Startable {
                 return true;
             }
         } else {
-            FutureMap<String, CachedStylesheet, SkinContext> cache = orientation == Orientation.LT ? ltCache : rtCache;
+            BoundedFutureMap<String, CachedStylesheet, SkinContext> cache = orientation == Orientation.LT ? ltCache
+                    : rtCache;
             CachedStylesheet cachedCss = cache.get(new SkinContext(context, orientation), resource);
             if (cachedCss != null) {
                 renderer.setExpiration(MAX_AGE);
@@ -575,7 +575,7 @@ public class SkinService extends AbstractResourceService implements Startable {
             return Long.MAX_VALUE;
         }
 
-        FutureMap<String, CachedStylesheet, SkinContext> cache = ltCache;
+        BoundedFutureMap<String, CachedStylesheet, SkinContext> cache = ltCache;
         Orientation orientation = Orientation.LT;
         String dir = context.getParameter(ResourceRequestHandler.ORIENTATION_QN);
         if ("rt".equals(dir)) {
@@ -722,71 +722,61 @@ public class SkinService extends AbstractResourceService implements Startable {
      * If skin is null, do nothing
      *
      * @param context
-     * @param appendable
+     * @param out
      * @param merge
      * @param skin
      * @param orientation
      * @throws RenderingException
      * @throws IOException
      */
-    private void processCSSRecursively(ControllerContext context, Appendable appendable, boolean merge, Resource skin,
-            Orientation orientation) throws RenderingException, IOException {
+    private void processCSSRecursively(final ControllerContext context, StringBuilder out, final boolean merge,
+            final Resource skin, final Orientation orientation) throws RenderingException, IOException {
         if (skin == null) {
             return;
         }
         // The root URL for the entry
-        String basePath = skin.getContextPath() + skin.getParentPath();
+        final String basePath = skin.getContextPath() + skin.getParentPath();
 
         //
         Reader tmp = skin.read();
         if (tmp == null) {
             throw new RenderingException("No skin resolved for path " + skin.getResourcePath());
         }
+        CSSRewriter rewriter = new CSSRewriter(basePath, orientation) {
+            @Override
+            protected void processImport(String includedPath, CharSequence prefix, CharSequence suffix, StringBuilder out)
+                    throws RenderingException, IOException {
+                if (merge) {
+                    Resource ssskin = getCSSResource(includedPath, basePath + skin.getFileName());
+                    processCSSRecursively(context, out, merge, ssskin, orientation);
+                } else {
+                    // Remove leading '/' and trailing '.css'
+                    String resource = includedPath.substring(1, includedPath.length() - ".css".length());
+
+                    //
+                    Map<QualifiedName, String> params = new HashMap<QualifiedName, String>();
+                    params.put(ResourceRequestHandler.VERSION_QN, ResourceRequestHandler.VERSION);
+                    params.put(ResourceRequestHandler.ORIENTATION_QN, orientation == Orientation.RT ? "rt" : "lt");
+                    params.put(ResourceRequestHandler.COMPRESS_QN, merge ? "min" : "");
+                    params.put(WebAppController.HANDLER_PARAM, "skin");
+                    params.put(ResourceRequestHandler.RESOURCE_QN, resource);
+                    StringBuilder embeddedPath = new StringBuilder();
+                    context.renderURL(params, new URIWriter(embeddedPath, MimeType.PLAIN));
+
+                    //
+                    out.append(prefix);
+                    out.append(embeddedPath);
+                    out.append(suffix);
+                }
+            }
+        };
         BufferedReader reader = new SkipCommentReader(tmp, new CommentBlockHandler.OrientationCommentBlockHandler());
         try {
             String line = reader.readLine();
             while (line != null) {
-                line = proccessOrientation(line, orientation);
-                line = processURL(BACKGROUND_PATTERN, line, basePath);
-                line = processURL(FONT_FACE_PATTERN, line, basePath);
-
-                Matcher matcher = IMPORT_PATTERN.matcher(line);
-                while (matcher.find()) {
-                    String includedPath = matcher.group(2);
-                    if (!includedPath.startsWith("/")) {
-                        includedPath = basePath + includedPath;
-                    }
-
-                    StringBuffer strReplace = new StringBuffer();
-                    if (merge) {
-                        Resource ssskin = getCSSResource(includedPath, basePath + skin.getFileName());
-                        processCSSRecursively(context, strReplace, merge, ssskin, orientation);
-                    } else {
-                        // Remove leading '/' and trailing '.css'
-                        String resource = includedPath.substring(1, includedPath.length() - ".css".length());
-
-                        //
-                        Map<QualifiedName, String> params = new HashMap<QualifiedName, String>();
-                        params.put(ResourceRequestHandler.VERSION_QN, ResourceRequestHandler.VERSION);
-                        params.put(ResourceRequestHandler.ORIENTATION_QN, orientation == Orientation.RT ? "rt" : "lt");
-                        params.put(ResourceRequestHandler.COMPRESS_QN, merge ? "min" : "");
-                        params.put(WebAppController.HANDLER_PARAM, "skin");
-                        params.put(ResourceRequestHandler.RESOURCE_QN, resource);
-                        StringBuilder embeddedPath = new StringBuilder();
-                        context.renderURL(params, new URIWriter(embeddedPath, MimeType.PLAIN));
-
-                        //
-                        strReplace.append(matcher.group(1));
-                        strReplace.append(embeddedPath);
-                        strReplace.append(matcher.group(3));
-                    }
-                    String str = strReplace.toString().replaceAll("\\$", "\\\\\\$");
-                    matcher.appendReplacement((StringBuffer) appendable, str);
-                }
-                matcher.appendTail((StringBuffer) appendable);
-
+                rewriter.rewrite(line, out);
                 if ((line = reader.readLine()) != null) {
-                    appendable.append("\n");
+                    out.append("\n");
                 }
             }
         } finally {
@@ -794,42 +784,6 @@ public class SkinService extends AbstractResourceService implements Startable {
         }
     }
 
-    private String processURL(Pattern pattern, String line, String basePath) {
-        Matcher patternMatcher = pattern.matcher(line);
-        StringBuffer tmpBuilder = new StringBuffer();
-        while (patternMatcher.find()) {
-            StringBuilder fontFaceReplace = new StringBuilder();
-            Matcher urlMatcher = URL_PATTERN.matcher(patternMatcher.group());
-            StringBuffer tmpURL = new StringBuffer();
-            while(urlMatcher.find()) {
-                if (!urlMatcher.group(2).startsWith("\"/") && !urlMatcher.group(2).startsWith("'/") && !urlMatcher.group(2).startsWith("/") ) {
-                    StringBuilder urlBuilder = new StringBuilder();
-                    urlBuilder.append(urlMatcher.group(1));
-                    urlBuilder.append(basePath);
-                    urlBuilder.append(urlMatcher.group(2));
-                    urlBuilder.append(urlMatcher.group(3));
-                    urlMatcher.appendReplacement(tmpURL, urlBuilder.toString());
-                }
-            }
-            urlMatcher.appendTail(tmpURL);
-            patternMatcher.appendReplacement(tmpBuilder, tmpURL.toString());
-        }
-
-        patternMatcher.appendTail(tmpBuilder);
-        return tmpBuilder.toString();
-    }
-
-    private String proccessOrientation(String line, Orientation orientation) {
-        Pattern orientationPattern = orientation == Orientation.LT ? RT : LT;
-        Matcher matcher = orientationPattern.matcher(line);
-        StringBuffer tmpBuilder = new StringBuffer();
-        while (matcher.find()) {
-            matcher.appendReplacement(tmpBuilder, "");
-        }
-        matcher.appendTail(tmpBuilder);
-        return tmpBuilder.toString();
-    }
-
     /**
      * Get all available skin
      *
@@ -874,6 +828,36 @@ public class SkinService extends AbstractResourceService implements Startable {
         rtCache.remove(skinId);
     }
 
+    @Managed
+    @ManagedDescription("The weight in bytes of the cached stylesheets")
+    public long getCacheWeight() {
+        return ltCache.getWeight() + rtCache.getWeight();
+    }
+
+    @Managed
+    @ManagedDescription("The maximum weight in bytes of the cached stylesheets per orientation")
+    public long getCacheMaxWeight() {
+        return CACHE_MAX_WEIGHT;
+    }
+
+    @Managed
+    @ManagedDescription("The number of stylesheet cache hits")
+    public long getCacheHitCount() {
+        return ltCache.getHitCount() + rtCache.getHitCount();
+    }
+
+    @Managed
+    @ManagedDescription("The number of stylesheet cache misses")
+    public long getCacheMissCount() {
+        return ltCache.getMissCount() + rtCache.getMissCount();
+    }
+
+    @Managed
+    @ManagedDescription("The number of stylesheets evicted from the cache")
+    public long getCacheEvictionCount() {
+        return ltCache.getEvictionCount() + rtCache.getEvictionCount();
+    }
+
     /**
      * Start service. Registry org.exoplatform.portal.resource.GateInSkinConfigDeployer and
      * org.exoplatform.portal.resource.GateInSkinConfigRemoval into ServletContainer.
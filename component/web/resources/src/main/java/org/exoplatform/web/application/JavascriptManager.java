@@ -195,6 +195,20 @@ public class JavascriptManager {
         return requireJS;
     }
 
+    /**
+     * Appends the resources and the scripts registered with another manager to this manager, the scripts of the other
+     * manager are executed after the scripts of this manager.
+     *
+     * @param other the other manager
+     */
+    public void merge(JavascriptManager other) {
+        resourceIds.addAll(other.resourceIds);
+        extendedScriptURLs.addAll(other.extendedScriptURLs);
+        scripts.append(other.scripts);
+        customizedOnloadJavascript.append(other.customizedOnloadJavascript);
+        requireJS.merge(other.requireJS);
+    }
+
     public String generateUUID() {
         return "uniq-" + UUID.randomUUID().toString();
     }
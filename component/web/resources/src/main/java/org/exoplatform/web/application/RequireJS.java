@@ -80,6 +80,22 @@ public class RequireJS {
         return this;
     }
 
+    /**
+     * Appends the modules and the scripts of another instance to this instance.
+     *
+     * @param other the other instance
+     */
+    public RequireJS merge(RequireJS other) {
+        for (Map.Entry<String, String> depend : other.depends.entrySet()) {
+            require(depend.getValue(), depend.getKey());
+        }
+        for (String moduleId : other.noAlias) {
+            require(moduleId);
+        }
+        scripts.append(other.scripts);
+        return this;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
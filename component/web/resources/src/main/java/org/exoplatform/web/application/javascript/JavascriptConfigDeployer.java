@@ -65,6 +65,7 @@ public class JavascriptConfigDeployer extends AbstractResourceDeployer {
                     public void execute(ServletContext scontext, PortalContainer portalContainer) {
                         register(scontext, portalContainer);
                         javascriptService.registerContext(webApp);
+                        javascriptService.warmUp(webApp.getContextPath());
                     }
                 };
                 PortalContainer.addInitTask(webApp.getServletContext(), task, portalContainerName);
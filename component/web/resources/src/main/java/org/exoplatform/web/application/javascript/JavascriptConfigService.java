@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -42,6 +43,13 @@ import org.apache.commons.lang.StringUtils;
 import org.exoplatform.commons.utils.CompositeReader;
 import org.exoplatform.commons.utils.PropertyManager;
 import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.management.annotations.Impact;
+import org.exoplatform.management.annotations.ImpactType;
+import org.exoplatform.management.annotations.Managed;
+import org.exoplatform.management.annotations.ManagedDescription;
+import org.exoplatform.management.jmx.annotations.NameTemplate;
+import org.exoplatform.management.jmx.annotations.Property;
+import org.exoplatform.management.rest.annotations.RESTEndpoint;
 import org.exoplatform.portal.resource.AbstractResourceService;
 import org.exoplatform.portal.resource.compressor.ResourceCompressor;
 import org.exoplatform.web.ControllerContext;
@@ -64,6 +72,11 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.picocontainer.Startable;
 
+@Managed
+@NameTemplate({ @Property(key = "view", value = "portal"), @Property(key = "service", value = "management"),
+        @Property(key = "type", value = "javascript") })
+@ManagedDescription("Javascript service")
+@RESTEndpoint(path = "javascriptservice")
 public class JavascriptConfigService extends AbstractResourceService implements Startable {
 
     /** Our logger. */
@@ -75,6 +88,9 @@ public class JavascriptConfigService extends AbstractResourceService implements
     /** . */
     private final WebAppListener deployer;
 
+    /** The warm up of the minified scripts, set by the resource handler. */
+    private volatile ScriptWarmUp warmUp;
+
     /** . */
     public static final List<String> RESERVED_MODULE = Arrays.asList("require", "exports", "module");
 
@@ -278,6 +294,110 @@ public class JavascriptConfigService extends AbstractResourceService implements
         return scripts.getResource(resource);
     }
 
+    /**
+     * Set the warm up that prepares the minified scripts, all the scripts already registered are scheduled. The counters
+     * of the warm up and of its script cache are exposed by this service.
+     *
+     * @param warmUp the warm up or null to remove it
+     */
+    public void setWarmUp(ScriptWarmUp warmUp) {
+        this.warmUp = warmUp;
+        if (warmUp != null) {
+            warmUp(null);
+        }
+    }
+
+    /**
+     * Schedule the preparation of the minified scripts of a web application, the scripts of the groups they belong to are
+     * also prepared.
+     *
+     * @param contextPath the context path of the web application or null for all the scripts
+     */
+    public void warmUp(String contextPath) {
+        ScriptWarmUp current = warmUp;
+        if (current == null || PropertyManager.isDevelopping()) {
+            return;
+        }
+
+        //
+        Map<ResourceId, Set<Locale>> ids = new HashMap<ResourceId, Set<Locale>>();
+        for (ScriptResource resource : getAllResources()) {
+            boolean contributed = contextPath == null;
+            for (Module module : resource.getModules()) {
+                if (module instanceof Module.Remote) {
+                    contributed = false;
+                    break;
+                } else if (module.getContextPath().equals(contextPath)) {
+                    contributed = true;
+                }
+            }
+            if (contributed && !resource.isEmpty()) {
+                ids.put(resource.getId(), new HashSet<Locale>(resource.getSupportedLocales()));
+                ScriptGroup group = resource.getGroup();
+                if (group != null) {
+                    ids.put(group.getId(), new HashSet<Locale>(group.getSupportedLocales()));
+                }
+            }
+        }
+        current.warmUp(ids);
+    }
+
+    @Managed
+    @ManagedDescription("The number of minified scripts scheduled for warm up")
+    public long getWarmUpScheduledCount() {
+        ScriptWarmUp current = warmUp;
+        return current != null ? current.getScheduledCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of minified scripts prepared by the warm up")
+    public long getWarmUpCompletedCount() {
+        ScriptWarmUp current = warmUp;
+        return current != null ? current.getCompletedCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of minified scripts that failed during the warm up")
+    public long getWarmUpFailedCount() {
+        ScriptWarmUp current = warmUp;
+        return current != null ? current.getFailedCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The weight in bytes of the cached scripts")
+    public long getScriptCacheWeight() {
+        ScriptWarmUp current = warmUp;
+        return current != null ? current.getCacheWeight() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of script cache hits")
+    public long getScriptCacheHitCount() {
+        ScriptWarmUp current = warmUp;
+        return current != null ? current.getCacheHitCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of script cache misses")
+    public long getScriptCacheMissCount() {
+        ScriptWarmUp current = warmUp;
+        return current != null ? current.getCacheMissCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of scripts evicted from the cache")
+    public long getScriptCacheEvictionCount() {
+        ScriptWarmUp current = warmUp;
+        return current != null ? current.getCacheEvictionCount() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("Schedule the warm up of all the minified scripts")
+    @Impact(ImpactType.WRITE)
+    public void warmUpAll() {
+        warmUp(null);
+    }
+
     /**
      * Start service. Registry org.exoplatform.web.application.javascript.JavascriptDeployer,
      * org.exoplatform.web.application.javascript.JavascriptRemoval into ServletContainer
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.application.javascript;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.gatein.portal.controller.resource.ResourceId;
+
+/**
+ * Prepares the minified scripts served by the resource handler ahead of the requests, the {@link JavascriptConfigService}
+ * notifies its warm up when the scripts of a web application are registered and exposes its counters and the counters of
+ * the script cache.
+ */
+public interface ScriptWarmUp {
+
+    /**
+     * Schedule the preparation of the minified scripts in background, this method does not block.
+     *
+     * @param scripts the resource ids to prepare associated with their locales, the null locale is always prepared
+     */
+    void warmUp(Map<ResourceId, Set<Locale>> scripts);
+
+    /**
+     * Returns the number of scripts scheduled since the start.
+     *
+     * @return the scheduled count
+     */
+    long getScheduledCount();
+
+    /**
+     * Returns the number of scripts prepared since the start.
+     *
+     * @return the completed count
+     */
+    long getCompletedCount();
+
+    /**
+     * Returns the number of scripts that could not be prepared since the start.
+     *
+     * @return the failed count
+     */
+    long getFailedCount();
+
+    /**
+     * Returns the weight in bytes of the cached scripts.
+     *
+     * @return the cache weight
+     */
+    long getCacheWeight();
+
+    /**
+     * Returns the number of script cache hits since the start.
+     *
+     * @return the hit count
+     */
+    long getCacheHitCount();
+
+    /**
+     * Returns the number of script cache misses since the start.
+     *
+     * @return the miss count
+     */
+    long getCacheMissCount();
+
+    /**
+     * Returns the number of scripts evicted from the cache since the start.
+     *
+     * @return the eviction count
+     */
+    long getCacheEvictionCount();
+
+}
@@ -29,17 +29,30 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
-
-import org.exoplatform.commons.cache.future.FutureMap;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.exoplatform.commons.cache.future.BoundedFutureMap;
 import org.exoplatform.commons.utils.I18N;
 import org.exoplatform.commons.utils.PropertyManager;
 import org.exoplatform.commons.utils.Safe;
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.PortalContainer;
 import org.exoplatform.portal.application.ResourceRequestFilter;
 import org.exoplatform.portal.resource.AbstractResourceDeployer;
 import org.exoplatform.web.ControllerContext;
 import org.exoplatform.web.WebAppController;
 import org.exoplatform.web.WebRequestHandler;
+import org.exoplatform.web.application.javascript.JavascriptConfigService;
+import org.exoplatform.web.application.javascript.ScriptWarmUp;
 import org.exoplatform.web.controller.QualifiedName;
 import org.gatein.common.io.IOTools;
 import org.gatein.common.logging.Logger;
@@ -52,12 +65,20 @@ import org.gatein.wci.WebAppListener;
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  */
-public class ResourceRequestHandler extends WebRequestHandler implements WebAppListener {
+public class ResourceRequestHandler extends WebRequestHandler implements WebAppListener, ScriptWarmUp {
 
     public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
 
     public static final String LAST_MODIFIED = "Last-Modified";
 
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    public static final String ETAG = "ETag";
+
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
     public static final String SUPPORT_GATEIN_RESOURCES = "org.gatein.supports.gatein-resources.";
 
     /** . */
@@ -71,6 +92,15 @@ public class ResourceRequestHandler extends WebRequestHandler implements WebAppL
 
     private static final long MAX_AGE;
 
+    /** Whether the deflate encoding is produced in addition to the gzip encoding. */
+    private static final boolean DEFLATE;
+
+    /** The number of threads preparing the minified scripts ahead of the requests, 0 disables the warm up. */
+    private static final int WARMUP_THREADS;
+
+    /** The maximum weight in bytes of the script cache. */
+    private static final long CACHE_MAX_WEIGHT;
+
     static {
         // Detecting version from maven properties
         // empty value is ok
@@ -112,6 +142,30 @@ public class ResourceRequestHandler extends WebRequestHandler implements WebAppL
         }
 
         MAX_AGE = seconds;
+
+        DEFLATE = Boolean.valueOf(PropertyManager.getProperty("gatein.assets.script.deflate"));
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        propValue = PropertyManager.getProperty("gatein.assets.script.warmup.threads");
+        if (propValue != null) {
+            try {
+                threads = Integer.parseInt(propValue);
+            } catch (NumberFormatException e) {
+                log.warn("The gatein.assets.script.warmup.threads property is not set properly.");
+            }
+        }
+        WARMUP_THREADS = threads;
+
+        long maxWeight = 64 * 1024 * 1024;
+        propValue = PropertyManager.getProperty("gatein.assets.script.cache.max-weight");
+        if (propValue != null) {
+            try {
+                maxWeight = Long.valueOf(propValue);
+            } catch (NumberFormatException e) {
+                log.warn("The gatein.assets.script.cache.max-weight property is not set properly.");
+            }
+        }
+        CACHE_MAX_WEIGHT = maxWeight;
     }
 
     /** . */
@@ -133,10 +187,23 @@ public class ResourceRequestHandler extends WebRequestHandler implements WebAppL
     public static final QualifiedName LANG_QN = QualifiedName.create("gtn", "lang");
 
     /** . */
-    private final FutureMap<ScriptKey, ScriptResult, ControllerContext> cache;
+    private final BoundedFutureMap<ScriptKey, ScriptResult, ControllerContext> cache;
+
+    /** . */
+    private volatile ExecutorService warmUpExecutor;
+
+    /** . */
+    private final AtomicLong warmUpScheduled = new AtomicLong();
+
+    /** . */
+    private final AtomicLong warmUpCompleted = new AtomicLong();
+
+    /** . */
+    private final AtomicLong warmUpFailed = new AtomicLong();
 
     public ResourceRequestHandler() {
-        this.cache = new FutureMap<ScriptKey, ScriptResult, ControllerContext>(new ScriptLoader());
+        this.cache = new BoundedFutureMap<ScriptKey, ScriptResult, ControllerContext>(new ScriptLoader(DEFLATE),
+                new ScriptResult.Weigher(), CACHE_MAX_WEIGHT);
     }
 
     @Override
@@ -192,16 +259,39 @@ public class ResourceRequestHandler extends WebRequestHandler implements WebAppL
 
                 response.setHeader("Cache-Control", "max-age=" + MAX_AGE + ",s-maxage=" + MAX_AGE);
 
-                // Set content length
-                response.setContentLength(resolved.bytes.length);
+                // Negotiate the encoding, the variant may not exist when it does not reduce the size
+                ScriptResult.Encoding encoding = ScriptResult.Encoding.negotiate(request.getHeader(ACCEPT_ENCODING), DEFLATE);
+                byte[] bytes = resolved.getBytes(encoding);
+                if (bytes == null) {
+                    encoding = ScriptResult.Encoding.IDENTITY;
+                    bytes = resolved.bytes;
+                }
+                response.setHeader("Vary", ACCEPT_ENCODING);
+                response.setHeader(ETAG, resolved.getETag(encoding));
+
+                // If-None-Match takes precedence over If-Modified-Since
+                String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+                boolean modified;
+                if (ifNoneMatch != null) {
+                    modified = !resolved.matches(ifNoneMatch, encoding);
+                } else {
+                    modified = resolved.isModified(request.getDateHeader(IF_MODIFIED_SINCE));
+                }
 
-                long ifModifiedSince = request.getDateHeader(IF_MODIFIED_SINCE);
-                if (resolved.isModified(ifModifiedSince)) {
+                //
+                if (modified) {
                     response.setDateHeader(ResourceRequestFilter.LAST_MODIFIED, resolved.lastModified);
+                    if (encoding != ScriptResult.Encoding.IDENTITY) {
+                        response.setHeader(CONTENT_ENCODING, encoding.token);
+                    }
+
+                    // Set content length
+                    response.setContentLength(bytes.length);
+
                     // Send bytes
                     ServletOutputStream out = response.getOutputStream();
                     try {
-                        out.write(resolved.bytes);
+                        out.write(bytes);
                     } finally {
                         Safe.close(out);
                     }
@@ -238,6 +328,33 @@ public class ResourceRequestHandler extends WebRequestHandler implements WebAppL
         super.onInit(controller, sConfig);
         log.debug("Registering ResourceRequestHandler for servlet container events");
         ServletContainerFactory.getServletContainer().addWebAppListener(this);
+
+        //
+        if (WARMUP_THREADS > 0 && !PropertyManager.isDevelopping()) {
+            final AtomicInteger count = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(WARMUP_THREADS, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ScriptWarmUp-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+            JavascriptConfigService service = (JavascriptConfigService) PortalContainer
+                    .getComponent(JavascriptConfigService.class);
+            startWarmUp(executor, service);
+        }
+    }
+
+    /**
+     * Start the warm up of the scripts with an executor, the scripts already registered with the service are scheduled.
+     *
+     * @param executor the executor preparing the scripts
+     * @param service the javascript service
+     */
+    void startWarmUp(ExecutorService executor, JavascriptConfigService service) {
+        warmUpExecutor = executor;
+        service.setWarmUp(this);
     }
 
     @Override
@@ -245,6 +362,87 @@ public class ResourceRequestHandler extends WebRequestHandler implements WebAppL
         super.onDestroy(controller);
         log.debug("Unregistering ResourceRequestHandler for servlet container events");
         ServletContainerFactory.getServletContainer().removeWebAppListener(this);
+
+        //
+        ExecutorService executor = warmUpExecutor;
+        if (executor != null) {
+            warmUpExecutor = null;
+            JavascriptConfigService service = (JavascriptConfigService) PortalContainer
+                    .getComponent(JavascriptConfigService.class);
+            if (service != null) {
+                service.setWarmUp(null);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    public void warmUp(Map<ResourceId, Set<Locale>> scripts) {
+        ExecutorService executor = warmUpExecutor;
+        if (executor == null) {
+            return;
+        }
+
+        // A key being prepared is shared with the requests asking for it, the keys not yet scheduled are
+        // compiled lazily by the request
+        final ExoContainer container = ExoContainerContext.getCurrentContainer();
+        for (Map.Entry<ResourceId, Set<Locale>> entry : scripts.entrySet()) {
+            schedule(executor, container, new ScriptKey(entry.getKey(), true, null));
+            for (Locale locale : entry.getValue()) {
+                schedule(executor, container, new ScriptKey(entry.getKey(), true, locale));
+            }
+        }
+    }
+
+    private void schedule(ExecutorService executor, final ExoContainer container, final ScriptKey key) {
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    ExoContainerContext.setCurrentContainer(container);
+                    try {
+                        ScriptResult result = cache.get(null, key);
+                        if (result instanceof ScriptResult.Resolved) {
+                            warmUpCompleted.incrementAndGet();
+                        } else {
+                            log.warn("Could not prepare script " + key);
+                            warmUpFailed.incrementAndGet();
+                        }
+                    } finally {
+                        ExoContainerContext.setCurrentContainer(null);
+                    }
+                }
+            });
+            warmUpScheduled.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            // The handler is being destroyed
+        }
+    }
+
+    public long getScheduledCount() {
+        return warmUpScheduled.get();
+    }
+
+    public long getCompletedCount() {
+        return warmUpCompleted.get();
+    }
+
+    public long getFailedCount() {
+        return warmUpFailed.get();
+    }
+
+    public long getCacheWeight() {
+        return cache.getWeight();
+    }
+
+    public long getCacheHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getCacheMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getCacheEvictionCount() {
+        return cache.getEvictionCount();
     }
 
     @Override
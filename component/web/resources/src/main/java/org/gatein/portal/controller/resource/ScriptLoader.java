@@ -46,6 +46,13 @@ import com.google.javascript.jscomp.Result;
  */
 class ScriptLoader implements Loader<ScriptKey, ScriptResult, ControllerContext> {
 
+    /** . */
+    private final boolean deflate;
+
+    ScriptLoader(boolean deflate) {
+        this.deflate = deflate;
+    }
+
     public ScriptResult retrieve(ControllerContext context, ScriptKey key) throws Exception {
         JavascriptConfigService service = (JavascriptConfigService) PortalContainer.getComponent(JavascriptConfigService.class);
 
@@ -86,7 +93,7 @@ class ScriptLoader implements Loader<ScriptKey, ScriptResult, ControllerContext>
                 for (int l = script.read(buffer); l != -1; l = script.read(buffer)) {
                     encoder.encode(buffer, 0, l, out);
                 }
-                return new ScriptResult.Resolved(out.toByteArray());
+                return new ScriptResult.Resolved(out.toByteArray(), deflate);
             } finally {
                 Safe.close(script);
             }
@@ -19,8 +19,16 @@
 
 package org.gatein.portal.controller.resource;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
+import org.exoplatform.commons.cache.future.BoundedFutureMap;
 import org.exoplatform.commons.utils.PropertyManager;
 
 /**
@@ -31,15 +39,105 @@ class ScriptResult {
     private ScriptResult() {
     }
 
+    /**
+     * The content encodings a resolved script can be served with.
+     */
+    enum Encoding {
+
+        IDENTITY("identity"),
+
+        GZIP("gzip"),
+
+        DEFLATE("deflate");
+
+        /** The token of the encoding in the HTTP headers. */
+        final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        /**
+         * Negotiate the encoding from an <code>Accept-Encoding</code> header, gzip is preferred to deflate when both are
+         * acceptable. Encodings with a zero quality value are considered as not acceptable.
+         *
+         * @param acceptEncoding the header value, may be null
+         * @param deflate true if the deflate encoding can be chosen
+         * @return the negotiated encoding
+         */
+        static Encoding negotiate(String acceptEncoding, boolean deflate) {
+            if (acceptEncoding == null) {
+                return IDENTITY;
+            }
+            boolean gzip = false;
+            boolean gzipRejected = false;
+            boolean def = false;
+            for (String element : acceptEncoding.split(",")) {
+                String coding = element;
+                float quality = 1;
+                int index = element.indexOf(';');
+                if (index != -1) {
+                    coding = element.substring(0, index);
+                    String param = element.substring(index + 1).trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            quality = Float.parseFloat(param.substring(2).trim());
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                coding = coding.trim().toLowerCase();
+                if (quality <= 0) {
+                    if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                        gzipRejected = true;
+                    }
+                } else {
+                    if (coding.equals("gzip") || coding.equals("x-gzip") || coding.equals("*")) {
+                        gzip = true;
+                    } else if (coding.equals("deflate")) {
+                        def = true;
+                    }
+                }
+            }
+            if (gzip && !gzipRejected) {
+                return GZIP;
+            } else if (def && deflate) {
+                return DEFLATE;
+            } else {
+                return IDENTITY;
+            }
+        }
+    }
+
     static class Resolved extends ScriptResult {
 
+        /** . */
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
         /** . */
         final byte[] bytes;
 
+        /** The gzip encoded bytes or null when the encoding does not reduce the size. */
+        final byte[] gzipped;
+
+        /** The deflate encoded bytes or null when not enabled or when the encoding does not reduce the size. */
+        final byte[] deflated;
+
+        /** The strong entity tag of the identity encoding computed from the content. */
+        final String etag;
+
         final long lastModified;
 
         Resolved(byte[] bytes) {
+            this(bytes, false);
+        }
+
+        Resolved(byte[] bytes, boolean deflate) {
             this.bytes = bytes;
+            this.gzipped = encode(bytes, Encoding.GZIP);
+            this.deflated = deflate ? encode(bytes, Encoding.DEFLATE) : null;
+            this.etag = hash(bytes);
             // string of date retrieve from Http header doesn't have miliseconds
             // we need to remove miliseconds
             lastModified = (new Date().getTime() / 1000) * 1000;
@@ -52,6 +150,99 @@ class ScriptResult {
                 return lastModified > ifModifiedSince;
             }
         }
+
+        /**
+         * Returns the bytes for the specified encoding or null when this encoding is not available.
+         *
+         * @param encoding the encoding
+         * @return the encoded bytes
+         */
+        byte[] getBytes(Encoding encoding) {
+            switch (encoding) {
+                case GZIP:
+                    return gzipped;
+                case DEFLATE:
+                    return deflated;
+                default:
+                    return bytes;
+            }
+        }
+
+        /**
+         * Returns the quoted entity tag of the specified encoding, each encoding has its own entity tag as they are different
+         * representations of the same resource.
+         *
+         * @param encoding the encoding
+         * @return the entity tag
+         */
+        String getETag(Encoding encoding) {
+            if (encoding == Encoding.IDENTITY) {
+                return '"' + etag + '"';
+            } else {
+                return '"' + etag + '-' + encoding.token + '"';
+            }
+        }
+
+        /**
+         * Returns true if the <code>If-None-Match</code> header value matches the entity tag of the encoding.
+         *
+         * @param ifNoneMatch the header value
+         * @param encoding the encoding
+         * @return true when the client representation is current
+         */
+        boolean matches(String ifNoneMatch, Encoding encoding) {
+            if (ifNoneMatch == null || PropertyManager.isDevelopping()) {
+                return false;
+            }
+            String current = getETag(encoding);
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || tag.equals(current)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static byte[] encode(byte[] bytes, Encoding encoding) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 3 + 64);
+            Deflater deflater = null;
+            try {
+                DeflaterOutputStream out;
+                if (encoding == Encoding.GZIP) {
+                    out = new GZIPOutputStream(buffer);
+                } else {
+                    deflater = new Deflater(Deflater.BEST_COMPRESSION);
+                    out = new DeflaterOutputStream(buffer, deflater);
+                }
+                out.write(bytes);
+                out.close();
+            } catch (IOException e) {
+                // Cannot happen with a byte array stream
+                throw new AssertionError(e);
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+            byte[] encoded = buffer.toByteArray();
+            return encoded.length < bytes.length ? encoded : null;
+        }
+
+        private static String hash(byte[] bytes) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+                char[] chars = new char[digest.length * 2];
+                for (int i = 0; i < digest.length; i++) {
+                    chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                    chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+                }
+                return new String(chars);
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-1 is provided by every platform
+                throw new AssertionError(e);
+            }
+        }
     }
 
     static class Error extends ScriptResult {
@@ -66,4 +257,26 @@ class ScriptResult {
 
     static ScriptResult NOT_FOUND = new ScriptResult();
 
+    /**
+     * Weights a result by the size of the bytes it retains.
+     */
+    static class Weigher implements BoundedFutureMap.Weigher<ScriptKey, ScriptResult> {
+        public long getWeight(ScriptKey key, ScriptResult value) {
+            long weight = 64;
+            if (value instanceof Resolved) {
+                Resolved resolved = (Resolved) value;
+                weight += resolved.bytes.length;
+                if (resolved.gzipped != null) {
+                    weight += resolved.gzipped.length;
+                }
+                if (resolved.deflated != null) {
+                    weight += resolved.deflated.length;
+                }
+            } else if (value instanceof Error) {
+                weight += ((Error) value).message.length() * 2L;
+            }
+            return weight;
+        }
+    }
+
 }
@@ -19,9 +19,11 @@
 
 package org.gatein.portal.controller.resource.script;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.exoplatform.commons.utils.I18N;
 import org.exoplatform.web.WebAppController;
@@ -85,6 +87,15 @@ public class BaseScriptResource<R extends Resource<R>> extends Resource<R> {
         return minified ? minParameters : parameters;
     }
 
+    /**
+     * Returns the locales supported by this resource in addition to the default one.
+     *
+     * @return the supported locales
+     */
+    public Set<Locale> getSupportedLocales() {
+        return Collections.unmodifiableSet(parametersMap.keySet());
+    }
+
     public void addSupportedLocale(Locale locale) {
         if (!parametersMap.containsKey(locale)) {
             Map<QualifiedName, String> localizedParameters = new HashMap<QualifiedName, String>(parameters);
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.resource;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.exoplatform.commons.utils.Safe;
+import org.exoplatform.services.resources.Orientation;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+
+/**
+ * Measures the rewrite of the lines of the stylesheets of a skin directory. The <code>skinDirectory</code> driver parameter
+ * is the directory of the skin, the <code>orientation</code> driver parameter is the rendered orientation and the
+ * <code>regex</code> driver parameter selects the regular expressions formerly used by the {@link SkinService} instead of
+ * the {@link CSSRewriter}. The <code>path</code> test case parameter is the sub directory of the skin that is rewritten.
+ */
+public class CSSRewriterDriver extends JapexDriverBase {
+
+    /** . */
+    private File skinDirectory;
+
+    /** . */
+    private Orientation orientation;
+
+    /** . */
+    private boolean regex;
+
+    /** . */
+    private CSSRewriter rewriter;
+
+    /** . */
+    private List<String> lines;
+
+    /** . */
+    private StringBuilder out;
+
+    /**
+     * Reads the lines of the stylesheets of a directory and of its sub directories in file name order.
+     *
+     * @param directory the directory
+     * @return the lines
+     * @throws IOException any io exception
+     */
+    static List<String> readLines(File directory) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        readLines(directory, lines);
+        return lines;
+    }
+
+    private static void readLines(File directory, List<String> lines) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                readLines(file, lines);
+            } else if (file.getName().endsWith(".css")) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+                try {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        lines.add(line);
+                    }
+                } finally {
+                    Safe.close(reader);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void initializeDriver() {
+        skinDirectory = new File(getParam("skinDirectory"));
+        orientation = Orientation.valueOf(getParam("orientation"));
+        regex = getBooleanParam("regex");
+        rewriter = new CSSRewriter(TestCSSRewriter.BASE_PATH, orientation) {
+            @Override
+            protected void processImport(String includedPath, CharSequence prefix, CharSequence suffix, StringBuilder out) {
+                out.append(prefix).append('[').append(includedPath).append(']').append(suffix);
+            }
+        };
+        out = new StringBuilder();
+    }
+
+    @Override
+    public void prepare(TestCase testCase) {
+        try {
+            lines = readLines(new File(skinDirectory, testCase.getParam("path")));
+        } catch (IOException e) {
+            AssertionError err = new AssertionError("Could not read the stylesheets of " + skinDirectory);
+            err.initCause(e);
+            throw err;
+        }
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        try {
+            for (String line : lines) {
+                if (regex) {
+                    TestCSSRewriter.expected(line, orientation);
+                } else {
+                    out.setLength(0);
+                    rewriter.rewrite(line, out);
+                }
+            }
+        } catch (Exception e) {
+            AssertionError err = new AssertionError("Unexpected exception");
+            err.initCause(e);
+            throw err;
+        }
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        lines = null;
+    }
+
+    @Override
+    public void terminateDriver() {
+        rewriter = null;
+        out = null;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+import org.exoplatform.services.resources.Orientation;
+
+/**
+ * Checks the rewriter against the regular expressions formerly used by the {@link SkinService}.
+ */
+public class TestCSSRewriter extends AbstractGateInTest {
+
+    /** . */
+    private static final Pattern IMPORT_PATTERN = Pattern.compile("(@import\\s+url\\(['\"]?)([^'\";]+.css)(['\"]?\\)\\s*;)");
+
+    /** . */
+    private static final Pattern BACKGROUND_PATTERN = Pattern.compile("(background[^;])+([^;]*;)");
+
+    /** . */
+    private static final Pattern FONT_FACE_PATTERN = Pattern.compile("(src[^;])+([^;]*;)");
+
+    /** . */
+    private static final Pattern URL_PATTERN = Pattern.compile("(url\\(['\"]?)([^'\";\\)]+)(['\"]?\\))");
+
+    /** . */
+    private static final Pattern LT = Pattern.compile("[^{;]*;\\s*/\\*\\s*orientation=lt\\s*\\*/");
+
+    /** . */
+    private static final Pattern RT = Pattern.compile("[^{;]*;\\s*/\\*\\s*orientation=rt\\s*\\*/");
+
+    /** . */
+    static final String BASE_PATH = "/portal/skin/";
+
+    /** . */
+    private static final String[] TOKENS = { "background", "background-image", "src", "url(", "'", "\"", "(", ")", ";",
+            "; ", "/", "a.png", "b/c.gif", "{", "}", " ", ":", "-", "\\9", "\\", "/* orientation=rt */", "/*orientation=lt*/",
+            "@import", "@import ", " url(", "x.css", ".css", "css", "/y.css", "\t" };
+
+    private static String rewrite(String line, Orientation orientation) throws Exception {
+        CSSRewriter rewriter = new CSSRewriter(BASE_PATH, orientation) {
+            @Override
+            protected void processImport(String includedPath, CharSequence prefix, CharSequence suffix, StringBuilder out) {
+                out.append(prefix).append('[').append(includedPath).append(']').append(suffix);
+            }
+        };
+        StringBuilder out = new StringBuilder();
+        rewriter.rewrite(line, out);
+        return out.toString();
+    }
+
+    static String expected(String line, Orientation orientation) {
+        line = removeOrientation(line, orientation);
+        line = processURL(BACKGROUND_PATTERN, line);
+        line = processURL(FONT_FACE_PATTERN, line);
+        Matcher matcher = IMPORT_PATTERN.matcher(line);
+        StringBuffer out = new StringBuffer();
+        while (matcher.find()) {
+            String includedPath = matcher.group(2);
+            if (!includedPath.startsWith("/")) {
+                includedPath = BASE_PATH + includedPath;
+            }
+            String str = matcher.group(1) + "[" + includedPath + "]" + matcher.group(3);
+            matcher.appendReplacement(out, str.replaceAll("\\$", "\\\\\\$"));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    private static String processURL(Pattern pattern, String line) {
+        Matcher patternMatcher = pattern.matcher(line);
+        StringBuffer tmpBuilder = new StringBuffer();
+        while (patternMatcher.find()) {
+            Matcher urlMatcher = URL_PATTERN.matcher(patternMatcher.group());
+            StringBuffer tmpURL = new StringBuffer();
+            while (urlMatcher.find()) {
+                if (!urlMatcher.group(2).startsWith("/")) {
+                    urlMatcher.appendReplacement(tmpURL, urlMatcher.group(1) + BASE_PATH + urlMatcher.group(2)
+                            + urlMatcher.group(3));
+                }
+            }
+            urlMatcher.appendTail(tmpURL);
+            patternMatcher.appendReplacement(tmpBuilder, tmpURL.toString());
+        }
+        patternMatcher.appendTail(tmpBuilder);
+        return tmpBuilder.toString();
+    }
+
+    private static String removeOrientation(String line, Orientation orientation) {
+        Matcher matcher = (orientation == Orientation.LT ? RT : LT).matcher(line);
+        StringBuffer tmpBuilder = new StringBuffer();
+        while (matcher.find()) {
+            matcher.appendReplacement(tmpBuilder, "");
+        }
+        matcher.appendTail(tmpBuilder);
+        return tmpBuilder.toString();
+    }
+
+    private static void assertRewrite(String line) throws Exception {
+        assertEquals(expected(line, Orientation.LT), rewrite(line, Orientation.LT));
+        assertEquals(expected(line, Orientation.RT), rewrite(line, Orientation.RT));
+    }
+
+    public void testUnchanged() throws Exception {
+        assertEquals(".UIForm { color: red; }", rewrite(".UIForm { color: red; }", Orientation.LT));
+        assertEquals("background: url(/images/a.png);", rewrite("background: url(/images/a.png);", Orientation.LT));
+        assertEquals("background: url(a.png)", rewrite("background: url(a.png)", Orientation.LT));
+    }
+
+    public void testURL() throws Exception {
+        assertEquals("background: url(/portal/skin/a.png) no-repeat;",
+                rewrite("background: url(a.png) no-repeat;", Orientation.LT));
+        assertEquals("background: url('/portal/skin/a.png');", rewrite("background: url('a.png');", Orientation.LT));
+        assertEquals("src: url(\"/portal/skin/font.eot\") format(\"eot\"), url(/font.woff);",
+                rewrite("src: url(\"font.eot\") format(\"eot\"), url(/font.woff);", Orientation.LT));
+        assertRewrite(".a { background-image: url(a.png); } .b { background: url(../b.png) \\9; }");
+    }
+
+    public void testOrientation() throws Exception {
+        String line = "float: left; /* orientation=lt */ float: right; /* orientation=rt */";
+        assertEquals("float: left;", rewrite(line, Orientation.LT));
+        assertEquals(" float: right; /* orientation=rt */", rewrite(line, Orientation.RT));
+        assertRewrite(".a { padding-left: 5px; /*orientation=lt*/ padding-right: 5px;/* orientation=rt */}");
+    }
+
+    public void testImport() throws Exception {
+        assertEquals("@import url([/portal/skin/a/Stylesheet.css]);", rewrite("@import url(a/Stylesheet.css);", Orientation.LT));
+        assertEquals("@import url('[/b.css]') ;", rewrite("@import url('/b.css') ;", Orientation.LT));
+        assertRewrite("@import url(a.css); @import url(\"b.css\"); @import url(c.less);");
+    }
+
+    public void testRandomLines() throws Exception {
+        Random random = new Random(0);
+        int checked = 0;
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(20); j > 0; j--) {
+                sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            String line = sb.toString();
+            for (Orientation orientation : new Orientation[] { Orientation.LT, Orientation.RT }) {
+                String expected;
+                try {
+                    expected = expected(line, orientation);
+                } catch (RuntimeException ignore) {
+                    // A trailing backslash is rejected by the regular expression replacement
+                    continue;
+                }
+                assertEquals("Rewrite of " + line, expected, rewrite(line, orientation));
+                checked++;
+            }
+        }
+        assertTrue(checked > 30000);
+    }
+
+    public void testDefaultSkin() throws Exception {
+        File skin = new File(System.getProperty("basedir"), "../../../web/eXoResources/src/main/webapp/skin/DefaultSkin");
+        List<String> lines = CSSRewriterDriver.readLines(skin);
+        assertTrue(lines.size() > 1000);
+        for (String line : lines) {
+            assertRewrite(line);
+        }
+    }
+
+    public void testImportException() throws Exception {
+        CSSRewriter rewriter = new CSSRewriter(BASE_PATH, Orientation.LT) {
+            @Override
+            protected void processImport(String includedPath, CharSequence prefix, CharSequence suffix, StringBuilder out)
+                    throws IOException {
+                throw new IOException(includedPath);
+            }
+        };
+        try {
+            rewriter.rewrite("@import url(a.css);", new StringBuilder());
+            fail();
+        } catch (IOException e) {
+            assertEquals("/portal/skin/a.css", e.getMessage());
+        }
+    }
+}
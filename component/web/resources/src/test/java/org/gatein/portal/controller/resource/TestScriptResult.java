@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.portal.controller.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+import org.gatein.common.io.IOTools;
+import org.gatein.portal.controller.resource.ScriptResult.Encoding;
+
+public class TestScriptResult extends AbstractGateInTest {
+
+    private static byte[] script() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("var foo").append(i).append(" = function() { return 'bar'; };\n");
+        }
+        return sb.toString().getBytes();
+    }
+
+    public void testNegotiate() {
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate(null, true));
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate("", true));
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate("identity", true));
+        assertEquals(Encoding.GZIP, Encoding.negotiate("gzip", false));
+        assertEquals(Encoding.GZIP, Encoding.negotiate("gzip, deflate", true));
+        assertEquals(Encoding.GZIP, Encoding.negotiate("deflate;q=0.5, gzip;q=0.8", true));
+        assertEquals(Encoding.GZIP, Encoding.negotiate("*", false));
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate("gzip;q=0", true));
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate("*, gzip;q=0", false));
+        assertEquals(Encoding.DEFLATE, Encoding.negotiate("gzip;q=0, deflate", true));
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate("deflate", false));
+    }
+
+    public void testEncodings() throws Exception {
+        byte[] bytes = script();
+        ScriptResult.Resolved resolved = new ScriptResult.Resolved(bytes, true);
+        assertSame(bytes, resolved.getBytes(Encoding.IDENTITY));
+
+        //
+        byte[] gzipped = resolved.getBytes(Encoding.GZIP);
+        assertNotNull(gzipped);
+        assertTrue(gzipped.length < bytes.length);
+        assertTrue(Arrays.equals(bytes, read(new GZIPInputStream(new ByteArrayInputStream(gzipped)))));
+
+        //
+        byte[] deflated = resolved.getBytes(Encoding.DEFLATE);
+        assertNotNull(deflated);
+        assertTrue(Arrays.equals(bytes, read(new InflaterInputStream(new ByteArrayInputStream(deflated)))));
+
+        //
+        assertNull(new ScriptResult.Resolved(bytes, false).getBytes(Encoding.DEFLATE));
+    }
+
+    public void testNoEncodingForSmallContent() throws Exception {
+        ScriptResult.Resolved resolved = new ScriptResult.Resolved("a".getBytes(), true);
+        assertNull(resolved.getBytes(Encoding.GZIP));
+        assertNull(resolved.getBytes(Encoding.DEFLATE));
+    }
+
+    public void testETag() throws Exception {
+        ScriptResult.Resolved resolved = new ScriptResult.Resolved(script(), true);
+        String identity = resolved.getETag(Encoding.IDENTITY);
+        String gzip = resolved.getETag(Encoding.GZIP);
+        assertTrue(identity.startsWith("\"") && identity.endsWith("\""));
+        assertFalse(identity.equals(gzip));
+
+        // Same content gives the same tag
+        assertEquals(identity, new ScriptResult.Resolved(script(), false).getETag(Encoding.IDENTITY));
+        assertFalse(identity.equals(new ScriptResult.Resolved("other".getBytes()).getETag(Encoding.IDENTITY)));
+
+        //
+        assertTrue(resolved.matches(identity, Encoding.IDENTITY));
+        assertTrue(resolved.matches("\"foo\", " + gzip, Encoding.GZIP));
+        assertTrue(resolved.matches("*", Encoding.GZIP));
+        assertFalse(resolved.matches(identity, Encoding.GZIP));
+        assertFalse(resolved.matches(null, Encoding.IDENTITY));
+    }
+
+    private static byte[] read(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOTools.copy(in, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.portal.controller.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.exoplatform.component.test.web.WebAppImpl;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.portal.resource.AbstractWebResourceTest;
+import org.exoplatform.test.mocks.servlet.MockServletContext;
+import org.exoplatform.web.application.javascript.JavascriptConfigParser;
+import org.exoplatform.web.application.javascript.JavascriptConfigService;
+
+public class TestScriptWarmUp extends AbstractWebResourceTest {
+
+    /** . */
+    private JavascriptConfigService service;
+
+    @Override
+    protected void setUp() throws Exception {
+        PortalContainer container = getContainer();
+        ExoContainerContext.setCurrentContainer(container);
+        service = (JavascriptConfigService) container.getComponentInstanceOfType(JavascriptConfigService.class);
+    }
+
+    public void testWarmUpContextPath() throws Exception {
+        ResourceRequestHandler handler = new ResourceRequestHandler();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The scripts already registered are prepared when the warm up starts
+            handler.startWarmUp(executor, service);
+            awaitWarmUp(handler);
+            long scheduled = handler.getScheduledCount();
+            long failed = handler.getFailedCount();
+            long misses = handler.getCacheMissCount();
+
+            // Only the scripts of the deployed application are prepared
+            register("warmupother", "other");
+            register("warmupapp", "warmup1", "warmup2");
+            service.warmUp("/warmupapp");
+            awaitWarmUp(handler);
+            assertEquals(scheduled + 2, handler.getScheduledCount());
+            assertEquals(failed, handler.getFailedCount());
+            assertEquals(misses + 2, handler.getCacheMissCount());
+            assertTrue(handler.getCacheWeight() > 0);
+
+            // The prepared scripts are served by the cache
+            long hits = handler.getCacheHitCount();
+            service.warmUp("/warmupapp");
+            awaitWarmUp(handler);
+            assertEquals(hits + 2, handler.getCacheHitCount());
+            assertEquals(misses + 2, handler.getCacheMissCount());
+
+            // The script of the other application was not prepared
+            service.warmUp("/warmupother");
+            awaitWarmUp(handler);
+            assertEquals(hits + 2, handler.getCacheHitCount());
+            assertEquals(misses + 3, handler.getCacheMissCount());
+        } finally {
+            service.setWarmUp(null);
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitWarmUp(ResourceRequestHandler handler) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (handler.getCompletedCount() + handler.getFailedCount() < handler.getScheduledCount()) {
+            assertTrue("The warm up did not complete", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Registers a web application declaring a module for each name.
+     */
+    private void register(String contextName, String... modules) throws Exception {
+        Map<String, String> resources = new HashMap<String, String>();
+        StringBuilder config = new StringBuilder();
+        config.append("<gatein-resources xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"");
+        config.append(" xsi:schemaLocation=\"http://www.gatein.org/xml/ns/gatein_resources_1_3");
+        config.append(" http://www.gatein.org/xml/ns/gatein_resources_1_3\"");
+        config.append(" xmlns=\"http://www.gatein.org/xml/ns/gatein_resources_1_3\">");
+        for (String module : modules) {
+            resources.put("/js/" + module + ".js", "var " + module + " = { value : '" + module + "' };");
+            config.append("<module><name>").append(module).append("</name>");
+            config.append("<script><path>/js/").append(module).append(".js</path></script></module>");
+        }
+        config.append("</gatein-resources>");
+
+        //
+        MockScriptServletContext context = new MockScriptServletContext(contextName, resources);
+        service.registerContext(new WebAppImpl(context, Thread.currentThread().getContextClassLoader()));
+        JavascriptConfigParser.processConfigResource(new ByteArrayInputStream(config.toString().getBytes("UTF-8")), service,
+                context);
+    }
+
+    private static class MockScriptServletContext extends MockServletContext {
+
+        /** . */
+        private final Map<String, String> resources;
+
+        private MockScriptServletContext(String contextName, Map<String, String> resources) {
+            super(contextName);
+            this.resources = resources;
+        }
+
+        @Override
+        public String getContextPath() {
+            return "/" + getServletContextName();
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String path) {
+            String resource = resources.get(path);
+            return resource != null ? new ByteArrayInputStream(resource.getBytes()) : null;
+        }
+    }
+}
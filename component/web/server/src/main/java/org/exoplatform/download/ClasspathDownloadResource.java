@@ -21,6 +21,8 @@ package org.exoplatform.download;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
 
 
 /**
@@ -30,6 +32,12 @@ public class ClasspathDownloadResource extends DownloadResource {
 
     private String resource_;
 
+    private volatile boolean metadataLoaded_;
+
+    private long contentLength_ = -1;
+
+    private long lastModified_ = -1;
+
     public ClasspathDownloadResource(String resource, String resourceMimeType) {
         this(null, resource, resourceMimeType);
     }
@@ -44,4 +52,33 @@ public class ClasspathDownloadResource extends DownloadResource {
         InputStream is = cl.getResourceAsStream(resource_);
         return is;
     }
+
+    @Override
+    public long getContentLength() throws IOException {
+        loadMetadata();
+        return contentLength_;
+    }
+
+    @Override
+    public long getLastModified() throws IOException {
+        loadMetadata();
+        return lastModified_;
+    }
+
+    private void loadMetadata() throws IOException {
+        if (!metadataLoaded_) {
+            ClassLoader cl = Thread.currentThread().getContextClassLoader();
+            URL url = cl.getResource(resource_);
+            if (url != null) {
+                URLConnection connection = url.openConnection();
+                contentLength_ = connection.getContentLength();
+                long lastModified = connection.getLastModified();
+                lastModified_ = lastModified > 0 ? lastModified : -1;
+
+                // Obtaining the metadata may have opened the resource
+                connection.getInputStream().close();
+            }
+            metadataLoaded_ = true;
+        }
+    }
 }
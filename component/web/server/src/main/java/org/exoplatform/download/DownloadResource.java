@@ -91,4 +91,24 @@ public abstract class DownloadResource {
 
     public abstract InputStream getInputStream() throws IOException;
 
+    /**
+     * Returns the length of the content, a resource can be downloaded by ranges when its length is known.
+     *
+     * @return the length in bytes or -1 when it is not known
+     * @throws IOException any IO exception
+     */
+    public long getContentLength() throws IOException {
+        return -1;
+    }
+
+    /**
+     * Returns the last modification time of the content.
+     *
+     * @return the time in milliseconds or -1 when it is not known
+     * @throws IOException any IO exception
+     */
+    public long getLastModified() throws IOException {
+        return -1;
+    }
+
 }
@@ -77,6 +77,19 @@ public class DownloadService {
         return resource;
     }
 
+    /**
+     * Makes a resource obtained with {@link #getDownloadResource(String)} available again, so that the download of its content
+     * can be resumed.
+     *
+     * @param id the resource id
+     * @param resource the resource
+     */
+    public void restoreDownloadResource(String id, DownloadResource resource) {
+        if (!defaultResources_.containsValue(resource)) {
+            downloadResources_.put(id, resource);
+        }
+    }
+
     public String getDownloadLink(String id) {
         return "/" + pinfo_.getContainerName() + "/" + DOWNLOAD_HANDLER_PATH + "?" + "resourceId=" + id;
     }
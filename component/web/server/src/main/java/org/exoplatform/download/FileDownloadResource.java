@@ -19,6 +19,7 @@
 
 package org.exoplatform.download;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -44,4 +45,20 @@ public class FileDownloadResource extends DownloadResource {
         FileInputStream is = new FileInputStream(path_);
         return is;
     }
+
+    public File getFile() {
+        return new File(path_);
+    }
+
+    @Override
+    public long getContentLength() {
+        File file = getFile();
+        return file.isFile() ? file.length() : -1;
+    }
+
+    @Override
+    public long getLastModified() {
+        long lastModified = getFile().lastModified();
+        return lastModified > 0 ? lastModified : -1;
+    }
 }
@@ -19,8 +19,13 @@
 
 package org.exoplatform.upload;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Created by The eXo Platform SARL Author : Tuan Nguyen tuan08@users.sourceforge.net Dec 26, 2005
+ *
+ * The resource is written by the thread of the upload request and read concurrently by the progress requests, the state
+ * is published through volatile fields and the uploaded size is counted without locking.
  */
 public class UploadResource {
 
@@ -30,20 +35,20 @@ public class UploadResource {
 
     public static final int FAILED_STATUS = 2;
 
-    private String uploadId_;
+    private final String uploadId_;
 
-    private String fileName_;
+    private volatile String fileName_;
 
-    private String mimeType_;
+    private volatile String mimeType_;
 
-    private String storeLocation_;
+    private volatile String storeLocation_;
 
-    private double uploadedSize_ = 0;
+    private final AtomicLong uploadedSize_ = new AtomicLong();
 
-    private double estimatedSize_ = 0;
+    private volatile double estimatedSize_ = 0;
 
     // private int limitMB_ = UploadService.uploadLimitMB_;
-    private int status_ = UPLOADING_STATUS;
+    private volatile int status_ = UPLOADING_STATUS;
 
     public UploadResource(String uploadId) {
         uploadId_ = uploadId;
@@ -83,11 +88,11 @@ public class UploadResource {
     }
 
     public double getUploadedSize() {
-        return uploadedSize_;
+        return uploadedSize_.get();
     }
 
     public void addUploadedBytes(double size) {
-        uploadedSize_ += size;
+        uploadedSize_.addAndGet((long) size);
     }
 
     public double getEstimatedSize() {
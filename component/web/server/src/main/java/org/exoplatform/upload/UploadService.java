@@ -23,41 +23,51 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
-import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadBase;
 import org.apache.commons.fileupload.FileUploadException;
-import org.apache.commons.fileupload.ProgressListener;
-import org.apache.commons.fileupload.disk.DiskFileItem;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.container.xml.PortalContainerInfo;
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
 
+/**
+ * <p>
+ * The upload requests are served concurrently: the resources and the limits are kept in concurrent maps and the file of
+ * an upload request is streamed from the multipart request to its store location, the size limit is enforced as the bytes
+ * arrive.
+ * </p>
+ */
 public class UploadService {
     /** . */
     private static final Logger log = LoggerFactory.getLogger(UploadService.class);
 
+    /** The size of the buffer used to write an uploaded file. */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
     private List<MimeTypeUploadPlugin> plugins;
 
-    private Map<String, UploadResource> uploadResources = new LinkedHashMap<String, UploadResource>();
+    private final ConcurrentMap<String, UploadResource> uploadResources = new ConcurrentHashMap<String, UploadResource>();
 
     private String uploadLocation_;
 
     private UploadLimit defaultUploadLimitMB_;
 
-    private Map<String, UploadLimit> uploadLimits = new LinkedHashMap<String, UploadLimit>();
+    private final ConcurrentMap<String, UploadLimit> uploadLimits = new ConcurrentHashMap<String, UploadLimit>();
 
     public static String UPLOAD_RESOURCES_STACK = "uploadResourcesStack";
 
@@ -96,6 +106,10 @@ public class UploadService {
     }
 
     public void createUploadResource(String uploadId, HttpServletRequest request) throws FileUploadException {
+        if (uploadId == null) {
+            log.debug("Cannot upload a resource without upload id");
+            return;
+        }
         UploadResource upResource = new UploadResource(uploadId);
         upResource.setFileName("");// Avoid NPE in UploadHandler
         uploadResources.put(upResource.getUploadId(), upResource);
@@ -109,53 +123,108 @@ public class UploadService {
             return;
         }
 
-        ServletFileUpload servletFileUpload = makeServletFileUpload(upResource);
-        // parse request
-        List<FileItem> itemList = null;
+        ServletFileUpload servletFileUpload = new ServletFileUpload();
+        servletFileUpload.setHeaderEncoding("UTF-8");
+        File fileStore = null;
+        boolean uploaded = false;
         try {
-            itemList = servletFileUpload.parseRequest(request);
+            // parse request, the file is streamed to its store location
+            FileItemIterator iterator = servletFileUpload.getItemIterator(request);
+            FileItemStream item = iterator.hasNext() ? iterator.next() : null;
+            if (item == null || item.isFormField()) {
+                log.debug("Please upload 1 file per request");
+                removeUploadResource(uploadId);
+                return;
+            }
+
+            String fileName = item.getName();
+            if (fileName == null)
+                fileName = uploadId;
+            fileName = fileName.substring(fileName.lastIndexOf('\\') + 1);
+            fileStore = new File(uploadLocation_ + "/" + uploadId + "." + fileName);
+
+            upResource.setFileName(fileName);
+            upResource.setMimeType(item.getContentType());
+            if (plugins != null)
+                for (MimeTypeUploadPlugin plugin : plugins) {
+                    String mimeType = plugin.getMimeType(fileName);
+                    if (mimeType != null)
+                        upResource.setMimeType(mimeType);
+                }
+
+            if (!store(upResource, item, fileStore)) {
+                return;
+            }
+            if (iterator.hasNext()) {
+                log.debug("Please upload 1 file per request");
+                removeUploadResource(uploadId);
+                return;
+            }
+
+            // The store location is set before checking the upload was not removed, a removal happening after the check
+            // deletes the file itself
+            upResource.setStoreLocation(fileStore.getPath());
+            upResource.setStatus(UploadResource.UPLOADED_STATUS);
+            if (uploadResources.get(uploadId) != upResource) {
+                log.debug("Upload " + uploadId + " removed while uploading");
+                return;
+            }
+            uploaded = true;
         } catch (FileUploadException uploadEx) {
+            removeUploadResource(uploadId);
             if (uploadEx instanceof FileUploadBase.IOFileUploadException) {
                 log.debug("IOException while upload resource", uploadEx);
             } else {
                 throw uploadEx;
             }
-        }
-
-        if (itemList == null || itemList.size() != 1 || itemList.get(0).isFormField()) {
-            log.debug("Please upload 1 file per request");
+        } catch (IOException e) {
+            log.debug("IOException while upload resource", e);
             removeUploadResource(uploadId);
-            return;
-        }
-
-        DiskFileItem fileItem = (DiskFileItem) itemList.get(0);
-        String fileName = fileItem.getName();
-        if (fileName == null)
-            fileName = uploadId;
-        fileName = fileName.substring(fileName.lastIndexOf('\\') + 1);
-        String storeLocation = uploadLocation_ + "/" + uploadId + "." + fileName;
-
-        // commons-fileupload will store the temp file with name *.tmp
-        // we need to rename it to our desired name
-        fileItem.getStoreLocation().renameTo(new File(storeLocation));
-        File fileStore = new File(storeLocation);
-        if (!fileStore.exists())
-            try {
-                fileStore.createNewFile();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+        } finally {
+            if (!uploaded && fileStore != null) {
+                fileStore.delete();
             }
+        }
+    }
 
-        upResource.setFileName(fileName);
-        upResource.setMimeType(fileItem.getContentType());
-        if (plugins != null)
-            for (MimeTypeUploadPlugin plugin : plugins) {
-                String mimeType = plugin.getMimeType(fileName);
-                if (mimeType != null)
-                    upResource.setMimeType(mimeType);
+    /**
+     * Write the file of an upload request to its store location. The writing stops when the size limit of the upload is
+     * exceeded, the resource then fails, or when the upload is removed.
+     *
+     * @return true when the whole file is written
+     */
+    private boolean store(UploadResource upResource, FileItemStream item, File fileStore) throws IOException {
+        String uploadId = upResource.getUploadId();
+        UploadLimit limit = getUploadLimit(uploadId);
+        long maxSize = (long) limit.getLimit() * limit.division; // a limit set to 0 means unlimited
+
+        // The item stream is not closed on failure as closing it would read the remaining bytes of the item
+        InputStream in = item.openStream();
+        OutputStream out = new FileOutputStream(fileStore);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long size = 0;
+            for (int length = in.read(buffer); length != -1; length = in.read(buffer)) {
+                size += length;
+                if (maxSize > 0 && size > maxSize) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Upload cancelled because file bigger than size limit : " + limit.getLimit() + " "
+                                + limit.unit);
+                    }
+                    upResource.setStatus(UploadResource.FAILED_STATUS);
+                    return false;
+                }
+                if (uploadResources.get(uploadId) != upResource) {
+                    log.debug("Upload " + uploadId + " removed while uploading");
+                    return false;
+                }
+                out.write(buffer, 0, length);
+                upResource.addUploadedBytes(length);
             }
-        upResource.setStoreLocation(storeLocation);
-        upResource.setStatus(UploadResource.UPLOADED_STATUS);
+        } finally {
+            out.close();
+        }
+        return true;
     }
 
     /**
@@ -164,6 +233,10 @@ public class UploadService {
      */
     public void createUploadResource(String uploadId, String encoding, String contentType, double contentLength,
             InputStream inputStream) throws Exception {
+        if (uploadId == null) {
+            log.debug("Cannot upload a resource without upload id");
+            return;
+        }
         UploadResource upResource = new UploadResource(uploadId);
         RequestStreamReader reader = new RequestStreamReader(upResource);
         uploadResources.put(upResource.getUploadId(), upResource);
@@ -200,12 +273,16 @@ public class UploadService {
 
     @SuppressWarnings("unchecked")
     private void putToStackInSession(HttpSession session, String uploadId) {
-        Set<String> uploadResouceIds = (Set<String>) session.getAttribute(UploadService.UPLOAD_RESOURCES_STACK);
-        if (uploadResouceIds == null) {
-            uploadResouceIds = new HashSet();
+        // The uploads of a session may be concurrent, the set is created and stored in the session at once so that a
+        // concurrent first upload cannot replace it
+        synchronized (session) {
+            Set<String> uploadResouceIds = (Set<String>) session.getAttribute(UploadService.UPLOAD_RESOURCES_STACK);
+            if (uploadResouceIds == null) {
+                uploadResouceIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            }
+            uploadResouceIds.add(uploadId);
+            session.setAttribute(UploadService.UPLOAD_RESOURCES_STACK, uploadResouceIds);
         }
-        uploadResouceIds.add(uploadId);
-        session.setAttribute(UploadService.UPLOAD_RESOURCES_STACK, uploadResouceIds);
     }
 
     /**
@@ -215,6 +292,8 @@ public class UploadService {
      * @return org.exoplatform.upload.UploadResource of uploadId
      */
     public UploadResource getUploadResource(String uploadId) {
+        if (uploadId == null)
+            return null;
         return uploadResources.get(uploadId);
     }
 
@@ -229,7 +308,7 @@ public class UploadService {
         if (uploadIds != null) {
             for (String id : uploadIds) {
                 removeUploadResource(id);
-                uploadLimits.remove(id);
+                removeUploadLimit(id);
             }
         }
     }
@@ -253,10 +332,8 @@ public class UploadService {
     public void removeUploadResource(String uploadId) {
         if (uploadId == null)
             return;
-        UploadResource upResource = uploadResources.get(uploadId);
+        UploadResource upResource = uploadResources.remove(uploadId);
         if (upResource != null) {
-            uploadResources.remove(uploadId);
-
             if (upResource.getStoreLocation() != null) {
                 File file = new File(upResource.getStoreLocation());
                 file.delete();
@@ -277,7 +354,9 @@ public class UploadService {
     }
 
     public void addUploadLimit(String uploadId, Integer limit, UploadUnit unit) {
-        if (limit == null) {
+        if (uploadId == null) {
+            return;
+        } else if (limit == null) {
             uploadLimits.put(uploadId, defaultUploadLimitMB_);
         } else if (unit == null) {
             uploadLimits.put(uploadId, new UploadLimit(limit, UploadUnit.MB));
@@ -287,9 +366,22 @@ public class UploadService {
     }
 
     public void removeUploadLimit(String uploadId) {
+        if (uploadId == null)
+            return;
         uploadLimits.remove(uploadId);
     }
 
+    /**
+     * Get the upload limit size of an upload, the default upload limit size when no limit is registered for the upload
+     *
+     * @param uploadId uploadId of the upload
+     * @return the upload limit size
+     */
+    public UploadLimit getUploadLimit(String uploadId) {
+        UploadLimit limit = uploadId == null ? null : uploadLimits.get(uploadId);
+        return limit != null ? limit : defaultUploadLimitMB_;
+    }
+
     /**
      * Get all upload limit sizes
      *
@@ -299,36 +391,9 @@ public class UploadService {
         return uploadLimits;
     }
 
-    private ServletFileUpload makeServletFileUpload(final UploadResource upResource) {
-        // Create a factory for disk-based file items
-        DiskFileItemFactory factory = new DiskFileItemFactory();
-
-        // Set factory constraints
-        factory.setSizeThreshold(0);
-        factory.setRepository(new File(uploadLocation_));
-
-        // Create a new file upload handler
-        ServletFileUpload upload = new ServletFileUpload(factory);
-        upload.setHeaderEncoding("UTF-8");
-        ProgressListener listener = new ProgressListener() {
-            public void update(long pBytesRead, long pContentLength, int pItems) {
-                if (pBytesRead == upResource.getUploadedSize())
-                    return;
-                upResource.addUploadedBytes(pBytesRead - upResource.getUploadedSize());
-            }
-        };
-        upload.setProgressListener(listener);
-        return upload;
-    }
-
     private boolean isLimited(UploadResource upResource, double contentLength) {
-        // by default, use the limit set in the service
-        UploadLimit limit = defaultUploadLimitMB_;
-        // if the limit is set in the request (specific for this upload) then use
-        // this value instead of the default one
-        if (uploadLimits.containsKey(upResource.getUploadId())) {
-            limit = uploadLimits.get(upResource.getUploadId());
-        }
+        // use the limit set in the request (specific for this upload) or the limit set in the service by default
+        UploadLimit limit = getUploadLimit(upResource.getUploadId());
 
         double estimatedSize = contentLength / limit.division;
         if (limit.getLimit() > 0 && estimatedSize > limit.getLimit()) { // a limit set to 0 means unlimited
@@ -19,9 +19,17 @@
 
 package org.exoplatform.web.handler;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -30,6 +38,7 @@ import org.exoplatform.container.ExoContainer;
 import org.exoplatform.container.ExoContainerContext;
 import org.exoplatform.download.DownloadResource;
 import org.exoplatform.download.DownloadService;
+import org.exoplatform.download.FileDownloadResource;
 import org.exoplatform.web.ControllerContext;
 import org.exoplatform.web.WebAppController;
 import org.exoplatform.web.WebRequestHandler;
@@ -41,6 +50,18 @@ import org.gatein.common.logging.LoggerFactory;
  */
 public class DownloadHandler extends WebRequestHandler {
 
+    /** The size of the buffer used to copy the content of a resource. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The maximum number of ranges served for a request, the whole content is sent for more ranges. */
+    private static final int MAX_RANGES = 16;
+
+    /** The boundary of the multipart responses. */
+    private static final String BOUNDARY = "GATEIN_DOWNLOAD_BOUNDARY";
+
+    /** The request attribute set by the container when it can send a file after the request. */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
     private final Logger log = LoggerFactory.getLogger(DownloadHandler.class);
 
     public String getHandlerName() {
@@ -74,14 +95,84 @@ public class DownloadHandler extends WebRequestHandler {
                         "attachment;filename=\"" + URLEncoder.encode(dresource.getDownloadName(), "UTF-8") + "\"");
             }
         }
-        res.setContentType(dresource.getResourceMimeType());
-        InputStream is = dresource.getInputStream();
+
+        //
+        long length = dresource.getContentLength();
+        long lastModified = dresource.getLastModified();
+        String etag = null;
+        if (lastModified != -1) {
+            res.setDateHeader("Last-Modified", lastModified);
+            if (length != -1) {
+                etag = "\"" + length + "-" + lastModified + "\"";
+                res.setHeader("ETag", etag);
+            }
+        }
+        if (isNotModified(req, etag, lastModified)) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // The ranges are served when the length is known and the content did not change since the client obtained a part
+        List<Range> ranges = null;
+        if (length != -1) {
+            res.setHeader("Accept-Ranges", "bytes");
+            String range = req.getHeader("Range");
+            if (range != null && isRangeValid(req, etag, lastModified)) {
+                ranges = Range.parse(range, length);
+                if (ranges != null && ranges.isEmpty()) {
+                    dservice.restoreDownloadResource(resourceId, dresource);
+                    res.setHeader("Content-Range", "bytes */" + length);
+                    res.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+            }
+        }
+
+        //
+        boolean completed = false;
+        byte[] buffer = new byte[BUFFER_SIZE];
         try {
-            optimalRead(is, res.getOutputStream());
+            if (ranges == null) {
+                res.setContentType(dresource.getResourceMimeType());
+                if (length != -1) {
+                    setContentLength(res, length);
+                }
+                send(req, res, dresource, 0, length, buffer);
+                completed = true;
+            } else if (ranges.size() == 1) {
+                Range range = ranges.get(0);
+                res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                res.setContentType(dresource.getResourceMimeType());
+                res.setHeader("Content-Range", range.getContentRange(length));
+                setContentLength(res, range.getLength());
+                send(req, res, dresource, range.start, range.getLength(), buffer);
+                completed = range.end == length - 1;
+            } else {
+                res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                res.setContentType("multipart/byteranges; boundary=" + BOUNDARY);
+                OutputStream out = res.getOutputStream();
+                long end = -1;
+                for (Range range : ranges) {
+                    end = Math.max(end, range.end);
+                    StringBuilder headers = new StringBuilder("\r\n--").append(BOUNDARY).append("\r\n");
+                    if (dresource.getResourceMimeType() != null) {
+                        headers.append("Content-Type: ").append(dresource.getResourceMimeType()).append("\r\n");
+                    }
+                    headers.append("Content-Range: ").append(range.getContentRange(length)).append("\r\n\r\n");
+                    out.write(headers.toString().getBytes("ISO-8859-1"));
+                    write(out, dresource, range.start, range.getLength(), buffer);
+                }
+                out.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes("ISO-8859-1"));
+                completed = end == length - 1;
+            }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         } finally {
-            is.close();
+            // The resource is removed from the service when it is obtained, it is kept when the client did not obtain
+            // the last byte of its content so that the download can be resumed
+            if (!completed && length != -1) {
+                dservice.restoreDownloadResource(resourceId, dresource);
+            }
         }
     }
 
@@ -90,15 +181,205 @@ public class DownloadHandler extends WebRequestHandler {
         return false;
     }
 
-    private static void optimalRead(InputStream is, OutputStream os) throws Exception {
-        int bufferLength = 1024; // TODO: Better to compute bufferLength in term of -Xms, -Xmx properties
-        int readLength = 0;
-        while (readLength > -1) {
-            byte[] chunk = new byte[bufferLength];
-            readLength = is.read(chunk);
-            if (readLength > 0) {
-                os.write(chunk, 0, readLength);
+    private static boolean isNotModified(HttpServletRequest req, String etag, long lastModified) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (etag == null) {
+                return false;
+            }
+            for (String value : ifNoneMatch.split(",")) {
+                value = value.trim();
+                if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = getDateHeader(req, "If-Modified-Since");
+        return lastModified != -1 && ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static boolean isRangeValid(HttpServletRequest req, String etag, long lastModified) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = getDateHeader(req, "If-Range");
+        return lastModified != -1 && date != -1 && lastModified / 1000 == date / 1000;
+    }
+
+    private static long getDateHeader(HttpServletRequest req, String name) {
+        try {
+            return req.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static void setContentLength(HttpServletResponse res, long length) {
+        if (length <= Integer.MAX_VALUE) {
+            res.setContentLength((int) length);
+        } else {
+            res.setHeader("Content-Length", Long.toString(length));
+        }
+    }
+
+    /**
+     * Sends the content of a resource as the body of the response, a file is sent by the container after the request when
+     * the container supports it.
+     */
+    private static void send(HttpServletRequest req, HttpServletResponse res, DownloadResource resource, long start,
+            long count, byte[] buffer) throws IOException {
+        if (count != -1 && resource instanceof FileDownloadResource
+                && Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))) {
+            File file = ((FileDownloadResource) resource).getFile();
+            req.setAttribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath());
+            req.setAttribute("org.apache.tomcat.sendfile.start", start);
+            req.setAttribute("org.apache.tomcat.sendfile.end", start + count);
+        } else {
+            write(res.getOutputStream(), resource, start, count, buffer);
+        }
+    }
+
+    /**
+     * Writes a range of the content of a resource, a file is transferred from its channel.
+     *
+     * @param count the length of the range or -1 for the whole content
+     */
+    private static void write(OutputStream out, DownloadResource resource, long start, long count, byte[] buffer)
+            throws IOException {
+        if (count != -1 && resource instanceof FileDownloadResource) {
+            FileInputStream in = new FileInputStream(((FileDownloadResource) resource).getFile());
+            try {
+                FileChannel channel = in.getChannel();
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = start;
+                long end = start + count;
+                while (position < end) {
+                    long transferred = channel.transferTo(position, end - position, target);
+                    if (transferred <= 0) {
+                        throw new IOException("Unexpected end of file " + ((FileDownloadResource) resource).getFile());
+                    }
+                    position += transferred;
+                }
+            } finally {
+                in.close();
             }
+        } else {
+            InputStream in = resource.getInputStream();
+            try {
+                copy(in, out, start, count, buffer);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long start, long count, byte[] buffer) throws IOException {
+        while (start > 0) {
+            long skipped = in.skip(start);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new IOException("Unexpected end of content");
+                }
+                skipped = 1;
+            }
+            start -= skipped;
+        }
+        long remaining = count;
+        while (remaining != 0) {
+            int length = remaining < 0 || remaining > buffer.length ? buffer.length : (int) remaining;
+            int read = in.read(buffer, 0, length);
+            if (read == -1) {
+                if (remaining > 0) {
+                    throw new IOException("Unexpected end of content");
+                }
+                break;
+            }
+            out.write(buffer, 0, read);
+            if (remaining > 0) {
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * A byte range of a content, the end is inclusive.
+     */
+    static class Range {
+
+        /**
+         * Parses the value of a <code>Range</code> header.
+         *
+         * @param header the header value
+         * @param length the content length
+         * @return the satisfiable ranges, an empty list when no range is satisfiable or null when the header must be
+         *         ignored
+         */
+        static List<Range> parse(String header, long length) {
+            header = header.trim();
+            if (!header.startsWith("bytes=")) {
+                return null;
+            }
+            String[] specs = header.substring("bytes=".length()).split(",");
+            if (specs.length > MAX_RANGES) {
+                return null;
+            }
+            List<Range> ranges = new ArrayList<Range>(specs.length);
+            for (String spec : specs) {
+                spec = spec.trim();
+                int dash = spec.indexOf('-');
+                if (dash == -1) {
+                    return null;
+                }
+                try {
+                    String first = spec.substring(0, dash).trim();
+                    String last = spec.substring(dash + 1).trim();
+                    if (first.length() == 0) {
+                        // The last bytes of the content
+                        long suffix = Long.parseLong(last);
+                        if (suffix < 0) {
+                            return null;
+                        } else if (suffix > 0 && length > 0) {
+                            ranges.add(new Range(Math.max(0, length - suffix), length - 1));
+                        }
+                    } else {
+                        long start = Long.parseLong(first);
+                        long end = last.length() == 0 ? Long.MAX_VALUE : Long.parseLong(last);
+                        if (start < 0 || end < start) {
+                            return null;
+                        } else if (start < length) {
+                            ranges.add(new Range(start, Math.min(end, length - 1)));
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            return ranges;
+        }
+
+        /** . */
+        final long start;
+
+        /** . */
+        final long end;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long getLength() {
+            return end - start + 1;
+        }
+
+        String getContentRange(long length) {
+            return "bytes " + start + "-" + end + "/" + length;
         }
     }
 }
@@ -97,7 +97,7 @@ public class UploadHandler extends WebRequestHandler {
                 if (upResource == null)
                     continue;
                 if (upResource.getStatus() == UploadResource.FAILED_STATUS) {
-                    UploadLimit limit = service.getUploadLimits().get(uploadIds[i]);
+                    UploadLimit limit = service.getUploadLimit(uploadIds[i]);
                     value.append("\n    \"").append(uploadIds[i]).append("\": {");
                     value.append("\n      \"status\":").append('\"').append("failed").append("\",");
                     value.append("\n      \"size\":").append('\"').append(limit.getLimit()).append("\",");
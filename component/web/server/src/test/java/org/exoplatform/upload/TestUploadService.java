@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.upload;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.exoplatform.component.test.AbstractKernelTest;
+import org.exoplatform.component.test.ConfigurationUnit;
+import org.exoplatform.component.test.ConfiguredBy;
+import org.exoplatform.component.test.ContainerScope;
+import org.exoplatform.upload.UploadService.UploadUnit;
+
+@ConfiguredBy({ @ConfigurationUnit(scope = ContainerScope.PORTAL, path = "conf/services/upload-service.xml") })
+public class TestUploadService extends AbstractKernelTest {
+
+    /** . */
+    private static final String BOUNDARY = "----UploadBoundary";
+
+    /** . */
+    private UploadService service;
+
+    @Override
+    protected void beforeRunBare() {
+        super.beforeRunBare();
+        service = (UploadService) getContainer().getComponentInstanceOfType(UploadService.class);
+    }
+
+    public void testConcurrentUploads() throws Exception {
+        final HttpSession[] sessions = new HttpSession[10];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = session();
+        }
+        Random random = new Random(0);
+        List<byte[]> contents = new ArrayList<byte[]>();
+        for (int i = 0; i < 300; i++) {
+            byte[] content = new byte[1 + random.nextInt(64 * 1024)];
+            random.nextBytes(content);
+            contents.add(content);
+        }
+
+        // Upload the files in parallel
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < contents.size(); i++) {
+                final String uploadId = "upload" + i;
+                final byte[] content = contents.get(i);
+                final HttpSession session = sessions[i % sessions.length];
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        service.createUploadResource(uploadId, request(session, true, file("file.bin", content)));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < contents.size(); i++) {
+            UploadResource resource = service.getUploadResource("upload" + i);
+            assertNotNull(resource);
+            assertEquals(UploadResource.UPLOADED_STATUS, resource.getStatus());
+            assertEquals("file.bin", resource.getFileName());
+            assertEquals((double) contents.get(i).length, resource.getUploadedSize());
+            File file = new File(resource.getStoreLocation());
+            assertTrue(Arrays.equals(contents.get(i), read(file)));
+            files.add(file);
+        }
+
+        // The session stacks record every upload
+        for (HttpSession session : sessions) {
+            Set<?> uploadIds = (Set<?>) session.getAttribute(UploadService.UPLOAD_RESOURCES_STACK);
+            assertEquals(contents.size() / sessions.length, uploadIds.size());
+            service.cleanUp(session);
+        }
+        for (int i = 0; i < contents.size(); i++) {
+            assertNull(service.getUploadResource("upload" + i));
+            assertFalse(files.get(i).exists());
+        }
+    }
+
+    public void testConcurrentFirstUploads() throws Exception {
+        // The session is written slowly so that the first uploads of the session overlap
+        final HttpSession session = session(10);
+        final int count = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(count);
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < count; i++) {
+                final String uploadId = "first" + i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        barrier.await();
+                        service.createUploadResource(uploadId, request(session, true, file("file.bin", new byte[16])));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // No upload is lost from the stack of the session, they are all cleaned up
+        Set<?> uploadIds = (Set<?>) session.getAttribute(UploadService.UPLOAD_RESOURCES_STACK);
+        assertEquals(count, uploadIds.size());
+        service.cleanUp(session);
+        for (int i = 0; i < count; i++) {
+            assertNull(service.getUploadResource("first" + i));
+        }
+    }
+
+    public void testLimitEnforcedWhileStreaming() throws Exception {
+        service.addUploadLimit("limited", 1, UploadUnit.KB);
+        try {
+            // The content length is unknown so the limit can only be enforced while the file is read
+            byte[] content = new byte[4 * 1024];
+            service.createUploadResource("limited", request(session(), false, file("big.bin", content)));
+            UploadResource resource = service.getUploadResource("limited");
+            assertEquals(UploadResource.FAILED_STATUS, resource.getStatus());
+            assertNull(resource.getStoreLocation());
+            assertTrue(resource.getUploadedSize() <= 1024);
+            assertEquals(1, service.getUploadLimit("limited").getLimit());
+        } finally {
+            service.removeUploadResource("limited");
+            service.removeUploadLimit("limited");
+        }
+    }
+
+    public void testLimitEnforcedFromContentLength() throws Exception {
+        byte[] content = new byte[2 * 1024 * 1024];
+        service.createUploadResource("toobig", request(session(), true, file("big.bin", content)));
+        try {
+            UploadResource resource = service.getUploadResource("toobig");
+            assertEquals(UploadResource.FAILED_STATUS, resource.getStatus());
+            assertEquals(0D, resource.getUploadedSize());
+
+            // The default limit is reported for the failed upload
+            assertEquals(1, service.getUploadLimit("toobig").getLimit());
+            assertEquals("MB", service.getUploadLimit("toobig").getUnit());
+        } finally {
+            service.removeUploadResource("toobig");
+        }
+    }
+
+    public void testOneFilePerRequest() throws Exception {
+        byte[] body = multipart(part("first.txt", "first".getBytes("UTF-8")), part("second.txt", "second".getBytes("UTF-8")));
+        service.createUploadResource("twofiles", request(session(), true, body));
+        assertNull(service.getUploadResource("twofiles"));
+    }
+
+    public void testRemovedWhileCompleting() throws Exception {
+        service.createUploadResource("kept", request(session(), true, file("file.bin", new byte[16])));
+        File dir = new File(service.getUploadResource("kept").getStoreLocation()).getParentFile();
+        service.removeUploadResource("kept");
+
+        // The upload is removed once its file is stored, before the resource is completed
+        service.createUploadResource("removed", request(session(), true, file("file.bin", new byte[16]), new Runnable() {
+            public void run() {
+                service.removeUploadResource("removed");
+            }
+        }));
+        assertNull(service.getUploadResource("removed"));
+        assertFalse(new File(dir, "removed.file.bin").exists());
+    }
+
+    private static byte[] file(String fileName, byte[] content) throws IOException {
+        return multipart(part(fileName, content));
+    }
+
+    private static byte[] part(String fileName, byte[] content) throws IOException {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        part.write(("--" + BOUNDARY + "\r\n").getBytes("UTF-8"));
+        part.write(("Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n").getBytes("UTF-8"));
+        part.write("Content-Type: application/octet-stream\r\n\r\n".getBytes("UTF-8"));
+        part.write(content);
+        part.write("\r\n".getBytes("UTF-8"));
+        return part.toByteArray();
+    }
+
+    private static byte[] multipart(byte[]... parts) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            body.write(part);
+        }
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes("UTF-8"));
+        return body.toByteArray();
+    }
+
+    private static byte[] read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int length = in.read(buffer); length != -1; length = in.read(buffer)) {
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static HttpSession session() {
+        return session(0);
+    }
+
+    /**
+     * Returns a session whose attributes are written after the provided delay in milliseconds.
+     */
+    private static HttpSession session(final long delay) {
+        final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+        return proxy(HttpSession.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws InterruptedException {
+                if (method.getName().equals("getAttribute")) {
+                    return attributes.get(args[0]);
+                } else if (method.getName().equals("setAttribute")) {
+                    if (delay > 0) {
+                        Thread.sleep(delay);
+                    }
+                    attributes.put((String) args[0], args[1]);
+                    return null;
+                } else {
+                    return defaultValue(proxy, method, args);
+                }
+            }
+        });
+    }
+
+    private static HttpServletRequest request(HttpSession session, boolean contentLength, byte[] body) {
+        return request(session, contentLength, body, null);
+    }
+
+    /**
+     * Returns a request whose body is read from the provided bytes, the end callback runs when the whole body was read.
+     */
+    private static HttpServletRequest request(final HttpSession session, final boolean contentLength, final byte[] body,
+            final Runnable end) {
+        final InputStream in = new ByteArrayInputStream(body);
+        final ServletInputStream input = new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return ended(in.read());
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return ended(in.read(b, off, len));
+            }
+
+            private int ended(int result) {
+                if (result == -1 && end != null) {
+                    end.run();
+                }
+                return result;
+            }
+        };
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getSession")) {
+                    return session;
+                } else if (name.equals("getMethod")) {
+                    return "POST";
+                } else if (name.equals("getContentType")) {
+                    return "multipart/form-data; boundary=" + BOUNDARY;
+                } else if (name.equals("getContentLength")) {
+                    return contentLength ? body.length : -1;
+                } else if (name.equals("getInputStream")) {
+                    return input;
+                } else {
+                    return defaultValue(proxy, method, args);
+                }
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(TestUploadService.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        Class<?> type = method.getReturnType();
+        if (method.getName().equals("equals")) {
+            return proxy == args[0];
+        } else if (method.getName().equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.exoplatform.component.test.AbstractKernelTest;
+import org.exoplatform.component.test.ConfigurationUnit;
+import org.exoplatform.component.test.ConfiguredBy;
+import org.exoplatform.component.test.ContainerScope;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.download.DownloadService;
+import org.exoplatform.download.FileDownloadResource;
+
+@ConfiguredBy({ @ConfigurationUnit(scope = ContainerScope.PORTAL, path = "conf/services/download-service.xml") })
+public class TestDownloadHandler extends AbstractKernelTest {
+
+    /** . */
+    private DownloadService service;
+
+    /** . */
+    private DownloadHandler handler;
+
+    /** . */
+    private File file;
+
+    /** . */
+    private byte[] content;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ExoContainerContext.setCurrentContainer(getContainer());
+        service = (DownloadService) getContainer().getComponentInstanceOfType(DownloadService.class);
+        handler = new DownloadHandler();
+        content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = File.createTempFile("download", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        service.getCache().clearCache();
+        file.delete();
+        ExoContainerContext.setCurrentContainer(null);
+        super.tearDown();
+    }
+
+    public void testWholeContent() throws Exception {
+        String id = service.addDownloadResource(new FileDownloadResource(file.getAbsolutePath(), "application/octet-stream"));
+        Response response = download(id, null);
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertTrue(Arrays.equals(content, response.body.toByteArray()));
+        assertNull(service.getCache().get(id));
+    }
+
+    public void testResumedDownload() throws Exception {
+        String id = service.addDownloadResource(new FileDownloadResource(file.getAbsolutePath(), "application/octet-stream"));
+
+        // The first part does not end with the last byte, the resource is kept to resume the download
+        Response response = download(id, "bytes=0-49");
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.status);
+        assertEquals("bytes 0-49/100", response.contentRange);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 0, 50), response.body.toByteArray()));
+        assertNotNull(service.getCache().get(id));
+
+        // The last part ends the download, the resource is removed
+        response = download(id, "bytes=50-");
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.status);
+        assertEquals("bytes 50-99/100", response.contentRange);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 50, 100), response.body.toByteArray()));
+        assertNull(service.getCache().get(id));
+
+        // The download cannot be obtained again
+        response = download(id, "bytes=0-");
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertEquals(0, response.body.size());
+    }
+
+    public void testMultipleRanges() throws Exception {
+        String id = service.addDownloadResource(new FileDownloadResource(file.getAbsolutePath(), "application/octet-stream"));
+
+        // No range ends with the last byte
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, download(id, "bytes=0-9,20-29").status);
+        assertNotNull(service.getCache().get(id));
+
+        // A range ends with the last byte
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, download(id, "bytes=0-9,-10").status);
+        assertNull(service.getCache().get(id));
+    }
+
+    public void testUnsatisfiableRange() throws Exception {
+        String id = service.addDownloadResource(new FileDownloadResource(file.getAbsolutePath(), "application/octet-stream"));
+        Response response = download(id, "bytes=100-");
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.status);
+        assertNotNull(service.getCache().get(id));
+    }
+
+    private Response download(final String id, final String range) throws Exception {
+        HttpServletRequest req = proxy(HttpServletRequest.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getParameter") && "resourceId".equals(args[0])) {
+                    return id;
+                } else if (name.equals("getHeader") && "Range".equals(args[0])) {
+                    return range;
+                } else if (name.equals("getDateHeader")) {
+                    return -1L;
+                } else {
+                    return defaultValue(proxy, method, args);
+                }
+            }
+        });
+        final Response response = new Response();
+        HttpServletResponse res = proxy(HttpServletResponse.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("setStatus") || name.equals("sendError")) {
+                    response.status = (Integer) args[0];
+                    return null;
+                } else if (name.equals("setHeader") && "Content-Range".equals(args[0])) {
+                    response.contentRange = (String) args[1];
+                    return null;
+                } else if (name.equals("getOutputStream")) {
+                    return response.output;
+                } else if (name.equals("getWriter")) {
+                    return response.writer;
+                } else {
+                    return defaultValue(proxy, method, args);
+                }
+            }
+        });
+        handler.execute(null, req, res);
+        return response;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(TestDownloadHandler.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        Class<?> type = method.getReturnType();
+        if (method.getName().equals("equals")) {
+            return proxy == args[0];
+        } else if (method.getName().equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else {
+            return null;
+        }
+    }
+
+    private static class Response {
+
+        /** . */
+        private int status = HttpServletResponse.SC_OK;
+
+        /** . */
+        private String contentRange;
+
+        /** . */
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        /** . */
+        private final ServletOutputStream output = new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                body.write(b);
+            }
+        };
+
+        /** . */
+        private final PrintWriter writer = new PrintWriter(new StringWriter());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.handler;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestDownloadRange extends TestCase {
+
+    public void testSingleRange() {
+        assertRanges(DownloadHandler.Range.parse("bytes=0-99", 1000), 0, 99);
+        assertRanges(DownloadHandler.Range.parse("bytes=500-", 1000), 500, 999);
+        assertRanges(DownloadHandler.Range.parse("bytes=-100", 1000), 900, 999);
+        assertRanges(DownloadHandler.Range.parse("bytes=900-2000", 1000), 900, 999);
+        assertRanges(DownloadHandler.Range.parse("bytes=-2000", 1000), 0, 999);
+        assertEquals("bytes 0-99/1000", DownloadHandler.Range.parse("bytes=0-99", 1000).get(0).getContentRange(1000));
+    }
+
+    public void testMultipleRanges() {
+        assertRanges(DownloadHandler.Range.parse("bytes=0-9, 20-29,-5", 100), 0, 9, 20, 29, 95, 99);
+
+        // The unsatisfiable ranges are ignored
+        assertRanges(DownloadHandler.Range.parse("bytes=0-9,200-299", 100), 0, 9);
+    }
+
+    public void testUnsatisfiableRange() {
+        assertTrue(DownloadHandler.Range.parse("bytes=1000-", 1000).isEmpty());
+        assertTrue(DownloadHandler.Range.parse("bytes=-0", 1000).isEmpty());
+        assertTrue(DownloadHandler.Range.parse("bytes=0-", 0).isEmpty());
+    }
+
+    public void testInvalidRange() {
+        assertNull(DownloadHandler.Range.parse("items=0-9", 1000));
+        assertNull(DownloadHandler.Range.parse("bytes=9-0", 1000));
+        assertNull(DownloadHandler.Range.parse("bytes=a-b", 1000));
+        assertNull(DownloadHandler.Range.parse("bytes=10", 1000));
+        assertNull(DownloadHandler.Range.parse("bytes=0-1,2-3,4-5,6-7,8-9,10-11,12-13,14-15,16-17,18-19,20-21,22-23,24-25,"
+                + "26-27,28-29,30-31,32-33", 1000));
+    }
+
+    private void assertRanges(List<DownloadHandler.Range> ranges, long... bounds) {
+        assertEquals(bounds.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            assertEquals(bounds[i * 2], ranges.get(i).start);
+            assertEquals(bounds[i * 2 + 1], ranges.get(i).end);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.web.redirect;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.exoplatform.portal.config.model.DevicePropertyCondition;
+import org.exoplatform.portal.config.model.PortalRedirect;
+import org.exoplatform.portal.config.model.RedirectCondition;
+import org.exoplatform.portal.config.model.UserAgentConditions;
+import org.gatein.common.logging.Logger;
+import org.gatein.common.logging.LoggerFactory;
+import org.gatein.web.redirect.api.RedirectKey;
+import org.gatein.web.redirect.api.RedirectType;
+
+/**
+ * <p>
+ * The redirect conditions of a site compiled once: the patterns are compiled when the rules are created and the user
+ * agent patterns of a condition are combined in a single pattern when possible. The rules are immutable, they must be
+ * created again when the redirects of the site change.
+ * </p>
+ *
+ * <p>
+ * The decisions made without device properties only depend on the user agent string, the last ones are kept in a bounded
+ * cache so that the conditions are not evaluated again for the same user agent.
+ * </p>
+ */
+public class RedirectRules {
+
+    /** . */
+    private static final Logger log = LoggerFactory.getLogger(RedirectRules.class);
+
+    /** The default number of user agent decisions kept. */
+    public static final int DEFAULT_MAX_DECISIONS = 1000;
+
+    /** Matches a back reference that prevents combining a pattern with other patterns. */
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\[1-9]|\\\\k<");
+
+    /** The enabled redirects in order. */
+    private final Rule[] rules;
+
+    /** The last decisions by user agent string, null when the decisions are not kept. */
+    private final Map<String, RedirectKey> decisions;
+
+    /**
+     * Compile the redirects of a site.
+     *
+     * @param portalRedirects the redirects
+     * @param maxDecisions the maximum number of user agent decisions kept
+     */
+    public RedirectRules(List<PortalRedirect> portalRedirects, final int maxDecisions) {
+        List<Rule> rules = new ArrayList<Rule>();
+        if (portalRedirects != null) {
+            for (PortalRedirect redirect : portalRedirects) {
+                if (redirect.isEnabled()) {
+                    rules.add(new Rule(redirect.getRedirectSite(), redirect.getConditions()));
+                }
+            }
+        }
+        this.rules = rules.toArray(new Rule[rules.size()]);
+        this.decisions = maxDecisions > 0 ? new LinkedHashMap<String, RedirectKey>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RedirectKey> eldest) {
+                return size() > maxDecisions;
+            }
+        } : null;
+    }
+
+    /**
+     * Determines the redirect for a user agent and its device properties.
+     *
+     * @param userAgentString the user agent string
+     * @param deviceProperties the device properties or null when they are not known yet
+     * @return the redirect key
+     */
+    public RedirectKey getRedirectSite(String userAgentString, Map<String, String> deviceProperties) {
+        if (userAgentString == null) {
+            // if the uas is null, then just transform it into 'null'. This allows the admin to configure how to handle the
+            // 'null' the null case easily.
+            userAgentString = "null";
+        }
+
+        // The decision only depends on the user agent string when no device properties are provided
+        if (deviceProperties == null && decisions != null) {
+            RedirectKey key;
+            synchronized (decisions) {
+                key = decisions.get(userAgentString);
+            }
+            if (key == null) {
+                key = evaluate(userAgentString, null);
+                synchronized (decisions) {
+                    decisions.put(userAgentString, key);
+                }
+            }
+            return key;
+        } else {
+            return evaluate(userAgentString, deviceProperties);
+        }
+    }
+
+    private RedirectKey evaluate(String userAgentString, Map<String, String> deviceProperties) {
+        boolean needsBrowserDetection = false;
+        for (Rule rule : rules) {
+            RedirectType type = rule.check(userAgentString, deviceProperties);
+            if (type == RedirectType.REDIRECT) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Found a match with UAS " + userAgentString + " and DeviceProperties " + deviceProperties
+                            + ". Setting redirect to : " + rule.redirectSite);
+                }
+                return RedirectKey.redirect(rule.redirectSite);
+            } else if (type == RedirectType.NEEDDEVICEINFO) {
+                needsBrowserDetection = true;
+            }
+        }
+        if (needsBrowserDetection) {
+            return RedirectKey.needDeviceInfo();
+        } else {
+            return RedirectKey.noRedirect();
+        }
+    }
+
+    /**
+     * Checks the conditions of a redirect without keeping them compiled.
+     *
+     * @param userAgentString the user agent string
+     * @param deviceProperties the device properties or null when they are not known yet
+     * @param conditions the conditions
+     * @return the redirect type
+     */
+    static RedirectType checkConditions(String userAgentString, Map<String, String> deviceProperties,
+            List<RedirectCondition> conditions) {
+        return new Rule(null, conditions).check(userAgentString, deviceProperties);
+    }
+
+    /**
+     * Checks device properties against device property conditions without keeping them compiled.
+     *
+     * @param deviceProperties the device properties
+     * @param conditions the device property conditions
+     * @return true if the properties match all the conditions
+     */
+    static boolean checkDeviceProperties(Map<String, String> deviceProperties, List<DevicePropertyCondition> conditions) {
+        if (conditions != null && !conditions.isEmpty()) {
+            if (deviceProperties == null) {
+                return false;
+            }
+            for (DevicePropertyCondition condition : conditions) {
+                String name = condition.getPropertyName();
+                if (!deviceProperties.containsKey(name) || !new Property(condition).matches(deviceProperties.get(name))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a device property value against a device property condition without keeping it compiled.
+     *
+     * @param propertyValue the property value
+     * @param condition the device property condition
+     * @return true if the value matches the condition
+     */
+    static boolean checkProperty(String propertyValue, DevicePropertyCondition condition) {
+        return new Property(condition).matches(propertyValue);
+    }
+
+    /**
+     * Checks a user agent string against user agent conditions without keeping them compiled.
+     *
+     * @param userAgentString the user agent string
+     * @param conditions the user agent conditions
+     * @return true if the user agent string matches the conditions
+     */
+    static boolean checkUserAgentStrings(String userAgentString, UserAgentConditions conditions) {
+        RedirectCondition condition = new RedirectCondition();
+        condition.setUserAgentConditions(conditions);
+        return new Condition(condition).matchesUserAgent(userAgentString);
+    }
+
+    /**
+     * Checks whether a user agent string contains any of the patterns without keeping them compiled.
+     *
+     * @param userAgentString the user agent string
+     * @param patterns the patterns
+     * @return true if any of the patterns is found
+     */
+    static boolean userAgentContains(String userAgentString, List<String> patterns) {
+        UserAgentMatcher matcher = compile(patterns);
+        return matcher != null && matcher.find(userAgentString);
+    }
+
+    /**
+     * Compile the patterns of a list into a matcher of the strings containing any of the patterns.
+     */
+    private static UserAgentMatcher compile(List<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return null;
+        }
+        StringBuilder combined = new StringBuilder();
+        boolean combinable = true;
+        Pattern[] compiled = new Pattern[patterns.size()];
+        PatternSyntaxException[] failures = new PatternSyntaxException[patterns.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            String pattern = patterns.get(i);
+            try {
+                compiled[i] = Pattern.compile(pattern);
+            } catch (PatternSyntaxException e) {
+                failures[i] = e;
+                combinable = false;
+            }
+            if (BACK_REFERENCE.matcher(pattern).find()) {
+                combinable = false;
+            }
+            if (i > 0) {
+                combined.append('|');
+            }
+            combined.append("(?:").append(pattern).append(')');
+        }
+        if (combinable) {
+            try {
+                return new UserAgentMatcher(new Pattern[] { Pattern.compile(combined.toString()) }, null);
+            } catch (PatternSyntaxException ignore) {
+                // A pattern that cannot be combined, such as a pattern closing a group it did not open
+            }
+        }
+        return new UserAgentMatcher(compiled, failures);
+    }
+
+    /**
+     * Matches the user agent strings containing any of the patterns.
+     */
+    private static class UserAgentMatcher {
+
+        /** . */
+        private final Pattern[] patterns;
+
+        /** The failure to compile each pattern, thrown when the pattern is reached as the uncompiled pattern would. */
+        private final PatternSyntaxException[] failures;
+
+        private UserAgentMatcher(Pattern[] patterns, PatternSyntaxException[] failures) {
+            this.patterns = patterns;
+            this.failures = failures;
+        }
+
+        boolean find(String userAgentString) {
+            if (userAgentString == null) {
+                return false;
+            }
+            for (int i = 0; i < patterns.length; i++) {
+                if (patterns[i] == null) {
+                    throw failures[i];
+                }
+                if (patterns[i].matcher(userAgentString).find()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A compiled redirect.
+     */
+    private static class Rule {
+
+        /** . */
+        private final String redirectSite;
+
+        /** . */
+        private final Condition[] conditions;
+
+        private Rule(String redirectSite, List<RedirectCondition> conditions) {
+            this.redirectSite = redirectSite;
+            if (conditions == null) {
+                this.conditions = new Condition[0];
+            } else {
+                this.conditions = new Condition[conditions.size()];
+                for (int i = 0; i < this.conditions.length; i++) {
+                    this.conditions[i] = new Condition(conditions.get(i));
+                }
+            }
+        }
+
+        RedirectType check(String userAgentString, Map<String, String> deviceProperties) {
+            for (Condition condition : conditions) {
+                if (condition.matchesUserAgent(userAgentString)) {
+                    if (condition.properties == null) {
+                        return RedirectType.REDIRECT;
+                    } else if (deviceProperties == null) {
+                        return RedirectType.NEEDDEVICEINFO;
+                    } else if (condition.matchesDeviceProperties(deviceProperties)) {
+                        return RedirectType.REDIRECT;
+                    } else {
+                        return RedirectType.NOREDIRECT;
+                    }
+                }
+            }
+            return RedirectType.NOREDIRECT;
+        }
+    }
+
+    /**
+     * A compiled redirect condition.
+     */
+    private static class Condition {
+
+        /** . */
+        private final UserAgentMatcher doesNotContain;
+
+        /** . */
+        private final UserAgentMatcher contains;
+
+        /** The device property conditions or null when there is none. */
+        private final Property[] properties;
+
+        private Condition(RedirectCondition condition) {
+            UserAgentConditions userAgentConditions = condition.getUserAgentConditions();
+            this.doesNotContain = compile(userAgentConditions.getDoesNotContain());
+            this.contains = compile(userAgentConditions.getContains());
+            List<DevicePropertyCondition> properties = condition.getDeviceProperties();
+            if (properties == null || properties.isEmpty()) {
+                this.properties = null;
+            } else {
+                this.properties = new Property[properties.size()];
+                for (int i = 0; i < this.properties.length; i++) {
+                    this.properties[i] = new Property(properties.get(i));
+                }
+            }
+        }
+
+        boolean matchesUserAgent(String userAgentString) {
+            // Check the black list first for user agent string matches, fail immediately if any match
+            if (doesNotContain != null && doesNotContain.find(userAgentString)) {
+                return false;
+            }
+
+            // if we have no contains or contains is empty, we can never match to this
+            return contains != null && contains.find(userAgentString);
+        }
+
+        boolean matchesDeviceProperties(Map<String, String> deviceProperties) {
+            for (Property property : properties) {
+                if (!deviceProperties.containsKey(property.name) || !property.matches(deviceProperties.get(property.name))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A compiled device property condition.
+     */
+    private static class Property {
+
+        /** . */
+        private final String name;
+
+        /** . */
+        private final Float greaterThan;
+
+        /** . */
+        private final Float lessThan;
+
+        /** . */
+        private final String equals;
+
+        /** . */
+        private final String matches;
+
+        /** The compiled pattern, null when there is no pattern or when it is invalid. */
+        private final Pattern pattern;
+
+        private Property(DevicePropertyCondition condition) {
+            this.name = condition.getPropertyName();
+            this.greaterThan = condition.getGreaterThan();
+            this.lessThan = condition.getLessThan();
+            this.equals = condition.getEquals();
+            this.matches = condition.getMatches();
+            Pattern pattern = null;
+            if (matches != null) {
+                try {
+                    pattern = Pattern.compile(matches);
+                } catch (PatternSyntaxException pse) {
+                    log.debug("Encountered a PatternSyntaxException trying to compile a device property pattern (" + matches
+                            + ") which should be a valid string for a pattern.");
+                }
+            }
+            this.pattern = pattern;
+        }
+
+        boolean matches(String propertyValue) {
+            if (greaterThan != null || lessThan != null) {
+                float value;
+                try {
+                    value = Float.parseFloat(propertyValue);
+                } catch (NumberFormatException nfe) {
+                    log.debug("Encountered a NumberFormatException trying to parse a property value (" + propertyValue
+                            + ") which should be a float.");
+                    return false;
+                }
+                if (greaterThan != null && value <= greaterThan) {
+                    return false;
+                }
+                if (lessThan != null && value >= lessThan) {
+                    return false;
+                }
+            }
+
+            if (equals != null && !propertyValue.equals(equals)) {
+                return false;
+            }
+
+            if (matches != null) {
+                if (pattern == null) {
+                    return false;
+                }
+                if (!pattern.matcher(propertyValue == null ? "" : propertyValue).find()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -25,14 +25,22 @@ package org.gatein.web.redirect.implementation;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.exoplatform.commons.utils.PropertyManager;
 import org.exoplatform.portal.config.DataStorage;
 import org.exoplatform.portal.config.model.PortalConfig;
 import org.exoplatform.portal.config.model.PortalRedirect;
 import org.exoplatform.portal.mop.navigation.NavigationService;
+import org.exoplatform.services.listener.Event;
+import org.exoplatform.services.listener.Listener;
+import org.exoplatform.services.listener.ListenerService;
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
 import org.gatein.web.redirect.Mapper;
+import org.gatein.web.redirect.RedirectRules;
 import org.gatein.web.redirect.Redirector;
 import org.gatein.web.redirect.api.RedirectKey;
 import org.gatein.web.redirect.api.SiteRedirectService;
@@ -45,6 +53,12 @@ import org.picocontainer.Startable;
 public class SiteRedirectServiceImpl implements SiteRedirectService, Startable {
     protected static Logger log = LoggerFactory.getLogger(SiteRedirectServiceImpl.class);
 
+    /** The property configuring the time in milliseconds after which the compiled rules of a site are compiled again. */
+    public static final String RULES_TIME_TO_LIVE = "gatein.redirect.rules.time-to-live";
+
+    /** The default time to live of the compiled rules. */
+    static final long DEFAULT_RULES_TIME_TO_LIVE = 60 * 1000;
+
     // Handles which site to redirect to
     Redirector redirector;
 
@@ -54,23 +68,81 @@ public class SiteRedirectServiceImpl implements SiteRedirectService, Startable {
     // Used for retrieving the stored portal configuration
     DataStorage dataStorage;
 
+    // The compiled redirect rules of each site, removed when the site configuration changes locally and expired after
+    // the time to live so that the changes made by another cluster node are seen
+    final ConcurrentMap<String, SiteRules> rules = new ConcurrentHashMap<String, SiteRules>();
+
+    // Incremented when the site configurations change so that rules compiled from a stale configuration are not kept
+    final AtomicLong version = new AtomicLong();
+
+    // The time to live of the compiled rules in milliseconds, zero when they only expire with the local changes
+    long timeToLive;
+
     public SiteRedirectServiceImpl(DataStorage dataStorage, NavigationService navService) throws IOException {
+        this(dataStorage, navService, null);
+    }
+
+    public SiteRedirectServiceImpl(DataStorage dataStorage, NavigationService navService, ListenerService listenerService)
+            throws IOException {
         this.dataStorage = dataStorage;
         this.redirector = new Redirector();
         this.mapper = new Mapper(navService);
+        this.timeToLive = getTimeToLive();
+
+        //
+        if (listenerService != null) {
+            Listener<DataStorage, PortalConfig> invalidation = new Listener<DataStorage, PortalConfig>() {
+                @Override
+                public void onEvent(Event<DataStorage, PortalConfig> event) throws Exception {
+                    version.incrementAndGet();
+                    rules.remove(event.getData().getName());
+                }
+            };
+            listenerService.addListener(DataStorage.PORTAL_CONFIG_CREATED, invalidation);
+            listenerService.addListener(DataStorage.PORTAL_CONFIG_UPDATED, invalidation);
+            listenerService.addListener(DataStorage.PORTAL_CONFIG_REMOVED, invalidation);
+        }
+    }
+
+    private static long getTimeToLive() {
+        String value = PropertyManager.getProperty(RULES_TIME_TO_LIVE);
+        if (value != null) {
+            try {
+                long timeToLive = Long.parseLong(value.trim());
+                if (timeToLive >= 0) {
+                    return timeToLive;
+                }
+            } catch (NumberFormatException ignore) {
+            }
+            log.warn("Invalid " + RULES_TIME_TO_LIVE + " value " + value + ", the default value is used");
+        }
+        return DEFAULT_RULES_TIME_TO_LIVE;
     }
 
     @Override
     public RedirectKey getRedirectSite(String origin, String userAgentString, Map<String, String> deviceProperties) {
         try {
             if (redirector != null && dataStorage != null) {
-                PortalConfig pConfig = dataStorage.getPortalConfig(origin);
-                if (pConfig != null) {
-                    return redirector.getRedirectSite(pConfig.getPortalRedirects(), userAgentString, deviceProperties);
-                } else {
-                    log.warn("No PortalConfig found for site : " + origin + ". Site redirection cannot be peformed.");
-                    return null;
+                SiteRules siteRules = rules.get(origin);
+                if (siteRules == null || siteRules.isExpired()) {
+                    long current = version.get();
+                    PortalConfig pConfig = dataStorage.getPortalConfig(origin);
+                    if (pConfig != null) {
+                        long expiration = timeToLive > 0 ? System.currentTimeMillis() + timeToLive : Long.MAX_VALUE;
+                        siteRules = new SiteRules(redirector.compile(pConfig.getPortalRedirects()), expiration);
+                        rules.put(origin, siteRules);
+
+                        // A configuration changed while the rules were compiled, they may be stale
+                        if (version.get() != current) {
+                            rules.remove(origin, siteRules);
+                        }
+                    } else {
+                        rules.remove(origin);
+                        log.warn("No PortalConfig found for site : " + origin + ". Site redirection cannot be peformed.");
+                        return null;
+                    }
                 }
+                return siteRules.rules.getRedirectSite(userAgentString, deviceProperties);
             } else {
                 log.warn("Redirector(" + redirector + ") and DataStorage(" + dataStorage
                         + ") need to be both be set. Site redirection cannot be performed.");
@@ -167,4 +239,25 @@ public class SiteRedirectServiceImpl implements SiteRedirectService, Startable {
     public void stop() {
         // only needed because exo kernel requires this method (really its the underlying picocontianer that needs it)
     }
+
+    /**
+     * The compiled rules of a site and their expiration time.
+     */
+    static class SiteRules {
+
+        /** . */
+        final RedirectRules rules;
+
+        /** . */
+        final long expiration;
+
+        SiteRules(RedirectRules rules, long expiration) {
+            this.rules = rules;
+            this.expiration = expiration;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiration;
+        }
+    }
 }
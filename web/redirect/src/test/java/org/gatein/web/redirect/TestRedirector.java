@@ -23,12 +23,18 @@
 package org.gatein.web.redirect;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.PatternSyntaxException;
 
 import junit.framework.TestCase;
 
+import org.exoplatform.portal.config.model.DevicePropertyCondition;
 import org.exoplatform.portal.config.model.PortalRedirect;
+import org.exoplatform.portal.config.model.RedirectCondition;
+import org.exoplatform.portal.config.model.UserAgentConditions;
 import org.gatein.web.redirect.api.RedirectKey;
 import org.gatein.web.redirect.api.RedirectType;
 
@@ -74,6 +80,75 @@ public class TestRedirector extends TestCase {
         checkIsNoRedirect(userAgentA, null, portalRedirect);
     }
 
+    public void testCompiledRules() {
+        String[] contains = { "TestBrowser/(1|2)", "Other(Browser)/\\1" };
+        String[] doesNotContain = { "Safari/500\\.0$", "Gecko\\)" };
+        PortalRedirect portalRedirect = PortalRedirectsFactory.createSimpleUASRedirect(contains, null);
+        PortalRedirect rejectRedirect = PortalRedirectsFactory.createSimpleUASRedirect(contains, doesNotContain);
+        RedirectRules rules = new Redirector().compile(PortalRedirectsFactory.createPortalRedirects(portalRedirect));
+        RedirectRules rejectRules = new Redirector().compile(PortalRedirectsFactory.createPortalRedirects(rejectRedirect));
+
+        // The decisions are the same when they are made again from the cache
+        for (int i = 0; i < 2; i++) {
+            assertEquals(RedirectType.REDIRECT, rules.getRedirectSite(userAgentA, null).getType());
+            assertEquals(RedirectType.REDIRECT, rules.getRedirectSite("OtherBrowser/Browser", null).getType());
+            assertEquals(RedirectType.NOREDIRECT, rules.getRedirectSite("OtherBrowser/1", null).getType());
+            assertEquals(RedirectType.NOREDIRECT, rules.getRedirectSite(null, null).getType());
+            assertEquals(RedirectType.NOREDIRECT, rejectRules.getRedirectSite(userAgentA, null).getType());
+            assertEquals(RedirectType.NOREDIRECT, rejectRules.getRedirectSite(userAgentB, null).getType());
+            assertEquals(RedirectType.REDIRECT, rejectRules.getRedirectSite("TestBrowser/2", null).getType());
+        }
+
+        // The compiled rules do not change with the redirects
+        portalRedirect.setEnabled(false);
+        assertEquals(RedirectType.REDIRECT, rules.getRedirectSite(userAgentA, null).getType());
+        assertEquals(RedirectType.REDIRECT, rules.getRedirectSite(userAgentB, null).getType());
+    }
+
+    public void testInvalidPattern() {
+        String[] contains = { "TestBrowser", "Test(Browser" };
+        PortalRedirect portalRedirect = PortalRedirectsFactory.createSimpleUASRedirect(contains, null);
+        RedirectRules rules = new Redirector().compile(PortalRedirectsFactory.createPortalRedirects(portalRedirect));
+        assertEquals(RedirectType.REDIRECT, rules.getRedirectSite(userAgentA, null).getType());
+        try {
+            rules.getRedirectSite("Mozilla", null);
+            fail();
+        } catch (PatternSyntaxException ignore) {
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedChecks() {
+        Redirector redirector = new Redirector();
+        PortalRedirect deviceRedirect = PortalRedirectsFactory.createSimpleDeviceRedirect("width", null, null, 100F, null);
+        Map<String, String> deviceProperties = new HashMap<String, String>();
+        deviceProperties.put("width", "200");
+        List<RedirectCondition> conditions = deviceRedirect.getConditions();
+        assertEquals(RedirectType.REDIRECT, redirector.checkConditions(userAgentA, deviceProperties, conditions));
+        assertEquals(RedirectType.NEEDDEVICEINFO, redirector.checkConditions(userAgentA, null, conditions));
+        deviceProperties.put("width", "50");
+        assertEquals(RedirectType.NOREDIRECT, redirector.checkConditions(userAgentA, deviceProperties, conditions));
+        assertEquals(RedirectType.NOREDIRECT, redirector.checkConditions(userAgentA, deviceProperties, null));
+
+        //
+        RedirectCondition condition = conditions.get(0);
+        DevicePropertyCondition width = condition.getDeviceProperties().get(0);
+        assertTrue(redirector.checkDeviceProperties(null, null));
+        assertFalse(redirector.checkDeviceProperties(null, condition.getDeviceProperties()));
+        assertFalse(redirector.checkDeviceProperties(deviceProperties, condition.getDeviceProperties()));
+        assertTrue(redirector.checkProperty("200", width));
+        assertFalse(redirector.checkProperty("abc", width));
+
+        //
+        UserAgentConditions userAgentConditions = PortalRedirectsFactory.createSimpleRedirectRejectTestBrowserUAS()
+                .getConditions().get(0).getUserAgentConditions();
+        assertFalse(redirector.checkUserAgentStrings(userAgentA, userAgentConditions));
+        assertTrue(redirector.checkUserAgentStrings("foo", userAgentConditions));
+        assertTrue(redirector.userAgentContains(userAgentA, Arrays.asList("Other", "Gecko")));
+        assertFalse(redirector.userAgentContains(userAgentA, Arrays.asList("Other")));
+        assertFalse(redirector.userAgentContains(null, Arrays.asList(".*")));
+    }
+
     public void testSimpleConfigurationAcceptAllUAS() {
         PortalRedirect portalRedirect = PortalRedirectsFactory.createSimpleRedirectAcceptAllUAS();
         checkAcceptAllUAS(portalRedirect);
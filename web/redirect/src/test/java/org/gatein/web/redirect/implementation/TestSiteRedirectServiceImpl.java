@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.web.redirect.implementation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.exoplatform.portal.config.DataStorage;
+import org.exoplatform.portal.config.model.PortalConfig;
+import org.gatein.web.redirect.PortalRedirectsFactory;
+import org.gatein.web.redirect.api.RedirectType;
+
+public class TestSiteRedirectServiceImpl extends TestCase {
+
+    /** . */
+    private PortalConfig config;
+
+    /** . */
+    private AtomicInteger loads;
+
+    /** . */
+    private DataStorage dataStorage;
+
+    @Override
+    protected void setUp() throws Exception {
+        config = new PortalConfig(PortalConfig.PORTAL_TYPE, "classic");
+        setRedirect("TestBrowser");
+        loads = new AtomicInteger();
+        dataStorage = (DataStorage) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataStorage.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getPortalConfig") && args.length == 1) {
+                            loads.incrementAndGet();
+                            return "classic".equals(args[0]) ? config : null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    public void testRulesExpire() throws Exception {
+        SiteRedirectServiceImpl service = new SiteRedirectServiceImpl(dataStorage, null);
+        assertEquals(SiteRedirectServiceImpl.DEFAULT_RULES_TIME_TO_LIVE, service.timeToLive);
+        service.timeToLive = 500;
+        assertEquals(RedirectType.REDIRECT, service.getRedirectSite("classic", "TestBrowser/1", null).getType());
+        assertEquals(1, loads.get());
+
+        // A change made by another node is not notified, the compiled rules are used until they expire
+        setRedirect("OtherBrowser");
+        assertEquals(RedirectType.REDIRECT, service.getRedirectSite("classic", "TestBrowser/1", null).getType());
+        assertEquals(1, loads.get());
+        Thread.sleep(600);
+        assertEquals(RedirectType.NOREDIRECT, service.getRedirectSite("classic", "TestBrowser/1", null).getType());
+        assertEquals(RedirectType.REDIRECT, service.getRedirectSite("classic", "OtherBrowser/1", null).getType());
+        assertEquals(2, loads.get());
+    }
+
+    public void testRulesWithoutTimeToLive() throws Exception {
+        SiteRedirectServiceImpl service = new SiteRedirectServiceImpl(dataStorage, null);
+        service.timeToLive = 0;
+        assertEquals(RedirectType.REDIRECT, service.getRedirectSite("classic", "TestBrowser/1", null).getType());
+        assertEquals(Long.MAX_VALUE, service.rules.get("classic").expiration);
+        assertEquals(RedirectType.REDIRECT, service.getRedirectSite("classic", "TestBrowser/1", null).getType());
+        assertEquals(1, loads.get());
+    }
+
+    public void testMissingSite() throws Exception {
+        SiteRedirectServiceImpl service = new SiteRedirectServiceImpl(dataStorage, null);
+        assertNull(service.getRedirectSite("missing", "TestBrowser/1", null));
+        assertNull(service.rules.get("missing"));
+    }
+
+    private void setRedirect(String contains) {
+        config.setPortalRedirects(PortalRedirectsFactory.createPortalRedirects(PortalRedirectsFactory
+                .createSimpleContainsRedirect("mobile", contains)));
+    }
+}
@@ -37,10 +37,10 @@ public class ApplicationMonitoringFilter implements ActionFilter, RenderFilter,
     public void doFilter(ActionRequest req, ActionResponse resp, FilterChain chain) throws IOException, PortletException {
         ApplicationStatistic stat = get(req);
         if (stat != null) {
-            long t = -System.currentTimeMillis();
+            long t = -System.nanoTime();
             chain.doFilter(req, resp);
-            t += System.currentTimeMillis();
-            stat.logTime(t);
+            t += System.nanoTime();
+            stat.logTimeNanos(t);
         } else {
             chain.doFilter(req, resp);
         }
@@ -49,10 +49,10 @@ public class ApplicationMonitoringFilter implements ActionFilter, RenderFilter,
     public void doFilter(EventRequest req, EventResponse resp, FilterChain chain) throws IOException, PortletException {
         ApplicationStatistic stat = get(req);
         if (stat != null) {
-            long t = -System.currentTimeMillis();
+            long t = -System.nanoTime();
             chain.doFilter(req, resp);
-            t += System.currentTimeMillis();
-            stat.logTime(t);
+            t += System.nanoTime();
+            stat.logTimeNanos(t);
         } else {
             chain.doFilter(req, resp);
         }
@@ -61,10 +61,10 @@ public class ApplicationMonitoringFilter implements ActionFilter, RenderFilter,
     public void doFilter(RenderRequest req, RenderResponse resp, FilterChain chain) throws IOException, PortletException {
         ApplicationStatistic stat = get(req);
         if (stat != null) {
-            long t = -System.currentTimeMillis();
+            long t = -System.nanoTime();
             chain.doFilter(req, resp);
-            t += System.currentTimeMillis();
-            stat.logTime(t);
+            t += System.nanoTime();
+            stat.logTimeNanos(t);
         } else {
             chain.doFilter(req, resp);
         }
@@ -73,10 +73,10 @@ public class ApplicationMonitoringFilter implements ActionFilter, RenderFilter,
     public void doFilter(ResourceRequest req, ResourceResponse resp, FilterChain chain) throws IOException, PortletException {
         ApplicationStatistic stat = get(req);
         if (stat != null) {
-            long t = -System.currentTimeMillis();
+            long t = -System.nanoTime();
             chain.doFilter(req, resp);
-            t += System.currentTimeMillis();
-            stat.logTime(t);
+            t += System.nanoTime();
+            stat.logTimeNanos(t);
         } else {
             chain.doFilter(req, resp);
         }
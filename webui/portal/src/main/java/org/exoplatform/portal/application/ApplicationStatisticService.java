@@ -112,6 +112,30 @@ public class ApplicationStatisticService implements Startable {
         return toSeconds(app.getAverageTime());
     }
 
+    /*
+     * return the execution time of a specified application at a percentile
+     */
+    @Managed
+    @ManagedDescription("The execution time of a specified application at a percentile of the last minutes in seconds")
+    @Impact(ImpactType.READ)
+    public double getPercentileTime(@ManagedDescription("The application id") @ManagedName("applicationId") String appId,
+            @ManagedDescription("The percentile between 0 and 100") @ManagedName("percentile") double percentile) {
+        ApplicationStatistic app = getApplicationStatistic(appId);
+        return toSeconds(app.getPercentileTime(percentile));
+    }
+
+    /*
+     * return the p50, p90, p99 and p999 execution times of a specified application
+     */
+    @Managed
+    @ManagedDescription("The 50th, 90th, 99th and 99.9th percentiles of the execution time of a specified application"
+            + " during the last minutes in seconds")
+    @Impact(ImpactType.READ)
+    public String[] getPercentileTimes(@ManagedDescription("The application id") @ManagedName("applicationId") String appId) {
+        ApplicationStatistic app = getApplicationStatistic(appId);
+        return app.getPercentileSummary();
+    }
+
     /*
      * return count of an specify application
      */
@@ -242,6 +242,44 @@ public class PortalRequestContext extends WebuiRequestContext {
         urlBuilder = new PortalURLBuilder(this, createURL(ComponentURL.TYPE));
     }
 
+    /**
+     * Creates a context for the render of a portlet of the page by another thread than the request thread. The context
+     * shares the resolved state of the request context, it renders its URLs with its own controller context and collects
+     * the scripts of the portlet with its own javascript manager. The request and the response are not modified.
+     *
+     * @param parent the request context
+     * @param request the request of the render
+     * @param response the response of the render
+     */
+    public PortalRequestContext(PortalRequestContext parent, HttpServletRequest request, HttpServletResponse response) {
+        super(parent.getApplication());
+
+        //
+        this.urlFactory = parent.urlFactory;
+        this.controllerContext = new ControllerContext(parent.controllerContext, request, response);
+        this.jsmanager_ = new JavascriptManager();
+        this.request_ = request;
+        this.response_ = response;
+        this.parameterMap = parent.parameterMap;
+        this.ajaxRequest_ = parent.ajaxRequest_;
+        this.cacheLevel_ = parent.cacheLevel_;
+        this.forceFullUpdate = parent.forceFullUpdate;
+        this.requestURI_ = parent.requestURI_;
+        this.siteKey = parent.siteKey;
+        this.nodePath_ = parent.nodePath_;
+        this.requestLocale = parent.requestLocale;
+        this.portalURI = parent.portalURI;
+        this.locale = parent.locale;
+        this.userPortalConfig = parent.userPortalConfig;
+        this.uiApplication_ = parent.uiApplication_;
+        this.appRes_ = parent.appRes_;
+        this.sessionId_ = parent.sessionId_;
+        setStateManager(parent.getStateManager());
+
+        //
+        urlBuilder = new PortalURLBuilder(this, createURL(ComponentURL.TYPE));
+    }
+
     @Override
     public <R, U extends PortalURL<R, U>> U newURL(ResourceType<R, U> resourceType, URLFactory urlFactory) {
         PortalURLContext urlContext = new PortalURLContext(controllerContext, siteKey);
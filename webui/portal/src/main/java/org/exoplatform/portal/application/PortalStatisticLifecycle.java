@@ -35,7 +35,7 @@ public class PortalStatisticLifecycle implements ApplicationLifecycle<WebuiReque
 
     @SuppressWarnings("unused")
     public void onStartRequest(Application app, WebuiRequestContext rcontext) throws Exception {
-        app.setAttribute(ATTRIBUTE_NAME, System.currentTimeMillis());
+        rcontext.setAttribute(ATTRIBUTE_NAME, System.nanoTime());
     }
 
     @SuppressWarnings("unused")
@@ -48,10 +48,10 @@ public class PortalStatisticLifecycle implements ApplicationLifecycle<WebuiReque
         PortalStatisticService service = (PortalStatisticService) PortalContainer.getInstance().getComponentInstanceOfType(
                 PortalStatisticService.class);
         String portalOwner = ((PortalRequestContext) rcontext).getPortalOwner();
-        if (portalOwner != null) {
+        Long startTime = (Long) rcontext.getAttribute(ATTRIBUTE_NAME);
+        if (portalOwner != null && startTime != null) {
             PortalStatistic appStatistic = service.getPortalStatistic(portalOwner);
-            long startTime = Long.valueOf(app.getAttribute(ATTRIBUTE_NAME).toString());
-            appStatistic.logTime(System.currentTimeMillis() - startTime);
+            appStatistic.logTimeNanos(System.nanoTime() - startTime);
         }
     }
 
@@ -119,6 +119,30 @@ public class PortalStatisticService implements Startable {
         return toSeconds(getPortalStatistic(id).getAverageTime());
     }
 
+    /*
+     * return the execution time of a specified portal at a percentile
+     */
+    @Managed
+    @ManagedDescription("The execution time of a specified portal at a percentile of the last minutes in seconds")
+    @Impact(ImpactType.READ)
+    public double getPercentileTime(@ManagedDescription("The portal id") @ManagedName("portalId") String id,
+            @ManagedDescription("The percentile between 0 and 100") @ManagedName("percentile") double percentile) {
+        PortalStatistic app = getPortalStatistic(id);
+        return toSeconds(app.getPercentileTime(percentile));
+    }
+
+    /*
+     * return the p50, p90, p99 and p999 execution times of a specified portal
+     */
+    @Managed
+    @ManagedDescription("The 50th, 90th, 99th and 99.9th percentiles of the execution time of a specified portal"
+            + " during the last minutes in seconds")
+    @Impact(ImpactType.READ)
+    public String[] getPercentileTimes(@ManagedDescription("The portal id") @ManagedName("portalId") String id) {
+        PortalStatistic app = getPortalStatistic(id);
+        return app.getPercentileSummary();
+    }
+
     /*
      * Return the throughput of a specified portal
      */
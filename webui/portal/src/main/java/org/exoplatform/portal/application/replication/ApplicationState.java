@@ -19,7 +19,6 @@
 
 package org.exoplatform.portal.application.replication;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -87,12 +86,7 @@ public class ApplicationState implements Serializable {
             SerializationContext serializationContext = SerializationContextSingleton.getInstance();
 
             //
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            serializationContext.write(application, baos);
-            baos.close();
-
-            //
-            byte[] bytes = baos.toByteArray();
+            byte[] bytes = serializationContext.write(application);
             oos.writeInt(bytes.length);
             oos.write(bytes);
         } else {
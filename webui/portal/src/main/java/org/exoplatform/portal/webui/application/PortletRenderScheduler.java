@@ -0,0 +1,510 @@
+/**
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.webui.application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.portlet.PortletMode;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.exoplatform.commons.utils.PropertyManager;
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.component.RequestLifeCycle;
+import org.exoplatform.portal.application.PortalRequestContext;
+import org.exoplatform.portal.webui.portal.UIPortal;
+import org.exoplatform.portal.webui.util.Util;
+import org.exoplatform.portal.webui.workspace.UIPortalApplication;
+import org.exoplatform.portal.webui.workspace.UIPortalApplication.EditMode;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.exoplatform.services.security.ConversationState;
+import org.exoplatform.web.application.JavascriptManager;
+import org.exoplatform.web.application.RequestContext;
+import org.exoplatform.webui.core.UIComponent;
+import org.gatein.pc.api.invocation.RenderInvocation;
+import org.gatein.pc.api.invocation.response.PortletInvocationResponse;
+
+/**
+ * <p>
+ * Schedules the render invocations of the portlets of a page on a bounded executor before the page is rendered. The page
+ * is then rendered as usual in layout order, the {@link UIPortletLifecycle} of each portlet waits for the response of
+ * its invocation instead of invoking the portlet container. The response is converted to markup on the request thread
+ * so the markup headers, the cookies and the title set by the portlet still reach the page.
+ * </p>
+ *
+ * <p>
+ * The parallel render is opt-in and is configured by the following properties of the configuration.properties file:
+ * <ul>
+ * <li>{@value #PARALLEL_PROPERTY}: enables the parallel render, false by default</li>
+ * <li>{@value #THREADS_PROPERTY}: the number of render threads, 16 by default</li>
+ * <li>{@value #TIMEOUT_PROPERTY}: the maximum time in milliseconds a page waits for a portlet, 10000 by default</li>
+ * </ul>
+ * Portlets must not rely on being rendered on the thread of the servlet request when it is enabled.
+ * </p>
+ *
+ * <p>
+ * Each render thread is given the conversation state of the request and runs its invocation within its own request life
+ * cycle, so it uses its own POM session. The invocation is dispatched with its own wrappers of the servlet request and
+ * response: the request attributes set during the dispatch are private to the invocation and the response is not
+ * modified, as for an include. The invocation also uses its own portal request context created from the context of the
+ * request once its state is resolved, the scripts the portlet registers with it are added to the page when the page
+ * consumes the response. The page waits at most the timeout for all its portlets, not the timeout for each portlet, a
+ * portlet that did not render in time is not interrupted and its response is ignored.
+ * </p>
+ */
+public class PortletRenderScheduler {
+
+    /** . */
+    public static final String PARALLEL_PROPERTY = "gatein.portlet.render.parallel";
+
+    /** . */
+    public static final String THREADS_PROPERTY = "gatein.portlet.render.threads";
+
+    /** . */
+    public static final String TIMEOUT_PROPERTY = "gatein.portlet.render.timeout";
+
+    /** . */
+    private static final Log log = ExoLogger.getLogger("portal:PortletRenderScheduler");
+
+    /** . */
+    static final String SCHEDULE_ATTRIBUTE = PortletRenderScheduler.class.getName() + ".schedule";
+
+    /** . */
+    private static volatile PortletRenderScheduler instance;
+
+    /**
+     * Returns the scheduler configured from the configuration properties.
+     *
+     * @return the scheduler
+     */
+    public static PortletRenderScheduler getInstance() {
+        if (instance == null) {
+            synchronized (PortletRenderScheduler.class) {
+                if (instance == null) {
+                    boolean enabled = Boolean.valueOf(PropertyManager.getProperty(PARALLEL_PROPERTY));
+                    int threads = getIntProperty(THREADS_PROPERTY, 16);
+                    long timeout = getIntProperty(TIMEOUT_PROPERTY, 10000);
+                    instance = new PortletRenderScheduler(enabled, threads, timeout);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static int getIntProperty(String name, int defaultValue) {
+        String value = PropertyManager.getProperty(name);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value " + value + " for property " + name + ", using default " + defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    /** . */
+    private final boolean enabled;
+
+    /** . */
+    private final long timeout;
+
+    /** . */
+    private final ExecutorService executor;
+
+    PortletRenderScheduler(boolean enabled, int threads, long timeout) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+        if (enabled) {
+            final AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PortletRender-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+
+            // When the queue is full the render is performed by the request thread
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(threads * 16), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Schedule the render invocation of the portlets displayed by the current site of a full page render.
+     *
+     * @param uiPortalApp the portal application
+     * @param context the request context
+     */
+    public void schedule(UIPortalApplication uiPortalApp, final PortalRequestContext context) {
+        if (!enabled || context.useAjax() || uiPortalApp.getModeState() != UIPortalApplication.NORMAL_MODE) {
+            return;
+        }
+
+        // Public parameters removal is performed by the render of the portlets, the sequential render must be used
+        if (context.getRequest().getParameterMap().containsKey("removePP")) {
+            return;
+        }
+
+        //
+        UIPortal uiPortal = Util.getUIPortal();
+        if (uiPortal == null) {
+            return;
+        }
+        UIComponent root = uiPortal.getMaximizedUIComponent() != null ? uiPortal.getMaximizedUIComponent() : uiPortal;
+
+        //
+        List<UIPortlet> portlets = new ArrayList<UIPortlet>();
+        root.findComponentOfType(portlets, UIPortlet.class);
+        if (portlets.size() < 2) {
+            return;
+        }
+
+        // Resolve the lazy state of the context on the request thread, the render threads only read it
+        context.getUserPortalConfig();
+
+        //
+        final ExoContainer container = ExoContainerContext.getCurrentContainer();
+        final ConversationState state = ConversationState.getCurrent();
+        final Thread requestThread = Thread.currentThread();
+        Schedule schedule = new Schedule(System.currentTimeMillis() + timeout);
+        for (final UIPortlet<?, ?> uiPortlet : portlets) {
+            if (isDisplayed(uiPortlet, root)) {
+                try {
+                    // Each invocation is dispatched with its own request, response and request context
+                    RenderRequest request = new RenderRequest(context.getRequest());
+                    RenderResponse response = new RenderResponse(context.getResponse());
+                    final PortalRequestContext renderContext = new PortalRequestContext(context, request, response);
+                    final RenderInvocation invocation = uiPortlet.create(RenderInvocation.class, renderContext);
+                    if (invocation != null) {
+                        invocation.setRequest(request);
+                        invocation.setResponse(response);
+                        invocation.setServerContext(new ExoServerContext(request, response));
+                        Future<PortletInvocationResponse> future = submit(new Callable<PortletInvocationResponse>() {
+                            public PortletInvocationResponse call() throws Exception {
+                                if (Thread.currentThread() == requestThread) {
+                                    // Executed by the caller when the executor queue is full
+                                    RequestContext.setCurrentInstance(renderContext);
+                                    try {
+                                        return uiPortlet.invoke(invocation);
+                                    } finally {
+                                        RequestContext.setCurrentInstance(context);
+                                    }
+                                }
+                                ExoContainerContext.setCurrentContainer(container);
+                                ConversationState.setCurrent(state);
+                                RequestContext.setCurrentInstance(renderContext);
+                                RequestLifeCycle.begin(container);
+                                try {
+                                    return uiPortlet.invoke(invocation);
+                                } finally {
+                                    RequestLifeCycle.end();
+                                    RequestContext.setCurrentInstance(null);
+                                    ConversationState.setCurrent(null);
+                                    ExoContainerContext.setCurrentContainer(null);
+                                }
+                            }
+                        });
+                        schedule.renders.put(uiPortlet.getId(), new Render(future, renderContext.getJavascriptManager()));
+                    }
+                } catch (Exception e) {
+                    // The portlet will be rendered sequentially
+                    log.debug("Could not schedule render of portlet " + uiPortlet.getId(), e);
+                }
+            }
+        }
+
+        //
+        context.setAttribute(SCHEDULE_ATTRIBUTE, schedule);
+    }
+
+    /**
+     * Submits a render to the executor of the scheduler.
+     *
+     * @param render the render
+     * @return the future response
+     */
+    Future<PortletInvocationResponse> submit(Callable<PortletInvocationResponse> render) {
+        return executor.submit(render);
+    }
+
+    /**
+     * Returns true when the portlet would be invoked by the sequential render of the page.
+     */
+    private boolean isDisplayed(UIPortlet<?, ?> uiPortlet, UIComponent root) {
+        for (UIComponent current = uiPortlet; current != null && current != root; current = current.getParent()) {
+            if (!current.isRendered()) {
+                return false;
+            }
+        }
+        String appStatus = uiPortlet.getProperties().get("appStatus");
+        if ("Window".equals(uiPortlet.getPortletStyle()) && !("SHOW".equals(appStatus) || "HIDE".equals(appStatus))) {
+            return false;
+        }
+        return (Util.getUIPortalApplication().getEditMode() != EditMode.BLOCK || uiPortlet.getCurrentPortletMode().equals(
+                PortletMode.EDIT))
+                && uiPortlet.hasAccessPermission();
+    }
+
+    /**
+     * Returns the response of the render invocation scheduled for a portlet, the method blocks until the response is
+     * available or the page deadline expires.
+     *
+     * @param uiPortlet the portlet
+     * @param context the request context
+     * @return the response or null when no render invocation was scheduled for the portlet
+     * @throws Exception any exception thrown by the invocation or a {@link TimeoutException}
+     */
+    public PortletInvocationResponse getResponse(UIPortlet<?, ?> uiPortlet, PortalRequestContext context) throws Exception {
+        return getResponse(uiPortlet.getId(), context);
+    }
+
+    PortletInvocationResponse getResponse(String id, PortalRequestContext context) throws Exception {
+        Schedule schedule = (Schedule) context.getAttribute(SCHEDULE_ATTRIBUTE);
+        if (schedule == null) {
+            return null;
+        }
+        Render render = schedule.renders.remove(id);
+        if (render == null) {
+            return null;
+        }
+        PortletInvocationResponse response;
+        try {
+            // The portlets of the page share the same deadline
+            long remaining = Math.max(0, schedule.deadline - System.currentTimeMillis());
+            response = render.future.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The render is not interrupted in the middle of its dispatch, it completes with its own context and its
+            // response is ignored
+            render.future.cancel(false);
+            throw new TimeoutException("Portlet " + id + " did not render within the " + timeout + " ms of the page");
+        }
+
+        // The scripts of the portlet are added in layout order as for the sequential render
+        context.getJavascriptManager().merge(render.javascript);
+        return response;
+    }
+
+    /**
+     * Cancel the invocations scheduled but not consumed by the render of the page, the invocations already started
+     * complete.
+     *
+     * @param context the request context
+     */
+    public void clear(PortalRequestContext context) {
+        Schedule schedule = (Schedule) context.getAttribute(SCHEDULE_ATTRIBUTE);
+        if (schedule != null) {
+            for (Render render : schedule.renders.values()) {
+                render.future.cancel(false);
+            }
+            context.setAttribute(SCHEDULE_ATTRIBUTE, null);
+        }
+    }
+
+    /**
+     * The invocations scheduled for a page and the time at which the page stops waiting for them.
+     */
+    static class Schedule {
+
+        /** . */
+        final Map<String, Render> renders = new HashMap<String, Render>();
+
+        /** . */
+        final long deadline;
+
+        Schedule(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * The response of an invocation and the scripts the portlet registered during the invocation.
+     */
+    static class Render {
+
+        /** . */
+        final Future<PortletInvocationResponse> future;
+
+        /** . */
+        final JavascriptManager javascript;
+
+        Render(Future<PortletInvocationResponse> future, JavascriptManager javascript) {
+            this.future = future;
+            this.javascript = javascript;
+        }
+    }
+
+    /**
+     * The request of an invocation, the attributes set during the invocation are private to the invocation and hide
+     * the attributes of the servlet request.
+     */
+    static class RenderRequest extends HttpServletRequestWrapper {
+
+        /** . */
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+        /** The servlet request attributes removed by the invocation. */
+        private final Set<String> removed = new HashSet<String>();
+
+        RenderRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            Object value = attributes.get(name);
+            if (value == null && !removed.contains(name)) {
+                value = super.getAttribute(name);
+            }
+            return value;
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            Set<String> names = new HashSet<String>();
+            for (Enumeration<?> e = super.getAttributeNames(); e.hasMoreElements();) {
+                names.add((String) e.nextElement());
+            }
+            names.removeAll(removed);
+            names.addAll(attributes.keySet());
+            return Collections.enumeration(names);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) {
+                removeAttribute(name);
+            } else {
+                attributes.put(name, value);
+                removed.remove(name);
+            }
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+            removed.add(name);
+        }
+    }
+
+    /**
+     * The response of an invocation, the changes of the status and of the headers are ignored as the container does for
+     * an included response. The properties of the portlet response reach the page through the invocation response.
+     */
+    static class RenderResponse extends HttpServletResponseWrapper {
+
+        RenderResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+        }
+
+        @Override
+        public void setStatus(int sc) {
+        }
+
+        @Override
+        public void setContentType(String type) {
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+        }
+
+        @Override
+        public void setLocale(Locale loc) {
+        }
+
+        @Override
+        public void setBufferSize(int size) {
+        }
+
+        @Override
+        public void flushBuffer() {
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public void resetBuffer() {
+        }
+    }
+}
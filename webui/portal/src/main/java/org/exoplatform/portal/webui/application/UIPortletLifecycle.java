@@ -159,6 +159,9 @@ public class UIPortletLifecycle<S, C extends Serializable, I> extends Lifecycle<
      * 1) Create a RenderInput object and fill it with all the Request information 2) Call the portletContainer.render() method
      * of the Portlet Container to get the HTML generated fragment 3) Then if the current request is an AJAX one, just write in
      * the buffer the content returned by the portlet container 4) If not AJAX, then merge the content with the UIPortlet.gtmpl
+     *
+     * When the parallel render is enabled the portlet container invocation of step 2 may already have been scheduled by the
+     * {@link PortletRenderScheduler}, in which case its response is awaited.
      */
     public void processRender(UIPortlet<S, C> uicomponent, WebuiRequestContext context) throws Exception {
         PortalRequestContext prcontext = (PortalRequestContext) context;
@@ -176,8 +179,6 @@ public class UIPortletLifecycle<S, C extends Serializable, I> extends Lifecycle<
                 }
             }
 
-            RenderInvocation renderInvocation = uicomponent.create(RenderInvocation.class, prcontext);
-
             String appStatus = uicomponent.getProperties().get("appStatus");
             if ("Window".equals(uicomponent.getPortletStyle()) && !("SHOW".equals(appStatus) || "HIDE".equals(appStatus))) {
                 markup = Text.create("<span></span>");
@@ -185,7 +186,13 @@ public class UIPortletLifecycle<S, C extends Serializable, I> extends Lifecycle<
                 // Check mode of portal, portlet and permission for viewable
                 if ((Util.getUIPortalApplication().getEditMode() != EditMode.BLOCK || uicomponent.getCurrentPortletMode()
                         .equals(PortletMode.EDIT)) && uicomponent.hasAccessPermission()) {
-                    PortletInvocationResponse response = uicomponent.invoke(renderInvocation);
+                    // Use the response of the parallel render if it was scheduled for this portlet
+                    PortletInvocationResponse response = PortletRenderScheduler.getInstance().getResponse(uicomponent,
+                            prcontext);
+                    if (response == null) {
+                        RenderInvocation renderInvocation = uicomponent.create(RenderInvocation.class, prcontext);
+                        response = uicomponent.invoke(renderInvocation);
+                    }
                     markup = uicomponent.generateRenderMarkup(response, prcontext);
                 } else {
                     uicomponent.setConfiguredTitle(null);
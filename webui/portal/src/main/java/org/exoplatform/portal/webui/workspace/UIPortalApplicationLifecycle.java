@@ -23,7 +23,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.exoplatform.commons.utils.PortalPrinter;
+import org.exoplatform.commons.utils.PropertyManager;
 import org.exoplatform.portal.application.PortalRequestContext;
+import org.exoplatform.portal.webui.application.PortletRenderScheduler;
 import org.exoplatform.resolver.ResourceResolver;
 import org.exoplatform.webui.application.WebuiRequestContext;
 import org.exoplatform.webui.core.UIComponent;
@@ -35,6 +37,16 @@ import org.exoplatform.webui.core.lifecycle.WebuiBindingContext;
  */
 public class UIPortalApplicationLifecycle extends Lifecycle<UIPortalApplication> {
 
+    /**
+     * Enables the early flush of the page head: the start of the head that does not depend on the portlets (doctype,
+     * charset and portal skins) is sent before the portlets are rendered so that the browser can load the skins
+     * meanwhile, false by default.
+     */
+    public static final String EARLY_FLUSH_PROPERTY = "gatein.portal.render.early_flush";
+
+    /** . */
+    private static final String HEAD_TEMPLATE = "system:/groovy/portal/webui/workspace/UIPortalApplicationHead.gtmpl";
+
     public void processDecode(UIPortalApplication uicomponent, WebuiRequestContext context) throws Exception {
         String componentId = context.getRequestParameter(context.getUIComponentIdParameterName());
         if (componentId == null)
@@ -89,11 +101,34 @@ public class UIPortalApplicationLifecycle extends Lifecycle<UIPortalApplication>
         PortalPrinter parentWriter = new PortalPrinter(responseOutputStream, true, 5000);
         PortalPrinter childWriter = new PortalPrinter(responseOutputStream, true, 25000, true);
 
+        // The start of the head is rendered and sent first, the rest of the head still follows the render of the portlets
+        // since the portlets can contribute the title, meta information, skins, scripts and markup headers
+        boolean headFlushed = Boolean.valueOf(PropertyManager.getProperty(EARLY_FLUSH_PROPERTY));
+        if (headFlushed) {
+            context.setWriter(parentWriter);
+            processRender(uicomponent, context, HEAD_TEMPLATE, false);
+            try {
+                parentWriter.flushOutputStream();
+            } catch (IOException ioe) {
+                if (!ioe.getClass().toString().contains("ClientAbortException")) {
+                    throw ioe;
+                }
+            }
+        }
+
+        // Start the render of the portlets of the page when the parallel render is enabled
+        PortletRenderScheduler scheduler = PortletRenderScheduler.getInstance();
+        scheduler.schedule(uicomponent, prc);
+
         context.setWriter(childWriter);
-        processRender(uicomponent, context, "system:/groovy/portal/webui/workspace/UIPortalApplicationChildren.gtmpl");
+        try {
+            processRender(uicomponent, context, "system:/groovy/portal/webui/workspace/UIPortalApplicationChildren.gtmpl");
+        } finally {
+            scheduler.clear(prc);
+        }
 
         context.setWriter(parentWriter);
-        processRender(uicomponent, context, "system:/groovy/portal/webui/workspace/UIPortalApplication.gtmpl");
+        processRender(uicomponent, context, "system:/groovy/portal/webui/workspace/UIPortalApplication.gtmpl", headFlushed);
 
         try {
             // flush the parent writer to the output stream so that we are really to accept the child content
@@ -111,6 +146,11 @@ public class UIPortalApplicationLifecycle extends Lifecycle<UIPortalApplication>
     }
 
     public void processRender(UIPortalApplication uicomponent, WebuiRequestContext context, String template) throws Exception {
+        processRender(uicomponent, context, template, false);
+    }
+
+    private void processRender(UIPortalApplication uicomponent, WebuiRequestContext context, String template,
+            boolean headFlushed) throws Exception {
         // Fail if we have no template
         if (template == null) {
             throw new IllegalStateException("uicomponent " + uicomponent + " with class " + uicomponent.getClass().getName()
@@ -121,6 +161,7 @@ public class UIPortalApplicationLifecycle extends Lifecycle<UIPortalApplication>
         ResourceResolver resolver = uicomponent.getTemplateResourceResolver(context, template);
         WebuiBindingContext bcontext = new WebuiBindingContext(resolver, context.getWriter(), uicomponent, context);
         bcontext.put(UIComponent.UICOMPONENT, uicomponent);
+        bcontext.put("headFlushed", headFlushed);
         renderTemplate(template, bcontext);
     }
 
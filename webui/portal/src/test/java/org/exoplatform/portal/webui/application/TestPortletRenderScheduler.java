@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2013 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.webui.application;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+import org.exoplatform.portal.application.PortalRequestContext;
+import org.exoplatform.web.application.JavascriptManager;
+import org.gatein.pc.api.invocation.response.PortletInvocationResponse;
+
+public class TestPortletRenderScheduler extends AbstractGateInTest {
+
+    /** . */
+    private PortalRequestContext context;
+
+    /** . */
+    private JavascriptManager javascript;
+
+    @Override
+    protected void setUp() throws Exception {
+        javascript = new JavascriptManager();
+        context = mock(PortalRequestContext.class);
+        when(context.getJavascriptManager()).thenReturn(javascript);
+    }
+
+    /** Returns a response on the thread of the scheduler and records that thread. */
+    private static class Task implements Callable<PortletInvocationResponse> {
+
+        /** . */
+        final PortletInvocationResponse response = mock(PortletInvocationResponse.class);
+
+        /** . */
+        final CountDownLatch started = new CountDownLatch(1);
+
+        /** . */
+        final CountDownLatch release;
+
+        /** . */
+        final CountDownLatch done = new CountDownLatch(1);
+
+        /** . */
+        volatile Thread thread;
+
+        /** . */
+        volatile boolean interrupted;
+
+        private Task(CountDownLatch release) {
+            this.release = release;
+        }
+
+        public PortletInvocationResponse call() throws Exception {
+            thread = Thread.currentThread();
+            started.countDown();
+            try {
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                return response;
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    private PortletRenderScheduler.Schedule schedule(PortletRenderScheduler scheduler, long timeout, String id,
+            Task render, String script) {
+        PortletRenderScheduler.Schedule schedule = (PortletRenderScheduler.Schedule) context
+                .getAttribute(PortletRenderScheduler.SCHEDULE_ATTRIBUTE);
+        if (schedule == null) {
+            schedule = new PortletRenderScheduler.Schedule(System.currentTimeMillis() + timeout);
+            context.setAttribute(PortletRenderScheduler.SCHEDULE_ATTRIBUTE, schedule);
+        }
+        JavascriptManager portletJavascript = new JavascriptManager();
+        portletJavascript.addJavascript(script);
+        Future<PortletInvocationResponse> future = scheduler.submit(render);
+        schedule.renders.put(id, new PortletRenderScheduler.Render(future, portletJavascript));
+        return schedule;
+    }
+
+    public void testDisabled() throws Exception {
+        PortletRenderScheduler scheduler = new PortletRenderScheduler(false, 4, 1000);
+        assertFalse(scheduler.isEnabled());
+
+        // Nothing is scheduled, the portlets are rendered sequentially
+        scheduler.schedule(null, context);
+        assertNull(context.getAttribute(PortletRenderScheduler.SCHEDULE_ATTRIBUTE));
+        assertNull(scheduler.getResponse("portlet", context));
+        scheduler.clear(context);
+    }
+
+    public void testResponse() throws Exception {
+        PortletRenderScheduler scheduler = new PortletRenderScheduler(true, 2, 10000);
+        assertTrue(scheduler.isEnabled());
+        Task render1 = new Task(new CountDownLatch(0));
+        Task render2 = new Task(new CountDownLatch(0));
+        schedule(scheduler, 10000, "portlet1", render1, "portlet1()");
+        schedule(scheduler, 10000, "portlet2", render2, "portlet2()");
+
+        //
+        assertSame(render1.response, scheduler.getResponse("portlet1", context));
+        assertSame(render2.response, scheduler.getResponse("portlet2", context));
+        assertNotSame(Thread.currentThread(), render1.thread);
+        assertNotSame(Thread.currentThread(), render2.thread);
+
+        // The scripts of the portlets are added to the page in the order of the responses
+        String scripts = javascript.getJavaScripts();
+        assertTrue(scripts.indexOf("portlet1()") != -1);
+        assertTrue(scripts.indexOf("portlet1()") < scripts.indexOf("portlet2()"));
+
+        // A response is consumed once, the portlet is otherwise rendered sequentially
+        assertNull(scheduler.getResponse("portlet1", context));
+        assertNull(scheduler.getResponse("portlet3", context));
+        scheduler.clear(context);
+        assertNull(context.getAttribute(PortletRenderScheduler.SCHEDULE_ATTRIBUTE));
+    }
+
+    public void testTimeout() throws Exception {
+        PortletRenderScheduler scheduler = new PortletRenderScheduler(true, 1, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        Task render = new Task(release);
+        schedule(scheduler, 100, "portlet", render, "portlet()");
+        assertTrue(render.started.await(10, TimeUnit.SECONDS));
+
+        //
+        try {
+            scheduler.getResponse("portlet", context);
+            fail();
+        } catch (TimeoutException expected) {
+        }
+
+        // The render is not interrupted, it completes and its response and scripts are ignored
+        release.countDown();
+        assertTrue(render.done.await(10, TimeUnit.SECONDS));
+        assertFalse(render.interrupted);
+        assertEquals(-1, javascript.getJavaScripts().indexOf("portlet()"));
+        assertNull(scheduler.getResponse("portlet", context));
+    }
+
+    public void testClear() throws Exception {
+        PortletRenderScheduler scheduler = new PortletRenderScheduler(true, 1, 10000);
+        CountDownLatch release = new CountDownLatch(1);
+        Task running = new Task(release);
+        Task pending = new Task(new CountDownLatch(0));
+        schedule(scheduler, 10000, "running", running, "running()");
+        PortletRenderScheduler.Schedule schedule = schedule(scheduler, 10000, "pending", pending, "pending()");
+        assertTrue(running.started.await(10, TimeUnit.SECONDS));
+
+        // The page is rendered without consuming the responses
+        scheduler.clear(context);
+        assertNull(context.getAttribute(PortletRenderScheduler.SCHEDULE_ATTRIBUTE));
+        assertTrue(schedule.renders.get("pending").future.isCancelled());
+
+        // The started render completes without being interrupted
+        release.countDown();
+        assertTrue(running.done.await(10, TimeUnit.SECONDS));
+        assertFalse(running.interrupted);
+        assertNull(pending.thread);
+    }
+}